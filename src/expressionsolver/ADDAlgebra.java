@@ -0,0 +1,64 @@
+package expressionsolver;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import org.nfunk.jep.ParseException;
+
+import expressionsolver.formula.Algebra;
+import expressionsolver.functions.ADDPower;
+
+/**
+ * Interpretation of formulas as functions (ADDs), with the same semantics
+ * as the JEP-based ADD parser.
+ */
+class ADDAlgebra implements Algebra<ADD> {
+
+    private JADD jadd;
+    private ADDPower power;
+
+    public ADDAlgebra(JADD jadd) {
+        this.jadd = jadd;
+        this.power = new ADDPower(jadd);
+    }
+
+    @Override
+    public ADD constant(double value) {
+        return jadd.makeConstant(value);
+    }
+
+    @Override
+    public ADD add(ADD left, ADD right) {
+        return left.plus(right);
+    }
+
+    @Override
+    public ADD subtract(ADD left, ADD right) {
+        return left.minus(right);
+    }
+
+    @Override
+    public ADD multiply(ADD left, ADD right) {
+        return left.times(right);
+    }
+
+    @Override
+    public ADD divide(ADD left, ADD right) {
+        return left.dividedBy(right);
+    }
+
+    @Override
+    public ADD power(ADD base, ADD exponent) {
+        try {
+            return (ADD) power.power(base, exponent);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ADD negate(ADD operand) {
+        return operand.negate();
+    }
+
+}
@@ -0,0 +1,45 @@
+package expressionsolver;
+
+import expressionsolver.formula.Algebra;
+
+/**
+ * Floating-point interpretation of formulas.
+ */
+class DoubleAlgebra implements Algebra<Double> {
+
+    @Override
+    public Double constant(double value) {
+        return value;
+    }
+
+    @Override
+    public Double add(Double left, Double right) {
+        return left + right;
+    }
+
+    @Override
+    public Double subtract(Double left, Double right) {
+        return left - right;
+    }
+
+    @Override
+    public Double multiply(Double left, Double right) {
+        return left * right;
+    }
+
+    @Override
+    public Double divide(Double left, Double right) {
+        return left / right;
+    }
+
+    @Override
+    public Double power(Double base, Double exponent) {
+        return Math.pow(base, exponent);
+    }
+
+    @Override
+    public Double negate(Double operand) {
+        return -operand;
+    }
+
+}
@@ -6,12 +6,18 @@ import java.util.logging.Logger;
 import org.nfunk.jep.JEP;
 import org.nfunk.jep.SymbolTable;
 
+import expressionsolver.formula.Algebra;
+import expressionsolver.formula.Formula;
+
 public class Expression<T> {
     private static final Logger LOGGER = Logger.getLogger(Expression.class.getName());
 
     private JEP parser;
     private Class<? extends T> type;
 
+    private Formula formula;
+    private Algebra<T> algebra;
+
     /**
      * Creates a new Expression with the underlying {@code parser},
      * which operates on the given {@code type} (e.g., Double, ADD).
@@ -22,6 +28,17 @@ public class Expression<T> {
         this.type = type;
     }
 
+    /**
+     * Creates a new Expression backed by an already built {@code formula},
+     * whose operations are interpreted according to {@code algebra}.
+     *
+     * Unlike JEP-backed expressions, these can be solved concurrently.
+     */
+    public Expression(Formula formula, Algebra<T> algebra) {
+        this.formula = formula;
+        this.algebra = algebra;
+    }
+
     /**
      * Solves an expression with respect to the given interpretation of variables.
      * Here, variables are interpreted in the algebraic sense, not as boolean ADD-variables.
@@ -34,6 +51,9 @@ public class Expression<T> {
      *          for type {@code T}.
      */
     public T solve(Map<String, T> interpretation) {
+        if (formula != null) {
+            return formula.evaluate(algebra, interpretation);
+        }
         SymbolTable symbolTable = parser.getSymbolTable();
         for (Object var: symbolTable.keySet()) {
             String varName = (String)var;
@@ -13,6 +13,8 @@ import org.nfunk.jep.JEP;
 import org.nfunk.jep.SymbolTable;
 import org.nfunk.jep.type.DoubleNumberFactory;
 
+import expressionsolver.formula.Algebra;
+import expressionsolver.formula.Formula;
 import expressionsolver.functions.ADDAdd;
 import expressionsolver.functions.ADDDivide;
 import expressionsolver.functions.ADDMultiply;
@@ -30,13 +32,17 @@ import expressionsolver.functions.UnaryMinus;
 public class ExpressionSolver {
     private static final Logger LOGGER = Logger.getLogger(ExpressionSolver.class.getName());
 
+    private static final Algebra<Double> DOUBLE_ALGEBRA = new DoubleAlgebra();
+
     private JADD jadd;
+    private Algebra<ADD> addAlgebra;
 
     /**
      * Solves expressions using the provided ADD manager.
      */
     public ExpressionSolver(JADD jadd) {
         this.jadd = jadd;
+        this.addAlgebra = new ADDAlgebra(jadd);
     }
 
     /**
@@ -97,6 +103,18 @@ public class ExpressionSolver {
         return solveExpression(expression, new HashMap<String, Double>());
     }
 
+    /**
+     * Same as {@link #solveExpression(String, Map)}, but for an already
+     * built formula, which needs no parsing.
+     */
+    public Double solveExpression(Formula formula, Map<String, Double> interpretation) {
+        return formula.evaluate(DOUBLE_ALGEBRA, interpretation);
+    }
+
+    public Double solveExpression(Formula formula) {
+        return solveExpression(formula, new HashMap<String, Double>());
+    }
+
     /**
      * Encodes a propositional logic formula as a 0,1-ADD, which is roughly
      * equivalent to a BDD, but better suited to representing boolean functions
@@ -178,6 +196,21 @@ public class ExpressionSolver {
         return new Expression<ADD>(parser, ADD.class);
     }
 
+    /**
+     * Wraps an already built formula as a floating-point expression.
+     * Evaluation reuses shared subterms and is thread-safe.
+     */
+    public Expression<Double> compileExpression(Formula formula) {
+        return new Expression<Double>(formula, DOUBLE_ALGEBRA);
+    }
+
+    /**
+     * Wraps an already built formula as an expression on functions (ADDs).
+     */
+    public Expression<ADD> compileExpressionForFunctions(Formula formula) {
+        return new Expression<ADD>(formula, addAlgebra);
+    }
+
     /**
      * @param jadd
      */
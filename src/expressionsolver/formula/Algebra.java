@@ -0,0 +1,25 @@
+package expressionsolver.formula;
+
+/**
+ * Arithmetic over some value domain (e.g., Double, ADD), used to evaluate
+ * a {@link Formula} without going through a textual representation.
+ *
+ * @param <T> Type of the values.
+ */
+public interface Algebra<T> {
+
+    public T constant(double value);
+
+    public T add(T left, T right);
+
+    public T subtract(T left, T right);
+
+    public T multiply(T left, T right);
+
+    public T divide(T left, T right);
+
+    public T power(T base, T exponent);
+
+    public T negate(T operand);
+
+}
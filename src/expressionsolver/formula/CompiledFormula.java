@@ -0,0 +1,92 @@
+package expressionsolver.formula;
+
+import expressionsolver.formula.Formula.Operator;
+
+/**
+ * Floating-point form of a {@link Formula} whose variables are bound to
+ * slots of a {@code double[]} environment, so that evaluating it takes
+ * neither maps nor boxed values.
+ *
+ * Instances are created by {@link Formula#compile(java.util.Map)}, are
+ * immutable and can be evaluated concurrently.
+ */
+public final class CompiledFormula {
+
+    private final Operator[] operators;
+    private final int[] left;
+    private final int[] right;
+    private final double[] constants;
+    /**
+     * Environment slot of each variable node (unused for the other nodes).
+     */
+    private final int[] slots;
+
+    CompiledFormula(Operator[] operators, int[] left, int[] right, double[] constants, int[] slots) {
+        this.operators = operators;
+        this.left = left;
+        this.right = right;
+        this.constants = constants;
+        this.slots = slots;
+    }
+
+    /**
+     * @param environment values of the variables, indexed by their slots.
+     */
+    public double evaluate(double[] environment) {
+        double[] values = new double[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            values[i] = evaluateNode(i, values, environment);
+        }
+        return values[operators.length - 1];
+    }
+
+    /**
+     * @return the number of distinct nodes in this formula.
+     */
+    public int size() {
+        return operators.length;
+    }
+
+    /**
+     * Computes the value of a node, given the ones of its operands.
+     */
+    double evaluateNode(int i, double[] values, double[] environment) {
+        switch (operators[i]) {
+        case CONSTANT:
+            return constants[i];
+        case VARIABLE:
+            return environment[slots[i]];
+        case NEGATE:
+            return -values[left[i]];
+        case ADD:
+            return values[left[i]] + values[right[i]];
+        case SUBTRACT:
+            return values[left[i]] - values[right[i]];
+        case MULTIPLY:
+            return values[left[i]] * values[right[i]];
+        case DIVIDE:
+            return values[left[i]] / values[right[i]];
+        case POWER:
+            return Math.pow(values[left[i]], values[right[i]]);
+        default:
+            throw new IllegalStateException("Unknown operator at node " + i);
+        }
+    }
+
+    Operator getOperator(int node) {
+        return operators[node];
+    }
+
+    int getLeft(int node) {
+        return left[node];
+    }
+
+    int getRight(int node) {
+        return right[node];
+    }
+
+    int getSlot(int node) {
+        return slots[node];
+    }
+
+}
@@ -0,0 +1,299 @@
+package expressionsolver.formula;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Immutable arithmetic expression represented as a DAG.
+ *
+ * Nodes are stored in flat arrays in topological order (operands always
+ * come before the operations using them), with the root as the last node.
+ * Common subterms are represented only once and variable names are interned,
+ * so evaluation is a single loop over the nodes, regardless of how many
+ * times a subterm is referenced.
+ *
+ * Instances are created by a {@link FormulaBuilder}, usually through a
+ * {@link FormulaParser}.
+ */
+public final class Formula {
+    private static final Logger LOGGER = Logger.getLogger(Formula.class.getName());
+
+    public enum Operator {
+        CONSTANT(4),
+        VARIABLE(4),
+        ADD(1),
+        SUBTRACT(1),
+        MULTIPLY(2),
+        DIVIDE(2),
+        NEGATE(3),
+        POWER(4);
+
+        private final int precedence;
+
+        private Operator(int precedence) {
+            this.precedence = precedence;
+        }
+
+        boolean isBinary() {
+            return this != CONSTANT && this != VARIABLE && this != NEGATE;
+        }
+    }
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final byte[] operators;
+    private final int[] left;
+    private final int[] right;
+    private final double[] constants;
+    private final String[] variables;
+    /**
+     * Index of the last node which uses each node as an operand,
+     * so that intermediate values can be released as soon as possible.
+     */
+    private final int[] lastUse;
+
+    Formula(byte[] operators, int[] left, int[] right, double[] constants, String[] variables) {
+        this.operators = operators;
+        this.left = left;
+        this.right = right;
+        this.constants = constants;
+        this.variables = variables;
+        this.lastUse = new int[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            Operator operator = getOperator(i);
+            if (operator.isBinary()) {
+                lastUse[left[i]] = i;
+                lastUse[right[i]] = i;
+            } else if (operator == Operator.NEGATE) {
+                lastUse[left[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct nodes in this formula.
+     */
+    public int size() {
+        return operators.length;
+    }
+
+    public boolean isConstant() {
+        for (String variable : variables) {
+            if (variable != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the names of the variables occurring in this formula,
+     *      in order of first occurrence.
+     */
+    public Set<String> getVariables() {
+        Set<String> names = new LinkedHashSet<String>();
+        for (String variable : variables) {
+            if (variable != null) {
+                names.add(variable);
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Evaluates this formula with respect to the given interpretation of
+     * variables, using the operations defined by {@code algebra}.
+     *
+     * Each shared subterm is evaluated only once.
+     *
+     * @return the resulting value or {@code null} if some variable has no
+     *      interpretation.
+     */
+    public <T> T evaluate(Algebra<T> algebra, Map<String, T> interpretation) {
+        Object[] values = new Object[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            T value;
+            switch (getOperator(i)) {
+            case CONSTANT:
+                value = algebra.constant(constants[i]);
+                break;
+            case VARIABLE:
+                value = interpretation.get(variables[i]);
+                if (value == null) {
+                    LOGGER.warning("No interpretation for variable <"+variables[i]+"> was provided");
+                    return null;
+                }
+                break;
+            case NEGATE:
+                value = algebra.negate(valueAt(values, left[i]));
+                break;
+            case ADD:
+                value = algebra.add(valueAt(values, left[i]), valueAt(values, right[i]));
+                break;
+            case SUBTRACT:
+                value = algebra.subtract(valueAt(values, left[i]), valueAt(values, right[i]));
+                break;
+            case MULTIPLY:
+                value = algebra.multiply(valueAt(values, left[i]), valueAt(values, right[i]));
+                break;
+            case DIVIDE:
+                value = algebra.divide(valueAt(values, left[i]), valueAt(values, right[i]));
+                break;
+            case POWER:
+                value = algebra.power(valueAt(values, left[i]), valueAt(values, right[i]));
+                break;
+            default:
+                throw new IllegalStateException("Unknown operator at node " + i);
+            }
+            values[i] = value;
+            releaseOperands(values, i);
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) values[operators.length - 1];
+        return result;
+    }
+
+    /**
+     * Binds the variables of this formula to slots of a {@code double[]}
+     * environment, for repeated floating-point evaluation.
+     *
+     * @param slots maps each variable of this formula to its slot.
+     * @throws IllegalArgumentException if some variable has no slot.
+     */
+    public CompiledFormula compile(Map<String, Integer> slots) {
+        Operator[] compiledOperators = new Operator[operators.length];
+        int[] variableSlots = new int[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            compiledOperators[i] = getOperator(i);
+            if (compiledOperators[i] == Operator.VARIABLE) {
+                Integer slot = slots.get(variables[i]);
+                if (slot == null) {
+                    throw new IllegalArgumentException("No slot for variable <" + variables[i] + ">");
+                }
+                variableSlots[i] = slot;
+            }
+        }
+        return new CompiledFormula(compiledOperators, left, right, constants, variableSlots);
+    }
+
+    Operator getOperator(int node) {
+        return OPERATORS[operators[node]];
+    }
+
+    int getLeft(int node) {
+        return left[node];
+    }
+
+    int getRight(int node) {
+        return right[node];
+    }
+
+    double getConstant(int node) {
+        return constants[node];
+    }
+
+    String getVariable(int node) {
+        return variables[node];
+    }
+
+    private void releaseOperands(Object[] values, int node) {
+        Operator operator = getOperator(node);
+        if (operator.isBinary() || operator == Operator.NEGATE) {
+            if (lastUse[left[node]] == node) {
+                values[left[node]] = null;
+            }
+            if (operator.isBinary() && lastUse[right[node]] == node) {
+                values[right[node]] = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T valueAt(Object[] values, int node) {
+        return (T) values[node];
+    }
+
+    /**
+     * Prints this formula in infix notation, parseable both by
+     * {@link FormulaParser} and by JEP. Shared subterms are expanded,
+     * so the output may be much larger than the formula itself.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        // Iterative in-order traversal, so that long chains of operations
+        // do not overflow the stack. Strings in the stack are pending text.
+        Deque<Object> pending = new ArrayDeque<Object>();
+        pending.push(operators.length - 1);
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof String) {
+                out.append((String) next);
+                continue;
+            }
+            int node = (Integer) next;
+            Operator operator = getOperator(node);
+            switch (operator) {
+            case CONSTANT:
+                out.append(formatConstant(constants[node]));
+                break;
+            case VARIABLE:
+                out.append(variables[node]);
+                break;
+            case NEGATE:
+                out.append('-');
+                pushOperand(pending, left[node], operator.precedence, false);
+                break;
+            default:
+                pushOperand(pending, right[node], operator.precedence, true);
+                pending.push(symbol(operator));
+                pushOperand(pending, left[node], operator.precedence, operator == Operator.POWER);
+            }
+        }
+        return out.toString();
+    }
+
+    private void pushOperand(Deque<Object> pending, int operand, int parentPrecedence, boolean strict) {
+        Operator operator = getOperator(operand);
+        int precedence = operator.precedence;
+        boolean needsParentheses = precedence < parentPrecedence
+                || (strict && precedence == parentPrecedence && operator.isBinary())
+                || (operator == Operator.CONSTANT && constants[operand] < 0);
+        if (needsParentheses) {
+            pending.push(")");
+            pending.push(operand);
+            pending.push("(");
+        } else {
+            pending.push(operand);
+        }
+    }
+
+    private static String symbol(Operator operator) {
+        switch (operator) {
+        case ADD:
+            return "+";
+        case SUBTRACT:
+            return "-";
+        case MULTIPLY:
+            return "*";
+        case DIVIDE:
+            return "/";
+        default:
+            return "^";
+        }
+    }
+
+    private static String formatConstant(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+}
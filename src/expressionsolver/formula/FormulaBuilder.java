@@ -0,0 +1,184 @@
+package expressionsolver.formula;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import expressionsolver.formula.Formula.Operator;
+
+/**
+ * Hash-consing builder of {@link Formula}s.
+ *
+ * Every call returns a handle to a node, and structurally equal nodes are
+ * created only once, so that repeated subterms end up shared in the
+ * resulting DAG. Variable names are interned.
+ *
+ * Builders are not thread-safe.
+ */
+public class FormulaBuilder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] operators = new byte[INITIAL_CAPACITY];
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private double[] constants = new double[INITIAL_CAPACITY];
+    private String[] variables = new String[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private Map<Long, Integer> constantNodes = new HashMap<Long, Integer>();
+    private Map<String, Integer> variableNodes = new HashMap<String, Integer>();
+    private Map<Long, Integer> operationNodes = new HashMap<Long, Integer>();
+
+    public int constant(double value) {
+        Long key = Double.doubleToLongBits(value);
+        Integer node = constantNodes.get(key);
+        if (node == null) {
+            node = newNode(Operator.CONSTANT, -1, -1);
+            constants[node] = value;
+            constantNodes.put(key, node);
+        }
+        return node;
+    }
+
+    public int variable(String name) {
+        Integer node = variableNodes.get(name);
+        if (node == null) {
+            node = newNode(Operator.VARIABLE, -1, -1);
+            variables[node] = name.intern();
+            variableNodes.put(variables[node], node);
+        }
+        return node;
+    }
+
+    public int negate(int operand) {
+        return operation(Operator.NEGATE, operand, 0);
+    }
+
+    public int add(int left, int right) {
+        return operation(Operator.ADD, left, right);
+    }
+
+    public int subtract(int left, int right) {
+        return operation(Operator.SUBTRACT, left, right);
+    }
+
+    public int multiply(int left, int right) {
+        return operation(Operator.MULTIPLY, left, right);
+    }
+
+    public int divide(int left, int right) {
+        return operation(Operator.DIVIDE, left, right);
+    }
+
+    public int power(int base, int exponent) {
+        return operation(Operator.POWER, base, exponent);
+    }
+
+    /**
+     * Builds the formula rooted at the given node. Nodes which are not
+     * reachable from the root are left out.
+     */
+    public Formula build(int root) {
+        checkNode(root);
+        if (root == size - 1 && allReachable(root)) {
+            return new Formula(Arrays.copyOf(operators, size),
+                               Arrays.copyOf(left, size),
+                               Arrays.copyOf(right, size),
+                               Arrays.copyOf(constants, size),
+                               Arrays.copyOf(variables, size));
+        }
+        return buildReachable(root);
+    }
+
+    private int operation(Operator operator, int leftOperand, int rightOperand) {
+        checkNode(leftOperand);
+        if (operator != Operator.NEGATE) {
+            checkNode(rightOperand);
+        }
+        Long key = ((long) operator.ordinal() << 58)
+                | ((long) leftOperand << 29)
+                | rightOperand;
+        Integer node = operationNodes.get(key);
+        if (node == null) {
+            node = newNode(operator, leftOperand, rightOperand);
+            operationNodes.put(key, node);
+        }
+        return node;
+    }
+
+    private int newNode(Operator operator, int leftOperand, int rightOperand) {
+        if (size == operators.length) {
+            int capacity = operators.length * 2;
+            operators = Arrays.copyOf(operators, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            constants = Arrays.copyOf(constants, capacity);
+            variables = Arrays.copyOf(variables, capacity);
+        }
+        operators[size] = (byte) operator.ordinal();
+        left[size] = leftOperand;
+        right[size] = rightOperand;
+        return size++;
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= size || node >= (1 << 29)) {
+            throw new IllegalArgumentException("Invalid formula node: " + node);
+        }
+    }
+
+    private boolean[] markReachable(int root) {
+        boolean[] reachable = new boolean[root + 1];
+        reachable[root] = true;
+        for (int i = root; i >= 0; i--) {
+            if (reachable[i]) {
+                Operator operator = Operator.values()[operators[i]];
+                if (operator == Operator.NEGATE) {
+                    reachable[left[i]] = true;
+                } else if (operator.isBinary()) {
+                    reachable[left[i]] = true;
+                    reachable[right[i]] = true;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private boolean allReachable(int root) {
+        for (boolean reachable : markReachable(root)) {
+            if (!reachable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Formula buildReachable(int root) {
+        boolean[] reachable = markReachable(root);
+        int[] renaming = new int[root + 1];
+        int count = 0;
+        for (int i = 0; i <= root; i++) {
+            if (reachable[i]) {
+                renaming[i] = count++;
+            }
+        }
+        byte[] newOperators = new byte[count];
+        int[] newLeft = new int[count];
+        int[] newRight = new int[count];
+        double[] newConstants = new double[count];
+        String[] newVariables = new String[count];
+        for (int i = 0; i <= root; i++) {
+            if (reachable[i]) {
+                int node = renaming[i];
+                Operator operator = Operator.values()[operators[i]];
+                newOperators[node] = operators[i];
+                newConstants[node] = constants[i];
+                newVariables[node] = variables[i];
+                newLeft[node] = (operator.isBinary() || operator == Operator.NEGATE) ? renaming[left[i]] : -1;
+                newRight[node] = operator.isBinary() ? renaming[right[i]] : -1;
+            }
+        }
+        return new Formula(newOperators, newLeft, newRight, newConstants, newVariables);
+    }
+
+}
@@ -0,0 +1,205 @@
+package expressionsolver.formula;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Streaming parser of arithmetic expressions, as output by parametric
+ * model checkers.
+ *
+ * The input is consumed character by character, so the textual formula is
+ * never held in memory as a whole. Whitespace is ignored, juxtaposition
+ * denotes multiplication (as in JEP) and both '/' and '|' denote division
+ * (the latter being PRISM's notation for rational functions).
+ * Parsing stops at the end of input or at a closing curly brace.
+ *
+ * Operator precedence follows JEP: '^' (right-associative) binds tighter
+ * than unary minus, which binds tighter than '*' and '/', which in turn
+ * bind tighter than '+' and '-'.
+ */
+public class FormulaParser {
+    private static final int END = -1;
+
+    private Reader input;
+    private FormulaBuilder builder;
+    private int lookahead;
+    private long offset = -1;
+
+    private FormulaParser(Reader input, FormulaBuilder builder) {
+        this.input = input;
+        this.builder = builder;
+    }
+
+    /**
+     * Parses an expression from {@code input}. The reader is not closed.
+     *
+     * @throws IOException if the input cannot be read or is not a
+     *      well-formed expression.
+     */
+    public static Formula parse(Reader input) throws IOException {
+        FormulaBuilder builder = new FormulaBuilder();
+        Reader bufferedInput = (input instanceof BufferedReader || input instanceof StringReader)
+                ? input
+                : new BufferedReader(input);
+        FormulaParser parser = new FormulaParser(bufferedInput, builder);
+        parser.advance();
+        int root = parser.parseExpression();
+        if (parser.lookahead != END && parser.lookahead != '}') {
+            throw parser.error("Unexpected character '" + (char) parser.lookahead + "'");
+        }
+        return builder.build(root);
+    }
+
+    public static Formula parse(String expression) throws IOException {
+        return parse(new StringReader(expression));
+    }
+
+    private int parseExpression() throws IOException {
+        int result = parseTerm();
+        while (lookahead == '+' || lookahead == '-') {
+            boolean isSum = lookahead == '+';
+            advance();
+            int operand = parseTerm();
+            result = isSum ? builder.add(result, operand) : builder.subtract(result, operand);
+        }
+        return result;
+    }
+
+    private int parseTerm() throws IOException {
+        int result = parseUnary();
+        while (true) {
+            if (lookahead == '*') {
+                advance();
+                result = builder.multiply(result, parseUnary());
+            } else if (lookahead == '/' || lookahead == '|') {
+                advance();
+                result = builder.divide(result, parseUnary());
+            } else if (startsPrimary(lookahead)) {
+                // Implicit multiplication
+                result = builder.multiply(result, parseUnary());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private int parseUnary() throws IOException {
+        if (lookahead == '-') {
+            advance();
+            return builder.negate(parseUnary());
+        } else if (lookahead == '+') {
+            advance();
+            return parseUnary();
+        }
+        return parsePower();
+    }
+
+    private int parsePower() throws IOException {
+        int base = parsePrimary();
+        if (lookahead == '^') {
+            advance();
+            return builder.power(base, parseUnary());
+        }
+        return base;
+    }
+
+    private int parsePrimary() throws IOException {
+        if (lookahead == '(') {
+            advance();
+            int result = parseExpression();
+            expect(')');
+            return result;
+        } else if (isDigit(lookahead) || lookahead == '.') {
+            return builder.constant(parseNumber());
+        } else if (isIdentifierStart(lookahead)) {
+            return builder.variable(parseIdentifier());
+        } else if (lookahead == END) {
+            throw error("Unexpected end of expression");
+        }
+        throw error("Unexpected character '" + (char) lookahead + "'");
+    }
+
+    private double parseNumber() throws IOException {
+        StringBuilder number = new StringBuilder();
+        while (isDigit(lookahead) || lookahead == '.') {
+            number.append((char) lookahead);
+            readRaw();
+        }
+        if (lookahead == 'e' || lookahead == 'E') {
+            number.append((char) lookahead);
+            readRaw();
+            if (lookahead == '+' || lookahead == '-') {
+                number.append((char) lookahead);
+                readRaw();
+            }
+            if (!isDigit(lookahead)) {
+                throw error("Malformed number " + number);
+            }
+            while (isDigit(lookahead)) {
+                number.append((char) lookahead);
+                readRaw();
+            }
+        }
+        skipWhitespace();
+        try {
+            return Double.parseDouble(number.toString());
+        } catch (NumberFormatException e) {
+            throw error("Malformed number " + number);
+        }
+    }
+
+    private String parseIdentifier() throws IOException {
+        StringBuilder identifier = new StringBuilder();
+        while (isIdentifierStart(lookahead) || isDigit(lookahead)) {
+            identifier.append((char) lookahead);
+            readRaw();
+        }
+        skipWhitespace();
+        return identifier.toString();
+    }
+
+    private void expect(char expected) throws IOException {
+        if (lookahead != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        advance();
+    }
+
+    /**
+     * Moves to the next significant character.
+     */
+    private void advance() throws IOException {
+        readRaw();
+        skipWhitespace();
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (lookahead != END && Character.isWhitespace(lookahead)) {
+            readRaw();
+        }
+    }
+
+    private void readRaw() throws IOException {
+        lookahead = input.read();
+        offset++;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at offset " + offset);
+    }
+
+    private static boolean startsPrimary(int c) {
+        return c == '(' || isDigit(c) || c == '.' || isIdentifierStart(c);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -0,0 +1,129 @@
+package expressionsolver.formula;
+
+import java.io.IOException;
+
+import expressionsolver.formula.Formula.Operator;
+
+/**
+ * Single-line textual form of a {@link Formula} which, unlike its infix
+ * notation, preserves the sharing of subterms (so its size is linear in
+ * the number of nodes) and the exact value of constants.
+ *
+ * Nodes are written in order, separated by spaces, each one as an opcode
+ * followed by its argument: {@code c} and a constant in hexadecimal
+ * floating-point notation, {@code v} and a variable name, {@code n} and an
+ * operand index, or one of {@code a s m d p} (add, subtract, multiply,
+ * divide, power) and two comma-separated operand indices.
+ */
+public final class FormulaSerializer {
+
+    private FormulaSerializer() {
+        // NO-OP
+    }
+
+    public static String serialize(Formula formula) {
+        StringBuilder out = new StringBuilder();
+        for (int node = 0; node < formula.size(); node++) {
+            if (node > 0) {
+                out.append(' ');
+            }
+            Operator operator = formula.getOperator(node);
+            switch (operator) {
+            case CONSTANT:
+                out.append('c').append(Double.toHexString(formula.getConstant(node)));
+                break;
+            case VARIABLE:
+                String variable = formula.getVariable(node);
+                if (variable.isEmpty() || variable.matches(".*\\s.*")) {
+                    throw new IllegalArgumentException("Variable <" + variable + "> cannot be serialized");
+                }
+                out.append('v').append(variable);
+                break;
+            case NEGATE:
+                out.append('n').append(formula.getLeft(node));
+                break;
+            default:
+                out.append(opcode(operator))
+                    .append(formula.getLeft(node))
+                    .append(',')
+                    .append(formula.getRight(node));
+            }
+        }
+        return out.toString();
+    }
+
+    public static Formula deserialize(String serialized) throws IOException {
+        String[] tokens = serialized.trim().split(" ");
+        FormulaBuilder builder = new FormulaBuilder();
+        // The builder may merge nodes, so indices must be translated.
+        int[] nodes = new int[tokens.length];
+        try {
+            for (int i = 0; i < tokens.length; i++) {
+                String token = tokens[i];
+                String argument = token.substring(1);
+                switch (token.charAt(0)) {
+                case 'c':
+                    nodes[i] = builder.constant(Double.parseDouble(argument));
+                    break;
+                case 'v':
+                    nodes[i] = builder.variable(argument);
+                    break;
+                case 'n':
+                    nodes[i] = builder.negate(operand(nodes, argument, i));
+                    break;
+                default:
+                    int comma = argument.indexOf(',');
+                    int left = operand(nodes, argument.substring(0, comma), i);
+                    int right = operand(nodes, argument.substring(comma + 1), i);
+                    nodes[i] = operation(builder, token.charAt(0), left, right);
+                }
+            }
+            return builder.build(nodes[nodes.length - 1]);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed serialized formula: " + e.getMessage(), e);
+        }
+    }
+
+    private static int operand(int[] nodes, String index, int current) {
+        int operand = Integer.parseInt(index);
+        if (operand < 0 || operand >= current) {
+            throw new IllegalArgumentException("operand " + operand + " of node " + current + " is not a previous node");
+        }
+        return nodes[operand];
+    }
+
+    private static int operation(FormulaBuilder builder, char opcode, int left, int right) {
+        switch (opcode) {
+        case 'a':
+            return builder.add(left, right);
+        case 's':
+            return builder.subtract(left, right);
+        case 'm':
+            return builder.multiply(left, right);
+        case 'd':
+            return builder.divide(left, right);
+        case 'p':
+            return builder.power(left, right);
+        default:
+            throw new IllegalArgumentException("unknown opcode " + opcode);
+        }
+    }
+
+    private static char opcode(Operator operator) {
+        switch (operator) {
+        case ADD:
+            return 'a';
+        case SUBTRACT:
+            return 's';
+        case MULTIPLY:
+            return 'm';
+        case DIVIDE:
+            return 'd';
+        case POWER:
+            return 'p';
+        default:
+            throw new IllegalStateException("Unknown operator " + operator);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package expressionsolver.formula;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import expressionsolver.formula.Formula.Operator;
+
+/**
+ * Self-adjusting evaluator of a {@link CompiledFormula}: it keeps the value
+ * of every node, so that changing some environment slots only recomputes
+ * the nodes which (transitively) depend on them.
+ *
+ * Propagation follows the node order (operands before the operations using
+ * them) and stops at nodes whose values do not change, so the cost of an
+ * evaluation is proportional to the affected part of the formula.
+ *
+ * Evaluators are stateful, thus not thread-safe.
+ */
+public final class IncrementalFormula {
+
+    private final CompiledFormula formula;
+    private final double[] environment;
+    private final double[] values;
+    /**
+     * Nodes which use each node as an operand.
+     */
+    private final int[][] users;
+    /**
+     * Variable nodes bound to each slot.
+     */
+    private final int[][] slotNodes;
+    private final BitSet dirty;
+    private long recomputedNodes = 0;
+
+    public IncrementalFormula(CompiledFormula formula, int slotsNumber) {
+        this.formula = formula;
+        int size = formula.size();
+        this.environment = new double[slotsNumber];
+        this.values = new double[size];
+        this.dirty = new BitSet(size);
+
+        int[] usersNumber = new int[size];
+        int[] slotNodesNumber = new int[slotsNumber];
+        for (int i = 0; i < size; i++) {
+            Operator operator = formula.getOperator(i);
+            if (operator == Operator.VARIABLE) {
+                slotNodesNumber[formula.getSlot(i)]++;
+            } else if (operator != Operator.CONSTANT) {
+                usersNumber[formula.getLeft(i)]++;
+                if (operator != Operator.NEGATE && formula.getRight(i) != formula.getLeft(i)) {
+                    usersNumber[formula.getRight(i)]++;
+                }
+            }
+        }
+        this.users = new int[size][];
+        for (int i = 0; i < size; i++) {
+            users[i] = new int[usersNumber[i]];
+        }
+        this.slotNodes = new int[slotsNumber][];
+        for (int slot = 0; slot < slotsNumber; slot++) {
+            slotNodes[slot] = new int[slotNodesNumber[slot]];
+        }
+        Arrays.fill(usersNumber, 0);
+        Arrays.fill(slotNodesNumber, 0);
+        for (int i = 0; i < size; i++) {
+            Operator operator = formula.getOperator(i);
+            if (operator == Operator.VARIABLE) {
+                int slot = formula.getSlot(i);
+                slotNodes[slot][slotNodesNumber[slot]++] = i;
+            } else if (operator != Operator.CONSTANT) {
+                int left = formula.getLeft(i);
+                users[left][usersNumber[left]++] = i;
+                int right = formula.getRight(i);
+                if (operator != Operator.NEGATE && right != left) {
+                    users[right][usersNumber[right]++] = i;
+                }
+            }
+        }
+        // Every node must be computed once.
+        dirty.set(0, size);
+    }
+
+    /**
+     * Sets the value of an environment slot, to be taken into account by
+     * the next evaluation.
+     */
+    public void set(int slot, double value) {
+        if (Double.compare(environment[slot], value) == 0) {
+            return;
+        }
+        environment[slot] = value;
+        for (int node: slotNodes[slot]) {
+            dirty.set(node);
+        }
+    }
+
+    /**
+     * @return the value of the formula for the current environment.
+     */
+    public double evaluate() {
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            double value = formula.evaluateNode(i, values, environment);
+            recomputedNodes++;
+            if (Double.compare(values[i], value) != 0) {
+                values[i] = value;
+                for (int user: users[i]) {
+                    dirty.set(user);
+                }
+            }
+        }
+        dirty.clear();
+        return values[values.length - 1];
+    }
+
+    /**
+     * @return the number of node computations done so far.
+     */
+    public long getRecomputedNodesNumber() {
+        return recomputedNodes;
+    }
+
+}
@@ -0,0 +1,734 @@
+package fdtmc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, array-based representation of an FDTMC.
+ *
+ * States are plain int ids (equal to the indices of the corresponding
+ * {@link State}s) and transitions are stored in compressed sparse row
+ * (CSR) form: the outgoing transitions of state {@code s} are those in
+ * the range [{@link #getFirstTransition(int) getFirstTransition(s)},
+ * {@link #getTransitionsEnd(int) getTransitionsEnd(s)}), in creation order.
+ * Probability expressions and action names are interned in tables, so
+ * each transition costs three ints. Only labeled states take up label
+ * storage, and labels and action names are indexed for lookup.
+ *
+ * Instances are obtained from {@link FDTMC#compact()} or from a
+ * {@link Builder}, and can be wrapped back into the object API with
+ * {@link FDTMC#FDTMC(CompactFDTMC)}. Since they are immutable, they can
+ * be freely shared (e.g., by copies of an FDTMC).
+ */
+public final class CompactFDTMC implements FDTMCView {
+	private static final int NO_STATE = -1;
+	private static final int INTERFACE_FIELDS = 5;
+
+	private final String variableName;
+	private final int statesNumber;
+	private final int initialState;
+	private final int successState;
+	private final int errorState;
+
+	// Sparse labeling: labeledStates is sorted, stateLabels is parallel to it.
+	private final int[] labeledStates;
+	private final String[] stateLabels;
+
+	// CSR adjacency: transitions of state s lie in [rowOffsets[s], rowOffsets[s+1]).
+	private final int[] rowOffsets;
+	private final int[] targets;
+	private final int[] probabilityIds;
+	private final int[] actionIds;
+	private final String[] probabilities;
+	private final double[] probabilityValues;
+	private final String[] actions;
+
+	// Interfaces, grouped by abstracted id in order of first occurrence.
+	// Each occurrence takes INTERFACE_FIELDS ints: initial, success and
+	// error states, and success and error transitions.
+	private final String[] interfaceIds;
+	private final int[] interfaceData;
+	private final BitSet interfaceTransitions;
+
+	private volatile Map<String, Integer> labelIndex;
+	private volatile Map<String, Integer> actionIndex;
+	private volatile Map<Integer, Integer> interfaceReferences;
+	private int hash;
+	private volatile long structuralHash;
+	private volatile boolean structuralHashComputed;
+
+	private CompactFDTMC(Builder builder, int[] rowOffsets, int[] targets, int[] probabilityIds,
+			int[] actionIds, String[] interfaceIds, int[] interfaceData) {
+		this.variableName = builder.variableName;
+		this.statesNumber = builder.statesNumber;
+		this.initialState = builder.initialState;
+		this.successState = builder.successState;
+		this.errorState = builder.errorState;
+
+		this.labeledStates = new int[builder.labels.size()];
+		this.stateLabels = new String[builder.labels.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> label : builder.labels.entrySet()) {
+			labeledStates[i] = label.getKey();
+			stateLabels[i] = label.getValue();
+			i++;
+		}
+
+		this.rowOffsets = rowOffsets;
+		this.targets = targets;
+		this.probabilityIds = probabilityIds;
+		this.actionIds = actionIds;
+		this.probabilities = builder.probabilities.toArray(new String[builder.probabilities.size()]);
+		this.probabilityValues = new double[probabilities.length];
+		for (int p = 0; p < probabilities.length; p++) {
+			probabilityValues[p] = numericValue(probabilities[p]);
+		}
+		this.actions = builder.actions.toArray(new String[builder.actions.size()]);
+
+		this.interfaceIds = interfaceIds;
+		this.interfaceData = interfaceData;
+		this.interfaceTransitions = new BitSet(targets.length);
+		for (int occurrence = 0; occurrence < interfaceIds.length; occurrence++) {
+			int successTransition = getInterfaceSuccessTransition(occurrence);
+			int errorTransition = getInterfaceErrorTransition(occurrence);
+			if (successTransition >= 0) {
+				interfaceTransitions.set(successTransition);
+			}
+			if (errorTransition >= 0) {
+				interfaceTransitions.set(errorTransition);
+			}
+		}
+	}
+
+	@Override
+	public String getVariableName() {
+		return variableName;
+	}
+
+	@Override
+	public int getStatesNumber() {
+		return statesNumber;
+	}
+
+	public int getTransitionsNumber() {
+		return targets.length;
+	}
+
+	@Override
+	public int getTransitionsNumber(boolean withInterfaceTransitions) {
+		return withInterfaceTransitions ? targets.length : targets.length - interfaceTransitions.cardinality();
+	}
+
+	/**
+	 * @return the initial state, or -1 if there is none.
+	 */
+	@Override
+	public int getInitialState() {
+		return initialState;
+	}
+
+	/**
+	 * @return the success state, or -1 if there is none.
+	 */
+	@Override
+	public int getSuccessState() {
+		return successState;
+	}
+
+	/**
+	 * @return the error state, or -1 if there is none.
+	 */
+	@Override
+	public int getErrorState() {
+		return errorState;
+	}
+
+	/**
+	 * @return the label of {@code state}, or null if it is unlabeled.
+	 */
+	@Override
+	public String getLabel(int state) {
+		int position = Arrays.binarySearch(labeledStates, state);
+		return (position >= 0) ? stateLabels[position] : null;
+	}
+
+	/**
+	 * Number of labeled states. Labeled states can be enumerated
+	 * (in increasing order) with {@link #getLabeledState(int)}.
+	 */
+	public int getLabeledStatesNumber() {
+		return labeledStates.length;
+	}
+
+	public int getLabeledState(int i) {
+		return labeledStates[i];
+	}
+
+	@Override
+	public int[] getLabeledStates() {
+		return labeledStates.clone();
+	}
+
+	/**
+	 * @return the first state with the given label, or -1 if there is none.
+	 */
+	public int getStateByLabel(String label) {
+		Map<String, Integer> index = labelIndex;
+		if (index == null) {
+			index = new HashMap<String, Integer>();
+			for (int i = labeledStates.length - 1; i >= 0; i--) {
+				index.put(stateLabels[i], labeledStates[i]);
+			}
+			labelIndex = index;
+		}
+		Integer state = index.get(label);
+		return (state != null) ? state : NO_STATE;
+	}
+
+	public int getFirstTransition(int state) {
+		return rowOffsets[state];
+	}
+
+	public int getTransitionsEnd(int state) {
+		return rowOffsets[state + 1];
+	}
+
+	public int getOutDegree(int state) {
+		return rowOffsets[state + 1] - rowOffsets[state];
+	}
+
+	@Override
+	public int getOutDegree(int state, boolean withInterfaceTransitions) {
+		int degree = getOutDegree(state);
+		if (!withInterfaceTransitions) {
+			for (int t = interfaceTransitions.nextSetBit(rowOffsets[state]);
+					t >= 0 && t < rowOffsets[state + 1];
+					t = interfaceTransitions.nextSetBit(t + 1)) {
+				degree--;
+			}
+		}
+		return degree;
+	}
+
+	/**
+	 * Finds the source of a transition. This takes logarithmic time, so
+	 * iterating over the transitions of each state should be preferred.
+	 */
+	public int getSource(int transition) {
+		int position = Arrays.binarySearch(rowOffsets, transition);
+		if (position < 0) {
+			return -position - 2;
+		}
+		// Skip states without transitions, which share the same offset.
+		while (rowOffsets[position + 1] == transition) {
+			position++;
+		}
+		return position;
+	}
+
+	public int getTarget(int transition) {
+		return targets[transition];
+	}
+
+	public String getProbability(int transition) {
+		return probabilities[probabilityIds[transition]];
+	}
+
+	/**
+	 * @return the id of the (interned) probability expression of
+	 *          {@code transition}. Transitions with the same expression
+	 *          share the same id.
+	 */
+	public int getProbabilityId(int transition) {
+		return probabilityIds[transition];
+	}
+
+	/**
+	 * Number of distinct probability expressions in this FDTMC.
+	 */
+	public int getProbabilitiesNumber() {
+		return probabilities.length;
+	}
+
+	public String getProbabilityExpression(int probabilityId) {
+		return probabilities[probabilityId];
+	}
+
+	public String getAction(int transition) {
+		return actions[actionIds[transition]];
+	}
+
+	/**
+	 * @return the first transition (in state order) with the given action
+	 *          name, or -1 if there is none.
+	 */
+	public int getTransitionByActionName(String action) {
+		Map<String, Integer> index = actionIndex;
+		if (index == null) {
+			index = new HashMap<String, Integer>();
+			for (int transition = actionIds.length - 1; transition >= 0; transition--) {
+				index.put(actions[actionIds[transition]], transition);
+			}
+			actionIndex = index;
+		}
+		Integer transition = index.get(action);
+		return (transition != null) ? transition : -1;
+	}
+
+	public boolean isInterfaceTransition(int transition) {
+		return interfaceTransitions.get(transition);
+	}
+
+	/**
+	 * Number of interface occurrences. Occurrences abstracting the same id
+	 * are contiguous, in order of first occurrence of each id.
+	 */
+	@Override
+	public int getInterfacesNumber() {
+		return interfaceIds.length;
+	}
+
+	@Override
+	public String getInterfaceId(int occurrence) {
+		return interfaceIds[occurrence];
+	}
+
+	@Override
+	public int getInterfaceInitial(int occurrence) {
+		return interfaceData[occurrence*INTERFACE_FIELDS];
+	}
+
+	@Override
+	public int getInterfaceSuccess(int occurrence) {
+		return interfaceData[occurrence*INTERFACE_FIELDS + 1];
+	}
+
+	@Override
+	public int getInterfaceError(int occurrence) {
+		return interfaceData[occurrence*INTERFACE_FIELDS + 2];
+	}
+
+	public int getInterfaceSuccessTransition(int occurrence) {
+		return interfaceData[occurrence*INTERFACE_FIELDS + 3];
+	}
+
+	public int getInterfaceErrorTransition(int occurrence) {
+		return interfaceData[occurrence*INTERFACE_FIELDS + 4];
+	}
+
+	@Override
+	public void visitTransitions(int state, boolean withInterfaceTransitions, int offset, TransitionVisitor visitor) {
+		for (int t = rowOffsets[state]; t < rowOffsets[state + 1]; t++) {
+			int interfaceTransition = -1;
+			if (interfaceTransitions.get(t)) {
+				if (!withInterfaceTransitions) {
+					continue;
+				}
+				interfaceTransition = getInterfaceReference(t);
+			}
+			visitor.visit(offset + targets[t],
+					actions[actionIds[t]],
+					probabilities[probabilityIds[t]],
+					interfaceTransition);
+		}
+	}
+
+	@Override
+	public void collectProbabilities(boolean withInterfaceTransitions, Set<String> probabilities) {
+		if (withInterfaceTransitions || interfaceTransitions.isEmpty()) {
+			Collections.addAll(probabilities, this.probabilities);
+			return;
+		}
+		BitSet collected = new BitSet(this.probabilities.length);
+		for (int t = 0; t < targets.length; t++) {
+			if (!interfaceTransitions.get(t) && !collected.get(probabilityIds[t])) {
+				collected.set(probabilityIds[t]);
+				probabilities.add(this.probabilities[probabilityIds[t]]);
+			}
+		}
+	}
+
+	@Override
+	public CompactFDTMC toCompact() {
+		return this;
+	}
+
+	/**
+	 * @return 2*occurrence for the success transition of an interface
+	 *          occurrence, and 2*occurrence + 1 for the error one.
+	 */
+	private int getInterfaceReference(int transition) {
+		Map<Integer, Integer> references = interfaceReferences;
+		if (references == null) {
+			references = new HashMap<Integer, Integer>();
+			for (int occurrence = 0; occurrence < interfaceIds.length; occurrence++) {
+				if (getInterfaceSuccessTransition(occurrence) >= 0) {
+					references.put(getInterfaceSuccessTransition(occurrence), 2*occurrence);
+				}
+				if (getInterfaceErrorTransition(occurrence) >= 0) {
+					references.put(getInterfaceErrorTransition(occurrence), 2*occurrence + 1);
+				}
+			}
+			interfaceReferences = references;
+		}
+		return references.get(transition);
+	}
+
+	/**
+	 * Same semantics as {@link FDTMC#equals(Object)}: states, special states
+	 * and interfaces' states must be equal, and so must be the transitions,
+	 * disregarding action names. Probabilities are compared by numeric
+	 * value, with variables all standing for the same value.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompactFDTMC)) {
+			return false;
+		}
+		CompactFDTMC other = (CompactFDTMC) obj;
+		if (statesNumber != other.statesNumber
+				|| initialState != other.initialState
+				|| successState != other.successState
+				|| errorState != other.errorState
+				|| interfaceIds.length != other.interfaceIds.length
+				|| !Arrays.equals(rowOffsets, other.rowOffsets)
+				|| !Arrays.equals(targets, other.targets)) {
+			return false;
+		}
+		for (int transition = 0; transition < targets.length; transition++) {
+			if (!equalProbabilities(transition, other, transition)) {
+				return false;
+			}
+		}
+		for (int occurrence = 0; occurrence < interfaceIds.length; occurrence++) {
+			if (startsInterfaceGroup(occurrence) != other.startsInterfaceGroup(occurrence)
+					|| !equalInterfaces(occurrence, other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			h = statesNumber;
+			h = 31*h + initialState;
+			h = 31*h + successState;
+			h = 31*h + errorState;
+			h = 31*h + Arrays.hashCode(rowOffsets);
+			h = 31*h + Arrays.hashCode(targets);
+			h = 31*h + interfaceIds.length;
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * Canonical 64-bit hash of this FDTMC's structure, consistent with
+	 * {@link #equals(Object)}: it covers states, special states,
+	 * transitions (with probabilities by numeric value) and interfaces,
+	 * but not labels, action names or the variable name. It is computed
+	 * once, so it is cheap enough for indexing FDTMCs by equality.
+	 *
+	 * Like {@link #equals(Object)}, it takes all symbolic probabilities
+	 * as 0 and ignores interface ids, so FDTMCs which only differ in
+	 * those collide. It must not be used as the key of anything derived
+	 * from the probability expressions (e.g., a reliability expression).
+	 */
+	public long getStructuralHash() {
+		if (!structuralHashComputed) {
+			long h = StructuralHash.SEED;
+			h = StructuralHash.mix(h, statesNumber);
+			h = StructuralHash.mix(h, initialState);
+			h = StructuralHash.mix(h, successState);
+			h = StructuralHash.mix(h, errorState);
+			for (int state = 0; state < statesNumber; state++) {
+				h = StructuralHash.mix(h, rowOffsets[state + 1] - rowOffsets[state]);
+			}
+			for (int transition = 0; transition < targets.length; transition++) {
+				h = StructuralHash.mix(h, targets[transition]);
+				h = StructuralHash.mix(h, valueBits(transition));
+			}
+			h = StructuralHash.mix(h, interfaceIds.length);
+			for (int occurrence = 0; occurrence < interfaceIds.length; occurrence++) {
+				int base = occurrence*INTERFACE_FIELDS;
+				h = StructuralHash.mix(h, startsInterfaceGroup(occurrence) ? 1 : 0);
+				h = StructuralHash.mix(h, interfaceData[base]);
+				h = StructuralHash.mix(h, interfaceData[base + 1]);
+				h = StructuralHash.mix(h, interfaceData[base + 2]);
+				h = mixTransition(h, getInterfaceSuccessTransition(occurrence));
+				h = mixTransition(h, getInterfaceErrorTransition(occurrence));
+			}
+			structuralHash = h;
+			structuralHashComputed = true;
+		}
+		return structuralHash;
+	}
+
+	private long mixTransition(long h, int transition) {
+		if (transition < 0) {
+			return StructuralHash.mix(h, -1);
+		}
+		h = StructuralHash.mix(h, getSource(transition));
+		h = StructuralHash.mix(h, targets[transition]);
+		return StructuralHash.mix(h, valueBits(transition));
+	}
+
+	private long valueBits(int transition) {
+		// Adding 0.0 turns -0.0 into 0.0, which equals() deems the same.
+		return Double.doubleToLongBits(probabilityValues[probabilityIds[transition]] + 0.0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder msg = new StringBuilder();
+		for (int state = 0; state < statesNumber; state++) {
+			for (int transition = rowOffsets[state]; transition < rowOffsets[state+1]; transition++) {
+				appendState(msg, state);
+				msg.append(" --- ").append(getAction(transition))
+					.append(" / ").append(getProbability(transition))
+					.append(" ---> ");
+				appendState(msg, targets[transition]);
+				msg.append('\n');
+			}
+		}
+		return msg.toString();
+	}
+
+	private void appendState(StringBuilder msg, int state) {
+		msg.append(variableName).append('=').append(state);
+		String label = getLabel(state);
+		if (label != null) {
+			msg.append('(').append(label).append(')');
+		}
+	}
+
+	private boolean startsInterfaceGroup(int occurrence) {
+		return occurrence == 0 || !interfaceIds[occurrence].equals(interfaceIds[occurrence - 1]);
+	}
+
+	private boolean equalInterfaces(int occurrence, CompactFDTMC other) {
+		int base = occurrence*INTERFACE_FIELDS;
+		for (int field = 0; field < 3; field++) {
+			if (interfaceData[base + field] != other.interfaceData[base + field]) {
+				return false;
+			}
+		}
+		return equalTransitions(getInterfaceSuccessTransition(occurrence), other, other.getInterfaceSuccessTransition(occurrence))
+				&& equalTransitions(getInterfaceErrorTransition(occurrence), other, other.getInterfaceErrorTransition(occurrence));
+	}
+
+	private boolean equalTransitions(int transition, CompactFDTMC other, int otherTransition) {
+		if (transition < 0 || otherTransition < 0) {
+			return transition == otherTransition;
+		}
+		return getSource(transition) == other.getSource(otherTransition)
+				&& targets[transition] == other.targets[otherTransition]
+				&& equalProbabilities(transition, other, otherTransition);
+	}
+
+	private boolean equalProbabilities(int transition, CompactFDTMC other, int otherTransition) {
+		return probabilityValues[probabilityIds[transition]]
+				== other.probabilityValues[other.probabilityIds[otherTransition]];
+	}
+
+	/**
+	 * Value used for comparing probabilities: numbers stand for
+	 * themselves, and variables are all taken as 0 (the same as
+	 * {@link Transition#equals(Object)} does).
+	 */
+	private static double numericValue(String probability) {
+		if (probability == null) {
+			return 0;
+		}
+		try {
+			return Double.parseDouble(probability);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Incremental builder of {@link CompactFDTMC}s.
+	 *
+	 * Transitions may be added in any order; they are grouped by source
+	 * state (keeping their relative order) when the FDTMC is built.
+	 * Transition handles returned by {@link #addTransition} are only
+	 * meaningful to this builder (e.g., for {@link #addInterface}).
+	 */
+	public static final class Builder {
+		private String variableName;
+		private int statesNumber = 0;
+		private int initialState = NO_STATE;
+		private int successState = NO_STATE;
+		private int errorState = NO_STATE;
+		private TreeMap<Integer, String> labels = new TreeMap<Integer, String>();
+
+		private int transitionsNumber = 0;
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private int[] probabilityIds = new int[16];
+		private int[] actionIds = new int[16];
+		private List<String> probabilities = new ArrayList<String>();
+		private Map<String, Integer> probabilitiesIndex = new HashMap<String, Integer>();
+		private List<String> actions = new ArrayList<String>();
+		private Map<String, Integer> actionsIndex = new HashMap<String, Integer>();
+
+		private Map<String, List<int[]>> interfaces = new LinkedHashMap<String, List<int[]>>();
+
+		public Builder(String variableName) {
+			this.variableName = variableName;
+		}
+
+		/**
+		 * Creates a new state. The first created state is initial
+		 * unless another one is explicitly set.
+		 * @return the id of the new state.
+		 */
+		public int createState() {
+			if (statesNumber == 0 && initialState == NO_STATE) {
+				initialState = 0;
+			}
+			return statesNumber++;
+		}
+
+		public int getStatesNumber() {
+			return statesNumber;
+		}
+
+		/**
+		 * Labels (or, if {@code label} is null, unlabels) a state.
+		 */
+		public Builder setLabel(int state, String label) {
+			if (label == null) {
+				labels.remove(state);
+			} else {
+				labels.put(state, label);
+			}
+			return this;
+		}
+
+		public Builder setInitialState(int state) {
+			this.initialState = state;
+			return this;
+		}
+
+		public Builder setSuccessState(int state) {
+			this.successState = state;
+			return this;
+		}
+
+		public Builder setErrorState(int state) {
+			this.errorState = state;
+			return this;
+		}
+
+		/**
+		 * @return a handle to the new transition, to be used by
+		 *          {@link #addInterface}.
+		 */
+		public int addTransition(int source, int target, String action, String probability) {
+			if (transitionsNumber == sources.length) {
+				int capacity = 2*sources.length;
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				probabilityIds = Arrays.copyOf(probabilityIds, capacity);
+				actionIds = Arrays.copyOf(actionIds, capacity);
+			}
+			sources[transitionsNumber] = source;
+			targets[transitionsNumber] = target;
+			probabilityIds[transitionsNumber] = intern(probability, probabilities, probabilitiesIndex);
+			actionIds[transitionsNumber] = intern(action, actions, actionsIndex);
+			return transitionsNumber++;
+		}
+
+		/**
+		 * Registers an interface whose transitions have already been
+		 * added. The error state and transition may be absent (-1).
+		 */
+		public Builder addInterface(String id, int initial, int success, int error,
+				int successTransition, int errorTransition) {
+			List<int[]> occurrences = interfaces.get(id);
+			if (occurrences == null) {
+				occurrences = new ArrayList<int[]>();
+				interfaces.put(id, occurrences);
+			}
+			occurrences.add(new int[] {initial, success, error, successTransition, errorTransition});
+			return this;
+		}
+
+		public CompactFDTMC build() {
+			int[] rowOffsets = new int[statesNumber + 1];
+			for (int i = 0; i < transitionsNumber; i++) {
+				rowOffsets[sources[i] + 1]++;
+			}
+			for (int state = 0; state < statesNumber; state++) {
+				rowOffsets[state + 1] += rowOffsets[state];
+			}
+			// Stable counting sort of transitions by source.
+			int[] position = new int[transitionsNumber];
+			int[] next = Arrays.copyOf(rowOffsets, statesNumber);
+			int[] sortedTargets = new int[transitionsNumber];
+			int[] sortedProbabilities = new int[transitionsNumber];
+			int[] sortedActions = new int[transitionsNumber];
+			for (int i = 0; i < transitionsNumber; i++) {
+				int slot = next[sources[i]]++;
+				position[i] = slot;
+				sortedTargets[slot] = targets[i];
+				sortedProbabilities[slot] = probabilityIds[i];
+				sortedActions[slot] = actionIds[i];
+			}
+
+			int occurrencesNumber = 0;
+			for (List<int[]> occurrences : interfaces.values()) {
+				occurrencesNumber += occurrences.size();
+			}
+			String[] interfaceIds = new String[occurrencesNumber];
+			int[] interfaceData = new int[occurrencesNumber*INTERFACE_FIELDS];
+			int occurrence = 0;
+			for (Map.Entry<String, List<int[]>> entry : interfaces.entrySet()) {
+				for (int[] data : entry.getValue()) {
+					interfaceIds[occurrence] = entry.getKey();
+					int base = occurrence*INTERFACE_FIELDS;
+					interfaceData[base] = data[0];
+					interfaceData[base + 1] = data[1];
+					interfaceData[base + 2] = data[2];
+					interfaceData[base + 3] = (data[3] >= 0) ? position[data[3]] : NO_STATE;
+					interfaceData[base + 4] = (data[4] >= 0) ? position[data[4]] : NO_STATE;
+					occurrence++;
+				}
+			}
+			return new CompactFDTMC(this,
+					rowOffsets,
+					sortedTargets,
+					sortedProbabilities,
+					sortedActions,
+					interfaceIds,
+					interfaceData);
+		}
+
+		private static int intern(String value, List<String> table, Map<String, Integer> index) {
+			Integer id = index.get(value);
+			if (id == null) {
+				id = table.size();
+				table.add(value);
+				index.put(value, id);
+			}
+			return id;
+		}
+	}
+
+}
@@ -0,0 +1,448 @@
+package fdtmc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * FDTMC defined in terms of other FDTMCs, without copying them.
+ *
+ * States and transitions of a composite are computed on the fly from its
+ * parts: state ids of each part are shifted by an offset, and the few
+ * transitions which glue the parts together are synthesized. Since parts
+ * are never modified, a composite can be traversed (e.g., serialized for
+ * model checking) at the cost of its parts' storage alone. The flat form
+ * is only built (and then cached) if {@link #toCompact()} is called.
+ */
+public abstract class CompositeFDTMC implements FDTMCView {
+	private static final String LINK_PROBABILITY = "1";
+
+	private final String variableName;
+	private int[] labeledStates;
+	private String[] stateLabels;
+	private volatile CompactFDTMC flattened;
+
+	private CompositeFDTMC(String variableName) {
+		this.variableName = variableName;
+	}
+
+	/**
+	 * Inlines the given fragments whenever there is an interface in
+	 * {@code parent} corresponding to the respective index.
+	 *
+	 * Only the initial, success and error labels are kept, and interfaces
+	 * (along with their transitions) are dropped. States of {@code parent}
+	 * keep their ids, and states of each inlined occurrence follow, in
+	 * order of occurrence.
+	 *
+	 * @see FDTMC#inline(Map)
+	 */
+	public static FDTMCView inline(FDTMCView parent, Map<String, ? extends FDTMCView> fragments) {
+		return new Inlined(parent, fragments);
+	}
+
+	/**
+	 * Adds a new initial state with a transition to the original initial
+	 * state parameterized by {@code presenceVariable} and a complement one
+	 * to the success state. The new initial state is the last one.
+	 *
+	 * @see FDTMC#decoratedWithPresence(String)
+	 */
+	public static FDTMCView decoratedWithPresence(FDTMCView base, String presenceVariable) {
+		return new Decorated(base, presenceVariable);
+	}
+
+	@Override
+	public String getVariableName() {
+		return variableName;
+	}
+
+	@Override
+	public String getLabel(int state) {
+		int position = Arrays.binarySearch(labeledStates, state);
+		return (position >= 0) ? stateLabels[position] : null;
+	}
+
+	@Override
+	public int[] getLabeledStates() {
+		return labeledStates.clone();
+	}
+
+	@Override
+	public CompactFDTMC toCompact() {
+		CompactFDTMC result = flattened;
+		if (result == null) {
+			synchronized (this) {
+				result = flattened;
+				if (result == null) {
+					result = flatten(this);
+					flattened = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return toCompact().toString();
+	}
+
+	/**
+	 * Labels the special states (the ones present) as {@link FDTMC} does.
+	 */
+	void setSpecialLabels(int initial, int success, int error) {
+		TreeMap<Integer, String> labels = new TreeMap<Integer, String>();
+		if (initial >= 0) {
+			labels.put(initial, FDTMC.INITIAL_LABEL);
+		}
+		if (success >= 0) {
+			labels.put(success, FDTMC.SUCCESS_LABEL);
+		}
+		if (error >= 0) {
+			labels.put(error, FDTMC.ERROR_LABEL);
+		}
+		labeledStates = new int[labels.size()];
+		stateLabels = new String[labels.size()];
+		int i = 0;
+		for (Map.Entry<Integer, String> label : labels.entrySet()) {
+			labeledStates[i] = label.getKey();
+			stateLabels[i] = label.getValue();
+			i++;
+		}
+	}
+
+	/**
+	 * Builds the flat form of a view in a single pass over its states.
+	 */
+	static CompactFDTMC flatten(FDTMCView view) {
+		final CompactFDTMC.Builder builder = new CompactFDTMC.Builder(view.getVariableName());
+		int statesNumber = view.getStatesNumber();
+		for (int state = 0; state < statesNumber; state++) {
+			builder.createState();
+		}
+		for (int state : view.getLabeledStates()) {
+			builder.setLabel(state, view.getLabel(state));
+		}
+		builder.setInitialState(view.getInitialState());
+		builder.setSuccessState(view.getSuccessState());
+		builder.setErrorState(view.getErrorState());
+
+		final int[] handles = new int[2*view.getInterfacesNumber()];
+		Arrays.fill(handles, -1);
+		for (int state = 0; state < statesNumber; state++) {
+			final int source = state;
+			view.visitTransitions(state, true, 0, (target, action, probability, interfaceTransition) -> {
+				int handle = builder.addTransition(source, target, action, probability);
+				if (interfaceTransition >= 0) {
+					handles[interfaceTransition] = handle;
+				}
+			});
+		}
+		for (int occurrence = 0; occurrence < view.getInterfacesNumber(); occurrence++) {
+			builder.addInterface(view.getInterfaceId(occurrence),
+					view.getInterfaceInitial(occurrence),
+					view.getInterfaceSuccess(occurrence),
+					view.getInterfaceError(occurrence),
+					handles[2*occurrence],
+					handles[2*occurrence + 1]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * A parent FDTMC with fragments in place of (some of) its interfaces.
+	 */
+	private static final class Inlined extends CompositeFDTMC {
+		private final FDTMCView parent;
+		private final int parentStates;
+		private final int initialState;
+		// Resolved interface occurrences, in order: the occurrence in the
+		// parent, the fragment and the id of the fragment's first state.
+		private final int[] occurrences;
+		private final FDTMCView[] fragments;
+		private final int[] offsets;
+		// Occurrences entered from each parent state, in CSR form.
+		private final int[] linkOffsets;
+		private final int[] links;
+
+		Inlined(FDTMCView parent, Map<String, ? extends FDTMCView> indexedFragments) {
+			super(parent.getVariableName());
+			this.parent = parent;
+			this.parentStates = parent.getStatesNumber();
+
+			int interfacesNumber = parent.getInterfacesNumber();
+			int resolved = 0;
+			for (int occurrence = 0; occurrence < interfacesNumber; occurrence++) {
+				if (indexedFragments.get(parent.getInterfaceId(occurrence)) != null) {
+					resolved++;
+				}
+			}
+			this.occurrences = new int[resolved];
+			this.fragments = new FDTMCView[resolved];
+			this.offsets = new int[resolved + 1];
+			this.linkOffsets = new int[parentStates + 1];
+			int offset = parentStates;
+			int k = 0;
+			for (int occurrence = 0; occurrence < interfacesNumber; occurrence++) {
+				FDTMCView fragment = indexedFragments.get(parent.getInterfaceId(occurrence));
+				if (fragment != null) {
+					occurrences[k] = occurrence;
+					fragments[k] = fragment;
+					offsets[k] = offset;
+					offset += fragment.getStatesNumber();
+					if (fragment.getInitialState() >= 0) {
+						linkOffsets[parent.getInterfaceInitial(occurrence) + 1]++;
+					}
+					k++;
+				}
+			}
+			offsets[resolved] = offset;
+			for (int state = 0; state < parentStates; state++) {
+				linkOffsets[state + 1] += linkOffsets[state];
+			}
+			this.links = new int[linkOffsets[parentStates]];
+			int[] next = Arrays.copyOf(linkOffsets, parentStates);
+			for (k = 0; k < resolved; k++) {
+				if (fragments[k].getInitialState() >= 0) {
+					links[next[parent.getInterfaceInitial(occurrences[k])]++] = k;
+				}
+			}
+
+			// Inlining keeps the parent's initial state or, lacking one,
+			// the first state (as would a freshly built FDTMC).
+			if (parent.getInitialState() >= 0) {
+				this.initialState = parent.getInitialState();
+			} else {
+				this.initialState = (offset > 0) ? 0 : -1;
+			}
+			setSpecialLabels(parent.getInitialState(), parent.getSuccessState(), parent.getErrorState());
+		}
+
+		@Override
+		public int getStatesNumber() {
+			return offsets[fragments.length];
+		}
+
+		@Override
+		public int getTransitionsNumber(boolean withInterfaceTransitions) {
+			int transitions = parent.getTransitionsNumber(false) + links.length;
+			for (FDTMCView fragment : fragments) {
+				transitions += fragment.getTransitionsNumber(false);
+				if (fragment.getSuccessState() >= 0) {
+					transitions++;
+				}
+				if (fragment.getErrorState() >= 0) {
+					transitions++;
+				}
+			}
+			return transitions;
+		}
+
+		@Override
+		public int getOutDegree(int state, boolean withInterfaceTransitions) {
+			if (state < parentStates) {
+				return parent.getOutDegree(state, false) + linkOffsets[state + 1] - linkOffsets[state];
+			}
+			int k = fragmentOf(state);
+			FDTMCView fragment = fragments[k];
+			int local = state - offsets[k];
+			int degree = fragment.getOutDegree(local, false);
+			if (local == fragment.getSuccessState()) {
+				degree++;
+			}
+			if (local == fragment.getErrorState()) {
+				degree++;
+			}
+			return degree;
+		}
+
+		@Override
+		public int getInitialState() {
+			return initialState;
+		}
+
+		@Override
+		public int getSuccessState() {
+			return parent.getSuccessState();
+		}
+
+		@Override
+		public int getErrorState() {
+			return parent.getErrorState();
+		}
+
+		@Override
+		public int getInterfacesNumber() {
+			return 0;
+		}
+
+		@Override
+		public String getInterfaceId(int occurrence) {
+			throw new IndexOutOfBoundsException("Inlined FDTMCs have no interfaces");
+		}
+
+		@Override
+		public int getInterfaceInitial(int occurrence) {
+			throw new IndexOutOfBoundsException("Inlined FDTMCs have no interfaces");
+		}
+
+		@Override
+		public int getInterfaceSuccess(int occurrence) {
+			throw new IndexOutOfBoundsException("Inlined FDTMCs have no interfaces");
+		}
+
+		@Override
+		public int getInterfaceError(int occurrence) {
+			throw new IndexOutOfBoundsException("Inlined FDTMCs have no interfaces");
+		}
+
+		@Override
+		public void visitTransitions(int state, boolean withInterfaceTransitions, int offset, TransitionVisitor visitor) {
+			if (state < parentStates) {
+				parent.visitTransitions(state, false, offset, visitor);
+				for (int link = linkOffsets[state]; link < linkOffsets[state + 1]; link++) {
+					int k = links[link];
+					visitor.visit(offset + offsets[k] + fragments[k].getInitialState(), "", LINK_PROBABILITY, -1);
+				}
+				return;
+			}
+			int k = fragmentOf(state);
+			FDTMCView fragment = fragments[k];
+			int local = state - offsets[k];
+			fragment.visitTransitions(local, false, offset + offsets[k], visitor);
+			if (local == fragment.getSuccessState()) {
+				visitor.visit(offset + parent.getInterfaceSuccess(occurrences[k]), "", LINK_PROBABILITY, -1);
+			}
+			if (local == fragment.getErrorState()) {
+				visitor.visit(offset + parent.getInterfaceError(occurrences[k]), "", LINK_PROBABILITY, -1);
+			}
+		}
+
+		@Override
+		public void collectProbabilities(boolean withInterfaceTransitions, Set<String> probabilities) {
+			parent.collectProbabilities(false, probabilities);
+			Set<FDTMCView> visited = Collections.newSetFromMap(new IdentityHashMap<FDTMCView, Boolean>());
+			boolean linked = links.length > 0;
+			for (FDTMCView fragment : fragments) {
+				if (visited.add(fragment)) {
+					fragment.collectProbabilities(false, probabilities);
+				}
+				linked |= fragment.getSuccessState() >= 0 || fragment.getErrorState() >= 0;
+			}
+			if (linked) {
+				probabilities.add(LINK_PROBABILITY);
+			}
+		}
+
+		/**
+		 * @return the index of the resolved occurrence {@code state} belongs to.
+		 */
+		private int fragmentOf(int state) {
+			int position = Arrays.binarySearch(offsets, state);
+			if (position < 0) {
+				return -position - 2;
+			}
+			// Skip empty fragments, which share the same offset.
+			while (offsets[position + 1] == state) {
+				position++;
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * A base FDTMC preceded by a presence-dependent initial state.
+	 */
+	private static final class Decorated extends CompositeFDTMC {
+		private final FDTMCView base;
+		private final int newInitial;
+		private final String presenceVariable;
+
+		Decorated(FDTMCView base, String presenceVariable) {
+			super(base.getVariableName());
+			this.base = base;
+			this.newInitial = base.getStatesNumber();
+			this.presenceVariable = presenceVariable;
+			setSpecialLabels(newInitial, base.getSuccessState(), base.getErrorState());
+		}
+
+		@Override
+		public int getStatesNumber() {
+			return newInitial + 1;
+		}
+
+		@Override
+		public int getTransitionsNumber(boolean withInterfaceTransitions) {
+			return base.getTransitionsNumber(withInterfaceTransitions) + 2;
+		}
+
+		@Override
+		public int getOutDegree(int state, boolean withInterfaceTransitions) {
+			return (state == newInitial) ? 2 : base.getOutDegree(state, withInterfaceTransitions);
+		}
+
+		@Override
+		public int getInitialState() {
+			return newInitial;
+		}
+
+		@Override
+		public int getSuccessState() {
+			return base.getSuccessState();
+		}
+
+		@Override
+		public int getErrorState() {
+			return base.getErrorState();
+		}
+
+		@Override
+		public int getInterfacesNumber() {
+			return base.getInterfacesNumber();
+		}
+
+		@Override
+		public String getInterfaceId(int occurrence) {
+			return base.getInterfaceId(occurrence);
+		}
+
+		@Override
+		public int getInterfaceInitial(int occurrence) {
+			return base.getInterfaceInitial(occurrence);
+		}
+
+		@Override
+		public int getInterfaceSuccess(int occurrence) {
+			return base.getInterfaceSuccess(occurrence);
+		}
+
+		@Override
+		public int getInterfaceError(int occurrence) {
+			return base.getInterfaceError(occurrence);
+		}
+
+		@Override
+		public void visitTransitions(int state, boolean withInterfaceTransitions, int offset, TransitionVisitor visitor) {
+			if (state != newInitial) {
+				base.visitTransitions(state, withInterfaceTransitions, offset, visitor);
+				return;
+			}
+			// Enter the original chain in case of presence
+			visitor.visit(offset + base.getInitialState(), "", presenceVariable, -1);
+			// Short-circuit in case of absence
+			visitor.visit(offset + base.getSuccessState(), "", "1-"+presenceVariable, -1);
+		}
+
+		@Override
+		public void collectProbabilities(boolean withInterfaceTransitions, Set<String> probabilities) {
+			base.collectProbabilities(withInterfaceTransitions, probabilities);
+			probabilities.add(presenceVariable);
+			probabilities.add("1-"+presenceVariable);
+		}
+	}
+
+}
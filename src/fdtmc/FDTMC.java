@@ -1,9 +1,9 @@
 package fdtmc;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -11,6 +11,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Mutable FDTMC, meant for building models state by state.
+ *
+ * Structural operations (copying, comparison, model checking) work on
+ * the equivalent {@link CompactFDTMC}, which is computed on demand and
+ * cached until the next modification. Inlining and presence decoration
+ * yield FDTMCs backed by a {@link CompositeFDTMC} view over their operands,
+ * which is only flattened if the compact form is requested. In both cases,
+ * {@link State} and {@link Transition} objects are only created if these
+ * are ever requested.
+ */
 public class FDTMC {
 
     public static final String INITIAL_LABEL = "initial";
@@ -25,10 +36,16 @@ public class FDTMC {
 	private int index;
 	private Map<State, List<Transition>> transitionSystem;
 	private Map<String, List<Interface>> interfaces;
+	private List<State> statesById;
+
+	private FDTMCView view;
+	private CompactFDTMC compact;
+	private List<Runnable> modificationListeners;
 
 
 	public FDTMC() {
 		states = new LinkedHashSet<State>();
+		statesById = new ArrayList<State>();
 		initialState = null;
 		variableName = null;
 		index = 0;
@@ -36,11 +53,47 @@ public class FDTMC {
 		interfaces = new LinkedHashMap<String, List<Interface>>();
 	}
 
+	/**
+	 * Wraps a read-only view (e.g., a compact FDTMC). Object views of states
+	 * and transitions are only created when requested (e.g., by
+	 * {@link #getStates()}) or when this FDTMC is modified.
+	 */
+	public FDTMC(FDTMCView view) {
+		this.view = view;
+		if (view instanceof CompactFDTMC) {
+			this.compact = (CompactFDTMC) view;
+		}
+		this.variableName = view.getVariableName();
+	}
+
+	/**
+	 * Returns the compact (immutable) form of this FDTMC.
+	 */
+	public synchronized CompactFDTMC compact() {
+		if (compact == null) {
+			compact = (view != null) ? view.toCompact() : buildCompact();
+		}
+		return compact;
+	}
+
+	/**
+	 * Returns a read-only view of this FDTMC, without flattening it if it
+	 * is the result of inlining or decoration.
+	 */
+	public synchronized FDTMCView view() {
+		if (view != null) {
+			return view;
+		}
+		return compact();
+	}
+
 	public Collection<State> getStates() {
+		materialize();
 		return states;
 	}
 
 	public void setVariableName(String name) {
+		modify();
 		variableName = name;
 	}
 
@@ -49,14 +102,21 @@ public class FDTMC {
 	}
 
 	public int getVariableIndex() {
+		FDTMCView current = view;
+		if (states == null && current != null) {
+			return current.getStatesNumber();
+		}
 		return index;
 	}
 
 	public State createState() {
+		modify();
 		State temp = new State();
 		temp.setVariableName(variableName);
 		temp.setIndex(index);
+		temp.setOwner(this);
 		states.add(temp);
+		statesById.add(temp);
 		transitionSystem.put(temp, null);
 		if (index == 0)
 			initialState = temp;
@@ -85,6 +145,7 @@ public class FDTMC {
     }
 
     public State getInitialState() {
+        materialize();
         return initialState;
     }
 
@@ -100,6 +161,7 @@ public class FDTMC {
     }
 
     public State getSuccessState() {
+        materialize();
         return successState;
     }
 
@@ -115,6 +177,7 @@ public class FDTMC {
     }
 
     public State getErrorState() {
+        materialize();
         return errorState;
     }
 
@@ -122,6 +185,7 @@ public class FDTMC {
 	    if (source == null) {
 	        return null;
 	    }
+	    modify();
 
 	    List<Transition> l = transitionSystem.get(source);
 		if (l == null) {
@@ -147,6 +211,7 @@ public class FDTMC {
 	 * @param error Error state of the interface.
 	 */
 	public Interface createInterface(String id, State initial, State success, State error) {
+	    modify();
 	    Transition successTransition = createTransition(initial, success, "", id);
 	    Transition errorTransition = createTransition(initial, error, "", "1 - " + id);
 	    Interface newInterface = new Interface(id,
@@ -168,54 +233,30 @@ public class FDTMC {
 	}
 
 	public State getStateByLabel(String label) {
-		Iterator <State> it = states.iterator();
-		while (it.hasNext()){
-			State s = it.next();
-			if (s.getLabel().equals(label))
-				return s;
+		int state = compact().getStateByLabel(label);
+		if (state < 0) {
+			return null;
 		}
-		return null;
+		materialize();
+		return statesById.get(state);
 	}
 
 	public Transition getTransitionByActionName(String action) {
-		//para cada Lista de adjacencias de cada nodo
-		Collection<List<Transition>> stateAdjacencies = transitionSystem.values();
-		Iterator<List<Transition>> iteratorStateAdjacencies = stateAdjacencies.iterator();
-		while (iteratorStateAdjacencies.hasNext()) {
-			List<Transition> transitions = iteratorStateAdjacencies.next();
-
-			//Percorrer a lista de transicoes e comparar os labels das transicoes
-			Iterator <Transition> iteratorTransitions = transitions.iterator();
-			while (iteratorTransitions.hasNext()) {
-				Transition t = iteratorTransitions.next();
-				if (t.getActionName().equals(action))
-					return t;
-			}
+		CompactFDTMC current = compact();
+		int transition = current.getTransitionByActionName(action);
+		if (transition < 0) {
+			return null;
 		}
-		return null;
+		materialize();
+		int source = current.getSource(transition);
+		return transitionSystem.get(statesById.get(source))
+				.get(transition - current.getFirstTransition(source));
 	}
 
 
 	@Override
 	public String toString() {
-		String msg = new String();
-
-		Set<State> tmpStates = this.transitionSystem.keySet();
-		Iterator <State> itStates = tmpStates.iterator();
-		while (itStates.hasNext()) {
-			State temp = itStates.next();
-			List<Transition> transitionList = this.transitionSystem.get(temp);
-			if (transitionList != null) {
-				Iterator <Transition> itTransitions = transitionList.iterator();
-				while (itTransitions.hasNext()) {
-					Transition t = itTransitions.next();
-					msg += temp.getVariableName() + "=" + temp.getIndex() + ((temp.getLabel() != null) ? "(" + temp.getLabel() + ")" : "") +
-							" --- " + t.getActionName() + " / " + t.getProbability() +
-							" ---> " + t.getTarget().getVariableName() + "=" + t.getTarget().getIndex() + ((t.getTarget().getLabel() != null) ? "(" + t.getTarget().getLabel() + ")" : "") + "\n";
-				}
-			}
-		}
-		return msg;
+		return compact().toString();
 	}
 
 	/**
@@ -230,24 +271,39 @@ public class FDTMC {
 	public boolean equals(Object obj) {
 	    if (obj != null && obj instanceof FDTMC) {
 	        FDTMC other = (FDTMC) obj;
-	        LinkedList<List<Interface>> thisInterfaces = new LinkedList<List<Interface>>(interfaces.values());
-            LinkedList<List<Interface>> otherInterfaces = new LinkedList<List<Interface>>(other.interfaces.values());
-            return states.equals(other.states)
-	                && getInitialState().equals(other.getInitialState())
-	                && getSuccessState().equals(other.getSuccessState())
-	                && getErrorState().equals(other.getErrorState())
-	                && transitionSystem.equals(other.transitionSystem)
-	                && thisInterfaces.equals(otherInterfaces);
+	        return compact().equals(other.compact());
 	    }
 	    return false;
 	}
 
 	@Override
     public int hashCode() {
-        return states.hashCode() + transitionSystem.hashCode() + interfaces.hashCode();
+        return compact().hashCode();
+    }
+
+    /**
+     * Structural hash of this FDTMC, consistent with {@link #equals(Object)}.
+     * It is cached by the compact form, so it is only recomputed after
+     * a modification.
+     * @see CompactFDTMC#getStructuralHash()
+     */
+    public long getStructuralHash() {
+        return compact().getStructuralHash();
+    }
+
+    /**
+     * Registers a callback to be run whenever this FDTMC is modified,
+     * so that values derived from it (e.g., hashes) can be invalidated.
+     */
+    public synchronized void addModificationListener(Runnable listener) {
+        if (modificationListeners == null) {
+            modificationListeners = new ArrayList<Runnable>();
+        }
+        modificationListeners.add(listener);
     }
 
     public Map<State, List<Transition>> getTransitions() {
+		materialize();
 		return transitionSystem;
 	}
 
@@ -260,21 +316,11 @@ public class FDTMC {
 	 *         in {@code indexedModels} inlined.
 	 */
     public FDTMC inline(Map<String, FDTMC> indexedModels) {
-        FDTMC inlined = new FDTMC();
-        Map<State, State> statesMapping = copyForInlining(inlined);
-
-        for (Map.Entry<String, List<Interface>> entry: interfaces.entrySet()) {
-            String dependencyId = entry.getKey();
-            if (indexedModels.containsKey(dependencyId)) {
-                FDTMC fragment = indexedModels.get(dependencyId);
-                for (Interface iface: entry.getValue()) {
-                    inlined.inlineInInterface(iface,
-                                              fragment,
-                                              statesMapping);
-                }
-            }
+        Map<String, FDTMCView> fragments = new HashMap<String, FDTMCView>();
+        for (Map.Entry<String, FDTMC> entry: indexedModels.entrySet()) {
+            fragments.put(entry.getKey(), entry.getValue().view());
         }
-        return inlined;
+        return new FDTMC(CompositeFDTMC.inline(view(), fragments));
     }
 
     /**
@@ -288,21 +334,16 @@ public class FDTMC {
      * @return
      */
     public FDTMC decoratedWithPresence(String presenceVariable) {
-        FDTMC decorated = copy();
-
-        State oldInitial = decorated.getInitialState();
-        State newInitial = decorated.createInitialState();
-        // Enter the original chain in case of presence
-        decorated.createTransition(newInitial,
-                                   oldInitial,
-                                   "",
-                                   presenceVariable);
-        // Short-circuit in case of absence
-        decorated.createTransition(newInitial,
-                                   decorated.getSuccessState(),
-                                   "",
-                                   "1-"+presenceVariable);
-        return decorated;
+        return new FDTMC(CompositeFDTMC.decoratedWithPresence(view(), presenceVariable));
+    }
+
+    /**
+     * Copies this FDTMC. Since views are immutable, the copy shares
+     * this FDTMC's one until either FDTMC is modified.
+     * @return a new FDTMC which is a copy of this one.
+     */
+    public FDTMC copy() {
+        return new FDTMC(view());
     }
 
     /**
@@ -325,144 +366,140 @@ public class FDTMC {
     }
 
     /**
-     * Prepares {@code destination} FDTMC to be an inlined version of this one.
-     * @param destination
-     * @return a mapping from states in this FDTMC to the corresponding states
-     *      in the copied one ({@code destination}).
-     */
-    private Map<State, State> copyForInlining(FDTMC destination) {
-        destination.variableName = this.getVariableName();
-
-        Map<State, State> statesMapping = destination.inlineStates(this);
-        destination.setInitialState(statesMapping.get(this.getInitialState()));
-        destination.setSuccessState(statesMapping.get(this.getSuccessState()));
-        destination.setErrorState(statesMapping.get(this.getErrorState()));
-
-        destination.inlineTransitions(this, statesMapping);
-        return statesMapping;
-    }
-
-    /**
-     * Copies this FDTMC.
-     * @return a new FDTMC which is a copy of this one.
-     */
-    private FDTMC copy() {
-        FDTMC copied = new FDTMC();
-        copied.variableName = this.getVariableName();
-
-        Map<State, State> statesMapping = copied.inlineStates(this);
-        copied.setInitialState(statesMapping.get(this.getInitialState()));
-        copied.setSuccessState(statesMapping.get(this.getSuccessState()));
-        copied.setErrorState(statesMapping.get(this.getErrorState()));
-
-        copied.inlineTransitions(this, statesMapping);
-        copied.inlineInterfaces(this, statesMapping);
-        return copied;
-    }
-
-    /**
-     * Inlines all states from {@code fdtmc} stripped of their labels.
-     * @param fdtmc
-     * @return
+     * Called before any modification, so that the cached compact form is
+     * discarded (and an FDTMC backed only by its compact form gets the
+     * object views it is going to modify).
      */
-    private Map<State, State> inlineStates(FDTMC fdtmc) {
-        Map<State, State> statesOldToNew = new HashMap<State, State>();
-        for (State state: fdtmc.getStates()) {
-            State newState = this.createState();
-            statesOldToNew.put(state, newState);
+    synchronized void modify() {
+        materialize();
+        compact = null;
+        view = null;
+        if (modificationListeners != null) {
+            for (Runnable listener : modificationListeners) {
+                listener.run();
+            }
         }
-        return statesOldToNew;
     }
 
     /**
-     * Inlines all transitions from {@code fdtmc} that are not part of an interface.
-     *
-     * @param fdtmc
-     * @param statesOldToNew
+     * Creates the object views (states, transitions and interfaces)
+     * of a view-backed FDTMC.
      */
-    private void inlineTransitions(FDTMC fdtmc, Map<State, State> statesOldToNew) {
-        Set<Transition> interfaceTransitions = fdtmc.getInterfaceTransitions();
-        for (Map.Entry<State, List<Transition>> entry : fdtmc.getTransitions().entrySet()) {
-            List<Transition> transitions = entry.getValue();
-            if (transitions != null) {
-                for (Transition transition : transitions) {
-                    if (!interfaceTransitions.contains(transition)) {
-                        inlineTransition(transition, statesOldToNew);
-                    }
+    private synchronized void materialize() {
+        if (states != null) {
+            return;
+        }
+        CompactFDTMC source = compact();
+        int statesNumber = source.getStatesNumber();
+        states = new LinkedHashSet<State>();
+        statesById = new ArrayList<State>(statesNumber);
+        transitionSystem = new LinkedHashMap<State, List<Transition>>();
+        interfaces = new LinkedHashMap<String, List<Interface>>();
+        for (int id = 0; id < statesNumber; id++) {
+            State state = new State();
+            state.setVariableName(variableName);
+            state.setIndex(id);
+            state.setLabel(source.getLabel(id));
+            state.setOwner(this);
+            states.add(state);
+            statesById.add(state);
+            transitionSystem.put(state, null);
+        }
+        index = statesNumber;
+        initialState = stateOrNull(source.getInitialState());
+        successState = stateOrNull(source.getSuccessState());
+        errorState = stateOrNull(source.getErrorState());
+
+        Map<Integer, Transition> interfaceTransitions = new HashMap<Integer, Transition>();
+        for (int id = 0; id < statesNumber; id++) {
+            int first = source.getFirstTransition(id);
+            int end = source.getTransitionsEnd(id);
+            if (first == end) {
+                continue;
+            }
+            List<Transition> outgoing = new LinkedList<Transition>();
+            for (int t = first; t < end; t++) {
+                Transition transition = new Transition(statesById.get(id),
+                                                       statesById.get(source.getTarget(t)),
+                                                       source.getAction(t),
+                                                       source.getProbability(t));
+                outgoing.add(transition);
+                if (source.isInterfaceTransition(t)) {
+                    interfaceTransitions.put(t, transition);
                 }
             }
+            transitionSystem.put(statesById.get(id), outgoing);
+        }
+        for (int occurrence = 0; occurrence < source.getInterfacesNumber(); occurrence++) {
+            String id = source.getInterfaceId(occurrence);
+            List<Interface> occurrences = interfaces.get(id);
+            if (occurrences == null) {
+                occurrences = new LinkedList<Interface>();
+                interfaces.put(id, occurrences);
+            }
+            occurrences.add(new Interface(id,
+                                          stateOrNull(source.getInterfaceInitial(occurrence)),
+                                          stateOrNull(source.getInterfaceSuccess(occurrence)),
+                                          stateOrNull(source.getInterfaceError(occurrence)),
+                                          interfaceTransitions.get(source.getInterfaceSuccessTransition(occurrence)),
+                                          interfaceTransitions.get(source.getInterfaceErrorTransition(occurrence))));
         }
     }
 
-    private Transition inlineTransition(Transition transition, Map<State, State> statesOldToNew) {
-        State newSource = statesOldToNew.get(transition.getSource());
-        State newTarget = statesOldToNew.get(transition.getTarget());
-        return createTransition(newSource,
-                                newTarget,
-                                transition.getActionName(),
-                                transition.getProbability());
+    private State stateOrNull(int id) {
+        return (id >= 0) ? statesById.get(id) : null;
     }
 
-    /**
-     * Inlines all interfaces (and respective transitions) from {@code fdtmc}
-     * into this one.
-     *
-     * @param fdtmc
-     * @param statesOldToNew
-     */
-    private void inlineInterfaces(FDTMC fdtmc, Map<State, State> statesOldToNew) {
-        for (Map.Entry<String, List<Interface>> entry : fdtmc.interfaces.entrySet()) {
-            List<Interface> newInterfaces = new LinkedList<Interface>();
-            this.interfaces.put(entry.getKey(), newInterfaces);
+    private CompactFDTMC buildCompact() {
+        CompactFDTMC.Builder builder = new CompactFDTMC.Builder(variableName);
+        for (State state : statesById) {
+            builder.createState();
+            builder.setLabel(state.getIndex(), state.getLabel());
+        }
+        builder.setInitialState(indexOrNone(initialState));
+        builder.setSuccessState(indexOrNone(successState));
+        builder.setErrorState(indexOrNone(errorState));
+
+        Map<Transition, Integer> interfaceTransitions = new IdentityHashMap<Transition, Integer>();
+        for (List<Interface> occurrences : interfaces.values()) {
+            for (Interface iface : occurrences) {
+                interfaceTransitions.put(iface.getSuccessTransition(), -1);
+                interfaceTransitions.put(iface.getErrorTransition(), -1);
+            }
+        }
+        for (Map.Entry<State, List<Transition>> entry : transitionSystem.entrySet()) {
+            if (entry.getValue() != null) {
+                for (Transition transition : entry.getValue()) {
+                    int handle = builder.addTransition(entry.getKey().getIndex(),
+                                                       transition.getTarget().getIndex(),
+                                                       transition.getActionName(),
+                                                       transition.getProbability());
+                    if (interfaceTransitions.containsKey(transition)) {
+                        interfaceTransitions.put(transition, handle);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, List<Interface>> entry : interfaces.entrySet()) {
             for (Interface iface : entry.getValue()) {
-                Transition successTransition = inlineTransition(iface.getSuccessTransition(), statesOldToNew);
-                Transition errorTransition = inlineTransition(iface.getErrorTransition(), statesOldToNew);
-                Interface newInterface = new Interface(iface.getAbstractedId(),
-                                                       statesOldToNew.get(iface.getInitial()),
-                                                       statesOldToNew.get(iface.getSuccess()),
-                                                       statesOldToNew.get(iface.getError()),
-                                                       successTransition,
-                                                       errorTransition);
-                newInterfaces.add(newInterface);
+                builder.addInterface(entry.getKey(),
+                                     indexOrNone(iface.getInitial()),
+                                     indexOrNone(iface.getSuccess()),
+                                     indexOrNone(iface.getError()),
+                                     handleOrNone(interfaceTransitions, iface.getSuccessTransition()),
+                                     handleOrNone(interfaceTransitions, iface.getErrorTransition()));
             }
         }
+        return builder.build();
     }
 
-    private void inlineInInterface(Interface iface, FDTMC fragment, Map<State, State> statesMapping) {
-        Map<State, State> fragmentStatesMapping = this.inlineStates(fragment);
-        this.inlineTransitions(fragment, fragmentStatesMapping);
-
-        State initialInlined = iface.getInitial();
-        State initialFragment = fragment.getInitialState();
-        State successInlined = iface.getSuccess();
-        State successFragment = fragment.getSuccessState();
-        State errorInlined = iface.getError();
-        State errorFragment = fragment.getErrorState();
-
-        this.createTransition(statesMapping.get(initialInlined),
-                              fragmentStatesMapping.get(initialFragment),
-                              "",
-                              "1");
-        this.createTransition(fragmentStatesMapping.get(successFragment),
-                              statesMapping.get(successInlined),
-                              "",
-                              "1");
-        if (errorFragment != null) {
-            this.createTransition(fragmentStatesMapping.get(errorFragment),
-                                  statesMapping.get(errorInlined),
-                                  "",
-                                  "1");
-        }
+    private static int indexOrNone(State state) {
+        return (state != null) ? state.getIndex() : -1;
     }
 
-    private Set<Transition> getInterfaceTransitions() {
-        Set<Transition> transitions = new HashSet<Transition>();
-        interfaces.values().stream().flatMap(List<Interface>::stream)
-                .forEach(iface -> {
-                    transitions.add(iface.getSuccessTransition());
-                    transitions.add(iface.getErrorTransition());
-                });
-        return transitions;
+    private static int handleOrNone(Map<Transition, Integer> handles, Transition transition) {
+        Integer handle = (transition != null) ? handles.get(transition) : null;
+        return (handle != null) ? handle : -1;
     }
 
 }
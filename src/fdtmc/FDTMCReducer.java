@@ -0,0 +1,552 @@
+package fdtmc;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reduces FDTMCs while preserving the probability of reaching each
+ * labeled state (in particular, reliability), so that model checkers
+ * have less work to do. The passes are:
+ *
+ *  1. chain collapsing: transitions into an unlabeled state with a single
+ *     outgoing transition are redirected to that transition's target,
+ *     multiplying probabilities symbolically;
+ *  2. removal of states which are not reachable from the initial state
+ *     (nor from labeled or interface states);
+ *  3. probabilistic bisimulation lumping: states with the same label and
+ *     syntactically equal probabilities of moving to each class of
+ *     states are merged.
+ *
+ * Labeled states (e.g., success and error), the initial state and states
+ * taking part in interfaces are never collapsed, and they are only lumped
+ * with states of the same label. Interface states are never lumped.
+ */
+public final class FDTMCReducer {
+
+	private FDTMCReducer() {
+		// Utility class
+	}
+
+	/**
+	 * Applies all reductions to {@code fdtmc}, repeatedly, for as long as
+	 * they keep removing states (e.g., dropping zero-probability transitions
+	 * or lumping states may give rise to new chains).
+	 *
+	 * @return a reduced FDTMC, or {@code fdtmc} itself if it could not be reduced.
+	 */
+	public static CompactFDTMC reduce(CompactFDTMC fdtmc) {
+		CompactFDTMC reduced = fdtmc;
+		int statesNumber;
+		do {
+			statesNumber = reduced.getStatesNumber();
+			reduced = lump(removeUnreachableStates(collapseChains(reduced)));
+		} while (reduced.getStatesNumber() < statesNumber);
+		return reduced;
+	}
+
+	/**
+	 * Removes states which are not reachable from the initial state nor from
+	 * any labeled or interface state (so that these are always kept).
+	 */
+	public static CompactFDTMC removeUnreachableStates(CompactFDTMC fdtmc) {
+		int statesNumber = fdtmc.getStatesNumber();
+		BitSet reachable = new BitSet(statesNumber);
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+		BitSet isProtected = getProtectedStates(fdtmc);
+		for (int state = isProtected.nextSetBit(0); state >= 0; state = isProtected.nextSetBit(state + 1)) {
+			reachable.set(state);
+			pending.push(state);
+		}
+		while (!pending.isEmpty()) {
+			int state = pending.pop();
+			for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+				int target = fdtmc.getTarget(t);
+				if (!reachable.get(target)) {
+					reachable.set(target);
+					pending.push(target);
+				}
+			}
+		}
+		if (reachable.cardinality() == statesNumber) {
+			return fdtmc;
+		}
+
+		int[] newIds = new int[statesNumber];
+		Arrays.fill(newIds, -1);
+		CompactFDTMC.Builder builder = new CompactFDTMC.Builder(fdtmc.getVariableName());
+		for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+			newIds[state] = builder.createState();
+			builder.setLabel(newIds[state], fdtmc.getLabel(state));
+		}
+		int[] handles = new int[fdtmc.getTransitionsNumber()];
+		Arrays.fill(handles, -1);
+		for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+			for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+				handles[t] = builder.addTransition(newIds[state],
+						newIds[fdtmc.getTarget(t)],
+						fdtmc.getAction(t),
+						fdtmc.getProbability(t));
+			}
+		}
+		return finish(fdtmc, builder, newIds, handles);
+	}
+
+	/**
+	 * Bypasses chains of unlabeled states with a single outgoing transition.
+	 * States which end up bypassed are left unreachable, and literal zero
+	 * probability transitions are dropped; parallel transitions (other than
+	 * interface ones) are merged by adding their probabilities.
+	 */
+	public static CompactFDTMC collapseChains(CompactFDTMC fdtmc) {
+		int statesNumber = fdtmc.getStatesNumber();
+		BitSet isProtected = getProtectedStates(fdtmc);
+		BitSet collapsible = new BitSet(statesNumber);
+		for (int state = 0; state < statesNumber; state++) {
+			if (!isProtected.get(state)
+					&& fdtmc.getOutDegree(state) == 1
+					&& fdtmc.getTarget(fdtmc.getFirstTransition(state)) != state) {
+				collapsible.set(state);
+			}
+		}
+		if (collapsible.isEmpty() && !hasZeroOrParallelTransitions(fdtmc)) {
+			return fdtmc;
+		}
+
+		int[] chainTarget = new int[statesNumber];
+		String[] chainProbability = new String[statesNumber];
+		for (int state = collapsible.nextSetBit(0); state >= 0; state = collapsible.nextSetBit(state + 1)) {
+			resolveChain(fdtmc, state, collapsible, chainTarget, chainProbability);
+		}
+
+		CompactFDTMC.Builder builder = new CompactFDTMC.Builder(fdtmc.getVariableName());
+		int[] identity = new int[statesNumber];
+		for (int state = 0; state < statesNumber; state++) {
+			identity[state] = builder.createState();
+			builder.setLabel(state, fdtmc.getLabel(state));
+		}
+		int[] handles = new int[fdtmc.getTransitionsNumber()];
+		Arrays.fill(handles, -1);
+		for (int state = 0; state < statesNumber; state++) {
+			Map<Integer, Sum> merged = new LinkedHashMap<Integer, Sum>();
+			Map<Integer, String> actions = new HashMap<Integer, String>();
+			for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+				if (fdtmc.isInterfaceTransition(t)) {
+					handles[t] = builder.addTransition(state, fdtmc.getTarget(t), fdtmc.getAction(t), fdtmc.getProbability(t));
+					continue;
+				}
+				int target = fdtmc.getTarget(t);
+				String probability = fdtmc.getProbability(t);
+				if (collapsible.get(target)) {
+					probability = multiply(probability, chainProbability[target]);
+					target = chainTarget[target];
+				}
+				Sum sum = merged.get(target);
+				if (sum == null) {
+					sum = new Sum();
+					merged.put(target, sum);
+					actions.put(target, fdtmc.getAction(t));
+				}
+				sum.add(probability);
+			}
+			for (Map.Entry<Integer, Sum> entry : merged.entrySet()) {
+				if (!entry.getValue().isZero()) {
+					builder.addTransition(state,
+							entry.getKey(),
+							actions.get(entry.getKey()),
+							entry.getValue().toExpression());
+				}
+			}
+		}
+		return finish(fdtmc, builder, identity, handles);
+	}
+
+	/**
+	 * Merges probabilistically bisimilar states. Probabilities of moving
+	 * into a class are compared syntactically (numeric terms are added up),
+	 * so lumping is sound for any valuation of the parameters.
+	 */
+	public static CompactFDTMC lump(CompactFDTMC fdtmc) {
+		int statesNumber = fdtmc.getStatesNumber();
+		int[] blocks = new int[statesNumber];
+		Map<String, Integer> initialBlocks = new HashMap<String, Integer>();
+		BitSet interfaceStates = getInterfaceStates(fdtmc);
+		for (int state = 0; state < statesNumber; state++) {
+			String key;
+			if (interfaceStates.get(state)) {
+				key = "#" + state;
+			} else {
+				String label = fdtmc.getLabel(state);
+				key = (label != null) ? "L" + label : "";
+			}
+			blocks[state] = blockId(initialBlocks, key);
+		}
+		int blocksNumber = initialBlocks.size();
+		while (blocksNumber < statesNumber) {
+			Map<String, Integer> refinedBlocks = new HashMap<String, Integer>();
+			int[] refined = new int[statesNumber];
+			for (int state = 0; state < statesNumber; state++) {
+				refined[state] = blockId(refinedBlocks, blocks[state] + signature(fdtmc, state, blocks));
+			}
+			blocks = refined;
+			if (refinedBlocks.size() == blocksNumber) {
+				break;
+			}
+			blocksNumber = refinedBlocks.size();
+		}
+		if (blocksNumber == statesNumber) {
+			return fdtmc;
+		}
+
+		CompactFDTMC.Builder builder = new CompactFDTMC.Builder(fdtmc.getVariableName());
+		int[] representatives = new int[blocksNumber];
+		Arrays.fill(representatives, -1);
+		for (int state = 0; state < statesNumber; state++) {
+			if (representatives[blocks[state]] < 0) {
+				representatives[blocks[state]] = state;
+				builder.createState();
+				builder.setLabel(blocks[state], fdtmc.getLabel(state));
+			}
+		}
+		int[] handles = new int[fdtmc.getTransitionsNumber()];
+		Arrays.fill(handles, -1);
+		for (int block = 0; block < blocksNumber; block++) {
+			int state = representatives[block];
+			Map<Integer, Sum> merged = new LinkedHashMap<Integer, Sum>();
+			Map<Integer, Integer> firstTransitions = new HashMap<Integer, Integer>();
+			for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+				int targetBlock = blocks[fdtmc.getTarget(t)];
+				Sum sum = merged.get(targetBlock);
+				if (sum == null) {
+					sum = new Sum();
+					merged.put(targetBlock, sum);
+					firstTransitions.put(targetBlock, t);
+				}
+				sum.add(fdtmc.getProbability(t));
+			}
+			for (Map.Entry<Integer, Sum> entry : merged.entrySet()) {
+				int first = firstTransitions.get(entry.getKey());
+				// Interface states are never lumped, so the interface
+				// transitions map one-to-one onto the merged ones.
+				handles[first] = builder.addTransition(block,
+						entry.getKey(),
+						fdtmc.getAction(first),
+						entry.getValue().toExpression());
+			}
+		}
+		return finish(fdtmc, builder, blocks, handles);
+	}
+
+	/**
+	 * Sets the special states and interfaces of the reduced FDTMC and builds it.
+	 *
+	 * @param newIds mapping of states to reduced states (-1 for removed ones).
+	 * @param handles mapping of transitions to handles in {@code builder}
+	 *          (-1 for removed or merged ones).
+	 */
+	private static CompactFDTMC finish(CompactFDTMC fdtmc, CompactFDTMC.Builder builder, int[] newIds, int[] handles) {
+		builder.setInitialState(mapState(newIds, fdtmc.getInitialState()));
+		builder.setSuccessState(mapState(newIds, fdtmc.getSuccessState()));
+		builder.setErrorState(mapState(newIds, fdtmc.getErrorState()));
+		for (int occurrence = 0; occurrence < fdtmc.getInterfacesNumber(); occurrence++) {
+			int initial = mapState(newIds, fdtmc.getInterfaceInitial(occurrence));
+			if (initial < 0) {
+				continue;
+			}
+			builder.addInterface(fdtmc.getInterfaceId(occurrence),
+					initial,
+					mapState(newIds, fdtmc.getInterfaceSuccess(occurrence)),
+					mapState(newIds, fdtmc.getInterfaceError(occurrence)),
+					mapState(handles, fdtmc.getInterfaceSuccessTransition(occurrence)),
+					mapState(handles, fdtmc.getInterfaceErrorTransition(occurrence)));
+		}
+		return builder.build();
+	}
+
+	private static int mapState(int[] mapping, int id) {
+		return (id >= 0) ? mapping[id] : -1;
+	}
+
+	private static int blockId(Map<String, Integer> blocks, String key) {
+		Integer block = blocks.get(key);
+		if (block == null) {
+			block = blocks.size();
+			blocks.put(key, block);
+		}
+		return block;
+	}
+
+	/**
+	 * Canonical description of the probabilities of moving from {@code state}
+	 * into each block.
+	 */
+	private static String signature(CompactFDTMC fdtmc, int state, int[] blocks) {
+		TreeMap<Integer, Sum> sums = new TreeMap<Integer, Sum>();
+		for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+			int targetBlock = blocks[fdtmc.getTarget(t)];
+			Sum sum = sums.get(targetBlock);
+			if (sum == null) {
+				sum = new Sum();
+				sums.put(targetBlock, sum);
+			}
+			sum.add(fdtmc.getProbability(t));
+		}
+		StringBuilder signature = new StringBuilder();
+		for (Map.Entry<Integer, Sum> entry : sums.entrySet()) {
+			if (!entry.getValue().isZero()) {
+				signature.append('|').append(entry.getKey()).append(':').append(entry.getValue().toCanonicalString());
+			}
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * Follows the chain starting at the collapsible {@code state} up to its
+	 * first non-collapsible state, memoizing the target and the product of
+	 * probabilities along the way for every state in the chain.
+	 */
+	private static void resolveChain(CompactFDTMC fdtmc, int state, BitSet collapsible, int[] chainTarget, String[] chainProbability) {
+		if (chainProbability[state] != null) {
+			return;
+		}
+		List<Integer> chain = new ArrayList<Integer>();
+		BitSet inChain = new BitSet();
+		int current = state;
+		while (collapsible.get(current) && chainProbability[current] == null && !inChain.get(current)) {
+			chain.add(current);
+			inChain.set(current);
+			current = fdtmc.getTarget(fdtmc.getFirstTransition(current));
+		}
+		int target;
+		String probability;
+		if (inChain.get(current)) {
+			// A cycle of collapsible states: stop right before closing it.
+			int last = chain.get(chain.size() - 1);
+			chain.remove(chain.size() - 1);
+			target = last;
+			probability = "1";
+		} else if (collapsible.get(current)) {
+			target = chainTarget[current];
+			probability = chainProbability[current];
+		} else {
+			target = current;
+			probability = "1";
+		}
+		Collections.reverse(chain);
+		for (int link : chain) {
+			probability = multiply(fdtmc.getProbability(fdtmc.getFirstTransition(link)), probability);
+			chainTarget[link] = target;
+			chainProbability[link] = probability;
+		}
+		if (inChain.get(current)) {
+			// The state closing the cycle is not bypassed.
+			collapsible.clear(target);
+		}
+	}
+
+	private static boolean hasZeroOrParallelTransitions(CompactFDTMC fdtmc) {
+		for (int state = 0; state < fdtmc.getStatesNumber(); state++) {
+			BitSet targets = new BitSet();
+			for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getTransitionsEnd(state); t++) {
+				BigDecimal value = numericValue(fdtmc.getProbability(t));
+				if ((value != null && value.signum() == 0) || targets.get(fdtmc.getTarget(t))) {
+					return true;
+				}
+				targets.set(fdtmc.getTarget(t));
+			}
+		}
+		return false;
+	}
+
+	private static BitSet getProtectedStates(CompactFDTMC fdtmc) {
+		BitSet isProtected = getInterfaceStates(fdtmc);
+		if (fdtmc.getInitialState() >= 0) {
+			isProtected.set(fdtmc.getInitialState());
+		}
+		for (int i = 0; i < fdtmc.getLabeledStatesNumber(); i++) {
+			isProtected.set(fdtmc.getLabeledState(i));
+		}
+		return isProtected;
+	}
+
+	private static BitSet getInterfaceStates(CompactFDTMC fdtmc) {
+		BitSet interfaceStates = new BitSet(fdtmc.getStatesNumber());
+		for (int occurrence = 0; occurrence < fdtmc.getInterfacesNumber(); occurrence++) {
+			setIfPresent(interfaceStates, fdtmc.getInterfaceInitial(occurrence));
+			setIfPresent(interfaceStates, fdtmc.getInterfaceSuccess(occurrence));
+			setIfPresent(interfaceStates, fdtmc.getInterfaceError(occurrence));
+		}
+		return interfaceStates;
+	}
+
+	private static void setIfPresent(BitSet states, int state) {
+		if (state >= 0) {
+			states.set(state);
+		}
+	}
+
+	/**
+	 * Symbolic product of two probability expressions. Numeric factors
+	 * (including leading coefficients of products) are multiplied exactly,
+	 * and ones are dropped.
+	 */
+	static String multiply(String p1, String p2) {
+		Product first = Product.of(p1);
+		Product second = Product.of(p2);
+		BigDecimal coefficient = first.coefficient.multiply(second.coefficient);
+		if (coefficient.signum() == 0) {
+			return "0";
+		}
+		String factors = (first.factors == null) ? second.factors
+				: (second.factors == null) ? first.factors
+				: first.factors + "*" + second.factors;
+		if (factors == null) {
+			return toString(coefficient);
+		}
+		return (coefficient.compareTo(BigDecimal.ONE) == 0) ? factors : toString(coefficient) + "*" + factors;
+	}
+
+	private static String parenthesize(String expression) {
+		for (int i = 0; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+				return "(" + expression + ")";
+			}
+		}
+		return expression;
+	}
+
+	private static BigDecimal numericValue(String probability) {
+		try {
+			return new BigDecimal(probability.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String toString(BigDecimal value) {
+		return (value.signum() == 0) ? "0" : value.stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Probability expression split into a numeric coefficient and the
+	 * remaining (symbolic) factors, if any.
+	 */
+	private static class Product {
+		final BigDecimal coefficient;
+		final String factors;
+
+		private Product(BigDecimal coefficient, String factors) {
+			this.coefficient = coefficient;
+			this.factors = factors;
+		}
+
+		static Product of(String expression) {
+			BigDecimal value = numericValue(expression);
+			if (value != null) {
+				return new Product(value, null);
+			}
+			int star = expression.indexOf('*');
+			if (star > 0 && isProduct(expression)) {
+				BigDecimal coefficient = numericValue(expression.substring(0, star));
+				if (coefficient != null) {
+					return new Product(coefficient, expression.substring(star + 1));
+				}
+			}
+			return new Product(BigDecimal.ONE, isProduct(expression) ? expression : parenthesize(expression));
+		}
+
+		/**
+		 * Whether the expression has no additions or subtractions outside
+		 * parentheses, i.e., whether it may take part in a product as is.
+		 */
+		private static boolean isProduct(String expression) {
+			int depth = 0;
+			for (int i = 0; i < expression.length(); i++) {
+				char c = expression.charAt(i);
+				if (c == '(') {
+					depth++;
+				} else if (c == ')') {
+					depth--;
+				} else if (depth == 0 && (c == '+' || c == '-') && !isExponentSign(expression, i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Whether the sign at {@code i} belongs to the exponent of a
+		 * numeric literal (e.g., 1e-5) rather than to a subtraction.
+		 */
+		private static boolean isExponentSign(String expression, int i) {
+			if (i < 2 || Character.toLowerCase(expression.charAt(i - 1)) != 'e') {
+				return false;
+			}
+			int start = i - 2;
+			while (start >= 0 && (Character.isDigit(expression.charAt(start)) || expression.charAt(start) == '.')) {
+				start--;
+			}
+			return start < i - 2
+					&& (start < 0 || !(Character.isLetterOrDigit(expression.charAt(start)) || expression.charAt(start) == '_'));
+		}
+	}
+
+	/**
+	 * Sum of probability expressions: numeric terms are added up exactly,
+	 * and symbolic ones are kept as they are.
+	 */
+	private static class Sum {
+		private BigDecimal constant = BigDecimal.ZERO;
+		private List<String> terms = new ArrayList<String>(1);
+
+		void add(String probability) {
+			BigDecimal value = numericValue(probability);
+			if (value != null) {
+				constant = constant.add(value);
+			} else {
+				terms.add(probability);
+			}
+		}
+
+		boolean isZero() {
+			return terms.isEmpty() && constant.signum() == 0;
+		}
+
+		String toExpression() {
+			if (terms.isEmpty()) {
+				return FDTMCReducer.toString(constant);
+			}
+			if (terms.size() == 1 && constant.signum() == 0) {
+				return terms.get(0);
+			}
+			StringBuilder expression = new StringBuilder();
+			if (constant.signum() != 0) {
+				expression.append(FDTMCReducer.toString(constant));
+			}
+			for (String term : terms) {
+				if (expression.length() > 0) {
+					expression.append('+');
+				}
+				expression.append(parenthesize(term));
+			}
+			return expression.toString();
+		}
+
+		String toCanonicalString() {
+			List<String> sorted = new ArrayList<String>(terms);
+			Collections.sort(sorted);
+			return FDTMCReducer.toString(constant) + sorted;
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package fdtmc;
+
+import java.util.Set;
+
+/**
+ * Read-only, int-indexed view of an FDTMC.
+ *
+ * It is implemented both by flat models ({@link CompactFDTMC}) and by
+ * compositions of other views ({@link CompositeFDTMC}), which compute
+ * their states and transitions on the fly from their parts. Consumers
+ * which only need to traverse a model (e.g., to serialize it) can do so
+ * without it ever being flattened.
+ */
+public interface FDTMCView {
+
+	/**
+	 * Receives the transitions of a state, in order.
+	 */
+	@FunctionalInterface
+	interface TransitionVisitor {
+		/**
+		 * @param target Target state (already offset, if requested).
+		 * @param action Action name.
+		 * @param probability Probability expression.
+		 * @param interfaceTransition -1 for ordinary transitions or, for
+		 *          interface ones, 2*occurrence (success transition) or
+		 *          2*occurrence + 1 (error transition).
+		 */
+		void visit(int target, String action, String probability, int interfaceTransition);
+	}
+
+	public String getVariableName();
+
+	public int getStatesNumber();
+
+	/**
+	 * @param withInterfaceTransitions whether to count the transitions
+	 *          which take part in interfaces.
+	 */
+	public int getTransitionsNumber(boolean withInterfaceTransitions);
+
+	public int getOutDegree(int state, boolean withInterfaceTransitions);
+
+	/**
+	 * @return the initial state, or -1 if there is none.
+	 */
+	public int getInitialState();
+
+	/**
+	 * @return the success state, or -1 if there is none.
+	 */
+	public int getSuccessState();
+
+	/**
+	 * @return the error state, or -1 if there is none.
+	 */
+	public int getErrorState();
+
+	/**
+	 * @return the label of {@code state}, or null if it is unlabeled.
+	 */
+	public String getLabel(int state);
+
+	/**
+	 * @return the labeled states, in increasing order.
+	 */
+	public int[] getLabeledStates();
+
+	public int getInterfacesNumber();
+
+	public String getInterfaceId(int occurrence);
+
+	public int getInterfaceInitial(int occurrence);
+
+	public int getInterfaceSuccess(int occurrence);
+
+	public int getInterfaceError(int occurrence);
+
+	/**
+	 * Visits the outgoing transitions of {@code state}, adding
+	 * {@code offset} to the target states.
+	 */
+	public void visitTransitions(int state, boolean withInterfaceTransitions, int offset, TransitionVisitor visitor);
+
+	/**
+	 * Adds all distinct probability expressions to {@code probabilities}.
+	 */
+	public void collectProbabilities(boolean withInterfaceTransitions, Set<String> probabilities);
+
+	/**
+	 * Returns the flat form of this view.
+	 */
+	public CompactFDTMC toCompact();
+
+}
@@ -5,6 +5,7 @@ public class State {
 	private String variableName;
 	private int index;
 	private String label;
+	private FDTMC owner;
 
 	public void setVariableName(String variableName) {
 		this.variableName = variableName;
@@ -15,9 +16,16 @@ public class State {
 	}
 
 	public void setLabel(String label) {
+		if (owner != null) {
+			owner.modify();
+		}
 		this.label = label;
 	}
 
+	void setOwner(FDTMC owner) {
+		this.owner = owner;
+	}
+
 	public int getIndex() {
 		return index;
 	}
@@ -0,0 +1,29 @@
+package fdtmc;
+
+/**
+ * Mixing function for 64-bit structural (Merkle-style) hashes: the hash
+ * of a composite value is obtained by mixing, in a canonical order, the
+ * hashes of its parts.
+ */
+public final class StructuralHash {
+	public static final long SEED = 0xcbf29ce484222325L;
+
+	private StructuralHash() {
+	}
+
+	public static long mix(long hash, long value) {
+		long h = (hash ^ value) * 0x9e3779b97f4a7c15L;
+		return h ^ (h >>> 29);
+	}
+
+	public static long of(String value) {
+		long h = SEED;
+		if (value == null) {
+			return mix(h, -1);
+		}
+		for (int i = 0; i < value.length(); i++) {
+			h = mix(h, value.charAt(i));
+		}
+		return mix(h, value.length());
+	}
+}
@@ -1,11 +1,15 @@
 package jadd;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
@@ -131,6 +135,53 @@ public class ADD {
         return condition.ifThenElse(ifTrue, ifFalse);
     }
 
+    /**
+     * Cofactors this ADD with respect to {@code cube}, a 0,1-ADD which is a
+     * conjunction of literals (e.g., a partial configuration): the variables
+     * in it are fixed to the respective values, so they disappear from the result.
+     */
+    public ADD cofactor(ADD cube) {
+        Pointer<DdNode> result = BigcuddLibrary.Cudd_Cofactor(dd,
+                                                              this.function,
+                                                              cube.function);
+        return new ADD(dd, result, variableStore);
+    }
+
+    /**
+     * Sums out the given variables: the result maps each assignment to the
+     * remaining variables to the sum of this ADD's values over all assignments
+     * to {@code variables}. For a 0,1-ADD, this counts the ways in which an
+     * assignment to the remaining variables can be completed.
+     */
+    public ADD existAbstract(Collection<String> variables) throws UnrecognizedVariableException {
+        Pointer<DdNode> cube = BigcuddLibrary.Cudd_ReadOne(dd);
+        ADD cubeADD = new ADD(dd, cube, variableStore);
+        for (String variable: variables) {
+            ADD varADD = variableStore.get(variable);
+            if (varADD == null) {
+                throw new UnrecognizedVariableException(variable);
+            }
+            cubeADD = cubeADD.times(varADD);
+        }
+        Pointer<DdNode> result = BigcuddLibrary.Cudd_addExistAbstract(dd,
+                                                                      this.function,
+                                                                      cubeADD.function);
+        return new ADD(dd, result, variableStore);
+    }
+
+    /**
+     * Minimizes this ADD using the 0,1-ADD {@code careSet} as a don't care
+     * set (Coudert and Madre's restrict): the result is equal to this ADD
+     * wherever {@code careSet} is non-zero, and is arbitrary elsewhere. It is
+     * usually smaller, and it does not depend on variables this ADD does not.
+     */
+    public ADD restrict(ADD careSet) {
+        Pointer<DdNode> result = BigcuddLibrary.Cudd_addRestrict(dd,
+                                                                 this.function,
+                                                                 careSet.function);
+        return new ADD(dd, result, variableStore);
+    }
+
     public Set<String> getVariables() {
         Set<String> variables = new HashSet<String>();
 
@@ -193,7 +244,17 @@ public class ADD {
      * @return
      */
     public Stream<Collection<String>> getExpandedConfigurations() {
-        return StreamSupport.stream(new CubeSpliterator(), true);
+        return StreamSupport.stream(new CubeSpliterator(null), true);
+    }
+
+    /**
+     * Returns a stream of valid (non-zero) configurations for this ADD, expanding
+     * only the "don't care" variables in {@code expandedVariables}. The other
+     * "don't care" variables are left out (i.e., taken as disabled).
+     * @return
+     */
+    public Stream<Collection<String>> getExpandedConfigurations(Collection<String> expandedVariables) {
+        return StreamSupport.stream(new CubeSpliterator(new HashSet<String>(expandedVariables)), true);
     }
 
     /**
@@ -212,6 +273,15 @@ public class ADD {
         return 1 != BigcuddLibrary.Cudd_IsNonConstant(function);
     }
 
+    /**
+     * Returns true if this ADD is the constant 0 (e.g., an unsatisfiable
+     * boolean function).
+     * @return
+     */
+    public boolean isZero() {
+        return function.equals(BigcuddLibrary.Cudd_ReadZero(dd));
+    }
+
     static Collection<List<String>> expandDontCares(List<String> config) {
         return expandDontCares(config.iterator());
     }
@@ -310,6 +380,69 @@ public class ADD {
         return this.function;
     }
 
+    String getVariableName(short varIndex) {
+        return variableStore.getName(varIndex);
+    }
+
+    /**
+     * Counts the assignments to {@code variablesNumber} variables for which
+     * this ADD is non-zero (e.g., the valid configurations of a feature model).
+     * The variables must include all the ones this ADD depends on.
+     *
+     * The count is exact as long as it fits a double's mantissa.
+     * @param variablesNumber
+     * @return
+     */
+    public double getNonZeroAssignmentsCount(int variablesNumber) {
+        int managerSize = BigcuddLibrary.Cudd_ReadSize(dd);
+        // Counts over all the manager's variables (level by level, since
+        // a child may skip levels) and then discards the ones not asked for.
+        Map<Long, Double> counts = new HashMap<Long, Double>();
+        Deque<Pointer<DdNode>> pending = new ArrayDeque<Pointer<DdNode>>();
+        pending.push(function);
+        while (!pending.isEmpty()) {
+            Pointer<DdNode> node = pending.peek();
+            long peer = Pointer.getPeer(node);
+            if (counts.containsKey(peer)) {
+                pending.pop();
+                continue;
+            }
+            if (BigcuddLibrary.Cudd_IsNonConstant(node) != 1) {
+                double value = node.get().type().value();
+                counts.put(peer, (Double.doubleToRawLongBits(value) != 0) ? 1.0 : 0.0);
+                pending.pop();
+                continue;
+            }
+            DdNode contents = node.get();
+            Pointer<DdNode> ifTrue = contents.type().kids().T();
+            Pointer<DdNode> ifFalse = contents.type().kids().E();
+            Double thenCount = counts.get(Pointer.getPeer(ifTrue));
+            Double elseCount = counts.get(Pointer.getPeer(ifFalse));
+            if (thenCount == null || elseCount == null) {
+                if (thenCount == null) {
+                    pending.push(ifTrue);
+                }
+                if (elseCount == null) {
+                    pending.push(ifFalse);
+                }
+                continue;
+            }
+            int level = getLevel(node, managerSize);
+            counts.put(peer, Math.scalb(thenCount, getLevel(ifTrue, managerSize) - level - 1)
+                    + Math.scalb(elseCount, getLevel(ifFalse, managerSize) - level - 1));
+            pending.pop();
+        }
+        double count = Math.scalb(counts.get(Pointer.getPeer(function)), getLevel(function, managerSize));
+        return Math.scalb(count, variablesNumber - managerSize);
+    }
+
+    private int getLevel(Pointer<DdNode> node, int managerSize) {
+        if (BigcuddLibrary.Cudd_IsNonConstant(node) != 1) {
+            return managerSize;
+        }
+        return BigcuddLibrary.Cudd_ReadPerm(dd, BigcuddLibrary.Cudd_NodeReadIndex(node));
+    }
+
     /**************************************************************
      *** Operators definitions
      *************************************************************/
@@ -366,10 +499,13 @@ public class ADD {
         private Pointer<DdGen> generator;
         private int numVars;
         private Iterator<List<String>> expandedIterator;
+        // Don't care variables to be expanded, or null for all of them.
+        private Set<String> expandedVariables;
 
-        protected CubeSpliterator() {
+        protected CubeSpliterator(Set<String> expandedVariables) {
+            // Paths are only an estimate: don't cares expand into more configurations.
             super((long) BigcuddLibrary.Cudd_CountPathsToNonZero(function),
-                  Spliterator.SIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED);
+                  Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED);
 
             Pointer<Integer> dummy = Pointer.allocateInt();
             // A pointer to a freshly allocated pointer to int.
@@ -387,7 +523,7 @@ public class ADD {
                                                       cubePtr,
                                                       valuePtr);
             numVars = BigcuddLibrary.Cudd_ReadSize(dd);
-
+            this.expandedVariables = expandedVariables;
         }
 
         @Override
@@ -397,6 +533,10 @@ public class ADD {
                     Pointer<Integer> cube = cubePtr.getPointer(Integer.class);
                     int[] presenceVector = cube.getInts(numVars);
                     List<String> configuration = variableStore.fromPresenceVector(presenceVector);
+                    if (expandedVariables != null) {
+                        configuration.removeIf(variable -> variable.startsWith("(")
+                                && !expandedVariables.contains(variable.substring(1, variable.length()-1)));
+                    }
 
                     Collection<List<String>> expanded = expandDontCares(configuration);
                     expandedIterator = expanded.iterator();
@@ -0,0 +1,269 @@
+package jadd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.DdNode;
+
+/**
+ * Single-line textual form of an {@link ADD}, so that it can be stored and
+ * rebuilt by another {@link JADD} (e.g., in a later run).
+ *
+ * Nodes are written bottom-up, separated by spaces, each one either as
+ * {@code c} and a constant in hexadecimal floating-point notation or as
+ * {@code i} followed by the indices of its "then" and "else" children and
+ * by the name of its variable, comma-separated. Variables are referred to
+ * by name, so the ADD can be rebuilt regardless of variable indices and
+ * ordering, and its size is linear in the number of nodes. There is also
+ * a more compact binary form (see {@link #toBytes(ADD)}).
+ */
+public final class ADDSerializer {
+
+    private static final int BINARY_MAGIC = 0x52414444;
+
+    private ADDSerializer() {
+        // NO-OP
+    }
+
+    public static String serialize(ADD function) {
+        StringBuilder out = new StringBuilder();
+        traverse(function, new NodeVisitor() {
+            private int nodes = 0;
+
+            @Override
+            public void constant(double value) {
+                append(out, nodes++).append('c').append(Double.toHexString(value));
+            }
+
+            @Override
+            public void internal(int thenIndex, int elseIndex, String variable) {
+                if (variable.matches(".*\\s.*")) {
+                    throw new IllegalArgumentException("Variable <" + variable + "> cannot be serialized");
+                }
+                append(out, nodes++)
+                    .append('i')
+                    .append(thenIndex)
+                    .append(',')
+                    .append(elseIndex)
+                    .append(',')
+                    .append(variable);
+            }
+        });
+        return out.toString();
+    }
+
+    /**
+     * Compact binary form of an ADD, with the same node order as the
+     * textual one: a magic number, the names of the variables (as in
+     * {@link DataOutputStream#writeUTF(String)}), the number of nodes
+     * and then each node, either as a {@code 'c'} byte and a double or
+     * as an {@code 'i'} byte and the indices of its "then" child, "else"
+     * child and variable name.
+     *
+     * Unlike the textual form, variable names may contain whitespace.
+     */
+    public static byte[] toBytes(ADD function) {
+        Map<String, Integer> variables = new LinkedHashMap<String, Integer>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream nodesOut = new DataOutputStream(body);
+        int[] nodes = {0};
+        try {
+            traverse(function, new NodeVisitor() {
+                @Override
+                public void constant(double value) throws IOException {
+                    nodesOut.writeByte('c');
+                    nodesOut.writeDouble(value);
+                    nodes[0]++;
+                }
+
+                @Override
+                public void internal(int thenIndex, int elseIndex, String variable) throws IOException {
+                    Integer variableIndex = variables.get(variable);
+                    if (variableIndex == null) {
+                        variableIndex = variables.size();
+                        variables.put(variable, variableIndex);
+                    }
+                    nodesOut.writeByte('i');
+                    nodesOut.writeInt(thenIndex);
+                    nodesOut.writeInt(elseIndex);
+                    nodesOut.writeInt(variableIndex);
+                    nodes[0]++;
+                }
+            });
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 16 * variables.size() + 12);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(variables.size());
+            for (String variable: variables.keySet()) {
+                out.writeUTF(variable);
+            }
+            out.writeInt(nodes[0]);
+            body.writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // In-memory streams do not fail.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds an ADD in the binary form of {@link #toBytes(ADD)} in the
+     * given manager, creating the variables it does not know yet.
+     */
+    public static ADD fromBytes(JADD jadd, byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            if (in.readInt() != BINARY_MAGIC) {
+                throw new IOException("Not a serialized ADD");
+            }
+            String[] variables = new String[in.readInt()];
+            for (int i = 0; i < variables.length; i++) {
+                variables[i] = in.readUTF();
+            }
+            int nodesNumber = in.readInt();
+            if (nodesNumber <= 0) {
+                throw new IOException("Malformed serialized ADD: no nodes");
+            }
+            List<ADD> nodes = new ArrayList<ADD>(nodesNumber);
+            for (int i = 0; i < nodesNumber; i++) {
+                byte opcode = in.readByte();
+                switch (opcode) {
+                case 'c':
+                    nodes.add(jadd.makeConstant(in.readDouble()));
+                    break;
+                case 'i':
+                    ADD ifTrue = operand(nodes, in.readInt());
+                    ADD ifFalse = operand(nodes, in.readInt());
+                    int variable = in.readInt();
+                    if (variable < 0 || variable >= variables.length) {
+                        throw new IllegalArgumentException("unknown variable " + variable);
+                    }
+                    nodes.add(jadd.getVariable(variables[variable]).ifThenElse(ifTrue, ifFalse));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown opcode " + opcode);
+                }
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("trailing bytes");
+            }
+            return nodes.get(nodes.size() - 1);
+        } catch (EOFException e) {
+            throw new IOException("Truncated serialized ADD", e);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed serialized ADD: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Visits the nodes of an ADD bottom-up (children first), each one once.
+     * Children are referred to by the order in which they were visited.
+     */
+    private static void traverse(ADD function, NodeVisitor visitor) {
+        Map<Long, Integer> written = new HashMap<Long, Integer>();
+        Deque<Pointer<DdNode>> pending = new ArrayDeque<Pointer<DdNode>>();
+        pending.push(function.getUnderlyingNode());
+        try {
+            while (!pending.isEmpty()) {
+                Pointer<DdNode> node = pending.peek();
+                long peer = Pointer.getPeer(node);
+                if (written.containsKey(peer)) {
+                    pending.pop();
+                    continue;
+                }
+                DdNode contents = node.get();
+                if (BigcuddLibrary.Cudd_IsNonConstant(node) != 1) {
+                    visitor.constant(contents.type().value());
+                } else {
+                    Pointer<DdNode> ifTrue = contents.type().kids().T();
+                    Pointer<DdNode> ifFalse = contents.type().kids().E();
+                    Integer thenIndex = written.get(Pointer.getPeer(ifTrue));
+                    Integer elseIndex = written.get(Pointer.getPeer(ifFalse));
+                    if (thenIndex == null || elseIndex == null) {
+                        // Children first; this node is visited again afterwards.
+                        if (thenIndex == null) {
+                            pending.push(ifTrue);
+                        }
+                        if (elseIndex == null) {
+                            pending.push(ifFalse);
+                        }
+                        continue;
+                    }
+                    visitor.internal(thenIndex, elseIndex, function.getVariableName(contents.index()));
+                }
+                written.put(peer, written.size());
+                pending.pop();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds a serialized ADD in the given manager, creating the
+     * variables it does not know yet.
+     */
+    public static ADD deserialize(JADD jadd, String serialized) throws IOException {
+        String[] tokens = serialized.trim().split(" ");
+        List<ADD> nodes = new ArrayList<ADD>(tokens.length);
+        try {
+            for (String token: tokens) {
+                String argument = token.substring(1);
+                switch (token.charAt(0)) {
+                case 'c':
+                    nodes.add(jadd.makeConstant(Double.parseDouble(argument)));
+                    break;
+                case 'i':
+                    String[] fields = argument.split(",", 3);
+                    ADD ifTrue = operand(nodes, fields[0]);
+                    ADD ifFalse = operand(nodes, fields[1]);
+                    nodes.add(jadd.getVariable(fields[2]).ifThenElse(ifTrue, ifFalse));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown opcode " + token.charAt(0));
+                }
+            }
+            return nodes.get(nodes.size() - 1);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed serialized ADD: " + e.getMessage(), e);
+        }
+    }
+
+    private static StringBuilder append(StringBuilder out, int index) {
+        return (index > 0) ? out.append(' ') : out;
+    }
+
+    private static ADD operand(List<ADD> nodes, String index) {
+        return operand(nodes, Integer.parseInt(index));
+    }
+
+    private static ADD operand(List<ADD> nodes, int operand) {
+        if (operand < 0 || operand >= nodes.size()) {
+            throw new IllegalArgumentException("operand " + operand + " is not a previous node");
+        }
+        return nodes.get(operand);
+    }
+
+    private interface NodeVisitor {
+        void constant(double value) throws IOException;
+
+        void internal(int thenIndex, int elseIndex, String variable) throws IOException;
+    }
+
+}
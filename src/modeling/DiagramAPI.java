@@ -18,6 +18,7 @@ import parsing.exceptions.UnsupportedFragmentTypeException;
 import parsing.sequencediagrams.Fragment;
 import parsing.sequencediagrams.SDReader;
 import tool.RDGNode;
+import tool.RdgContext;
 import transformation.Transformer;
 import fdtmc.FDTMC;
 
@@ -29,15 +30,21 @@ public class DiagramAPI implements IModelerAPI {
 		private ADReader adParser;
 		private Map<String, Fragment> sdByID;
 		private Transformer transformer;
+		private RdgContext rdgContext;
 
 	// Constructors
 
 		public DiagramAPI(File xmlFile) throws UnsupportedFragmentTypeException, InvalidTagException {
+			this(xmlFile, new RdgContext());
+		}
+
+		public DiagramAPI(File xmlFile, RdgContext rdgContext) throws UnsupportedFragmentTypeException, InvalidTagException {
 			this.xmlFile = xmlFile;
+			this.rdgContext = rdgContext;
 			adParser = null;
 			sdParsers = new ArrayList<SDReader>();
 			sdByID = new HashMap<String, Fragment>();
-			transformer = new Transformer();
+			transformer = new Transformer(rdgContext);
 
 			initialize();
 		}
@@ -121,6 +128,13 @@ public class DiagramAPI implements IModelerAPI {
 			return transformer.getFdtmcByName();
 		}
 
+		/* (non-Javadoc)
+		 * @see modeling.IModelerAPI#getRdgContext()
+		 */
+		public RdgContext getRdgContext() {
+			return rdgContext;
+		}
+
 		/* (non-Javadoc)
 		 * @see modeling.IModelerAPI#getSdParsers()
 		 */
@@ -9,6 +9,7 @@ import parsing.exceptions.InvalidNodeType;
 import parsing.exceptions.InvalidNumberOfOperandsException;
 import parsing.sequencediagrams.SDReader;
 import tool.RDGNode;
+import tool.RdgContext;
 import fdtmc.FDTMC;
 
 public interface IModelerAPI {
@@ -28,6 +29,11 @@ public interface IModelerAPI {
 
 	public abstract Map<String, FDTMC> getFdtmcByName();
 
+	/**
+	 * Context in which the transformed RDG nodes are created.
+	 */
+	public abstract RdgContext getRdgContext();
+
 	public abstract List<SDReader> getSdParsers();
 
 	public abstract ADReader getAdParser();
@@ -1,75 +1,70 @@
 package paramwrapper;
 
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.Map.Entry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
-import fdtmc.FDTMC;
-import fdtmc.State;
-import fdtmc.Transition;
+import fdtmc.FDTMCView;
 
+/**
+ * PARAM/PRISM command (guarded update) for the outgoing transitions of
+ * a state. It is a view over a row of an {@link FDTMCView}, so it is
+ * cheap to create and holds no copy of the transitions.
+ */
 class Command {
+	private FDTMCView fdtmc;
 	private int initialState;
-	private List<String> updatesProbabilities;
-	private List<Integer> updatesActions;
 
-	public Command(int initialState) {
+	public Command(FDTMCView fdtmc, int initialState) {
+		this.fdtmc = fdtmc;
 		this.initialState = initialState;
-        this.updatesProbabilities = new LinkedList<String>();
-        this.updatesActions = new LinkedList<Integer>();
 	}
 
-	public void addUpdate(String probability, int update) {
-		updatesProbabilities.add(probability);
-		updatesActions.add(update);
+	/**
+	 * Number of updates of this command. States without any transition
+	 * still get a (self-loop) update.
+	 */
+	public int getUpdatesNumber() {
+		return Math.max(1, fdtmc.getOutDegree(initialState, true));
 	}
 
-	public Collection<String> getUpdatesProbabilities() {
-		return updatesProbabilities;
-	}
-	
-	private Command generateCommand(Entry<State, List<Transition>> entry, int initState) {
-		Command command = new Command(initState);
-		if (entry.getValue() != null) {
-		    for (Transition transition : entry.getValue()) {
-		        command.addUpdate(transition.getProbability(),
-		                          transition.getTarget().getIndex());
-		    }
-		} else {
-		    // Workaround: manually adding self-loops in case no
-		    // transition was specified for a given state.
-		    command.addUpdate("1", initState);
+	public String makeString(String stateVariable) {
+		StringBuilder command = new StringBuilder();
+		try {
+			appendTo(command, stateVariable);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		
-		return command;
+		return command.toString();
 	}
-	
-	public Map<Integer, Command> getCommands(FDTMC fdtmc) {
-		Map<Integer, Command> tmpCommands = new TreeMap<Integer, Command>();
-		for (Entry<State, List<Transition>> entry : fdtmc.getTransitions().entrySet()) {
-		    int initState = entry.getKey().getIndex();
-		    
-		    Command command = generateCommand(entry, initState);
-		    
-			tmpCommands.put(initState, command);
+
+	public void appendTo(Appendable out, String stateVariable) throws IOException {
+		out.append("[] ").append(stateVariable).append('=')
+			.append(Integer.toString(initialState)).append(" -> ");
+		if (fdtmc.getOutDegree(initialState, true) == 0) {
+			// Workaround: manually adding self-loops in case no
+			// transition was specified for a given state.
+			appendUpdate(out, stateVariable, "1", initialState);
 		}
-		return tmpCommands;
+		int[] updates = {0};
+		try {
+			fdtmc.visitTransitions(initialState, true, 0, (target, action, probability, interfaceTransition) -> {
+				try {
+					if (updates[0]++ > 0) {
+						out.append(" + ");
+					}
+					appendUpdate(out, stateVariable, probability, target);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.append(';');
 	}
 
-	public String makeString(String stateVariable) {
-		String command = "[] "+stateVariable+"="+initialState+" -> ";
-		boolean needsPlus = false;
-		for (int i = 0; i < updatesProbabilities.size(); i++) {
-		    if (needsPlus) {
-		        command += " + ";
-		    } else {
-		        needsPlus = true;
-		    }
-			command += "("+updatesProbabilities.get(i)+") : ("+stateVariable+"'="+updatesActions.get(i)+")";
-		}
-		return command+";";
+	private static void appendUpdate(Appendable out, String stateVariable, String probability, int target) throws IOException {
+		out.append('(').append(probability).append(") : (")
+			.append(stateVariable).append("'=").append(Integer.toString(target)).append(')');
 	}
 }
@@ -6,6 +6,7 @@ public interface IModelCollector {
 
     public void collectModel(int variables, int states);
     public void collectModelCheckingTime(long elapsedTimeNanos);
+    public void collectModelReduction(int statesBefore, int statesAfter);
     public void printStats(PrintStream out);
 
 }
@@ -0,0 +1,19 @@
+package paramwrapper;
+
+/**
+ * A parametric model checker could not yield the reliability formula of
+ * a model (e.g., it could not be run, or its results could not be read).
+ */
+public class ModelCheckingException extends RuntimeException {
+
+	private static final long serialVersionUID = 2722950861304557613L;
+
+	public ModelCheckingException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ModelCheckingException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,28 @@
+package paramwrapper;
+
+/**
+ * Input languages understood by the supported parametric model checkers.
+ * Both share the same module syntax and only differ in how parameters
+ * are declared, so the dialect is chosen once before serialization.
+ */
+enum ModelDialect {
+	/**
+	 * PARAM declares free parameters with {@code param}.
+	 */
+	PARAM("param"),
+	/**
+	 * PRISM declares undefined constants with {@code const}, which are
+	 * then bound as parameters through the {@code -param} switch.
+	 */
+	PRISM("const");
+
+	private final String parameterKeyword;
+
+	private ModelDialect(String parameterKeyword) {
+		this.parameterKeyword = parameterKeyword;
+	}
+
+	public String getParameterKeyword() {
+		return parameterKeyword;
+	}
+}
@@ -0,0 +1,49 @@
+package paramwrapper;
+
+import fdtmc.FDTMC;
+import fdtmc.FDTMCView;
+
+/**
+ * Size metrics of the parametric model generated for an FDTMC, which are
+ * the main drivers of model-checking cost.
+ */
+public final class ModelMetrics {
+	private final int states;
+	private final int transitions;
+	private final int parameters;
+
+	public ModelMetrics(int states, int transitions, int parameters) {
+		this.states = states;
+		this.transitions = transitions;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Measures the model that would be handed to the model checker
+	 * for the given FDTMC, counting straight on the FDTMC (the model
+	 * itself is not generated).
+	 */
+	public static ModelMetrics of(FDTMC fdtmc) {
+		FDTMCView view = fdtmc.view();
+		return new ModelMetrics(ParamModel.countStates(view),
+				ParamModel.countTransitions(view),
+				ParamModel.collectParameters(view).size());
+	}
+
+	public int getStates() {
+		return states;
+	}
+
+	public int getTransitions() {
+		return transitions;
+	}
+
+	public int getParameters() {
+		return parameters;
+	}
+
+	@Override
+	public String toString() {
+		return "states: " + states + " | transitions: " + transitions + " | vars: " + parameters;
+	}
+}
@@ -14,6 +14,11 @@ public class NoopModelCollector implements IModelCollector {
         // NO-OP
     }
 
+    @Override
+    public void collectModelReduction(int statesBefore, int statesAfter) {
+        // NO-OP
+    }
+
     @Override
     public void printStats(PrintStream out) {
         // NO-OP
@@ -1,23 +1,14 @@
 package paramwrapper;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import fdtmc.FDTMC;
-import fdtmc.State;
-import fdtmc.Transition;
-import junit.framework.Assert;
-
+import fdtmc.FDTMCView;
 
 
 class ParamModel {
@@ -29,29 +20,32 @@ class ParamModel {
 
 	private Set<String> parameters;
 	private Map<String, Set<Integer>> labels;
-	private Map<Integer, Command> commands;
+	private FDTMCView fdtmc;
 
 	private int stateRangeStart;
 	private int stateRangeEnd;
 
 	public ParamModel(FDTMC fdtmc) {
+		this(fdtmc.view());
+	}
+
+	/**
+	 * Builds a model straight from an FDTMC view: commands are views
+	 * over its transition rows, and parameters are collected once per
+	 * distinct probability expression. Composite (e.g., inlined) FDTMCs
+	 * are streamed without being flattened.
+	 */
+	public ParamModel(FDTMCView fdtmc) {
+		this.fdtmc = fdtmc;
 		if (fdtmc.getVariableName() != null) {
 			setStateVariable(fdtmc.getVariableName());
 		}
-		setInitialState(fdtmc.getInitialState().getIndex());
-		
-		setCommands(new Command(initialState).getCommands(fdtmc));
+		setInitialState(fdtmc.getInitialState());
 		
 		setLabels(getLabels(fdtmc));
-		setStateRangeStart(Collections.min(commands.keySet()));
-		// PARAM não deixa declarar um intervalo com apenas um número.
-		setStateRangeEnd(Math.max(stateRangeStart + 1,
-				 Collections.max(commands.keySet())));
-		setParameters(getParameters(commands.values()));
-	}
-	
-	private void setCommands(Map<Integer, Command> commands) {
-		this.commands = commands;
+		setStateRangeStart(0);
+		setStateRangeEnd(countStates(fdtmc) - 1);
+		setParameters(collectParameters(fdtmc));
 	}
 	
 	private void setLabels(Map<String, Set<Integer>> labels) {
@@ -90,83 +84,143 @@ class ParamModel {
 	    return stateRangeEnd+1;
 	}
 
-	private Map<String, Set<Integer>> getLabels(FDTMC fdtmc) {
+	public int getTransitionsNumber() {
+		return countTransitions(fdtmc);
+	}
+
+	/**
+	 * Number of states of the model generated for an FDTMC, without
+	 * generating it.
+	 */
+	static int countStates(FDTMCView fdtmc) {
+		// PARAM não deixa declarar um intervalo com apenas um número.
+		return Math.max(2, fdtmc.getStatesNumber());
+	}
+
+	/**
+	 * Number of transitions of the model generated for an FDTMC, without
+	 * generating it.
+	 */
+	static int countTransitions(FDTMCView fdtmc) {
+		int transitions = fdtmc.getTransitionsNumber(true);
+		for (int state = 0; state < fdtmc.getStatesNumber(); state++) {
+			if (fdtmc.getOutDegree(state, true) == 0) {
+				// Self-loop added by the command.
+				transitions++;
+			}
+		}
+		return transitions;
+	}
+
+	private Map<String, Set<Integer>> getLabels(FDTMCView fdtmc) {
 		Map<String, Set<Integer>> labeledStates = new TreeMap<String, Set<Integer>>();
-		Collection<State> states = fdtmc.getStates();
-		
-		Assert.assertNotNull(states);
-		
-		for (State s : states) {
-			String label = s.getLabel();
-			if (label != null && !label.isEmpty()) {
+		for (int state : fdtmc.getLabeledStates()) {
+			String label = fdtmc.getLabel(state);
+			if (!label.isEmpty()) {
 				if (!labeledStates.containsKey(label)) {
 					labeledStates.put(label, new TreeSet<Integer>());
 				}
-				labeledStates.get(label).add(s.getIndex());
+				labeledStates.get(label).add(state);
 			}
 		}
 		return labeledStates;
 	}
 
-	private Set<String> getParameters(Collection<Command> commands) {
+	/**
+	 * Parameters of the model generated for an FDTMC, without generating it.
+	 */
+	static Set<String> collectParameters(FDTMCView fdtmc) {
+		Set<String> probabilities = new HashSet<String>();
+		fdtmc.collectProbabilities(true, probabilities);
 		Set<String> tmpParameters = new HashSet<String>();
+		for (String probability : probabilities) {
+			collectIdentifiers(probability, tmpParameters);
+		}
+		return tmpParameters;
+	}
 
-		Pattern validIdentifier = Pattern.compile("(^|\\d+-)([A-Za-z_][A-Za-z0-9_]*)");
-		for (Command command : commands) {
-			for (String probability : command.getUpdatesProbabilities()) {
-				Matcher m = validIdentifier.matcher(probability);
-				while (m.find()) {
-					tmpParameters.add(m.group(2));
-				}
+	/**
+	 * Scans an arithmetic expression once, adding every identifier to
+	 * {@code identifiers}. Numeric literals (including exponents such as
+	 * {@code 1e-5}) are skipped as a whole, so their letters are not
+	 * mistaken for parameters.
+	 */
+	static void collectIdentifiers(String expression, Set<String> identifiers) {
+		int length = expression.length();
+		int i = 0;
+		while (i < length) {
+			char c = expression.charAt(i);
+			if (Character.isLetter(c) || c == '_') {
+				int start = i;
+				do {
+					i++;
+				} while (i < length && isIdentifierPart(expression.charAt(i)));
+				identifiers.add(expression.substring(start, i));
+			} else if (Character.isDigit(c) || c == '.') {
+				i = skipNumber(expression, i);
+			} else {
+				i++;
 			}
 		}
-		return tmpParameters;
 	}
-	
-	private String labelsToModule() {
-		String module = "";
-		
-		for (Map.Entry<String, Set<Integer>> entry : labels.entrySet()) {
-			module += "label \""+entry.getKey()+"\" = ";
-
-			Set<Integer> states = entry.getValue();
-			
-			Assert.assertNotNull(states);
-			
-			int count = 1;
-			for (Integer state : states) {
-				module += stateVariable+"="+state;
-				if (count < states.size()) {
-					module += " | ";
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static int skipNumber(String expression, int start) {
+		int length = expression.length();
+		int i = start;
+		while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+			i++;
+		}
+		if (i < length && (expression.charAt(i) == 'e' || expression.charAt(i) == 'E')) {
+			int exponent = i + 1;
+			if (exponent < length && (expression.charAt(exponent) == '+' || expression.charAt(exponent) == '-')) {
+				exponent++;
+			}
+			if (exponent < length && Character.isDigit(expression.charAt(exponent))) {
+				i = exponent;
+				while (i < length && Character.isDigit(expression.charAt(i))) {
+					i++;
 				}
-				count++;
 			}
-			module += ";\n";
 		}
-		
-		return module;
+		return i;
+	}
+
+	String getStateVariable() {
+		return stateVariable;
+	}
+
+	String getModuleName() {
+		return moduleName;
+	}
+
+	int getInitialState() {
+		return initialState;
+	}
+
+	int getStateRangeStart() {
+		return stateRangeStart;
+	}
+
+	int getStateRangeEnd() {
+		return stateRangeEnd;
+	}
+
+	Map<String, Set<Integer>> getLabels() {
+		return labels;
+	}
+
+	Iterable<Command> getCommands() {
+		return () -> IntStream.range(0, fdtmc.getStatesNumber())
+				.mapToObj(state -> new Command(fdtmc, state))
+				.iterator();
 	}
 
 	@Override
 	public String toString() {
-		String params = "";
-		for (String parameter : parameters) {
-			params += "param double "+parameter+";\n";
-		}
-		String module =
-				"dtmc\n" +
-				"\n" +
-				params +
-				"\n" +
-				"module " + moduleName + "\n" +
-				"	"+stateVariable+ " : ["+stateRangeStart+".."+stateRangeEnd+"] init "+initialState+";" +
-				"\n";
-		for (Command command : commands.values()) {
-			module += "	"+command.makeString(stateVariable) + "\n";
-		}
-		module += "endmodule\n\n";
-		module += labelsToModule();
-		
-		return module;
+		return new ParamModelSerializer(ModelDialect.PARAM).toString(this);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package paramwrapper;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass writer of {@link ParamModel}s in a given {@link ModelDialect}.
+ *
+ * The model text is never materialized as a whole: it is appended
+ * piecewise to the target, be it a {@link Writer}, a process' standard
+ * input or an in-memory {@link ByteBuffer}.
+ */
+class ParamModelSerializer {
+	private ModelDialect dialect;
+
+	public ParamModelSerializer(ModelDialect dialect) {
+		this.dialect = dialect;
+	}
+
+	public ModelDialect getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * Writes the model to {@code out}. The caller owns the stream and is
+	 * responsible for closing it.
+	 */
+	public void write(ParamModel model, Appendable out) throws IOException {
+		out.append("dtmc\n\n");
+		for (String parameter : model.getParameters()) {
+			out.append(dialect.getParameterKeyword())
+				.append(" double ")
+				.append(parameter)
+				.append(";\n");
+		}
+		String stateVariable = model.getStateVariable();
+		out.append("\nmodule ").append(model.getModuleName()).append('\n')
+			.append('\t').append(stateVariable)
+			.append(" : [").append(Integer.toString(model.getStateRangeStart()))
+			.append("..").append(Integer.toString(model.getStateRangeEnd()))
+			.append("] init ").append(Integer.toString(model.getInitialState()))
+			.append(";\n");
+		for (Command command : model.getCommands()) {
+			out.append('\t');
+			command.appendTo(out, stateVariable);
+			out.append('\n');
+		}
+		out.append("endmodule\n\n");
+		writeLabels(model, out);
+	}
+
+	/**
+	 * Writes the model as UTF-8 to a byte stream (e.g., a model checker's
+	 * standard input). The stream is flushed but not closed.
+	 */
+	public void write(ParamModel model, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		write(model, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Serializes the model as UTF-8 into a buffer backed directly by the
+	 * bytes written, ready to be handed to a channel.
+	 */
+	public ByteBuffer toByteBuffer(ParamModel model) {
+		ExposedByteArrayOutputStream bytes = new ExposedByteArrayOutputStream();
+		try {
+			write(model, bytes);
+		} catch (IOException e) {
+			// In-memory streams do not fail.
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteBuffer();
+	}
+
+	public String toString(ParamModel model) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			write(model, builder);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
+	}
+
+	private void writeLabels(ParamModel model, Appendable out) throws IOException {
+		String stateVariable = model.getStateVariable();
+		for (Map.Entry<String, Set<Integer>> entry : model.getLabels().entrySet()) {
+			out.append("label \"").append(entry.getKey()).append("\" = ");
+			boolean needsSeparator = false;
+			for (Integer state : entry.getValue()) {
+				if (needsSeparator) {
+					out.append(" | ");
+				} else {
+					needsSeparator = true;
+				}
+				out.append(stateVariable).append('=').append(state.toString());
+			}
+			out.append(";\n");
+		}
+	}
+
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+		public ExposedByteArrayOutputStream() {
+			super(8192);
+		}
+
+		public ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+}
@@ -3,16 +3,28 @@
  */
 package paramwrapper;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaParser;
 import fdtmc.FDTMC;
 import junit.framework.Assert;
 
@@ -70,17 +82,14 @@ public class ParamWrapper implements ParametricModelChecker {
 	}
 
 	@Override
-	public String getReliability(FDTMC fdtmc) {
+	public Formula getReliability(FDTMC fdtmc) {
 		ParamModel model = new ParamModel(fdtmc);
 		getModelCollector().collectModel(model.getParametersNumber(), model.getStatesNumber());
-		String modelString = model.toString();
 
-		if (getUsePrism()) {
-			modelString = modelString.replace("param", "const");
-		}
+		ModelDialect dialect = getUsePrism() ? ModelDialect.PRISM : ModelDialect.PARAM;
 		String reliabilityProperty = "P=? [ F \"success\" ]";
 
-		return evaluate(modelString, reliabilityProperty, model);
+		return evaluate(new ParamModelSerializer(dialect), reliabilityProperty, model);
 	}
 
 	private File writeFile(String strToBeWritten, String prefix, String suffix) throws IOException {
@@ -96,12 +105,20 @@ public class ParamWrapper implements ParametricModelChecker {
 		return file;
 	}
 
-	private String writeFormula(File modelFile, File propertyFile, File resultsFile, 
-			String modelString, ParamModel model) throws IOException {
-		String formula;
+	private File writeModelFile(ParamModelSerializer serializer, ParamModel model) throws IOException {
+		File file = File.createTempFile("model", "param");
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			serializer.write(model, writer);
+		}
+		return file;
+	}
+
+	private Formula writeFormula(File modelFile, File propertyFile, File resultsFile, 
+			ParamModel model) throws IOException {
+		Formula formula;
 		long startTime = System.nanoTime();
 		if (getUsePrism()) {
-			if(!modelString.contains("const")) {
+			if (model.getParametersNumber() == 0) {
 				formula = invokeModelChecker(modelFile.getAbsolutePath(),
 						propertyFile.getAbsolutePath(),
 						resultsFile.getAbsolutePath());
@@ -119,45 +136,45 @@ public class ParamWrapper implements ParametricModelChecker {
 		}
 		long elapsedTime = System.nanoTime() - startTime;
 		getModelCollector().collectModelCheckingTime(elapsedTime);
-<<<<<<< HEAD
-=======
 		
 		Assert.assertNotNull(formula);
 		
->>>>>>> origin/V4_simplifying_conditional_expressions
-		return formula.trim().replaceAll("\\s+", "");
+		return formula;
 	}
 
-	private String evaluate(String modelString, String property, ParamModel model) {
+	private Formula evaluate(ParamModelSerializer serializer, String property, ParamModel model) {
 		try {
-			LOGGER.finer(modelString);
+			if (LOGGER.isLoggable(Level.FINER)) {
+				LOGGER.finer(serializer.toString(model));
+			}
 
-			File modelFile = writeFile(modelString, "model", "param");
+			File modelFile = writeModelFile(serializer, model);
 
 			File propertyFile = writeFile(property, "property", "prop");
 
 			File resultsFile = File.createTempFile("result", null);
 
-			String formula = writeFormula(modelFile, propertyFile, resultsFile, modelString, model);
+			Formula formula = writeFormula(modelFile, propertyFile, resultsFile, model);
 
 			return formula;
+		} catch (InterruptedIOException e) {
+			throw new ModelCheckingException(e.getMessage(), e);
 		} catch (IOException e) {
-			LOGGER.log(Level.SEVERE, e.toString(), e);
+			throw new ModelCheckingException("Error model checking with " + getParamPath() + ": " + e, e);
 		}
-		return "";
 	}
 
-	private String invokeParametricModelChecker(String modelPath,
+	private Formula invokeParametricModelChecker(String modelPath,
 			String propertyPath,
 			String resultsPath) throws IOException {
 		String commandLine = getParamPath()+" "
 				+modelPath+" "
 				+propertyPath+" "
 				+"--result-file "+resultsPath;
-		return invokeAndGetResult(commandLine, resultsPath+".out");
+		return invokeAndGetResult(commandLine, resultsPath+".out", false);
 	}
 
-	private String invokeParametricPRISM(ParamModel model,
+	private Formula invokeParametricPRISM(ParamModel model,
 			String modelPath,
 			String propertyPath,
 			String resultsPath) throws IOException {
@@ -166,45 +183,87 @@ public class ParamWrapper implements ParametricModelChecker {
 				+propertyPath+" "
 				+"-exportresults "+resultsPath+" "
 				+"-param "+String.join(",", model.getParameters());
-		String rawResult = invokeAndGetResult(commandLine, resultsPath);
-		
-		Assert.assertNotNull(rawResult);
-		
-		int openBracket = rawResult.indexOf("{");
-		int closeBracket = rawResult.indexOf("}");
-		String expression = rawResult.substring(openBracket+1, closeBracket);
-		
-		Assert.assertNotNull(expression);
-		
-		return expression.trim().replace('|', '/');
+		// Parametric PRISM outputs the rational function between curly
+		// braces, with '|' as the division operator.
+		return invokeAndGetResult(commandLine, resultsPath, true);
 	}
 
-	private String invokeModelChecker(String modelPath,
+	private Formula invokeModelChecker(String modelPath,
 			String propertyPath,
 			String resultsPath) throws IOException {
 		String commandLine = getParamPath()+" "
 				+modelPath+" "
 				+propertyPath+" "
 				+"-exportresults "+resultsPath;
-		return invokeAndGetResult(commandLine, resultsPath);
+		return invokeAndGetResult(commandLine, resultsPath, false);
 	}
 
-	private String invokeAndGetResult(String commandLine, String resultsPath) throws IOException {
+	private Formula invokeAndGetResult(String commandLine, String resultsPath, boolean enclosedInBraces) throws IOException {
 		LOGGER.fine(commandLine);
 		Process program = Runtime.getRuntime().exec(commandLine);
-		int exitCode = 0;
 		try {
 			Assert.assertNotNull(program);
-			exitCode = program.waitFor();
+			program.waitFor();
 		} catch (InterruptedException e) {
-			LOGGER.severe("Exit code: " + exitCode);
-			LOGGER.log(Level.SEVERE, e.toString(), e);
+			// Someone else no longer needs the result (e.g., a portfolio
+			// race was won by another backend), so do not leave the model
+			// checker running. PRISM runs in a child JVM of its launcher
+			// script, so the whole process tree must go. The parent is
+			// killed first: a launcher whose child dies would otherwise
+			// carry on with its next command.
+			List<ProcessHandle> descendants = program.descendants().collect(Collectors.toList());
+			program.destroyForcibly();
+			descendants.forEach(ProcessHandle::destroyForcibly);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Model checking interrupted: " + commandLine);
+		}
+		return readFormula(Paths.get(resultsPath), enclosedInBraces);
+	}
+
+	/**
+	 * Parses the formula in the last non-empty line of a results file,
+	 * streaming it straight from disk.
+	 */
+	static Formula readFormula(Path resultsPath, boolean enclosedInBraces) throws IOException {
+		try (FileChannel channel = FileChannel.open(resultsPath, StandardOpenOption.READ)) {
+			channel.position(lastLineOffset(channel));
+			Reader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+			if (enclosedInBraces) {
+				int c;
+				do {
+					c = reader.read();
+				} while (c != -1 && c != '{');
+			}
+			return FormulaParser.parse(reader);
+		}
+	}
+
+	private static long lastLineOffset(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = channel.size();
+		boolean seenContent = false;
+		while (position > 0) {
+			int chunk = (int) Math.min(buffer.capacity(), position);
+			position -= chunk;
+			buffer.clear();
+			buffer.limit(chunk);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					break;
+				}
+			}
+			for (int i = chunk - 1; i >= 0; i--) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r') {
+					if (seenContent) {
+						return position + i + 1;
+					}
+				} else if (!Character.isWhitespace(b)) {
+					seenContent = true;
+				}
+			}
 		}
-		List<String> lines = Files.readAllLines(Paths.get(resultsPath), Charset.forName("UTF-8"));
-		Assert.assertNotNull(lines);
-		lines.removeIf(String::isEmpty);
-		// Formula		
-		return lines.get(lines.size()-1);
+		return 0;
 	}
 
 }
@@ -3,6 +3,7 @@
  */
 package paramwrapper;
 
+import expressionsolver.formula.Formula;
 import fdtmc.FDTMC;
 
 /**
@@ -19,6 +20,7 @@ public interface ParametricModelChecker {
 	 *
 	 * @param fdtmc FDTMC to be evaluated.
 	 * @return Formula parameterized on the transition probabilities.
+	 * @throws ModelCheckingException if model checking failed.
 	 */
-	public String getReliability(FDTMC fdtmc);
+	public Formula getReliability(FDTMC fdtmc);
 }
@@ -0,0 +1,203 @@
+package paramwrapper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import expressionsolver.formula.Formula;
+import fdtmc.FDTMC;
+
+/**
+ * Portfolio of parametric model checkers (e.g., PARAM and PRISM).
+ *
+ * Each model is handed to all backends concurrently. The first result is
+ * kept and the other backends are interrupted, which kills their processes.
+ * Winners are recorded per model-size bucket and, once the same backend
+ * has won a number of consecutive races in a bucket, models in that bucket
+ * are dispatched to it alone (racing resumes if it ever fails).
+ */
+public class PortfolioModelChecker implements ParametricModelChecker {
+	private static final Logger LOGGER = Logger.getLogger(PortfolioModelChecker.class.getName());
+	private static final int DEFAULT_DECISIVE_WINS = 3;
+
+	private Map<String, ParametricModelChecker> backends;
+	private IModelCollector modelCollector;
+	private int decisiveWins;
+	private Map<String, BucketRecord> records = new ConcurrentHashMap<String, BucketRecord>();
+
+	private ExecutorService racers = Executors.newCachedThreadPool(runnable -> {
+		Thread racer = new Thread(runnable, "portfolio-racer");
+		racer.setDaemon(true);
+		return racer;
+	});
+
+	/**
+	 * Creates a portfolio of {@link ParamWrapper}s, one for each of the
+	 * given model checker paths.
+	 */
+	public PortfolioModelChecker(List<String> paramPaths, IModelCollector modelCollector) {
+		this(wrappersFor(paramPaths), modelCollector, DEFAULT_DECISIVE_WINS);
+	}
+
+	/**
+	 * @param backends Model checkers indexed by name.
+	 * @param modelCollector Collector to which models and the winners'
+	 *          model-checking times are reported. Backends should not
+	 *          report to it themselves.
+	 * @param decisiveWins Number of consecutive wins of a backend in a
+	 *          size bucket after which racing stops for that bucket.
+	 */
+	public PortfolioModelChecker(Map<String, ParametricModelChecker> backends,
+			IModelCollector modelCollector,
+			int decisiveWins) {
+		if (backends.isEmpty()) {
+			throw new IllegalArgumentException("A portfolio needs at least one model checker");
+		}
+		this.backends = new LinkedHashMap<String, ParametricModelChecker>(backends);
+		this.modelCollector = modelCollector;
+		this.decisiveWins = decisiveWins;
+	}
+
+	@Override
+	public Formula getReliability(FDTMC fdtmc) {
+		ModelMetrics metrics = ModelMetrics.of(fdtmc);
+		modelCollector.collectModel(metrics.getParameters(), metrics.getStates());
+		BucketRecord record = records.computeIfAbsent(bucketOf(metrics), BucketRecord::new);
+
+		long startTime = System.nanoTime();
+		Formula formula = null;
+		String favorite = record.getFavorite(decisiveWins);
+		if (favorite != null) {
+			try {
+				formula = backends.get(favorite).getReliability(fdtmc);
+			} catch (ModelCheckingException e) {
+				LOGGER.log(Level.WARNING, "Model checker " + favorite + " failed; racing again for bucket " + record.bucket, e);
+				record.resetStreak();
+			}
+		}
+		if (formula == null) {
+			formula = race(fdtmc, record);
+		}
+		modelCollector.collectModelCheckingTime(System.nanoTime() - startTime);
+		return formula;
+	}
+
+	/**
+	 * @return the number of races won by each backend, per size bucket.
+	 */
+	public Map<String, Map<String, Integer>> getWins() {
+		Map<String, Map<String, Integer>> wins = new HashMap<String, Map<String, Integer>>();
+		for (BucketRecord record : records.values()) {
+			wins.put(record.bucket, record.getWins());
+		}
+		return wins;
+	}
+
+	/**
+	 * Size bucket of a model: orders of magnitude (base 2) of its
+	 * number of states and of its number of parameters.
+	 */
+	static String bucketOf(ModelMetrics metrics) {
+		return "states~2^" + log2(metrics.getStates())
+				+ ",vars~2^" + log2(metrics.getParameters() + 1);
+	}
+
+	private Formula race(FDTMC fdtmc, BucketRecord record) {
+		CompletionService<RaceOutcome> completionService = new ExecutorCompletionService<RaceOutcome>(racers);
+		List<Future<RaceOutcome>> runners = new LinkedList<Future<RaceOutcome>>();
+		for (Map.Entry<String, ParametricModelChecker> backend : backends.entrySet()) {
+			runners.add(completionService.submit(() -> new RaceOutcome(backend.getKey(),
+					backend.getValue().getReliability(fdtmc))));
+		}
+		try {
+			for (int i = 0; i < runners.size(); i++) {
+				try {
+					RaceOutcome outcome = completionService.take().get();
+					record.win(outcome.backend, decisiveWins);
+					return outcome.formula;
+				} catch (ExecutionException e) {
+					LOGGER.log(Level.WARNING, "Model checker failed", e.getCause());
+				}
+			}
+			throw new ModelCheckingException("All model checkers failed for a model in bucket " + record.bucket);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ModelCheckingException("Interrupted while racing model checkers", e);
+		} finally {
+			for (Future<RaceOutcome> runner : runners) {
+				runner.cancel(true);
+			}
+		}
+	}
+
+	private static Map<String, ParametricModelChecker> wrappersFor(List<String> paramPaths) {
+		Map<String, ParametricModelChecker> wrappers = new LinkedHashMap<String, ParametricModelChecker>();
+		for (String paramPath : paramPaths) {
+			wrappers.put(paramPath, new ParamWrapper(paramPath));
+		}
+		return wrappers;
+	}
+
+	private static int log2(int value) {
+		return 31 - Integer.numberOfLeadingZeros(Math.max(value, 1));
+	}
+
+	private static class RaceOutcome {
+		final String backend;
+		final Formula formula;
+
+		RaceOutcome(String backend, Formula formula) {
+			this.backend = backend;
+			this.formula = formula;
+		}
+	}
+
+	private static class BucketRecord {
+		final String bucket;
+		private Map<String, Integer> wins = new HashMap<String, Integer>();
+		private String lastWinner;
+		private int streak = 0;
+
+		BucketRecord(String bucket) {
+			this.bucket = bucket;
+		}
+
+		synchronized void win(String backend, int decisiveWins) {
+			wins.merge(backend, 1, Integer::sum);
+			if (backend.equals(lastWinner)) {
+				streak++;
+			} else {
+				lastWinner = backend;
+				streak = 1;
+			}
+			if (streak == decisiveWins) {
+				LOGGER.info("Model checker " + backend + " won " + streak
+						+ " consecutive races for models in bucket " + bucket + "; no longer racing.");
+			}
+		}
+
+		synchronized void resetStreak() {
+			streak = 0;
+		}
+
+		synchronized String getFavorite(int decisiveWins) {
+			return (streak >= decisiveWins) ? lastWinner : null;
+		}
+
+		synchronized Map<String, Integer> getWins() {
+			return Collections.unmodifiableMap(new HashMap<String, Integer>(wins));
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package paramwrapper;
+
+import expressionsolver.formula.Formula;
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+import fdtmc.FDTMCReducer;
+
+/**
+ * Decorator which reduces FDTMCs (see {@link FDTMCReducer}) before handing
+ * them to the actual model checker. The reliability is preserved, but the
+ * model to be checked can be considerably smaller.
+ */
+public class ReducingModelChecker implements ParametricModelChecker {
+	private ParametricModelChecker modelChecker;
+	private IModelCollector modelCollector;
+	private volatile boolean enabled = true;
+
+	public ReducingModelChecker(ParametricModelChecker modelChecker, IModelCollector modelCollector) {
+		this.modelChecker = modelChecker;
+		this.modelCollector = modelCollector;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables (the default) or disables model reduction.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public Formula getReliability(FDTMC fdtmc) {
+		if (!enabled) {
+			return modelChecker.getReliability(fdtmc);
+		}
+		CompactFDTMC original = fdtmc.compact();
+		CompactFDTMC reduced = FDTMCReducer.reduce(original);
+		modelCollector.collectModelReduction(original.getStatesNumber(), reduced.getStatesNumber());
+		return modelChecker.getReliability((reduced == original) ? fdtmc : new FDTMC(reduced));
+	}
+}
@@ -10,25 +10,32 @@ import parsing.exceptions.InvalidNodeType;
 import parsing.exceptions.InvalidNumberOfOperandsException;
 import parsing.sequencediagrams.SDReader;
 import tool.RDGNode;
+import tool.RdgContext;
 import fdtmc.FDTMC;
 import modeling.IModelerAPI;
 
 public class SplGeneratorModelingAPI implements IModelerAPI {
 
 	SPL spl; 
+	RdgContext rdgContext;
 	
 	public SplGeneratorModelingAPI() {
-		// No-op
+		this.rdgContext = new RdgContext();
 	}
 	
 	public SplGeneratorModelingAPI(File umlModels) {
+		this(umlModels, new RdgContext());
+	}
+
+	public SplGeneratorModelingAPI(File umlModels, RdgContext rdgContext) {
 		spl = SPL.getSplFromXml(umlModels.getAbsolutePath());
+		this.rdgContext = rdgContext;
 	}
 	
 	@Override
 	public RDGNode transform() throws InvalidNumberOfOperandsException,
 			InvalidNodeClassException, InvalidNodeType {
-		Transformer t = new Transformer(); 
+		Transformer t = new Transformer(rdgContext); 
 		RDGNode root = t.transformAD(spl.getActivityDiagram());
 		return root;
 	}
@@ -51,6 +58,11 @@ public class SplGeneratorModelingAPI implements IModelerAPI {
 		return null;
 	}
 
+	@Override
+	public RdgContext getRdgContext() {
+		return rdgContext;
+	}
+
 	@Override
 	public List<SDReader> getSdParsers() {
 		// TODO Auto-generated method stub
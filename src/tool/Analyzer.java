@@ -4,23 +4,59 @@
 package tool;
 
 import jadd.ADD;
+import jadd.ADDSerializer;
 import jadd.JADD;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.IModelCollector;
+import paramwrapper.NoopModelCollector;
 import paramwrapper.ParamWrapper;
 import paramwrapper.ParametricModelChecker;
+import paramwrapper.PortfolioModelChecker;
+import paramwrapper.ReducingModelChecker;
+import tool.analyzers.ADDReliabilityResults;
+import tool.analyzers.AnalysisCostEstimator;
+import tool.analyzers.AnalysisStrategy;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.MapBasedReliabilityResults;
+import tool.analyzers.ProjectedReliabilityResults;
+import tool.analyzers.ReliabilitySnapshot;
+import tool.analyzers.buildingblocks.AnalysisCheckpoint;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.FamilyReliabilitySnapshot;
+import tool.analyzers.buildingblocks.FeatureSupports;
+import tool.analyzers.buildingblocks.GrayCodeOrder;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.analyzers.buildingblocks.ModelCheckingScheduler;
 import tool.analyzers.strategies.FamilyBasedAnalyzer;
 import tool.analyzers.strategies.FamilyProductBasedAnalyzer;
 import tool.analyzers.strategies.FeatureFamilyBasedAnalyzer;
 import tool.analyzers.strategies.FeatureProductBasedAnalyzer;
 import tool.analyzers.strategies.ProductBasedAnalyzer;
+import tool.distributed.AnalysisWorkHandler;
+import tool.distributed.Coordinator;
+import tool.distributed.WorkUnit;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import tool.stats.NoopFormulaCollector;
@@ -36,17 +72,32 @@ import expressionsolver.ExpressionSolver;
  * @author thiago
  */
 public class Analyzer {
+    private static final Logger LOGGER = Logger.getLogger(Analyzer.class.getName());
 
+    // Configurations per checkpointed batch of product-based analyses.
+    static final int CHECKPOINT_BATCH_SIZE = 256;
+
+    private String featureModelFormula;
+    private List<String> paramPaths;
     private ADD featureModel;
+    private PartialConfiguration partialConfiguration = PartialConfiguration.EMPTY;
+    private FeatureModelProjection featureModelProjection;
     private ParametricModelChecker modelChecker;
+    private ReducingModelChecker modelReducer;
     private ExpressionSolver expressionSolver;
     private JADD jadd;
 
     private ConcurrencyStrategy concurrencyStrategy = ConcurrencyStrategy.PARALLEL;
+    private ModelCheckingScheduler modelCheckingScheduler;
+    private AnalysisCheckpoint checkpoint;
+    private boolean grayCodeEvaluation = false;
+    private HybridPartitioner hybridPartitioner;
 
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
+    private RdgContext rdgContext = new RdgContext();
+
     FeatureFamilyBasedAnalyzer featureFamilyBasedAnalyzerImpl;
     FeatureProductBasedAnalyzer featureProductBasedAnalyzerImpl;
     ProductBasedAnalyzer productBasedAnalyzerImpl;
@@ -62,7 +113,20 @@ public class Analyzer {
      * @throws IOException if there is a problem reading the file.
      */
     public Analyzer(String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
-        this(new JADD(), featureModel, paramPath, timeCollector, formulaCollector, modelCollector);
+        this(featureModel, Collections.singletonList(paramPath), timeCollector, formulaCollector, modelCollector);
+    }
+
+    /**
+     * Creates an Analyzer which races all of the given parametric model
+     * checkers (see {@link PortfolioModelChecker}) if more than one
+     * installation path is provided.
+     *
+     * @param featureModel String containing a CNF view of the Feature Model
+     *          expressed using Java logical operators.
+     * @param paramPaths Installation paths of the model checkers.
+     */
+    public Analyzer(String featureModel, List<String> paramPaths, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+        this(new JADD(), featureModel, paramPaths, timeCollector, formulaCollector, modelCollector);
     }
 
     /**
@@ -72,7 +136,7 @@ public class Analyzer {
      * @param featureModel
      */
     Analyzer(JADD jadd, String featureModel, String paramPath) {
-        this(jadd, featureModel, paramPath, null, null, null);
+        this(jadd, featureModel, Collections.singletonList(paramPath), null, null, null);
     }
 
 
@@ -81,8 +145,10 @@ public class Analyzer {
      * @param jadd
      * @param featureModel
      */
-    private Analyzer(JADD jadd, String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+    private Analyzer(JADD jadd, String featureModel, List<String> paramPaths, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
         this.jadd = jadd;
+        this.featureModelFormula = featureModel;
+        this.paramPaths = paramPaths;
         this.expressionSolver = new ExpressionSolver(jadd);
         this.featureModel = expressionSolver.encodeFormula(featureModel);
         // The feature model contains all used variables, so we expect to
@@ -91,17 +157,22 @@ public class Analyzer {
 
         this.timeCollector = (timeCollector != null) ? timeCollector : new NoopTimeCollector();
         this.formulaCollector = (formulaCollector != null) ? formulaCollector : new NoopFormulaCollector();
-        this.modelChecker = (modelCollector != null) ? new ParamWrapper(paramPath, modelCollector) : new ParamWrapper(paramPath);
+        IModelCollector collector = (modelCollector != null) ? modelCollector : new NoopModelCollector();
+        this.modelReducer = new ReducingModelChecker(createModelChecker(paramPaths, collector), collector);
+        this.modelChecker = this.modelReducer;
+        this.modelCheckingScheduler = new ModelCheckingScheduler();
 
         this.featureFamilyBasedAnalyzerImpl = new FeatureFamilyBasedAnalyzer(this.jadd,
                                                                              this.featureModel,
                                                                              this.modelChecker,
                                                                              this.timeCollector,
-                                                                             this.formulaCollector);
+                                                                             this.formulaCollector,
+                                                                             this.modelCheckingScheduler);
         this.featureProductBasedAnalyzerImpl = new FeatureProductBasedAnalyzer(this.jadd,
                                                                                this.modelChecker,
                                                                                this.timeCollector,
-                                                                               this.formulaCollector);
+                                                                               this.formulaCollector,
+                                                                               this.modelCheckingScheduler);
         this.productBasedAnalyzerImpl = new ProductBasedAnalyzer(this.jadd,
                                                                  this.modelChecker,
                                                                  this.timeCollector,
@@ -117,22 +188,133 @@ public class Analyzer {
                                                                              this.formulaCollector);
     }
 
+    private static ParametricModelChecker createModelChecker(List<String> paramPaths, IModelCollector modelCollector) {
+        if (paramPaths.size() > 1) {
+            return new PortfolioModelChecker(paramPaths, modelCollector);
+        }
+        return new ParamWrapper(paramPaths.get(0), modelCollector);
+    }
+
+    /**
+     * Context (session) in which the RDG nodes to be analyzed by this
+     * Analyzer should be created.
+     */
+    public RdgContext getRdgContext() {
+        return rdgContext;
+    }
+
     /**
-     * Returns the set of all valid configurations according to the feature model.
+     * Returns the set of all valid configurations according to the feature model
+     * (and within the sub-family defined by the partial configuration, if any).
      * @return
      */
     public Stream<Collection<String>> getValidConfigurations() {
-        return featureModel.getExpandedConfigurations();
+        if (partialConfiguration.isEmpty()) {
+            return featureModel.getExpandedConfigurations();
+        }
+        ADD fixedFeatures = partialConfiguration.toCube(jadd, featureModel.getVariables());
+        return fixedFeatures.times(featureModel.cofactor(fixedFeatures)).getExpandedConfigurations();
+    }
+
+    /**
+     * Streams the representatives of the valid configurations (within the
+     * sub-family defined by the partial configuration, if any), one per
+     * class, without enumerating the configurations they stand for. These
+     * are the configurations product-based strategies analyze when asked
+     * for all valid ones.
+     *
+     * @throws IllegalStateException if the feature model is not projected.
+     * @see FeatureModelProjection#getMultiplicity(Collection)
+     */
+    public Stream<Collection<String>> getValidRepresentatives() {
+        if (featureModelProjection == null) {
+            throw new IllegalStateException("The feature model is not projected");
+        }
+        // Fixed features are relevant, so representatives keep them.
+        return featureModelProjection.getRepresentativeConfigurations()
+                .filter(partialConfiguration::isCompatible);
+    }
+
+    /**
+     * Counts the configurations to be analyzed by product-based strategies,
+     * i.e., the valid ones (within the sub-family defined by the partial
+     * configuration, if any), or their representatives if the feature model
+     * is projected.
+     */
+    public double getValidConfigurationsNumber() {
+        ADD configurations = featureModel;
+        Set<String> features = featureModel.getVariables();
+        if (featureModelProjection != null) {
+            configurations = featureModelProjection.getReducedFeatureModel();
+            features = featureModelProjection.getRelevantFeatures();
+        }
+        if (!partialConfiguration.isEmpty()) {
+            ADD fixedFeatures = partialConfiguration.toCube(jadd, features);
+            configurations = fixedFeatures.times(configurations.cofactor(fixedFeatures));
+        }
+        return configurations.getNonZeroAssignmentsCount(features.size());
+    }
+
+    /**
+     * Estimates the cost of analyzing an RDG with each strategy (see
+     * {@link AnalysisCostEstimator}), possibly model checking a few of its
+     * nodes to calibrate the estimates.
+     *
+     * @return the estimated cost of each concrete strategy, in nanoseconds.
+     */
+    public Map<AnalysisStrategy, Double> estimateAnalysisCosts(RDGNode node) throws CyclicRdgException {
+        AnalysisCostEstimator estimator = new AnalysisCostEstimator(this.modelChecker,
+                                                                    this.modelCheckingScheduler.getCostModel(),
+                                                                    this.expressionSolver);
+        int parallelism = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) ? modelCheckingScheduler.getWorkers() : 1;
+        return estimator.estimate(RdgDag.of(node), getValidConfigurationsNumber(), parallelism);
+    }
+
+    /**
+     * Picks the analysis strategy which is estimated to be the cheapest
+     * for an RDG, logging the estimates behind the decision.
+     *
+     * @see #estimateAnalysisCosts(RDGNode)
+     */
+    public AnalysisStrategy chooseAnalysisStrategy(RDGNode node) throws CyclicRdgException {
+        Map<AnalysisStrategy, Double> estimates = estimateAnalysisCosts(node);
+        AnalysisStrategy strategy = AnalysisCostEstimator.cheapest(estimates);
+        StringBuilder message = new StringBuilder("Chose the ").append(strategy).append(" strategy. Estimated costs:");
+        estimates.forEach((s, cost) -> message.append(String.format(" %s = %.1f ms;", s, cost / 1e6)));
+        LOGGER.info(message.toString());
+        return strategy;
     }
 
     /**
      * Returns true if and only if {@code configuration} is valid according
-     * to the feature model.
+     * to the feature model (and within the sub-family defined by the partial
+     * configuration, if any).
      * @param configuration
      * @return
      */
     public boolean isValidConfiguration(Collection<String> configuration) {
-        return featureModel.isValidConfiguration(configuration);
+        return partialConfiguration.isCompatible(configuration)
+                && featureModel.isValidConfiguration(configuration);
+    }
+
+    /**
+     * Restricts analyses to the sub-family of products which agree with
+     * {@code partialConfiguration}.
+     *
+     * Feature-family-based analyses cofactor the feature model and the
+     * presence conditions by it before solving, and do not model check the
+     * nodes which are absent from the sub-family. Other strategies only
+     * analyze the valid configurations in the sub-family.
+     *
+     * @param partialConfiguration the fixed features, or
+     *          {@link PartialConfiguration#EMPTY} for the whole family.
+     * @throws UnknownFeatureException if a fixed feature is not in the feature model.
+     */
+    public void setPartialConfiguration(PartialConfiguration partialConfiguration) {
+        // Fails early for unknown features.
+        partialConfiguration.toCube(jadd, featureModel.getVariables());
+        this.partialConfiguration = partialConfiguration;
+        this.featureFamilyBasedAnalyzerImpl.setPartialConfiguration(partialConfiguration);
     }
 
     /**
@@ -149,10 +331,132 @@ public class Analyzer {
         this.featureFamilyBasedAnalyzerImpl.setPruningStrategy(pruningStrategy);
     }
 
+    /**
+     * Enables (the default) or disables the reduction of FDTMCs
+     * (chain collapsing, unreachable state removal and bisimulation
+     * lumping) before model checking.
+     */
+    public void setModelReduction(boolean enabled) {
+        this.modelReducer.setEnabled(enabled);
+    }
+
+    /**
+     * Sets the cache of previous results to be reused (and updated) by
+     * feature-family-based analyses, so that re-analyzing an edited RDG
+     * only recomputes what the edit affected.
+     *
+     * @param incrementalCache the cache, or null to always analyze from scratch.
+     */
+    public void setIncrementalCache(IncrementalCache incrementalCache) {
+        this.featureFamilyBasedAnalyzerImpl.setIncrementalCache(incrementalCache);
+    }
+
+    /**
+     * Makes feature-family-based analyses checkpoint the expression and the
+     * reliability function of each node, and product-based ones checkpoint
+     * each batch of configurations, as soon as they are computed. If the
+     * checkpoint is being resumed, whatever it already holds is not
+     * computed again.
+     *
+     * @param checkpoint the checkpoint, or null for no checkpoints.
+     */
+    public void setCheckpoint(AnalysisCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        this.featureFamilyBasedAnalyzerImpl.setCheckpoint(checkpoint);
+    }
+
+    /**
+     * Sets the snapshot of the family reliability function to be reused
+     * (and updated) by feature-family-based analyses without pruning, so
+     * that analyzing the same RDG under an evolved feature model only
+     * applies the new feature model.
+     *
+     * @param evolutionSnapshot the snapshot, or null to always analyze the RDG.
+     */
+    public void setEvolutionSnapshot(FamilyReliabilitySnapshot evolutionSnapshot) {
+        this.featureFamilyBasedAnalyzerImpl.setEvolutionSnapshot(evolutionSnapshot);
+    }
+
+    /**
+     * Makes feature-family-based analyses collapse the RDG regions chosen by
+     * a partitioner into 150% models, each of which is model checked once
+     * (hybrid analysis).
+     *
+     * @param hybridPartitioner the partitioner, or null for model checking
+     *          every node on its own.
+     */
+    public void setHybridPartitioner(HybridPartitioner hybridPartitioner) {
+        this.hybridPartitioner = hybridPartitioner;
+        this.featureFamilyBasedAnalyzerImpl.setHybridPartitioner(hybridPartitioner);
+    }
+
+    /**
+     * Projects the feature model onto the features which are relevant to
+     * the analysis of an RDG: the ones referenced by its presence conditions
+     * and the ones fixed by the partial configuration, if any.
+     *
+     * @see #setFeatureModelProjection(FeatureModelProjection)
+     */
+    public FeatureModelProjection projectFeatureModel(RDGNode root) throws CyclicRdgException {
+        Set<String> relevantFeatures = FeatureModelProjection.getReferencedFeatures(root, expressionSolver);
+        relevantFeatures.addAll(partialConfiguration.getFixedFeatures().keySet());
+        return new FeatureModelProjection(featureModel, relevantFeatures);
+    }
+
+    /**
+     * Makes subsequent analyses run over a projected feature model, so that
+     * irrelevant features neither inflate ADDs nor multiply the products to
+     * be evaluated: feature-family-based analyses apply the reduced feature
+     * model, and product-based ones evaluate a single representative per
+     * class of configurations. Results are expanded back on demand.
+     *
+     * The family-based strategy is not affected.
+     *
+     * @param projection a projection of this Analyzer's feature model,
+     *          or null for analyzing the original one.
+     */
+    public void setFeatureModelProjection(FeatureModelProjection projection) {
+        this.featureModelProjection = projection;
+        this.featureFamilyBasedAnalyzerImpl.setFeatureModel((projection != null) ? projection.getReducedFeatureModel()
+                                                                                  : featureModel);
+    }
+
+    /**
+     * Enables or disables (the default) the evaluation of products in Gray
+     * code order by the feature-product-based and family-product-based
+     * strategies, so that each product only recomputes what differs from
+     * the previous one. Products are then evaluated sequentially.
+     */
+    public void setGrayCodeEvaluation(boolean enabled) {
+        this.grayCodeEvaluation = enabled;
+        this.featureProductBasedAnalyzerImpl.setGrayCodeEvaluation(enabled);
+        this.familyProductBasedAnalyzerImpl.setGrayCodeEvaluation(enabled);
+    }
+
     public void setConcurrencyStrategy(ConcurrencyStrategy concurrencyStrategy) {
         this.concurrencyStrategy = concurrencyStrategy;
     }
 
+    /**
+     * Sets the number of models to be checked concurrently by feature-based
+     * strategies, when running in parallel.
+     *
+     * @param workers Size of the model-checking worker pool.
+     */
+    public void setModelCheckingWorkers(int workers) {
+        this.modelCheckingScheduler.setWorkers(workers);
+    }
+
+    /**
+     * Writes the estimated cost and the actual time of every model-checking
+     * job run by feature-based strategies, as CSV.
+     *
+     * @param out
+     */
+    public void exportModelCheckingTimes(PrintStream out) {
+        this.modelCheckingScheduler.exportTimings(out);
+    }
+
     /**
      * Evaluates the feature-family-based reliability function of an RDG node, based
      * on the reliabilities of the nodes on which it depends.
@@ -166,7 +470,7 @@ public class Analyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateFeatureFamilyBasedReliability(RDGNode node, String dotOutput) throws CyclicRdgException {
-        return featureFamilyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy, dotOutput);
+        return expand(featureFamilyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy, dotOutput));
     }
     /**
      * Evaluates the feature-family-based reliability function of an RDG node, based
@@ -179,6 +483,255 @@ public class Analyzer {
         return evaluateFeatureFamilyBasedReliability(node, null);
     }
 
+    /**
+     * Evaluates the feature-family-based reliability function of an RDG node
+     * and copies it out of the ADD manager (see {@link ReliabilitySnapshot}),
+     * so that it can be queried while this Analyzer goes on with other
+     * analyses. Invalid configurations (and the ones outside the sub-family
+     * defined by the partial configuration) have reliability 0, regardless
+     * of the pruning strategy.
+     *
+     * @param node RDG node whose reliability is to be evaluated.
+     * @throws CyclicRdgException
+     */
+    public ReliabilitySnapshot snapshotFeatureFamilyBasedReliability(RDGNode node) throws CyclicRdgException {
+        ADD reliability = featureFamilyBasedAnalyzerImpl.evaluateReliabilityFunction(node, concurrencyStrategy)
+                .times(getSubFamilyModel());
+        // Presence conditions may refer to features the feature model does not constrain.
+        Set<String> features = new HashSet<String>(featureModel.getVariables());
+        features.addAll(reliability.getVariables());
+        return ReliabilitySnapshot.of(reliability, features);
+    }
+
+    /**
+     * Evaluates the feature-family-based reliability function of an RDG node
+     * by parts: the (sub-)family is split into the 2^k sub-families defined by
+     * k split features (see {@link FamilyPartitioning#choose}), each of which
+     * is analyzed concurrently by a worker with its own ADD manager, and the
+     * results are reassembled into this Analyzer's manager by an if-then-else
+     * tree on the split features. This way, no manager holds the ADDs of the
+     * whole family at once.
+     *
+     * Workers share this Analyzer's settings, including its hybrid
+     * partitioner and checkpoint (whose entries are keyed by sub-family),
+     * but neither its feature model projection, incremental cache nor
+     * evolution snapshot.
+     *
+     * @param node RDG node whose reliability is to be evaluated.
+     * @param splitFeaturesNumber maximum number of split features.
+     * @param pruningStrategies supplier of a pruning strategy per worker,
+     *          since strategies may keep ADDs of their own.
+     * @throws CyclicRdgException
+     */
+    public IReliabilityAnalysisResults evaluatePartitionedFeatureFamilyBasedReliability(RDGNode node,
+                                                                                        int splitFeaturesNumber,
+                                                                                        Supplier<IPruningStrategy> pruningStrategies) throws CyclicRdgException {
+        ADD subFamilyModel = getSubFamilyModel();
+        FamilyPartitioning partitioning = partitionFamily(RdgDag.of(node), subFamilyModel, splitFeaturesNumber);
+        int subFamilies = partitioning.getSubFamiliesNumber();
+        int workers = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) ? Math.min(subFamilies, Runtime.getRuntime().availableProcessors())
+                                                                            : 1;
+        int modelCheckingWorkers = Math.max(1, modelCheckingScheduler.getWorkers() / workers);
+        LOGGER.info("Analyzing " + partitioning + " with " + workers + " workers.");
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<String>> pendingResults = new ArrayList<Future<String>>(subFamilies);
+        try {
+            for (int mask = 0; mask < subFamilies; mask++) {
+                PartialConfiguration subFamily = partitioning.getSubFamily(mask, partialConfiguration);
+                if (isEmptySubFamily(subFamily, subFamilyModel)) {
+                    pendingResults.add(null);
+                    continue;
+                }
+                IPruningStrategy pruningStrategy = pruningStrategies.get();
+                pendingResults.add(pool.submit(() -> analyzeSubFamily(node, subFamily, pruningStrategy, modelCheckingWorkers)));
+            }
+            // Results come serialized, since each worker has its own manager.
+            List<String> restrictions = new ArrayList<String>(subFamilies);
+            for (Future<String> pendingResult: pendingResults) {
+                restrictions.add((pendingResult != null) ? pendingResult.get() : null);
+            }
+            return new ADDReliabilityResults(reassemble(partitioning, restrictions));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for sub-family analyses", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Sub-family analysis failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Evaluates the feature-family-based reliability function of an RDG node
+     * by distributing its sub-families (see
+     * {@link #evaluatePartitionedFeatureFamilyBasedReliability(RDGNode, int, Supplier)})
+     * to the workers connected to {@code coordinator}, which must analyze the
+     * same RDG with their own settings (see {@link AnalysisWorkHandler}).
+     *
+     * @param strategy either {@link AnalysisStrategy#FEATURE_FAMILY} or
+     *          {@link AnalysisStrategy#HYBRID}, to be used by the workers.
+     * @throws IllegalStateException if a sub-family cannot be analyzed.
+     */
+    public IReliabilityAnalysisResults evaluateDistributedFeatureFamilyBasedReliability(RDGNode node,
+                                                                                        AnalysisStrategy strategy,
+                                                                                        int splitFeaturesNumber,
+                                                                                        Coordinator coordinator) throws CyclicRdgException {
+        if (strategy != AnalysisStrategy.FEATURE_FAMILY && strategy != AnalysisStrategy.HYBRID) {
+            throw new IllegalArgumentException("Not a feature-family-based strategy: " + strategy);
+        }
+        ADD subFamilyModel = getSubFamilyModel();
+        FamilyPartitioning partitioning = partitionFamily(RdgDag.of(node), subFamilyModel, splitFeaturesNumber);
+        List<WorkUnit> units = new ArrayList<WorkUnit>();
+        for (int mask = 0; mask < partitioning.getSubFamiliesNumber(); mask++) {
+            PartialConfiguration subFamily = partitioning.getSubFamily(mask, partialConfiguration);
+            if (!isEmptySubFamily(subFamily, subFamilyModel)) {
+                units.add(new WorkUnit(Integer.toString(mask), strategy.name(), subFamily.toString()));
+            }
+        }
+        LOGGER.info("Distributing " + partitioning + ".");
+
+        Map<String, String> results = distribute(coordinator, units);
+        List<String> restrictions = new ArrayList<String>(partitioning.getSubFamiliesNumber());
+        for (int mask = 0; mask < partitioning.getSubFamiliesNumber(); mask++) {
+            restrictions.add(results.get(Integer.toString(mask)));
+        }
+        return new ADDReliabilityResults(reassemble(partitioning, restrictions));
+    }
+
+    /**
+     * Evaluates the reliabilities of configurations by distributing batches
+     * of them to the workers connected to {@code coordinator}, which must
+     * analyze the same RDG with their own settings (see
+     * {@link AnalysisWorkHandler}).
+     *
+     * @param strategy product-based strategy to be used by the workers
+     *          (feature-product, product or family-product).
+     * @param batchSize maximum number of configurations per work unit.
+     * @throws IllegalStateException if a batch cannot be analyzed.
+     */
+    public IReliabilityAnalysisResults evaluateDistributedProductBasedReliability(AnalysisStrategy strategy,
+                                                                                  Stream<Collection<String>> configurations,
+                                                                                  int batchSize,
+                                                                                  Coordinator coordinator) {
+        if (strategy != AnalysisStrategy.FEATURE_PRODUCT
+                && strategy != AnalysisStrategy.PRODUCT
+                && strategy != AnalysisStrategy.FAMILY_PRODUCT) {
+            throw new IllegalArgumentException("Not a product-based strategy: " + strategy);
+        }
+        List<Collection<String>> targetConfigurations = project(configurations).collect(Collectors.toList());
+        List<List<Collection<String>>> batches = new ArrayList<List<Collection<String>>>();
+        List<WorkUnit> units = new ArrayList<WorkUnit>();
+        for (int start = 0; start < targetConfigurations.size(); start += batchSize) {
+            List<Collection<String>> batch = targetConfigurations.subList(start, Math.min(start + batchSize, targetConfigurations.size()));
+            units.add(new WorkUnit(Integer.toString(batches.size()),
+                                   strategy.name(),
+                                   AnalysisWorkHandler.encodeConfigurations(batch)));
+            batches.add(batch);
+        }
+
+        Map<String, String> results = distribute(coordinator, units);
+        MapBasedReliabilityResults reliabilities = new MapBasedReliabilityResults();
+        for (int i = 0; i < batches.size(); i++) {
+            List<Collection<String>> batch = batches.get(i);
+            List<Double> batchReliabilities = AnalysisWorkHandler.decodeReliabilities(results.get(Integer.toString(i)));
+            for (int j = 0; j < batch.size(); j++) {
+                reliabilities.putResult(new ArrayList<String>(batch.get(j)), batchReliabilities.get(j));
+            }
+        }
+        return expand(reliabilities);
+    }
+
+    /**
+     * Evaluates the feature-family-based reliability function of an RDG node
+     * within a sub-family, serialized (see {@link ADDSerializer}) so that it
+     * can be reassembled by another Analyzer, possibly in another process.
+     *
+     * @param subFamily sub-family to be analyzed, instead of the one defined
+     *          by this Analyzer's partial configuration (which is kept).
+     */
+    public String evaluateSerializedFeatureFamilyBasedReliability(RDGNode node, PartialConfiguration subFamily) {
+        PartialConfiguration previousPartialConfiguration = partialConfiguration;
+        setPartialConfiguration(subFamily);
+        try {
+            ADD reliability = featureFamilyBasedAnalyzerImpl.evaluateReliabilityFunction(node, concurrencyStrategy);
+            LOGGER.info("Sub-family " + subFamily + " analyzed.");
+            return ADDSerializer.serialize(reliability);
+        } finally {
+            setPartialConfiguration(previousPartialConfiguration);
+        }
+    }
+
+    /**
+     * Analyzes a sub-family with a worker of its own.
+     *
+     * @return the serialized reliability function of the sub-family.
+     */
+    private String analyzeSubFamily(RDGNode node, PartialConfiguration subFamily, IPruningStrategy pruningStrategy, int modelCheckingWorkers) {
+        Analyzer worker = new Analyzer(new JADD(), featureModelFormula, paramPaths, null, null, null);
+        worker.setConcurrencyStrategy(concurrencyStrategy);
+        worker.setModelCheckingWorkers(modelCheckingWorkers);
+        worker.setModelReduction(modelReducer.isEnabled());
+        worker.setPruningStrategy(pruningStrategy);
+        worker.setHybridPartitioner(hybridPartitioner);
+        worker.setCheckpoint(checkpoint);
+        return worker.evaluateSerializedFeatureFamilyBasedReliability(node, subFamily);
+    }
+
+    /**
+     * @return the 0,1-ADD of the valid configurations within the sub-family
+     *      defined by the partial configuration.
+     */
+    private ADD getSubFamilyModel() {
+        ADD fixedFeatures = partialConfiguration.toCube(jadd, featureModel.getVariables());
+        return fixedFeatures.times(featureModel.cofactor(fixedFeatures));
+    }
+
+    private FamilyPartitioning partitionFamily(RdgDag dag, ADD subFamilyModel, int splitFeaturesNumber) {
+        return FamilyPartitioning.choose(subFamilyModel,
+                                         jadd,
+                                         expressionSolver,
+                                         dag,
+                                         splitFeaturesNumber,
+                                         partialConfiguration.getFixedFeatures().keySet());
+    }
+
+    private boolean isEmptySubFamily(PartialConfiguration subFamily, ADD subFamilyModel) {
+        if (subFamily.toCube(jadd, featureModel.getVariables()).times(subFamilyModel).isZero()) {
+            LOGGER.info("Skipping the empty sub-family " + subFamily + ".");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reassembles the family reliability function from the serialized
+     * reliability functions of the sub-families.
+     */
+    private ADD reassemble(FamilyPartitioning partitioning, List<String> serializedRestrictions) {
+        List<ADD> restrictions = new ArrayList<ADD>(serializedRestrictions.size());
+        try {
+            for (String restriction: serializedRestrictions) {
+                restrictions.add((restriction != null) ? ADDSerializer.deserialize(jadd, restriction) : null);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read a sub-family's reliability function", e);
+        }
+        return partitioning.reassemble(jadd, restrictions);
+    }
+
+    private static Map<String, String> distribute(Coordinator coordinator, List<WorkUnit> units) {
+        try {
+            return coordinator.distribute(units);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        }
+    }
+
     /**
      * Evaluates the feature-product-based reliability value of an RDG node, based
      * on the reliabilities of the nodes on which it depends.
@@ -189,7 +742,10 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateFeatureProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return featureProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return expand(evaluateCheckpointedReliability(AnalysisStrategy.FEATURE_PRODUCT,
+                                                      node,
+                                                      project(configurations),
+                                                      () -> featureProductBasedAnalyzerImpl.prepareEvaluation(node, this.concurrencyStrategy)));
     }
 
     /**
@@ -202,7 +758,10 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return productBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return expand(evaluateCheckpointedReliability(AnalysisStrategy.PRODUCT,
+                                                      node,
+                                                      project(configurations),
+                                                      () -> productBasedAnalyzerImpl.prepareEvaluation(node, this.concurrencyStrategy)));
     }
 
     /**
@@ -228,7 +787,87 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateFamilyProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return familyProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return expand(evaluateCheckpointedReliability(AnalysisStrategy.FAMILY_PRODUCT,
+                                                      node,
+                                                      project(configurations),
+                                                      () -> familyProductBasedAnalyzerImpl.prepareEvaluation(node, this.concurrencyStrategy)));
+    }
+
+    /**
+     * Evaluates the reliabilities of configurations by means of a
+     * product-based strategy, in batches which are checkpointed as soon as
+     * they are analyzed (if a checkpoint is set). The analysis is prepared
+     * (e.g., its models are checked) once, and only if some batch is not
+     * checkpointed yet.
+     *
+     * Configurations are sorted beforehand, so that a resumed analysis makes
+     * the same batches, and, if products are evaluated in Gray code order,
+     * batches follow that order.
+     */
+    private IReliabilityAnalysisResults evaluateCheckpointedReliability(AnalysisStrategy strategy,
+                                                                        RDGNode node,
+                                                                        Stream<Collection<String>> configurations,
+                                                                        Supplier<Function<Stream<Collection<String>>, IReliabilityAnalysisResults>> preparation) {
+        if (checkpoint == null) {
+            return preparation.get().apply(configurations);
+        }
+        RdgDag dag = RdgDag.of(node);
+        Stream<Collection<String>> sortedConfigurations = configurations
+                .<Collection<String>>map(configuration -> configuration.stream().sorted().collect(Collectors.toList()))
+                .sorted(Comparator.comparing(configuration -> String.join(",", configuration)));
+        List<Collection<String>> targetConfigurations;
+        if (grayCodeEvaluation && strategy != AnalysisStrategy.PRODUCT) {
+            targetConfigurations = GrayCodeOrder.sort(sortedConfigurations, new FeatureSupports(dag, expressionSolver));
+        } else {
+            targetConfigurations = sortedConfigurations.collect(Collectors.toList());
+        }
+        long rdgFingerprint = IncrementalCache.fingerprint(dag);
+        MapBasedReliabilityResults reliabilities = new MapBasedReliabilityResults();
+        Function<Stream<Collection<String>>, IReliabilityAnalysisResults> analysis = null;
+        int resumedBatches = 0;
+        for (int start = 0; start < targetConfigurations.size(); start += CHECKPOINT_BATCH_SIZE) {
+            List<Collection<String>> batch = targetConfigurations.subList(start, Math.min(start + CHECKPOINT_BATCH_SIZE, targetConfigurations.size()));
+            long batchFingerprint = AnalysisCheckpoint.fingerprint(rdgFingerprint, strategy.name(), batch);
+            double[] batchReliabilities = checkpoint.getBatch(batchFingerprint, batch.size());
+            if (batchReliabilities != null) {
+                resumedBatches++;
+            } else {
+                if (analysis == null) {
+                    analysis = preparation.get();
+                }
+                IReliabilityAnalysisResults results = analysis.apply(batch.stream());
+                batchReliabilities = new double[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    batchReliabilities[i] = results.getResult(batch.get(i).toArray(new String[0]));
+                }
+                checkpoint.putBatch(batchFingerprint, batchReliabilities);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                reliabilities.putResult(new ArrayList<String>(batch.get(i)), batchReliabilities[i]);
+            }
+        }
+        if (checkpoint.isResuming()) {
+            LOGGER.info("Resumed " + resumedBatches + " batches of configurations from the checkpoint.");
+        }
+        return reliabilities;
+    }
+
+    /**
+     * Replaces configurations by their representatives (once per class),
+     * if the feature model is projected.
+     */
+    private Stream<Collection<String>> project(Stream<Collection<String>> configurations) {
+        if (featureModelProjection == null) {
+            return configurations;
+        }
+        return configurations.<Collection<String>>map(featureModelProjection::project).distinct();
+    }
+
+    private IReliabilityAnalysisResults expand(IReliabilityAnalysisResults results) {
+        if (featureModelProjection == null) {
+            return results;
+        }
+        return new ProjectedReliabilityResults(results, featureModelProjection);
     }
 
     /**
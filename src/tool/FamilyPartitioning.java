@@ -0,0 +1,142 @@
+package tool;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import paramwrapper.ModelMetrics;
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Partition of a (sub-)family into the 2^k sub-families defined by all
+ * assignments to k split features, so that each one can be analyzed on its
+ * own (e.g., by a worker with its own ADD manager) and the family reliability
+ * function reassembled afterwards by an if-then-else tree on the split
+ * features.
+ *
+ * Sub-families are indexed by the bit mask of the split features they enable:
+ * bit i is set iff the i-th split feature is enabled.
+ */
+public class FamilyPartitioning {
+
+    private final List<String> splitFeatures;
+
+    public FamilyPartitioning(List<String> splitFeatures) {
+        this.splitFeatures = Collections.unmodifiableList(new ArrayList<String>(splitFeatures));
+    }
+
+    /**
+     * Chooses the split features with the highest impact on an analysis:
+     * the ones whose presence conditions guard the largest models, so that
+     * many nodes are absent from (thus not analyzed in) half of the
+     * sub-families, weighted by how evenly they split the valid
+     * configurations. Features which are fixed by the feature model (or
+     * {@code excludedFeatures}) are never chosen.
+     *
+     * @param featureModel 0,1-ADD of the valid configurations.
+     * @param jadd manager of {@code featureModel}.
+     * @param dag RDG to be analyzed.
+     * @param splitFeaturesNumber maximum number of split features.
+     * @param excludedFeatures features which must not be chosen (e.g., already fixed ones).
+     */
+    public static FamilyPartitioning choose(ADD featureModel,
+                                            JADD jadd,
+                                            ExpressionSolver expressionSolver,
+                                            RdgDag dag,
+                                            int splitFeaturesNumber,
+                                            Collection<String> excludedFeatures) {
+        Map<String, Double> guardedSizes = new HashMap<String, Double>();
+        for (RDGNode node: dag.getTopologicalOrder()) {
+            ModelMetrics metrics = ModelMetrics.of(node.getFDTMC());
+            double size = metrics.getStates() + metrics.getTransitions();
+            for (String feature: expressionSolver.encodeFormula(node.getPresenceCondition()).getVariables()) {
+                guardedSizes.merge(feature, size, Double::sum);
+            }
+        }
+
+        int featuresNumber = featureModel.getVariables().size();
+        double validConfigurations = featureModel.getNonZeroAssignmentsCount(featuresNumber);
+        Map<String, Double> scores = new HashMap<String, Double>();
+        for (Map.Entry<String, Double> guarded: guardedSizes.entrySet()) {
+            String feature = guarded.getKey();
+            if (excludedFeatures.contains(feature) || !featureModel.getVariables().contains(feature)) {
+                continue;
+            }
+            double enabled = featureModel.times(jadd.getVariable(feature)).getNonZeroAssignmentsCount(featuresNumber);
+            double balance = enabled / validConfigurations * (1 - enabled / validConfigurations);
+            if (balance > 0) {
+                scores.put(feature, guarded.getValue() * balance);
+            }
+        }
+        // Highest scores first, ties broken by name for determinism.
+        Comparator<Map.Entry<String, Double>> byScore = (first, second) -> {
+            int comparison = Double.compare(second.getValue(), first.getValue());
+            return (comparison != 0) ? comparison : first.getKey().compareTo(second.getKey());
+        };
+        List<String> splitFeatures = scores.entrySet().stream()
+                .sorted(byScore)
+                .limit(splitFeaturesNumber)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        return new FamilyPartitioning(splitFeatures);
+    }
+
+    public List<String> getSplitFeatures() {
+        return splitFeatures;
+    }
+
+    public int getSubFamiliesNumber() {
+        return 1 << splitFeatures.size();
+    }
+
+    /**
+     * @return the sub-family with index {@code mask}, within the one
+     *      defined by {@code base}.
+     */
+    public PartialConfiguration getSubFamily(int mask, PartialConfiguration base) {
+        Map<String, Boolean> fixedFeatures = new HashMap<String, Boolean>(base.getFixedFeatures());
+        for (int i = 0; i < splitFeatures.size(); i++) {
+            fixedFeatures.put(splitFeatures.get(i), (mask & (1 << i)) != 0);
+        }
+        return new PartialConfiguration(fixedFeatures);
+    }
+
+    /**
+     * Reassembles a function from its restrictions to every sub-family, by
+     * an if-then-else tree on the split features.
+     *
+     * @param restrictions the function within each sub-family, indexed by
+     *          the sub-families' masks (null for empty sub-families).
+     */
+    public ADD reassemble(JADD jadd, List<ADD> restrictions) {
+        return reassemble(jadd, restrictions, splitFeatures.size() - 1, 0);
+    }
+
+    /**
+     * Builds the subtree deciding on the split features up to {@code level},
+     * those above it being fixed by {@code mask}.
+     */
+    private ADD reassemble(JADD jadd, List<ADD> restrictions, int level, int mask) {
+        if (level < 0) {
+            ADD restriction = restrictions.get(mask);
+            return (restriction != null) ? restriction : jadd.makeConstant(0);
+        }
+        return ADD.ite(jadd.getVariable(splitFeatures.get(level)),
+                       reassemble(jadd, restrictions, level - 1, mask | (1 << level)),
+                       reassemble(jadd, restrictions, level - 1, mask));
+    }
+
+    @Override
+    public String toString() {
+        return getSubFamiliesNumber() + " sub-families split on " + splitFeatures;
+    }
+
+}
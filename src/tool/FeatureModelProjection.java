@@ -0,0 +1,148 @@
+package tool;
+
+import jadd.ADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Projection of a feature model onto the features which are relevant to an
+ * analysis (e.g., the ones referenced by an RDG's presence conditions).
+ *
+ * Configurations which only differ in irrelevant features have the same
+ * reliability, so they form an equivalence class which is represented by
+ * their common projection (the relevant features they enable). The reduced
+ * feature model is the 0,1-ADD of the valid representatives, and the number
+ * of valid configurations each one represents (its multiplicity) is kept,
+ * so that results over the reduced feature model can be expanded back.
+ */
+public class FeatureModelProjection {
+
+    private final ADD featureModel;
+    private final Set<String> relevantFeatures;
+    private final Set<String> irrelevantFeatures;
+    private final ADD multiplicities;
+    private final ADD reducedFeatureModel;
+
+    /**
+     * Sums out of {@code featureModel} all of its features which are not in
+     * {@code relevantFeatures}.
+     */
+    public FeatureModelProjection(ADD featureModel, Collection<String> relevantFeatures) {
+        this.featureModel = featureModel;
+        Set<String> features = featureModel.getVariables();
+        this.relevantFeatures = Collections.unmodifiableSet(new TreeSet<String>(relevantFeatures));
+        Set<String> irrelevant = new TreeSet<String>(features);
+        irrelevant.removeAll(relevantFeatures);
+        this.irrelevantFeatures = Collections.unmodifiableSet(irrelevant);
+        try {
+            this.multiplicities = featureModel.existAbstract(irrelevantFeatures);
+        } catch (UnrecognizedVariableException e) {
+            // Variables come from the feature model itself.
+            throw new IllegalStateException(e);
+        }
+        // Complementing twice maps non-zero values to 1.
+        this.reducedFeatureModel = multiplicities.complement().complement();
+    }
+
+    /**
+     * Collects the features referenced by the presence conditions of the
+     * RDG reachable from {@code root}.
+     */
+    public static Set<String> getReferencedFeatures(RDGNode root, ExpressionSolver expressionSolver) throws CyclicRdgException {
+        Set<String> features = new HashSet<String>();
+        Set<String> presenceConditions = new HashSet<String>();
+        for (RDGNode node: RdgDag.of(root).getTopologicalOrder()) {
+            if (presenceConditions.add(node.getPresenceCondition())) {
+                features.addAll(expressionSolver.encodeFormula(node.getPresenceCondition()).getVariables());
+            }
+        }
+        return features;
+    }
+
+    public Set<String> getRelevantFeatures() {
+        return relevantFeatures;
+    }
+
+    /**
+     * @return the features of the original feature model which were summed out.
+     */
+    public Set<String> getIrrelevantFeatures() {
+        return irrelevantFeatures;
+    }
+
+    /**
+     * @return the 0,1-ADD of the valid representatives, which only depends
+     *      on relevant features.
+     */
+    public ADD getReducedFeatureModel() {
+        return reducedFeatureModel;
+    }
+
+    /**
+     * @return the representative of the class of {@code configuration}, i.e.,
+     *      the relevant features it enables (sorted).
+     */
+    public List<String> project(Collection<String> configuration) {
+        Set<String> projected = new TreeSet<String>();
+        for (String feature: configuration) {
+            if (relevantFeatures.contains(feature)) {
+                projected.add(feature);
+            }
+        }
+        return new ArrayList<String>(projected);
+    }
+
+    /**
+     * @return the valid representatives, one per equivalence class.
+     */
+    public Stream<Collection<String>> getRepresentativeConfigurations() {
+        return reducedFeatureModel.getExpandedConfigurations(relevantFeatures);
+    }
+
+    /**
+     * @return the number of valid configurations (of the original feature
+     *      model) represented by {@code representative}.
+     */
+    public double getMultiplicity(Collection<String> representative) {
+        try {
+            return multiplicities.eval(representative.toArray(new String[representative.size()]));
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    /**
+     * @return whether {@code configuration} is valid according to the
+     *      original feature model.
+     */
+    public boolean isValidConfiguration(Collection<String> configuration) {
+        return featureModel.isValidConfiguration(configuration);
+    }
+
+    public double getConfigurationsNumber() {
+        return featureModel.getNonZeroAssignmentsCount(relevantFeatures.size() + irrelevantFeatures.size());
+    }
+
+    public double getRepresentativesNumber() {
+        return reducedFeatureModel.getNonZeroAssignmentsCount(relevantFeatures.size());
+    }
+
+    @Override
+    public String toString() {
+        return "Feature model projected onto " + relevantFeatures.size() + " relevant features ("
+                + irrelevantFeatures.size() + " irrelevant ones summed out): "
+                + String.format("%.0f", getRepresentativesNumber()) + " representatives of "
+                + String.format("%.0f", getConfigurationsNumber()) + " valid configurations";
+    }
+
+}
@@ -0,0 +1,101 @@
+package tool;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Assignment of values to some of the features, which defines a sub-family
+ * (the products which have the enabled features and lack the disabled ones).
+ */
+public final class PartialConfiguration {
+
+    public static final PartialConfiguration EMPTY = new PartialConfiguration(Collections.<String, Boolean>emptyMap());
+
+    private final Map<String, Boolean> fixedFeatures;
+
+    public PartialConfiguration(Map<String, Boolean> fixedFeatures) {
+        this.fixedFeatures = Collections.unmodifiableMap(new LinkedHashMap<String, Boolean>(fixedFeatures));
+    }
+
+    /**
+     * Parses a list of feature literals separated by commas or whitespace,
+     * where a feature preceded by "!" is disabled (e.g., "R, Gi_1, !Gi_2").
+     *
+     * @throws IllegalArgumentException if a feature is fixed to both values.
+     */
+    public static PartialConfiguration parse(String literals) {
+        Map<String, Boolean> fixedFeatures = new LinkedHashMap<String, Boolean>();
+        for (String literal: literals.trim().split("[,\\s]+")) {
+            if (literal.isEmpty()) {
+                continue;
+            }
+            boolean enabled = !literal.startsWith("!");
+            String feature = enabled ? literal : literal.substring(1).trim();
+            Boolean previous = fixedFeatures.put(feature, enabled);
+            if (previous != null && previous != enabled) {
+                throw new IllegalArgumentException("Feature " + feature + " is both enabled and disabled");
+            }
+        }
+        return new PartialConfiguration(fixedFeatures);
+    }
+
+    public boolean isEmpty() {
+        return fixedFeatures.isEmpty();
+    }
+
+    /**
+     * @return the fixed features, mapped to whether they are enabled.
+     */
+    public Map<String, Boolean> getFixedFeatures() {
+        return fixedFeatures;
+    }
+
+    /**
+     * @return whether {@code configuration} (the set of enabled features)
+     *      belongs to the sub-family.
+     */
+    public boolean isCompatible(Collection<String> configuration) {
+        for (Map.Entry<String, Boolean> feature: fixedFeatures.entrySet()) {
+            if (configuration.contains(feature.getKey()) != feature.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the sub-family as a cube (conjunction of literals), which is
+     * the constant 1 if no feature is fixed.
+     *
+     * @throws UnknownFeatureException if a fixed feature is not in {@code knownFeatures}.
+     */
+    public ADD toCube(JADD jadd, Collection<String> knownFeatures) {
+        ADD cube = jadd.makeConstant(1.0);
+        for (Map.Entry<String, Boolean> feature: fixedFeatures.entrySet()) {
+            if (!knownFeatures.contains(feature.getKey())) {
+                throw new UnknownFeatureException(feature.getKey());
+            }
+            ADD variable = jadd.getVariable(feature.getKey());
+            cube = cube.times(feature.getValue() ? variable : variable.complement());
+        }
+        return cube;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder literals = new StringBuilder();
+        for (Map.Entry<String, Boolean> feature: fixedFeatures.entrySet()) {
+            if (literals.length() > 0) {
+                literals.append(", ");
+            }
+            literals.append(feature.getValue() ? "" : "!").append(feature.getKey());
+        }
+        return literals.toString();
+    }
+
+}
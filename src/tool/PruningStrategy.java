@@ -8,5 +8,15 @@ public enum PruningStrategy {
     /**
      * Prune by using the whole Feature Model.
      */
-    FM
+    FM,
+    /**
+     * Prune by using the projection of the Feature Model onto the
+     * variables of each reliability mapping.
+     */
+    PROJECTED_FM,
+    /**
+     * Minimize each reliability mapping by taking invalid configurations
+     * as don't cares (they are only pruned at the end).
+     */
+    CARE_SET
 }
@@ -1,8 +1,10 @@
 package tool;
 
+import tool.analyzers.CareSetPruningStrategy;
 import tool.analyzers.FeatureModelPruningStrategy;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.NoPruningStrategy;
+import tool.analyzers.ProjectedFeatureModelPruningStrategy;
 
 public class PruningStrategyFactory {
 
@@ -14,6 +16,10 @@ public class PruningStrategyFactory {
         switch (strategySelection) {
         case NONE:
             return new NoPruningStrategy();
+        case PROJECTED_FM:
+            return new ProjectedFeatureModelPruningStrategy();
+        case CARE_SET:
+            return new CareSetPruningStrategy();
         case FM:
         default:
             return new FeatureModelPruningStrategy();
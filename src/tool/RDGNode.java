@@ -1,25 +1,24 @@
 package tool;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import tool.analyzers.buildingblocks.Component;
 import fdtmc.FDTMC;
+import fdtmc.StructuralHash;
 
 
 public class RDGNode {
 
-	private static final int _PathToItSelf = 1;
-	//This reference is used to store all the RDGnodes created during the evaluation
-	private static Map<String, RDGNode> rdgNodes = new HashMap<String, RDGNode>();
-	private static List<RDGNode> nodesInCreationOrder = new LinkedList<RDGNode>();
-
-    private static int lastNodeIndex = 0;
-
 	// Node identifier
 	private String id;
 	//This attribute is used to store the FDTMC for the RDG node.
@@ -35,6 +34,14 @@ public class RDGNode {
 	 * Height of the RDGNode.
 	 */
 	private int height;
+	// Context in which this node was created (and is registered).
+	private RdgContext context;
+	private int creationIndex;
+	// Nodes which depend on this one, whose hashes depend on this one's.
+	private Collection<RDGNode> dependents;
+	// Incremented on every change which may affect the structural hash.
+	private AtomicInteger version;
+	private volatile HashStamp hashStamp;
 
 
 	/**
@@ -42,20 +49,26 @@ public class RDGNode {
 	 * be immutable, so there must be no setters for them. Hence, they
 	 * must be set at construction-time.
 	 *
+	 * @param context Context (session) to which the node belongs.
 	 * @param id Node's identifier. It is preferably a valid Java identifier.
 	 * @param presenceCondition Boolean expression over features (using Java operators).
 	 * @param fdtmc Stochastic model of the piece of behavioral model represented by
 	 *             this node.
 	 */
-	public RDGNode(String id, String presenceCondition, FDTMC fdtmc) {
+	public RDGNode(RdgContext context, String id, String presenceCondition, FDTMC fdtmc) {
+	    this.context = context;
 	    this.id = id;
 	    this.presenceCondition = presenceCondition;
 	    this.fdtmc = fdtmc;
 		this.dependencies = new HashSet<RDGNode>();
+		this.dependents = new CopyOnWriteArrayList<RDGNode>();
 		this.height = 0;
+		this.version = new AtomicInteger();
 
-		rdgNodes.put(id, this);
-		nodesInCreationOrder.add(this);
+		this.creationIndex = context.register(this);
+		if (fdtmc != null) {
+		    fdtmc.addModificationListener(this::invalidateStructuralHash);
+		}
 	}
 
     public FDTMC getFDTMC() {
@@ -63,7 +76,10 @@ public class RDGNode {
     }
 
     public void addDependency(RDGNode child) {
-        this.dependencies.add(child);
+        if (this.dependencies.add(child)) {
+            child.dependents.add(this);
+            invalidateStructuralHash();
+        }
          setHeight(Math.max(height, child.height + 1));
     }
 
@@ -91,12 +107,86 @@ public class RDGNode {
     	this.height = height;
     }
 
-    public static RDGNode getById(String id) {
-        return rdgNodes.get(id);
+    public RdgContext getContext() {
+        return context;
     }
 
-    public static String getNextId() {
-        return "n" + lastNodeIndex++;
+    /**
+     * Order of creation of this node within its context.
+     */
+    int getCreationIndex() {
+        return creationIndex;
+    }
+
+    /**
+     * Merkle-style structural hash of this node: it combines the hashes of
+     * its presence condition, of its FDTMC and of its dependencies (as a
+     * set), which are in turn computed the same way. Hence, it is consistent
+     * with {@link #equals(Object)}, but, unlike {@link #hashCode()}, it does
+     * not depend on the node's id, so it can be used to look up similar
+     * nodes. Since FDTMCs with different symbolic probabilities or interface
+     * ids may be equal (see {@link fdtmc.CompactFDTMC#getStructuralHash()}),
+     * it is not a suitable cache key for reliability expressions.
+     *
+     * The hash is cached, and invalidated whenever the node's FDTMC or
+     * dependencies (including transitive ones) change.
+     *
+     * @throws CyclicRdgException if there is a dependency cycle.
+     */
+    public long getStructuralHash() throws CyclicRdgException {
+        return getStructuralHash(Collections.newSetFromMap(new IdentityHashMap<RDGNode, Boolean>()));
+    }
+
+    private long getStructuralHash(Set<RDGNode> visiting) {
+        HashStamp stamp = hashStamp;
+        int currentVersion = version.get();
+        if (stamp != null && stamp.version == currentVersion) {
+            return stamp.hash;
+        }
+        if (!visiting.add(this)) {
+            throw new CyclicRdgException();
+        }
+        long[] dependencyHashes = new long[dependencies.size()];
+        int i = 0;
+        for (RDGNode dependency: dependencies) {
+            dependencyHashes[i++] = dependency.getStructuralHash(visiting);
+        }
+        visiting.remove(this);
+        // Dependencies are a set, so their order must not matter.
+        Arrays.sort(dependencyHashes);
+        long h = StructuralHash.of(presenceCondition);
+        h = StructuralHash.mix(h, (fdtmc != null) ? fdtmc.getStructuralHash() : 0);
+        h = StructuralHash.mix(h, dependencyHashes.length);
+        for (long dependencyHash: dependencyHashes) {
+            h = StructuralHash.mix(h, dependencyHash);
+        }
+        // If the node changed meanwhile, the stamp is already outdated.
+        hashStamp = new HashStamp(currentVersion, h);
+        return h;
+    }
+
+    private void invalidateStructuralHash() {
+        invalidateStructuralHash(Collections.newSetFromMap(new IdentityHashMap<RDGNode, Boolean>()));
+    }
+
+    private void invalidateStructuralHash(Set<RDGNode> invalidated) {
+        if (invalidated.add(this)) {
+            version.incrementAndGet();
+            context.markStale(this);
+            for (RDGNode dependent: dependents) {
+                dependent.invalidateStructuralHash(invalidated);
+            }
+        }
+    }
+
+    private static final class HashStamp {
+        final int version;
+        final long hash;
+
+        HashStamp(int version, long hash) {
+            this.version = version;
+            this.hash = hash;
+        }
     }
 
     /**
@@ -108,7 +198,13 @@ public class RDGNode {
     public boolean equals(Object obj) {
         if (isObjectValid(obj)) {
             RDGNode other = (RDGNode) obj;
-            
+            if (this == other) {
+                return true;
+            }
+            if (this.getStructuralHash() != other.getStructuralHash()) {
+                return false;
+            }
+
             final boolean presenceEquals = this.getPresenceCondition().equals(other.getPresenceCondition());
             final boolean FDTMCEquals = this.getFDTMC().equals(other.getFDTMC());
             final boolean dependenciesEquals = this.getDependencies().equals(other.getDependencies());
@@ -137,155 +233,54 @@ public class RDGNode {
      * Retrieves the transitive closure of the RDGNode dependency relation.
      * The node itself is part of the returned list.
      *
-     * It implements the Cormen et al.'s topological sort algorithm.
-     *
      * @return The descendant RDG nodes ordered bottom-up (depended-upon to dependent).
      * @throws CyclicRdgException if there is a path with a cycle starting from this node.
+     * @see RdgDag#getTopologicalOrder()
      */
     public List<RDGNode> getDependenciesTransitiveClosure() throws CyclicRdgException {
-        List<RDGNode> transitiveDependencies = new LinkedList<RDGNode>();
-        Map<RDGNode, Boolean> marks = new HashMap<RDGNode, Boolean>();
-        topoSortVisit(this, marks, transitiveDependencies);
-        return transitiveDependencies;
-    }
-
-    /**
-     * Topological sort {@code visit} function (Cormen et al.'s algorithm).
-     * @param node
-     * @param marks
-     * @param sorted
-     * @throws CyclicRdgException
-     */
-    private void topoSortVisit(RDGNode node, Map<RDGNode, Boolean> marks, List<RDGNode> sorted) throws CyclicRdgException {
-        if (isCyclicDependency(node, marks)) {
-            // Visiting temporarily marked node -- this means a cyclic dependency!
-            throw new CyclicRdgException();
-        } else if (nodeNotVisited(node, marks)) {
-            // Mark node temporarily (cycle detection)
-            marks.put(node, false);
-            for (RDGNode child: node.getDependencies()) {
-                topoSortVisit(child, marks, sorted);
-            }
-            // Mark node permanently (finished sorting branch)
-            marks.put(node, true);
-            sorted.add(node);
-        }
+        return new ArrayList<RDGNode>(RdgDag.of(this).getTopologicalOrder());
     }
 
-	private static boolean isCyclicDependency(RDGNode node, Map<RDGNode, Boolean> marks) {
-		return marks.containsKey(node) && marks.get(node) == false;
-	}
-
     /**
      * Computes the number of paths from source nodes to every known node.
      * @return A map associating an RDGNode to the corresponding number
      *      of paths from a source node which lead to it.
      * @throws CyclicRdgException
+     * @see RdgDag#getNumberOfPaths()
      */
     public Map<RDGNode, Integer> getNumberOfPaths() throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(this);
+        long[] paths = dag.getNumberOfPaths();
         Map<RDGNode, Integer> numberOfPaths = new HashMap<RDGNode, Integer>();
-
-        Map<RDGNode, Boolean> marks = new HashMap<RDGNode, Boolean>();
-        Map<RDGNode, Map<RDGNode, Integer>> cache = new HashMap<RDGNode, Map<RDGNode,Integer>>();
-        Map<RDGNode, Integer> tmpNumberOfPaths = numPathsVisit(this, marks, cache);
-        numberOfPaths = sumPaths(numberOfPaths, tmpNumberOfPaths);
-
-        return numberOfPaths;
-    }
-
-    // TODO Parameterize topological sort of RDG.
-    private static Map<RDGNode, Integer> numPathsVisit(RDGNode node, Map<RDGNode, Boolean> marks, Map<RDGNode, Map<RDGNode, Integer>> cache) throws CyclicRdgException {
-        if (isCyclicDependency(node, marks)) {
-            // Visiting temporarily marked node -- this means a cyclic dependency!
-            throw new CyclicRdgException();
-        } else if (nodeNotVisited(node, marks)) {
-            Map<RDGNode, Integer> numberOfPaths = topologicalSort(node, marks, cache);
-            return numberOfPaths;
-        }
-        // Otherwise, the node has already been visited.
-        return cache.get(node);
-    }
-
-	private static boolean nodeNotVisited(RDGNode node, Map<RDGNode, Boolean> marks) {
-		return !marks.containsKey(node);
-	}
-
-	private static Map<RDGNode, Integer> topologicalSort(RDGNode node, Map<RDGNode, Boolean> marks,
-			Map<RDGNode, Map<RDGNode, Integer>> cache) {
-		marks.put(node, false);
-
-		Map<RDGNode, Integer> numberOfPaths = new HashMap<RDGNode, Integer>();
-		// A node always has a path to itself.
-		numberOfPaths.put(node, _PathToItSelf);
-		// The number of paths from a node X to a node Y is equal to the
-		// sum of the numbers of paths from each of its descendants to Y.
-		for (RDGNode child: node.getDependencies()) {
-		    Map<RDGNode, Integer> tmpNumberOfPaths = numPathsVisit(child, marks, cache);
-		    numberOfPaths = sumPaths(numberOfPaths, tmpNumberOfPaths);
-		}
-		// Mark node permanently (finished sorting branch)
-		marks.put(node, true);
-		cache.put(node, numberOfPaths);
-		return numberOfPaths;
-	}
-
-    /**
-     * Sums two paths-counting maps
-     * @param pathsCountA
-     * @param pathsCountB
-     * @return
-     */
-    private static Map<RDGNode, Integer> sumPaths(Map<RDGNode, Integer> pathsCountA, Map<RDGNode, Integer> pathsCountB) {
-        Map<RDGNode, Integer> numberOfPaths = new HashMap<RDGNode, Integer>(pathsCountA);
-        for (Map.Entry<RDGNode, Integer> entry: pathsCountB.entrySet()) {
-            RDGNode node = entry.getKey();
-            Integer count = entry.getValue();
-            if (numberOfPaths.containsKey(node)) {
-                count += numberOfPaths.get(node);
-            }
-            numberOfPaths.put(node, count);
+        for (int id = 0; id < dag.size(); id++) {
+            numberOfPaths.put(dag.getNode(id), Math.toIntExact(paths[id]));
         }
         return numberOfPaths;
     }
 
-    /**
-     * Returns the first RDG node (in crescent order of creation time) which is similar
-     * to the one provided.
-     *
-     * A similar RDG node is one for which equals() returns true.
-     * @param rdgNode
-     * @return a similar RDG node or null in case there is none.
-     */
-    public static RDGNode getSimilarNode(RDGNode target) {
-        for (RDGNode candidate: nodesInCreationOrder) {
-            if (isNoteSimilar(candidate, target)) {
-                return candidate;
-            }
-        }
-        return null;
-    }
-    private static boolean isNoteSimilar(RDGNode candidate, RDGNode target){
-    	return candidate != target && candidate.equals(target);
-    }
     /**
      * Converts this RDG node into a Component<FDTMC>.
      * @return
      */
     public Component<FDTMC> toComponent() {
-        Collection<Component<FDTMC>> dependencies = this.getDependencies().stream()
-                .map(RDGNode::toComponent)
-                .collect(Collectors.toSet());
-        Component<FDTMC> component = new Component<FDTMC>(this.getId(),
-                                    this.getPresenceCondition(),
-                                    this.getFDTMC(),
-                                    dependencies);
-        return component;
+        return RdgDag.of(this).toComponent(RDGNode::getFDTMC);
     }
 
+    /**
+     * Converts the given nodes into components. Each node reachable from
+     * them is converted only once, so components of shared dependencies
+     * are shared as well.
+     */
     public static List<Component<FDTMC>> toComponentList(List<RDGNode> nodes) {
-        List<Component<FDTMC>> nodeList = nodes.stream()
-                .map(RDGNode::toComponent)
-                .collect(Collectors.toList());
+        Map<RDGNode, Component<FDTMC>> converted = new IdentityHashMap<RDGNode, Component<FDTMC>>();
+        List<Component<FDTMC>> nodeList = new ArrayList<Component<FDTMC>>(nodes.size());
+        for (RDGNode node: nodes) {
+            Component<FDTMC> component = converted.get(node);
+            if (component == null) {
+                component = RdgDag.of(node).toComponent(RDGNode::getFDTMC, converted);
+            }
+            nodeList.add(component);
+        }
         return nodeList;
     }
 
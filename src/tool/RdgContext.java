@@ -0,0 +1,136 @@
+package tool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of the RDG nodes built in a session (e.g., the parsing of a
+ * set of UML models followed by its analysis).
+ *
+ * It owns node identity (lookup by id), the generation of fresh ids and
+ * the lookup of similar nodes, which used to be global. Nodes belong to
+ * the context they were created in, and are released along with it, so
+ * several sessions can run in the same JVM (even concurrently) without
+ * sharing or leaking nodes.
+ *
+ * All methods are thread-safe.
+ */
+public class RdgContext {
+
+    private final Map<String, RDGNode> nodesById = new ConcurrentHashMap<String, RDGNode>();
+    private final AtomicInteger nodesNumber = new AtomicInteger();
+    private final AtomicInteger lastNodeIndex = new AtomicInteger();
+
+    // Nodes indexed by structural hash, for similar-node lookup. Nodes whose
+    // hash may have changed since they were indexed wait in staleNodes
+    // (which is lock-free, since it is fed from FDTMC modifications) until
+    // the next lookup.
+    private final Map<Long, List<RDGNode>> nodesByHash = new HashMap<Long, List<RDGNode>>();
+    private final Map<RDGNode, Long> indexedHashes = new IdentityHashMap<RDGNode, Long>();
+    private final Queue<RDGNode> staleNodes = new ConcurrentLinkedQueue<RDGNode>();
+
+    /**
+     * Registers a node, returning its creation index.
+     * A node with the same id as a previous one replaces it in id lookups.
+     */
+    int register(RDGNode node) {
+        nodesById.put(node.getId(), node);
+        staleNodes.add(node);
+        return nodesNumber.getAndIncrement();
+    }
+
+    void markStale(RDGNode node) {
+        staleNodes.add(node);
+    }
+
+    public RDGNode getById(String id) {
+        return nodesById.get(id);
+    }
+
+    /**
+     * Generates an id which is unique within this context.
+     */
+    public String getNextId() {
+        return "n" + lastNodeIndex.getAndIncrement();
+    }
+
+    /**
+     * Number of nodes created in this context.
+     */
+    public int getNodesNumber() {
+        return nodesNumber.get();
+    }
+
+    public Collection<RDGNode> getNodes() {
+        return Collections.unmodifiableCollection(nodesById.values());
+    }
+
+    /**
+     * Returns the first RDG node (in crescent order of creation time) which is similar
+     * to the one provided.
+     *
+     * A similar RDG node is one for which equals() returns true. Only nodes
+     * with the same structural hash are compared, so the lookup does not
+     * depend on the number of known nodes.
+     * @param target
+     * @return a similar RDG node or null in case there is none.
+     */
+    public RDGNode getSimilarNode(RDGNode target) {
+        long targetHash = target.getStructuralHash();
+        List<RDGNode> candidates;
+        synchronized (nodesByHash) {
+            reindexStaleNodes();
+            List<RDGNode> bucket = nodesByHash.get(targetHash);
+            if (bucket == null) {
+                return null;
+            }
+            candidates = new ArrayList<RDGNode>(bucket);
+        }
+        RDGNode similar = null;
+        for (RDGNode candidate: candidates) {
+            if ((similar == null || candidate.getCreationIndex() < similar.getCreationIndex())
+                    && candidate != target
+                    && candidate.equals(target)) {
+                similar = candidate;
+            }
+        }
+        return similar;
+    }
+
+    private void reindexStaleNodes() {
+        RDGNode node;
+        while ((node = staleNodes.poll()) != null) {
+            long hash = node.getStructuralHash();
+            Long indexedHash = indexedHashes.get(node);
+            if (indexedHash != null) {
+                if (indexedHash == hash) {
+                    continue;
+                }
+                List<RDGNode> bucket = nodesByHash.get(indexedHash);
+                // By identity: equals() would match any similar node.
+                final RDGNode stale = node;
+                bucket.removeIf(indexed -> indexed == stale);
+                if (bucket.isEmpty()) {
+                    nodesByHash.remove(indexedHash);
+                }
+            }
+            indexedHashes.put(node, hash);
+            List<RDGNode> bucket = nodesByHash.get(hash);
+            if (bucket == null) {
+                bucket = new ArrayList<RDGNode>(1);
+                nodesByHash.put(hash, bucket);
+            }
+            bucket.add(node);
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package tool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import tool.analyzers.buildingblocks.Component;
+import fdtmc.FDTMC;
+
+/**
+ * Immutable, indexed view of the RDG reachable from a root node.
+ *
+ * Nodes get int ids equal to their positions in a topological order in
+ * which every node comes after the ones it depends on (so the root is the
+ * last one). Dependencies are stored as adjacency arrays, and nodes are
+ * also grouped by height. Traversals and metrics over the view take
+ * linear time and do not recurse, so they are safe for deep RDGs.
+ *
+ * The view is a snapshot: later changes to the dependencies of its nodes
+ * are not reflected.
+ */
+public final class RdgDag {
+
+    private static final Integer IN_PROGRESS = -1;
+
+    private final RDGNode[] nodes;
+    private final Map<RDGNode, Integer> ids;
+    // Dependencies of node i lie in [dependencyOffsets[i], dependencyOffsets[i+1]).
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+    // Dependents of node i lie in [dependentOffsets[i], dependentOffsets[i+1]).
+    private final int[] dependentOffsets;
+    private final int[] dependents;
+    private final int[] heights;
+    // Nodes of height h lie in [levelOffsets[h], levelOffsets[h+1]) of levels.
+    private final int[] levelOffsets;
+    private final int[] levels;
+
+    private RdgDag(List<RDGNode> sorted, Map<RDGNode, Integer> ids) {
+        int size = sorted.size();
+        this.nodes = sorted.toArray(new RDGNode[size]);
+        this.ids = ids;
+
+        this.dependencyOffsets = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            dependencyOffsets[id + 1] = dependencyOffsets[id] + nodes[id].getDependencies().size();
+        }
+        this.dependencies = new int[dependencyOffsets[size]];
+        this.heights = new int[size];
+        int maxHeight = 0;
+        for (int id = 0; id < size; id++) {
+            int position = dependencyOffsets[id];
+            int height = 0;
+            for (RDGNode dependency: nodes[id].getDependencies()) {
+                int dependencyId = ids.get(dependency);
+                dependencies[position++] = dependencyId;
+                height = Math.max(height, heights[dependencyId] + 1);
+            }
+            heights[id] = height;
+            maxHeight = Math.max(maxHeight, height);
+        }
+
+        this.dependentOffsets = new int[size + 1];
+        for (int dependency: dependencies) {
+            dependentOffsets[dependency + 1]++;
+        }
+        for (int id = 0; id < size; id++) {
+            dependentOffsets[id + 1] += dependentOffsets[id];
+        }
+        this.dependents = new int[dependencies.length];
+        int[] nextDependent = Arrays.copyOf(dependentOffsets, size);
+        for (int id = 0; id < size; id++) {
+            for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                dependents[nextDependent[dependencies[i]]++] = id;
+            }
+        }
+
+        this.levelOffsets = new int[(size > 0) ? maxHeight + 2 : 1];
+        for (int id = 0; id < size; id++) {
+            levelOffsets[heights[id] + 1]++;
+        }
+        for (int h = 1; h < levelOffsets.length; h++) {
+            levelOffsets[h] += levelOffsets[h - 1];
+        }
+        this.levels = new int[size];
+        int[] next = Arrays.copyOf(levelOffsets, levelOffsets.length);
+        for (int id = 0; id < size; id++) {
+            levels[next[heights[id]]++] = id;
+        }
+    }
+
+    /**
+     * Compiles the RDG reachable from {@code root}.
+     *
+     * The topological order is the same as the one of the recursive
+     * depth-first search by Cormen et al., but the search is iterative.
+     *
+     * @throws CyclicRdgException if there is a path with a cycle starting from {@code root}.
+     */
+    public static RdgDag of(RDGNode root) throws CyclicRdgException {
+        // Nodes are compared by identity, since distinct nodes may be equal.
+        Map<RDGNode, Integer> ids = new IdentityHashMap<RDGNode, Integer>();
+        List<RDGNode> sorted = new ArrayList<RDGNode>();
+        Deque<RDGNode> path = new ArrayDeque<RDGNode>();
+        Deque<Iterator<RDGNode>> pending = new ArrayDeque<Iterator<RDGNode>>();
+
+        ids.put(root, IN_PROGRESS);
+        path.push(root);
+        pending.push(root.getDependencies().iterator());
+        while (!path.isEmpty()) {
+            Iterator<RDGNode> children = pending.peek();
+            if (children.hasNext()) {
+                RDGNode child = children.next();
+                Integer mark = ids.get(child);
+                if (mark == null) {
+                    ids.put(child, IN_PROGRESS);
+                    path.push(child);
+                    pending.push(child.getDependencies().iterator());
+                } else if (mark < 0) {
+                    // Visiting temporarily marked node -- this means a cyclic dependency!
+                    throw new CyclicRdgException();
+                }
+            } else {
+                // Finished sorting branch
+                RDGNode node = path.pop();
+                pending.pop();
+                ids.put(node, sorted.size());
+                sorted.add(node);
+            }
+        }
+        return new RdgDag(sorted, ids);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public RDGNode getRoot() {
+        return nodes[nodes.length - 1];
+    }
+
+    public RDGNode getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * @return the id of {@code node}, or -1 if it is not part of this RDG.
+     */
+    public int getId(RDGNode node) {
+        Integer id = ids.get(node);
+        return (id != null) ? id : -1;
+    }
+
+    public int getDependenciesNumber(int id) {
+        return dependencyOffsets[id + 1] - dependencyOffsets[id];
+    }
+
+    /**
+     * @return the id of the {@code i}-th dependency of node {@code id}.
+     */
+    public int getDependency(int id, int i) {
+        return dependencies[dependencyOffsets[id] + i];
+    }
+
+    public int getDependentsNumber(int id) {
+        return dependentOffsets[id + 1] - dependentOffsets[id];
+    }
+
+    /**
+     * @return the id of the {@code i}-th node which depends on node {@code id}.
+     */
+    public int getDependent(int id, int i) {
+        return dependents[dependentOffsets[id] + i];
+    }
+
+    /**
+     * Height of a node: the maximum number of edges in a path from it
+     * to a leaf (node with no dependencies).
+     */
+    public int getHeight(int id) {
+        return heights[id];
+    }
+
+    /**
+     * Number of distinct heights, i.e., the height of the root plus one.
+     */
+    public int getLevelsNumber() {
+        return levelOffsets.length - 1;
+    }
+
+    /**
+     * Nodes with the given height, in topological order. Nodes in a level
+     * do not depend on one another, and only depend on lower levels.
+     */
+    public List<RDGNode> getLevel(int height) {
+        List<RDGNode> level = new ArrayList<RDGNode>(levelOffsets[height + 1] - levelOffsets[height]);
+        for (int i = levelOffsets[height]; i < levelOffsets[height + 1]; i++) {
+            level.add(nodes[levels[i]]);
+        }
+        return level;
+    }
+
+    /**
+     * @return the nodes ordered bottom-up (depended-upon to dependent).
+     */
+    public List<RDGNode> getTopologicalOrder() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    /**
+     * Computes the number of paths from the root to every node (the root
+     * itself has a path to itself), indexed by node id.
+     *
+     * This is the number of times each node would be evaluated if there
+     * were no caching of results.
+     */
+    public long[] getNumberOfPaths() {
+        long[] paths = new long[nodes.length];
+        if (nodes.length == 0) {
+            return paths;
+        }
+        paths[nodes.length - 1] = 1;
+        // Dependents come after their dependencies, so every node is
+        // done by the time its own dependencies are visited.
+        for (int id = nodes.length - 1; id >= 0; id--) {
+            for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                paths[dependencies[i]] += paths[id];
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Total number of node evaluations without caching, i.e., the sum of
+     * the numbers of paths to every node.
+     */
+    public long getTotalNumberOfPaths() {
+        long total = 0;
+        for (long paths: getNumberOfPaths()) {
+            total += paths;
+        }
+        return total;
+    }
+
+    /**
+     * Converts the nodes into components, in topological order. Each
+     * node is converted once, so components of shared dependencies
+     * are shared as well.
+     *
+     * @param asset Function yielding the asset of each node's component.
+     */
+    public <T> List<Component<T>> toComponentList(Function<RDGNode, T> asset) {
+        Map<RDGNode, Component<T>> converted = new IdentityHashMap<RDGNode, Component<T>>();
+        toComponent(asset, converted);
+        List<Component<T>> components = new ArrayList<Component<T>>(nodes.length);
+        for (RDGNode node: nodes) {
+            components.add(converted.get(node));
+        }
+        return components;
+    }
+
+    public List<Component<FDTMC>> toComponentList() {
+        return toComponentList(RDGNode::getFDTMC);
+    }
+
+    /**
+     * Converts the root into a component.
+     */
+    public <T> Component<T> toComponent(Function<RDGNode, T> asset) {
+        return toComponent(asset, new IdentityHashMap<RDGNode, Component<T>>());
+    }
+
+    /**
+     * Converts the root into a component, reusing (and adding to)
+     * the components in {@code converted}.
+     */
+    <T> Component<T> toComponent(Function<RDGNode, T> asset, Map<RDGNode, Component<T>> converted) {
+        for (int id = 0; id < nodes.length; id++) {
+            RDGNode node = nodes[id];
+            if (converted.containsKey(node)) {
+                continue;
+            }
+            Collection<Component<T>> componentDependencies = new HashSet<Component<T>>();
+            for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                componentDependencies.add(converted.get(nodes[dependencies[i]]));
+            }
+            converted.put(node, new Component<T>(node.getId(),
+                                                 node.getPresenceCondition(),
+                                                 asset.apply(node),
+                                                 componentDependencies));
+        }
+        return converted.get(getRoot());
+    }
+
+}
@@ -0,0 +1,251 @@
+package tool.analyzers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import paramwrapper.ModelMetrics;
+import paramwrapper.ParametricModelChecker;
+import tool.RDGNode;
+import tool.RdgDag;
+import tool.analyzers.buildingblocks.FeatureSupports;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+import tool.analyzers.buildingblocks.ModelCheckingCostModel;
+import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
+
+/**
+ * Estimates the running time of each analysis strategy over an RDG, so that
+ * the cheapest one can be chosen before committing to any.
+ *
+ * Estimates are built from cheap structural figures (the number of valid
+ * configurations, the size and the feature supports of the RDG's nodes)
+ * and from the model-checking cost model. If the latter has not observed
+ * any actual running time yet, a few nodes of different sizes are model
+ * checked first, which also yields the typical size of their reliability
+ * formulas. Figures are rough (in nanoseconds): they are meant for ranking
+ * strategies which are usually orders of magnitude apart, not for
+ * predicting running times.
+ */
+public class AnalysisCostEstimator {
+    private static final Logger LOGGER = Logger.getLogger(AnalysisCostEstimator.class.getName());
+
+    /**
+     * Number of nodes to be model checked when there are no observations.
+     */
+    static final int SAMPLE_SIZE = 3;
+
+    // Per-operation costs, in nanoseconds.
+    private static final double ADD_NODE_NANOS = 200;
+    private static final double DOUBLE_OPERATION_NANOS = 5;
+    private static final double LOOKUP_NANOS = 100;
+
+    private final ParametricModelChecker modelChecker;
+    private final ModelCheckingCostModel costModel;
+    private final ExpressionSolver expressionSolver;
+
+    /**
+     * Formula nodes per parametric model size, i.e., (states + transitions)
+     * times the number of parameters (at least 1).
+     */
+    private double formulaSizeRatio = 1;
+
+    public AnalysisCostEstimator(ParametricModelChecker modelChecker,
+                                 ModelCheckingCostModel costModel,
+                                 ExpressionSolver expressionSolver) {
+        this.modelChecker = modelChecker;
+        this.costModel = costModel;
+        this.expressionSolver = expressionSolver;
+    }
+
+    /**
+     * @param dag RDG to be analyzed.
+     * @param configurationsNumber number of (valid) configurations to be analyzed.
+     * @param parallelism number of models which can be checked concurrently.
+     * @return the estimated cost of every strategy but {@link AnalysisStrategy#AUTO}.
+     */
+    public Map<AnalysisStrategy, Double> estimate(RdgDag dag, double configurationsNumber, int parallelism) {
+        ModelMetrics[] nodeMetrics = new ModelMetrics[dag.size()];
+        for (int id = 0; id < dag.size(); id++) {
+            nodeMetrics[id] = ModelMetrics.of(dag.getNode(id).getFDTMC());
+        }
+        if (costModel.getObservations() == 0) {
+            sample(dag, nodeMetrics);
+        }
+        FeatureSupports supports = new FeatureSupports(dag, expressionSolver);
+
+        double modelChecking = 0;
+        double symbolicSolving = 0;
+        double numericSolving = 0;
+        int states = 0;
+        int transitions = 0;
+        int dependencies = 0;
+        for (int id = 0; id < dag.size(); id++) {
+            ModelMetrics metrics = nodeMetrics[id];
+            double formulaSize = estimateFormulaSize(metrics);
+            double projections = getProjectionsNumber(supports.getSupportSize(id), configurationsNumber);
+            modelChecking += costModel.estimate(metrics);
+            // Intermediate ADDs are bounded by the number of distinct
+            // projections onto the node's support.
+            symbolicSolving += formulaSize * projections * ADD_NODE_NANOS;
+            numericSolving += formulaSize * projections * DOUBLE_OPERATION_NANOS;
+            states += metrics.getStates();
+            transitions += metrics.getTransitions();
+            dependencies += dag.getDependenciesNumber(id);
+        }
+        double[] hybrid = estimateHybrid(dag, nodeMetrics, supports, configurationsNumber);
+        double lookups = configurationsNumber * dag.size() * LOOKUP_NANOS;
+        double rootProjections = getProjectionsNumber(supports.getSupportSize(dag.size() - 1),
+                                                      configurationsNumber);
+
+        // A derived product is as large as all of the models it inlines.
+        ModelMetrics productMetrics = new ModelMetrics(states, transitions, 0);
+        // The 150% model switches on presence conditions at every dependency.
+        ModelMetrics familyMetrics = new ModelMetrics(states + 2 * dependencies,
+                                                      transitions + 2 * dependencies,
+                                                      getPresenceConditionClassesNumber(dag));
+        double familyModelChecking = costModel.estimate(familyMetrics);
+        double familyFormulaSize = estimateFormulaSize(familyMetrics);
+
+        Map<AnalysisStrategy, Double> estimates = new EnumMap<AnalysisStrategy, Double>(AnalysisStrategy.class);
+        estimates.put(AnalysisStrategy.FEATURE_FAMILY,
+                      modelChecking / parallelism + symbolicSolving);
+        estimates.put(AnalysisStrategy.HYBRID,
+                      hybrid[0] / parallelism + hybrid[1]);
+        estimates.put(AnalysisStrategy.FEATURE_PRODUCT,
+                      modelChecking / parallelism + numericSolving + lookups);
+        estimates.put(AnalysisStrategy.PRODUCT,
+                      rootProjections * costModel.estimate(productMetrics) / parallelism + lookups);
+        estimates.put(AnalysisStrategy.FAMILY,
+                      familyModelChecking + familyFormulaSize * configurationsNumber * ADD_NODE_NANOS);
+        estimates.put(AnalysisStrategy.FAMILY_PRODUCT,
+                      familyModelChecking + familyFormulaSize * configurationsNumber * DOUBLE_OPERATION_NANOS);
+        return estimates;
+    }
+
+    /**
+     * Estimates model checking and symbolic solving as for the
+     * feature-family-based strategy, but with the regions chosen by
+     * a {@link HybridPartitioner} taken as single (150%) models.
+     *
+     * @return the model-checking and the solving costs.
+     */
+    private double[] estimateHybrid(RdgDag dag, ModelMetrics[] nodeMetrics, FeatureSupports supports, double configurationsNumber) {
+        HybridPartitioner.Partition partition = new HybridPartitioner().partition(dag);
+        double modelChecking = 0;
+        double symbolicSolving = 0;
+        for (int id = 0; id < dag.size(); id++) {
+            if (partition.getOwner(id) != id) {
+                continue;
+            }
+            ModelMetrics metrics = nodeMetrics[id];
+            if (partition.isRegionRoot(id)) {
+                List<Integer> members = partition.getMembers(id);
+                int states = 0;
+                int transitions = 0;
+                for (int member: members) {
+                    ModelMetrics memberMetrics = nodeMetrics[member];
+                    states += memberMetrics.getStates();
+                    transitions += memberMetrics.getTransitions();
+                }
+                int presenceVariables = (int) members.stream()
+                        .filter(member -> !partition.isRegionRoot(member))
+                        .map(member -> dag.getNode(member).getPresenceCondition())
+                        .distinct()
+                        .count();
+                int decorated = members.size() - 1;
+                metrics = new ModelMetrics(states + decorated,
+                                           transitions + 2 * decorated,
+                                           partition.getBoundary(id).size() + presenceVariables);
+            }
+            double projections = getProjectionsNumber(supports.getSupportSize(id), configurationsNumber);
+            modelChecking += costModel.estimate(metrics);
+            symbolicSolving += estimateFormulaSize(metrics) * projections * ADD_NODE_NANOS;
+        }
+        return new double[] {modelChecking, symbolicSolving};
+    }
+
+    /**
+     * @return the strategy with the lowest estimate.
+     */
+    public static AnalysisStrategy cheapest(Map<AnalysisStrategy, Double> estimates) {
+        return estimates.entrySet().stream()
+                .min(Comparator.comparingDouble(Map.Entry::getValue))
+                .map(Map.Entry::getKey)
+                .orElse(AnalysisStrategy.FEATURE_FAMILY);
+    }
+
+    /**
+     * Model checks up to {@link #SAMPLE_SIZE} nodes spread over the range of
+     * model sizes, feeding their running times to the cost model. The largest
+     * node is left out, since it could cost as much as a whole analysis.
+     */
+    private void sample(RdgDag dag, ModelMetrics[] nodeMetrics) {
+        List<Integer> nodes = new ArrayList<Integer>();
+        for (int id = 0; id < dag.size(); id++) {
+            nodes.add(id);
+        }
+        nodes.sort(Comparator.comparingInt(id -> size(nodeMetrics[id])));
+        List<Integer> sample = new ArrayList<Integer>();
+        if (nodes.size() <= SAMPLE_SIZE) {
+            sample.addAll(nodes);
+        } else {
+            for (int i = 1; i <= SAMPLE_SIZE; i++) {
+                sample.add(nodes.get(i * (nodes.size() - 1) / (SAMPLE_SIZE + 1)));
+            }
+        }
+
+        double formulaSizes = 0;
+        double modelSizes = 0;
+        for (int id: sample) {
+            RDGNode node = dag.getNode(id);
+            ModelMetrics metrics = nodeMetrics[id];
+            long startTime = System.nanoTime();
+            Formula reliability;
+            try {
+                reliability = modelChecker.getReliability(node.getFDTMC());
+            } catch (RuntimeException e) {
+                LOGGER.warning("Could not model check " + node.getId() + " for estimating costs: " + e.getMessage());
+                continue;
+            }
+            costModel.observe(metrics, System.nanoTime() - startTime);
+            if (reliability != null) {
+                formulaSizes += reliability.size();
+                modelSizes += parametricSize(metrics);
+            }
+        }
+        if (modelSizes > 0) {
+            formulaSizeRatio = formulaSizes / modelSizes;
+        }
+        LOGGER.fine("Sampled " + sample.size() + " nodes: " + costModel
+                + "; formula size = " + formulaSizeRatio + " * (states + transitions) * vars");
+    }
+
+    private double estimateFormulaSize(ModelMetrics metrics) {
+        return Math.max(1, formulaSizeRatio * parametricSize(metrics));
+    }
+
+    private static double getProjectionsNumber(int supportSize, double configurationsNumber) {
+        return Math.max(1, Math.min(configurationsNumber, Math.pow(2, supportSize)));
+    }
+
+    private static int getPresenceConditionClassesNumber(RdgDag dag) {
+        return dag.getTopologicalOrder().stream()
+                .map(RDGNode::getPresenceCondition)
+                .collect(Collectors.toSet())
+                .size();
+    }
+
+    private static int size(ModelMetrics metrics) {
+        return metrics.getStates() + metrics.getTransitions();
+    }
+
+    private static double parametricSize(ModelMetrics metrics) {
+        return size(metrics) * (double) Math.max(1, metrics.getParameters());
+    }
+
+}
@@ -5,5 +5,15 @@ public enum AnalysisStrategy {
     FEATURE_PRODUCT,
     PRODUCT,
     FAMILY,
-    FAMILY_PRODUCT
+    FAMILY_PRODUCT,
+    /**
+     * Feature-family-based, but with some RDG subtrees collapsed into 150%
+     * models (see {@link tool.analyzers.buildingblocks.HybridPartitioner}).
+     */
+    HYBRID,
+    /**
+     * Whichever of the other strategies is estimated to be the cheapest
+     * for the analyzed RDG (see {@link AnalysisCostEstimator}).
+     */
+    AUTO
 }
@@ -0,0 +1,25 @@
+package tool.analyzers;
+
+import tool.RDGNode;
+import jadd.ADD;
+
+/**
+ * Pruning strategy which minimizes a node's reliability mapping by taking
+ * invalid configurations as don't cares (see {@link ADD#restrict(ADD)}).
+ *
+ * Unlike the other strategies, invalid configurations do not necessarily
+ * yield 0, but they may yield whatever value makes the mapping smallest.
+ * Their values do not affect the ones of valid configurations in dependent
+ * nodes, and the analysis applies the feature model to the final result.
+ */
+public class CareSetPruningStrategy implements IPruningStrategy {
+
+    /* (non-Javadoc)
+     * @see tool.IPruningStrategy#pruneInvalidConfigurations(tool.RDGNode, jadd.ADD, jadd.ADD)
+     */
+    @Override
+    public ADD pruneInvalidConfigurations(RDGNode node, ADD reliability, ADD featureModel) {
+        return reliability.restrict(featureModel);
+    }
+
+}
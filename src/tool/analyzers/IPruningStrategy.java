@@ -18,8 +18,11 @@ public interface IPruningStrategy {
      * @param node An RDG node.
      * @param reliability Reliability mapping for {@code node.}
      * @param featureModel 0,1-ADD representing the valid configurations for the SPL.
-     * @return ADD with a reliability mapping for {@code node} in which the
-     *  reliability of invalid partial configurations is represented by zero.
+     * @return ADD with a reliability mapping for {@code node} which agrees
+     *  with {@code reliability} on valid configurations. The reliability of
+     *  invalid partial configurations is usually represented by zero, but
+     *  it may be any value (don't care), as the feature model is applied to
+     *  the final result.
      */
     public ADD pruneInvalidConfigurations(RDGNode node, ADD reliability, ADD featureModel);
 
@@ -0,0 +1,47 @@
+package tool.analyzers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import tool.FeatureModelProjection;
+import tool.RDGNode;
+import jadd.ADD;
+
+/**
+ * Pruning strategy which multiplies a node's reliability mapping by the
+ * projection of the feature model onto the variables of the mapping, i.e.,
+ * onto the features of the node's (transitive) presence conditions.
+ *
+ * Partial configurations which cannot be completed into a valid one yield 0,
+ * as with {@link FeatureModelPruningStrategy}, but the result never depends
+ * on more variables than the reliability mapping itself, so pruning does
+ * not make it grow with the size of the feature model.
+ *
+ * Projections are cached by set of variables, so it must be used by a
+ * single thread (as ADD operations are not thread-safe anyway).
+ */
+public class ProjectedFeatureModelPruningStrategy implements IPruningStrategy {
+
+    private ADD projectedFeatureModel;
+    private Map<Set<String>, ADD> projections = new HashMap<Set<String>, ADD>();
+
+    /* (non-Javadoc)
+     * @see tool.IPruningStrategy#pruneInvalidConfigurations(tool.RDGNode, jadd.ADD, jadd.ADD)
+     */
+    @Override
+    public ADD pruneInvalidConfigurations(RDGNode node, ADD reliability, ADD featureModel) {
+        if (featureModel != projectedFeatureModel) {
+            projectedFeatureModel = featureModel;
+            projections.clear();
+        }
+        Set<String> variables = reliability.getVariables();
+        ADD projection = projections.get(variables);
+        if (projection == null) {
+            projection = new FeatureModelProjection(featureModel, variables).getReducedFeatureModel();
+            projections.put(variables, projection);
+        }
+        return projection.times(reliability);
+    }
+
+}
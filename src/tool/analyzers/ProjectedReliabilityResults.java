@@ -0,0 +1,41 @@
+package tool.analyzers;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import tool.FeatureModelProjection;
+import tool.UnknownFeatureException;
+
+/**
+ * Results of an analysis over a projected feature model, expanded back
+ * on demand: the result of a configuration is the one of its representative
+ * if it is valid according to the original feature model, or zero otherwise.
+ */
+public class ProjectedReliabilityResults implements IReliabilityAnalysisResults {
+
+    private IReliabilityAnalysisResults representativeResults;
+    private FeatureModelProjection projection;
+
+    public ProjectedReliabilityResults(IReliabilityAnalysisResults representativeResults, FeatureModelProjection projection) {
+        this.representativeResults = representativeResults;
+        this.projection = projection;
+    }
+
+    @Override
+    public Double getResult(String[] configuration) throws UnknownFeatureException {
+        List<String> features = Arrays.asList(configuration);
+        if (!projection.isValidConfiguration(features)) {
+            return 0.0;
+        }
+        List<String> representative = projection.project(features);
+        return representativeResults.getResult(representative.toArray(new String[representative.size()]));
+    }
+
+    @Override
+    public void printStats(PrintStream output) {
+        output.println(projection);
+        representativeResults.printStats(output);
+    }
+
+}
@@ -0,0 +1,376 @@
+package tool.analyzers;
+
+import jadd.ADD;
+import jadd.ADDSerializer;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tool.PartialConfiguration;
+import tool.UnknownFeatureException;
+
+/**
+ * Immutable copy of a family reliability function (an ADD which is 0 for
+ * invalid configurations), independent from its ADD manager.
+ *
+ * CUDD managers are not thread-safe, so results kept in them cannot be read
+ * while the manager is used by another analysis. Snapshots are plain arrays
+ * of decision nodes, so any number of threads can query them concurrently
+ * and without locks, regardless of what happens to the original ADD.
+ *
+ * Besides evaluating configurations, snapshots aggregate the reliabilities
+ * of (sub-)families and rank configurations, in time linear in the number
+ * of nodes (plus the number of ranked configurations).
+ */
+public final class ReliabilitySnapshot implements IReliabilityAnalysisResults {
+
+    /**
+     * Features, in the order in which the diagram decides on them.
+     */
+    private final List<String> features;
+    private final Map<String, Integer> levels;
+    // Node i decides on the feature at level[i] (features.size() for
+    // terminals), leading to thenChild[i] or elseChild[i]. Children come
+    // before their parents, so the root is the last node.
+    private final int[] level;
+    private final int[] thenChild;
+    private final int[] elseChild;
+    private final double[] value;
+    private final Aggregate aggregate;
+
+    /**
+     * @param reliability reliability function, which is 0 for invalid configurations.
+     * @param features features of the product line, which must include every
+     *          variable {@code reliability} depends on.
+     * @throws IllegalArgumentException if {@code reliability} depends on a
+     *          variable which is not a feature.
+     */
+    public static ReliabilitySnapshot of(ADD reliability, Collection<String> features) {
+        Set<String> featureSet = new HashSet<String>(features);
+        List<String> orderedFeatures = new ArrayList<String>(features.size());
+        for (String variable: reliability.getVariableOrder()) {
+            if (featureSet.remove(variable)) {
+                orderedFeatures.add(variable);
+            }
+        }
+        // Features unknown to the manager, on which no function depends.
+        List<String> remainingFeatures = new ArrayList<String>(featureSet);
+        Collections.sort(remainingFeatures);
+        orderedFeatures.addAll(remainingFeatures);
+        return new ReliabilitySnapshot(orderedFeatures, ADDSerializer.serialize(reliability));
+    }
+
+    private ReliabilitySnapshot(List<String> features, String serializedReliability) {
+        this.features = Collections.unmodifiableList(features);
+        this.levels = new HashMap<String, Integer>();
+        for (int i = 0; i < features.size(); i++) {
+            levels.put(features.get(i), i);
+        }
+        String[] tokens = serializedReliability.split(" ");
+        this.level = new int[tokens.length];
+        this.thenChild = new int[tokens.length];
+        this.elseChild = new int[tokens.length];
+        this.value = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (token.charAt(0) == 'c') {
+                level[i] = features.size();
+                value[i] = Double.parseDouble(token.substring(1));
+            } else {
+                String[] fields = token.substring(1).split(",", 3);
+                Integer featureLevel = levels.get(fields[2]);
+                if (featureLevel == null) {
+                    throw new IllegalArgumentException("The reliability function depends on " + fields[2] + ", which is not a feature");
+                }
+                level[i] = featureLevel;
+                thenChild[i] = Integer.parseInt(fields[0]);
+                elseChild[i] = Integer.parseInt(fields[1]);
+            }
+        }
+        this.aggregate = aggregate(Collections.<String, Boolean>emptyMap());
+    }
+
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    /**
+     * @param configuration enabled features.
+     * @return the reliability of the configuration, or 0 if it is invalid.
+     * @throws UnknownFeatureException in case the configuration relies on an
+     *      unknown feature.
+     */
+    public double getReliability(Collection<String> configuration) throws UnknownFeatureException {
+        for (String feature: configuration) {
+            if (!levels.containsKey(feature)) {
+                throw new UnknownFeatureException(feature);
+            }
+        }
+        int node = root();
+        while (level[node] < features.size()) {
+            node = configuration.contains(features.get(level[node])) ? thenChild[node] : elseChild[node];
+        }
+        return value[node];
+    }
+
+    @Override
+    public Double getResult(String[] configuration) throws UnknownFeatureException {
+        return getReliability(new HashSet<String>(Arrays.asList(configuration)));
+    }
+
+    /**
+     * @return statistics of the reliabilities of all valid configurations.
+     */
+    public Aggregate aggregate() {
+        return aggregate;
+    }
+
+    /**
+     * @return statistics of the reliabilities of the valid configurations
+     *      within a sub-family.
+     * @throws UnknownFeatureException if a fixed feature is unknown.
+     */
+    public Aggregate aggregate(PartialConfiguration subFamily) {
+        for (String feature: subFamily.getFixedFeatures().keySet()) {
+            if (!levels.containsKey(feature)) {
+                throw new UnknownFeatureException(feature);
+            }
+        }
+        return subFamily.isEmpty() ? aggregate : aggregate(subFamily.getFixedFeatures());
+    }
+
+    /**
+     * Ranks the valid configurations by reliability.
+     *
+     * @param k maximum number of configurations.
+     * @param highest whether to rank the most reliable configurations first
+     *          (or the least reliable ones).
+     * @return at most k configurations, in order.
+     */
+    public List<RankedConfiguration> rank(int k, boolean highest) {
+        // Terminals by reliability, then every path to each one of them,
+        // which stands for one configuration per assignment to the
+        // features it does not decide on.
+        List<Integer> terminals = new ArrayList<Integer>();
+        for (int node = 0; node < level.length; node++) {
+            if (level[node] == features.size() && Double.doubleToRawLongBits(value[node]) != 0) {
+                terminals.add(node);
+            }
+        }
+        terminals.sort((first, second) -> highest ? Double.compare(value[second], value[first])
+                                                  : Double.compare(value[first], value[second]));
+        List<RankedConfiguration> ranking = new ArrayList<RankedConfiguration>();
+        for (int terminal: terminals) {
+            boolean[] reaches = reaching(terminal);
+            rankPaths(root(), terminal, reaches, new boolean[features.size()], new boolean[features.size()], k, ranking);
+            if (ranking.size() >= k) {
+                break;
+            }
+        }
+        return ranking;
+    }
+
+    @Override
+    public void printStats(PrintStream output) {
+        output.println("# features: " + features.size());
+        output.println("# nodes: " + level.length);
+        output.println(aggregate);
+    }
+
+    private int root() {
+        return level.length - 1;
+    }
+
+    /**
+     * Counts, sums and bounds the non-zero values over all assignments to
+     * the features which are not fixed, by dynamic programming on the nodes.
+     */
+    private Aggregate aggregate(Map<String, Boolean> fixedFeatures) {
+        // freeBelow[l] = number of free features at levels lower than l.
+        int[] freeBelow = new int[features.size() + 1];
+        for (int l = 0; l < features.size(); l++) {
+            freeBelow[l + 1] = freeBelow[l] + (fixedFeatures.containsKey(features.get(l)) ? 0 : 1);
+        }
+        double[] count = new double[level.length];
+        double[] sum = new double[level.length];
+        double[] minimum = new double[level.length];
+        double[] maximum = new double[level.length];
+        for (int node = 0; node < level.length; node++) {
+            if (level[node] == features.size()) {
+                boolean nonZero = Double.doubleToRawLongBits(value[node]) != 0;
+                count[node] = nonZero ? 1 : 0;
+                sum[node] = nonZero ? value[node] : 0;
+                minimum[node] = nonZero ? value[node] : Double.POSITIVE_INFINITY;
+                maximum[node] = nonZero ? value[node] : Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            minimum[node] = Double.POSITIVE_INFINITY;
+            maximum[node] = Double.NEGATIVE_INFINITY;
+            Boolean fixed = fixedFeatures.get(features.get(level[node]));
+            for (int branch = 0; branch < 2; branch++) {
+                boolean enabled = branch == 0;
+                if (fixed != null && fixed != enabled) {
+                    continue;
+                }
+                int child = enabled ? thenChild[node] : elseChild[node];
+                double skipped = Math.pow(2, freeBelow[level[child]] - freeBelow[level[node] + 1]);
+                count[node] += skipped * count[child];
+                sum[node] += skipped * sum[child];
+                if (count[child] > 0) {
+                    minimum[node] = Math.min(minimum[node], minimum[child]);
+                    maximum[node] = Math.max(maximum[node], maximum[child]);
+                }
+            }
+        }
+        int root = root();
+        double skipped = Math.pow(2, freeBelow[level[root]]);
+        return new Aggregate(skipped * count[root], skipped * sum[root], minimum[root], maximum[root]);
+    }
+
+    /**
+     * @return which nodes have a path to {@code terminal}.
+     */
+    private boolean[] reaching(int terminal) {
+        boolean[] reaches = new boolean[level.length];
+        reaches[terminal] = true;
+        for (int node = 0; node < level.length; node++) {
+            if (level[node] < features.size()) {
+                reaches[node] = reaches[thenChild[node]] || reaches[elseChild[node]];
+            }
+        }
+        return reaches;
+    }
+
+    /**
+     * Adds the configurations of the paths from {@code node} to
+     * {@code terminal} to the ranking, until it has k configurations.
+     *
+     * @param decided features decided on by the current path.
+     * @param enabled values of the decided features.
+     */
+    private void rankPaths(int node, int terminal, boolean[] reaches, boolean[] decided, boolean[] enabled, int k, List<RankedConfiguration> ranking) {
+        if (ranking.size() >= k || !reaches[node]) {
+            return;
+        }
+        if (node == terminal) {
+            expandFreeFeatures(0, decided, enabled, value[node], k, ranking);
+            return;
+        }
+        int featureLevel = level[node];
+        decided[featureLevel] = true;
+        enabled[featureLevel] = true;
+        rankPaths(thenChild[node], terminal, reaches, decided, enabled, k, ranking);
+        enabled[featureLevel] = false;
+        rankPaths(elseChild[node], terminal, reaches, decided, enabled, k, ranking);
+        decided[featureLevel] = false;
+    }
+
+    private void expandFreeFeatures(int fromLevel, boolean[] decided, boolean[] enabled, double reliability, int k, List<RankedConfiguration> ranking) {
+        if (ranking.size() >= k) {
+            return;
+        }
+        int freeLevel = fromLevel;
+        while (freeLevel < features.size() && decided[freeLevel]) {
+            freeLevel++;
+        }
+        if (freeLevel == features.size()) {
+            List<String> configuration = new ArrayList<String>();
+            for (int l = 0; l < features.size(); l++) {
+                if (enabled[l]) {
+                    configuration.add(features.get(l));
+                }
+            }
+            ranking.add(new RankedConfiguration(configuration, reliability));
+            return;
+        }
+        decided[freeLevel] = true;
+        enabled[freeLevel] = true;
+        expandFreeFeatures(freeLevel + 1, decided, enabled, reliability, k, ranking);
+        enabled[freeLevel] = false;
+        expandFreeFeatures(freeLevel + 1, decided, enabled, reliability, k, ranking);
+        decided[freeLevel] = false;
+    }
+
+    /**
+     * Statistics of the reliabilities of a set of valid configurations.
+     */
+    public static final class Aggregate {
+        private final double configurationsNumber;
+        private final double sum;
+        private final double minimum;
+        private final double maximum;
+
+        private Aggregate(double configurationsNumber, double sum, double minimum, double maximum) {
+            this.configurationsNumber = configurationsNumber;
+            this.sum = sum;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        public double getConfigurationsNumber() {
+            return configurationsNumber;
+        }
+
+        /**
+         * @return the least reliability, or NaN if there are no configurations.
+         */
+        public double getMinimum() {
+            return (configurationsNumber > 0) ? minimum : Double.NaN;
+        }
+
+        /**
+         * @return the greatest reliability, or NaN if there are no configurations.
+         */
+        public double getMaximum() {
+            return (configurationsNumber > 0) ? maximum : Double.NaN;
+        }
+
+        /**
+         * @return the mean reliability, or NaN if there are no configurations.
+         */
+        public double getMean() {
+            return (configurationsNumber > 0) ? sum / configurationsNumber : Double.NaN;
+        }
+
+        @Override
+        public String toString() {
+            return configurationsNumber + " valid configurations; reliability min = " + getMinimum()
+                    + ", max = " + getMaximum() + ", mean = " + getMean();
+        }
+    }
+
+    public static final class RankedConfiguration {
+        private final List<String> configuration;
+        private final double reliability;
+
+        private RankedConfiguration(List<String> configuration, double reliability) {
+            this.configuration = Collections.unmodifiableList(configuration);
+            this.reliability = reliability;
+        }
+
+        /**
+         * @return the enabled features.
+         */
+        public List<String> getConfiguration() {
+            return configuration;
+        }
+
+        public double getReliability() {
+            return reliability;
+        }
+
+        @Override
+        public String toString() {
+            return configuration + " --> " + reliability;
+        }
+    }
+
+}
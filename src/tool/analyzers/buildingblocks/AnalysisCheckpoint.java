@@ -0,0 +1,301 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.ADDSerializer;
+import jadd.JADD;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import tool.RdgDag;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaSerializer;
+import fdtmc.StructuralHash;
+
+/**
+ * Checkpoint of long analyses in a directory, so that an analysis which
+ * was interrupted (e.g., by a crash or by running out of memory) can be
+ * resumed without redoing what was finished.
+ *
+ * Results are written as soon as they are available:
+ * <ul>
+ * <li>the expression of each model checked node, in
+ *     {@code expressions/<fingerprint>.formula} (see {@link FormulaSerializer});</li>
+ * <li>the reliability function of each solved node, in
+ *     {@code reliabilities/<fingerprint>.add} (binary, see {@link ADDSerializer#toBytes(ADD)});</li>
+ * <li>the reliabilities of each batch of configurations analyzed by a
+ *     product-based strategy, in {@code batches/<fingerprint>.txt}.</li>
+ * </ul>
+ * Entries are named after the fingerprints of everything they depend on
+ * (as in {@link IncrementalCache}), so entries of other models or settings
+ * are never reused, and a checkpoint directory can be shared by any number
+ * of consecutive analyses.
+ *
+ * Files are written by a single background thread, so that the analysis
+ * never waits for the disk. Each file is written under a temporary name
+ * and then renamed, so an interrupted write never leaves a truncated entry.
+ * Failing to write an entry is logged, but does not fail the analysis.
+ */
+public class AnalysisCheckpoint implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(AnalysisCheckpoint.class.getName());
+
+    private static final String EXPRESSIONS = "expressions";
+    private static final String RELIABILITIES = "reliabilities";
+    private static final String BATCHES = "batches";
+
+    private final Path directory;
+    private final boolean resume;
+    private final ExecutorService writer;
+    private final AtomicInteger writtenEntries = new AtomicInteger();
+    private final AtomicInteger failedWrites = new AtomicInteger();
+
+    /**
+     * @param directory directory of the checkpoint, created if needed.
+     * @param resume whether to reuse the entries already in the directory.
+     *          Otherwise, they are overwritten as the analysis goes.
+     * @throws IOException if the directory cannot be created.
+     */
+    public AnalysisCheckpoint(Path directory, boolean resume) throws IOException {
+        this.directory = directory;
+        this.resume = resume;
+        Files.createDirectories(directory.resolve(EXPRESSIONS));
+        Files.createDirectories(directory.resolve(RELIABILITIES));
+        Files.createDirectories(directory.resolve(BATCHES));
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isResuming() {
+        return resume;
+    }
+
+    /**
+     * Starts the feature-family-based analysis of the given RDG.
+     *
+     * @param context fingerprint of the settings which the reliability
+     *          functions depend on, besides the RDG itself (feature model,
+     *          pruning strategy, partial configuration, etc.).
+     * @param jadd manager in which to rebuild the checkpointed reliability functions.
+     */
+    public Analysis startAnalysis(RdgDag dag, long context, JADD jadd) {
+        return new Analysis(dag, context, jadd);
+    }
+
+    /**
+     * Fingerprint of a batch of configurations, to be analyzed by the given
+     * strategy over an RDG with the given fingerprint (see
+     * {@link IncrementalCache#fingerprint(RdgDag)}).
+     */
+    public static long fingerprint(long rdgFingerprint, String strategy, List<? extends Collection<String>> batch) {
+        long h = StructuralHash.mix(rdgFingerprint, StructuralHash.of(strategy));
+        for (Collection<String> configuration: batch) {
+            List<String> features = new ArrayList<String>(configuration);
+            features.sort(null);
+            h = StructuralHash.mix(h, StructuralHash.of(String.join(",", features)));
+        }
+        return h;
+    }
+
+    /**
+     * @return the reliabilities of the batch of configurations with the
+     *      given fingerprint, in the order of the batch, or null if it has
+     *      to be analyzed (again).
+     */
+    public double[] getBatch(long fingerprint, int size) {
+        String contents = read(BATCHES, fingerprint, ".txt");
+        if (contents == null) {
+            return null;
+        }
+        String[] lines = contents.split("\n");
+        if (lines.length != size) {
+            LOGGER.warning("Ignoring malformed checkpoint entry " + fileName(fingerprint, ".txt"));
+            return null;
+        }
+        double[] reliabilities = new double[size];
+        try {
+            for (int i = 0; i < size; i++) {
+                reliabilities[i] = Double.parseDouble(lines[i]);
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring malformed checkpoint entry " + fileName(fingerprint, ".txt"));
+            return null;
+        }
+        return reliabilities;
+    }
+
+    public void putBatch(long fingerprint, double[] reliabilities) {
+        StringBuilder contents = new StringBuilder();
+        for (double reliability: reliabilities) {
+            contents.append(Double.toHexString(reliability)).append('\n');
+        }
+        write(BATCHES, fingerprint, ".txt", contents.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits for the pending writes to finish and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            while (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.info("Waiting for the checkpoint to be written...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Checkpoint at " + directory + ": " + writtenEntries.get() + " entries written, "
+                + failedWrites.get() + " failed.");
+    }
+
+    /**
+     * @return the contents of an entry, or null if there is no such entry
+     *      or the checkpoint is not being resumed.
+     */
+    private String read(String kind, long fingerprint, String extension) {
+        byte[] bytes = readBytes(kind, fingerprint, extension);
+        return (bytes != null) ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private byte[] readBytes(String kind, long fingerprint, String extension) {
+        if (!resume) {
+            return null;
+        }
+        Path file = directory.resolve(kind).resolve(fileName(fingerprint, extension));
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warning("Error reading checkpoint entry " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedules the writing of an entry. The contents must be serialized
+     * beforehand, since neither formulas nor ADDs are to be shared with
+     * the writer thread.
+     */
+    private void write(String kind, long fingerprint, String extension, byte[] contents) {
+        Path file = directory.resolve(kind).resolve(fileName(fingerprint, extension));
+        writer.execute(() -> {
+            Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.write(temporaryFile, contents);
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                writtenEntries.incrementAndGet();
+            } catch (IOException e) {
+                failedWrites.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Error writing checkpoint entry " + file, e);
+            }
+        });
+    }
+
+    private static String fileName(long fingerprint, String extension) {
+        return String.format("%016x", fingerprint) + extension;
+    }
+
+    /**
+     * A single feature-family-based analysis of an RDG, whose per-node
+     * results are checkpointed as they are computed. It must be used by
+     * a single thread.
+     */
+    public class Analysis {
+        private final JADD jadd;
+        private final long[] modelFingerprints;
+        private final long[] reliabilityFingerprints;
+        private int resumedExpressions;
+        private int resumedReliabilities;
+
+        private Analysis(RdgDag dag, long context, JADD jadd) {
+            this.jadd = jadd;
+            this.modelFingerprints = new long[dag.size()];
+            this.reliabilityFingerprints = new long[dag.size()];
+            IncrementalCache.fingerprint(dag, modelFingerprints, reliabilityFingerprints);
+            for (int id = 0; id < dag.size(); id++) {
+                reliabilityFingerprints[id] = StructuralHash.mix(reliabilityFingerprints[id], context);
+            }
+        }
+
+        /**
+         * @return the checkpointed expression of node {@code id},
+         *      or null if its model must be checked.
+         */
+        public Formula getExpression(int id) {
+            String serialized = read(EXPRESSIONS, modelFingerprints[id], ".formula");
+            if (serialized == null) {
+                return null;
+            }
+            try {
+                Formula expression = FormulaSerializer.deserialize(serialized);
+                resumedExpressions++;
+                return expression;
+            } catch (IOException e) {
+                LOGGER.warning("Ignoring malformed checkpoint entry " + fileName(modelFingerprints[id], ".formula"));
+                return null;
+            }
+        }
+
+        /**
+         * @return the checkpointed reliability function of node {@code id},
+         *      or null if it must be solved.
+         */
+        public ADD getReliability(int id) {
+            byte[] serialized = readBytes(RELIABILITIES, reliabilityFingerprints[id], ".add");
+            if (serialized == null) {
+                return null;
+            }
+            try {
+                ADD reliability = ADDSerializer.fromBytes(jadd, serialized);
+                resumedReliabilities++;
+                return reliability;
+            } catch (IOException e) {
+                LOGGER.warning("Ignoring malformed checkpoint entry " + fileName(reliabilityFingerprints[id], ".add"));
+                return null;
+            }
+        }
+
+        public void putExpression(int id, Formula expression) {
+            write(EXPRESSIONS,
+                  modelFingerprints[id],
+                  ".formula",
+                  FormulaSerializer.serialize(expression).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void putReliability(int id, ADD reliability) {
+            // ADD managers are not thread-safe, so the writer only gets the bytes.
+            write(RELIABILITIES, reliabilityFingerprints[id], ".add", ADDSerializer.toBytes(reliability));
+        }
+
+        public void finish() {
+            if (resume) {
+                LOGGER.info("Resumed " + resumedExpressions + " expressions and "
+                        + resumedReliabilities + " reliability functions from the checkpoint.");
+            }
+        }
+    }
+
+}
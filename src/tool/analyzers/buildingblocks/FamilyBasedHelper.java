@@ -3,6 +3,7 @@ package tool.analyzers.buildingblocks;
 import jadd.ADD;
 import expressionsolver.Expression;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
 
 /**
  * Helper for lifting of expressions in *-family-*-based strategies.
@@ -15,11 +16,11 @@ public class FamilyBasedHelper {
         this.expressionSolver = expressionSolver;
     }
 
-    public Expression<ADD> lift(String expression) {
-        return expressionSolver.parseExpressionForFunctions(expression);
+    public Expression<ADD> lift(Formula expression) {
+        return expressionSolver.compileExpressionForFunctions(expression);
     }
 
-    public Component<Expression<ADD>> lift(Component<String> expression) {
+    public Component<Expression<ADD>> lift(Component<Formula> expression) {
         return expression.fmap(this::lift);
     }
 
@@ -0,0 +1,240 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.ADDSerializer;
+import jadd.JADD;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Un-pruned family reliability function of an RDG, kept along with the
+ * feature model it was analyzed under, so that an evolution of the feature
+ * model alone does not require analyzing the RDG again.
+ *
+ * Without pruning, the reliability functions of the RDG nodes only depend
+ * on presence conditions and models, and the feature model is only applied
+ * at the end (multiplying it by the root's reliability function). Thus, if
+ * the RDG is the same (as told by {@link IncrementalCache#fingerprint(tool.RdgDag)}),
+ * the previous root reliability function can be multiplied by the new
+ * feature model.
+ *
+ * ADDs are kept in serialized form (referring to variables by name), so a
+ * snapshot can be saved to a file and reused in another run or by another
+ * {@link JADD}.
+ */
+public class FamilyReliabilitySnapshot {
+    private static final Logger LOGGER = Logger.getLogger(FamilyReliabilitySnapshot.class.getName());
+
+    private static final String HEADER = "# ReAna family reliability snapshot v1";
+
+    private long rdgFingerprint;
+    private String featureModel;
+    private String reliability;
+    private Evolution lastEvolution;
+
+    /**
+     * Loads a snapshot saved by {@link #save(Path)}.
+     *
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static FamilyReliabilitySnapshot load(Path file) throws IOException {
+        FamilyReliabilitySnapshot snapshot = new FamilyReliabilitySnapshot();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a family reliability snapshot file: " + file);
+            }
+            String fingerprint = reader.readLine();
+            snapshot.featureModel = reader.readLine();
+            snapshot.reliability = reader.readLine();
+            if (fingerprint == null || snapshot.featureModel == null || snapshot.reliability == null) {
+                throw new IOException("Truncated family reliability snapshot file: " + file);
+            }
+            snapshot.rdgFingerprint = Long.parseUnsignedLong(fingerprint, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed family reliability snapshot file: " + file, e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Saves the last recorded analysis, if any.
+     */
+    public synchronized void save(Path file) throws IOException {
+        if (isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(Long.toHexString(rdgFingerprint));
+            writer.newLine();
+            writer.write(featureModel);
+            writer.newLine();
+            writer.write(reliability);
+            writer.newLine();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return reliability == null;
+    }
+
+    /**
+     * @return the un-pruned reliability function of the RDG's root, rebuilt
+     *      in {@code jadd}, or null if the snapshot is not of the RDG with
+     *      the given fingerprint.
+     */
+    public synchronized ADD getReliability(JADD jadd, long rdgFingerprint) {
+        if (isEmpty() || this.rdgFingerprint != rdgFingerprint) {
+            return null;
+        }
+        try {
+            return ADDSerializer.deserialize(jadd, reliability);
+        } catch (IOException e) {
+            LOGGER.warning("Discarding unreadable family reliability: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the snapshot with a new analysis, comparing its feature
+     * model to the previous one.
+     *
+     * @param reused whether {@code reliability} was taken from this snapshot.
+     */
+    public synchronized Evolution record(JADD jadd, long rdgFingerprint, ADD featureModel, ADD reliability, boolean reused) {
+        ADD previousFeatureModel = null;
+        if (this.featureModel != null) {
+            try {
+                previousFeatureModel = ADDSerializer.deserialize(jadd, this.featureModel);
+            } catch (IOException e) {
+                LOGGER.warning("Discarding unreadable feature model: " + e.getMessage());
+            }
+        }
+        lastEvolution = new Evolution(jadd, previousFeatureModel, featureModel, reused);
+
+        this.rdgFingerprint = rdgFingerprint;
+        this.featureModel = ADDSerializer.serialize(featureModel);
+        this.reliability = ADDSerializer.serialize(reliability);
+        LOGGER.info(lastEvolution.toString());
+        return lastEvolution;
+    }
+
+    /**
+     * @return the comparison made by the last call to {@link #record},
+     *      or null if there was none.
+     */
+    public synchronized Evolution getLastEvolution() {
+        return lastEvolution;
+    }
+
+    /**
+     * Change of the feature model between two analyses, in terms of numbers
+     * of valid configurations (overall and with each feature enabled),
+     * counted over the features of both feature models.
+     */
+    public static class Evolution {
+        private final boolean reused;
+        private final boolean hasPrevious;
+        private final double previousConfigurations;
+        private final double currentConfigurations;
+        // Feature -> {previous, current} number of valid configurations with it.
+        private final SortedMap<String, double[]> changedFeatures = new TreeMap<String, double[]>();
+
+        private Evolution(JADD jadd, ADD previous, ADD current, boolean reused) {
+            this.reused = reused;
+            this.hasPrevious = previous != null;
+            Set<String> features = new HashSet<String>(current.getVariables());
+            if (hasPrevious) {
+                features.addAll(previous.getVariables());
+            }
+            this.currentConfigurations = current.getNonZeroAssignmentsCount(features.size());
+            if (!hasPrevious) {
+                this.previousConfigurations = 0;
+                return;
+            }
+            this.previousConfigurations = previous.getNonZeroAssignmentsCount(features.size());
+            for (String feature: features) {
+                ADD enabled = jadd.getVariable(feature);
+                double before = previous.times(enabled).getNonZeroAssignmentsCount(features.size());
+                double after = current.times(enabled).getNonZeroAssignmentsCount(features.size());
+                if (before != after) {
+                    changedFeatures.put(feature, new double[]{before, after});
+                }
+            }
+        }
+
+        /**
+         * @return whether the family reliability function was reused, i.e.,
+         *      only the feature model was applied again.
+         */
+        public boolean isReliabilityReused() {
+            return reused;
+        }
+
+        /**
+         * @return whether there was a previous analysis to compare to.
+         */
+        public boolean hasPrevious() {
+            return hasPrevious;
+        }
+
+        public double getPreviousConfigurationsNumber() {
+            return previousConfigurations;
+        }
+
+        public double getCurrentConfigurationsNumber() {
+            return currentConfigurations;
+        }
+
+        /**
+         * @return the features whose numbers of valid configurations changed,
+         *      mapped to their previous and current numbers.
+         */
+        public Map<String, double[]> getChangedFeatures() {
+            return Collections.unmodifiableMap(changedFeatures);
+        }
+
+        public void print(PrintStream out) {
+            out.println("Feature model evolution:");
+            out.println("    Family reliability function reused: " + reused);
+            if (!hasPrevious) {
+                out.println("    Valid configurations: " + format(currentConfigurations) + " (no previous feature model)");
+                return;
+            }
+            out.println("    Valid configurations: " + format(previousConfigurations)
+                    + " -> " + format(currentConfigurations));
+            for (Map.Entry<String, double[]> feature: changedFeatures.entrySet()) {
+                out.println("    " + feature.getKey() + ": "
+                        + format(feature.getValue()[0]) + " -> " + format(feature.getValue()[1]));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Feature model evolution: family reliability function "
+                    + (reused ? "reused" : "computed") + ", "
+                    + (hasPrevious ? format(previousConfigurations) + " -> " : "")
+                    + format(currentConfigurations) + " valid configurations, "
+                    + changedFeatures.size() + " features changed";
+        }
+
+        private static String format(double count) {
+            return String.format("%.0f", count);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import tool.RDGNode;
+import tool.RdgDag;
+import tool.UnknownFeatureException;
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Feature supports of the nodes of an RDG, i.e., the features of each
+ * node's presence condition and of the ones of the nodes it (transitively)
+ * depends on.
+ *
+ * Whatever is derived for a node from a configuration (e.g., its model or
+ * its reliability) only depends on the projection of the configuration onto
+ * the node's support, so projections can be used as memoization keys shared
+ * by all configurations which agree on the features of the node's subtree.
+ *
+ * Presence conditions are encoded once, so evaluating them creates no ADDs
+ * and can be done concurrently.
+ */
+public class FeatureSupports {
+
+    private final Map<String, Integer> featureIndices = new HashMap<String, Integer>();
+    private final ADD[] presenceConditions;
+    private final BitSet[] supports;
+
+    public FeatureSupports(RdgDag dag, ExpressionSolver expressionSolver) {
+        presenceConditions = new ADD[dag.size()];
+        supports = new BitSet[dag.size()];
+        Map<String, ADD> encodedPresenceConditions = new HashMap<String, ADD>();
+        for (int id = 0; id < dag.size(); id++) {
+            RDGNode node = dag.getNode(id);
+            presenceConditions[id] = encodedPresenceConditions.computeIfAbsent(node.getPresenceCondition(),
+                                                                               expressionSolver::encodeFormula);
+            supports[id] = new BitSet();
+            for (String feature: presenceConditions[id].getVariables()) {
+                supports[id].set(featureIndices.computeIfAbsent(feature, f -> featureIndices.size()));
+            }
+            // Dependencies come first, so their supports are complete.
+            for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                supports[id].or(supports[dag.getDependency(id, i)]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of features referenced by the RDG.
+     */
+    public int getFeaturesNumber() {
+        return featureIndices.size();
+    }
+
+    /**
+     * @return the number of features in the support of node {@code id}.
+     */
+    public int getSupportSize(int id) {
+        return supports[id].cardinality();
+    }
+
+    /**
+     * @return the features of {@code configuration} which are referenced
+     *      by the RDG, as a set of feature indices.
+     */
+    public BitSet getEnabledFeatures(Collection<String> configuration) {
+        BitSet enabled = new BitSet(featureIndices.size());
+        for (String feature: configuration) {
+            Integer index = featureIndices.get(feature);
+            if (index != null) {
+                enabled.set(index);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * @param enabledFeatures as returned by {@link #getEnabledFeatures(Collection)}.
+     * @return the projection of the enabled features onto the support of node {@code id}.
+     */
+    public BitSet project(int id, BitSet enabledFeatures) {
+        BitSet projection = (BitSet) enabledFeatures.clone();
+        projection.and(supports[id]);
+        return projection;
+    }
+
+    /**
+     * @param configuration all enabled features.
+     * @throws UnknownFeatureException if the configuration has a feature
+     *      no presence condition or feature model ever referred to.
+     */
+    public boolean isPresent(int id, String[] configuration) throws UnknownFeatureException {
+        try {
+            return Double.compare(presenceConditions[id].eval(configuration), 1.0) == 0;
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package tool.analyzers.buildingblocks;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Orders configurations by the position of their projections onto the
+ * relevant features (see {@link FeatureSupports}) in the reflected binary
+ * Gray code, so that successive configurations differ in as few relevant
+ * features as possible (exactly one, if all of them are valid).
+ *
+ * Configurations with the same projection end up next to each other.
+ */
+public class GrayCodeOrder {
+
+    private GrayCodeOrder() {
+        // NO-OP
+    }
+
+    public static List<Collection<String>> sort(Stream<Collection<String>> configurations, FeatureSupports supports) {
+        Comparator<Ranked> byRank = (first, second) -> compareRanks(first.rank, second.rank);
+        return configurations
+                .map(configuration -> new Ranked(configuration, rank(supports.getEnabledFeatures(configuration))))
+                .sorted(byRank)
+                .map(ranked -> ranked.configuration)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Converts a Gray code word into its position in the code, i.e., each
+     * bit of the position is the parity of the word's bits at or above it.
+     */
+    static BitSet rank(BitSet word) {
+        BitSet rank = new BitSet(word.length());
+        boolean parity = false;
+        for (int i = word.length() - 1; i >= 0; i--) {
+            parity ^= word.get(i);
+            if (parity) {
+                rank.set(i);
+            }
+        }
+        return rank;
+    }
+
+    private static int compareRanks(BitSet first, BitSet second) {
+        BitSet difference = (BitSet) first.clone();
+        difference.xor(second);
+        int highest = difference.length() - 1;
+        if (highest < 0) {
+            return 0;
+        }
+        return first.get(highest) ? 1 : -1;
+    }
+
+    private static class Ranked {
+        private final Collection<String> configuration;
+        private final BitSet rank;
+
+        public Ranked(Collection<String> configuration, BitSet rank) {
+            this.configuration = configuration;
+            this.rank = rank;
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package tool.analyzers.buildingblocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import paramwrapper.ModelMetrics;
+import tool.RDGNode;
+import tool.RdgDag;
+
+/**
+ * Partitions an RDG into regions to be analyzed as a whole, by a single
+ * model checking of their 150% models, and nodes to be analyzed on their
+ * own (feature-based).
+ *
+ * A region is a node (its root) plus some of its descendants which no node
+ * outside the region depends on, so that collapsing them does not change
+ * what the rest of the RDG sees. Regions are grown top-down and greedily, as
+ * long as the 150% model stays small and has few presence variables: the
+ * former bounds the cost of model checking it, and the latter the growth of
+ * the resulting (parametric) expression. This favors many tiny optional
+ * fragments under one parent, whose separate model checking would be
+ * dominated by per-model overhead.
+ */
+public class HybridPartitioner {
+
+    public static final int DEFAULT_MAX_MODEL_SIZE = 300;
+    public static final int DEFAULT_MAX_PRESENCE_VARIABLES = 4;
+
+    private final int maxModelSize;
+    private final int maxPresenceVariables;
+
+    public HybridPartitioner() {
+        this(DEFAULT_MAX_MODEL_SIZE, DEFAULT_MAX_PRESENCE_VARIABLES);
+    }
+
+    /**
+     * @param maxModelSize maximum number of states plus transitions of a region's 150% model.
+     * @param maxPresenceVariables maximum number of distinct presence conditions
+     *          in a region (besides the root's).
+     */
+    public HybridPartitioner(int maxModelSize, int maxPresenceVariables) {
+        this.maxModelSize = maxModelSize;
+        this.maxPresenceVariables = maxPresenceVariables;
+    }
+
+    public Partition partition(RdgDag dag) {
+        int[] owners = new int[dag.size()];
+        Arrays.fill(owners, -1);
+        Map<Integer, List<Integer>> regions = new HashMap<Integer, List<Integer>>();
+        // Dependents come after their dependencies, so regions are grown
+        // from the top and every candidate member has its dependents decided.
+        for (int root = dag.size() - 1; root >= 0; root--) {
+            if (owners[root] != -1) {
+                continue;
+            }
+            owners[root] = root;
+            List<Integer> members = grow(dag, root, owners);
+            if (members.size() > 1) {
+                regions.put(root, members);
+            }
+        }
+        return new Partition(dag, owners, regions);
+    }
+
+    /**
+     * @return the members of the region rooted at {@code root}, in topological order.
+     */
+    private List<Integer> grow(RdgDag dag, int root, int[] owners) {
+        int modelSize = size(dag.getNode(root));
+        Set<String> presenceConditions = new HashSet<String>();
+        List<Integer> members = new ArrayList<Integer>();
+        members.add(root);
+        for (int id: getDescendants(dag, root)) {
+            if (owners[id] != -1 || !isExclusive(dag, id, root, owners)) {
+                continue;
+            }
+            RDGNode node = dag.getNode(id);
+            // Presence decoration adds a state and two transitions.
+            int grownSize = modelSize + size(node) + 3;
+            boolean newPresenceCondition = !presenceConditions.contains(node.getPresenceCondition());
+            int presenceVariables = presenceConditions.size() + (newPresenceCondition ? 1 : 0);
+            if (grownSize <= maxModelSize && presenceVariables <= maxPresenceVariables) {
+                owners[id] = root;
+                members.add(id);
+                modelSize = grownSize;
+                presenceConditions.add(node.getPresenceCondition());
+            }
+        }
+        Collections.reverse(members);
+        return members;
+    }
+
+    /**
+     * @return whether all nodes which depend on {@code id} are in the region of {@code root}.
+     */
+    private static boolean isExclusive(RdgDag dag, int id, int root, int[] owners) {
+        for (int i = 0; i < dag.getDependentsNumber(id); i++) {
+            if (owners[dag.getDependent(id, i)] != root) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the ids of the (transitive) dependencies of {@code root}, dependents first.
+     */
+    private static List<Integer> getDescendants(RdgDag dag, int root) {
+        boolean[] visited = new boolean[root];
+        List<Integer> pending = new ArrayList<Integer>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            int id = pending.remove(pending.size() - 1);
+            for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                int dependency = dag.getDependency(id, i);
+                if (!visited[dependency]) {
+                    visited[dependency] = true;
+                    pending.add(dependency);
+                }
+            }
+        }
+        List<Integer> descendants = new ArrayList<Integer>();
+        for (int id = root - 1; id >= 0; id--) {
+            if (visited[id]) {
+                descendants.add(id);
+            }
+        }
+        return descendants;
+    }
+
+    private static int size(RDGNode node) {
+        ModelMetrics metrics = ModelMetrics.of(node.getFDTMC());
+        return metrics.getStates() + metrics.getTransitions();
+    }
+
+    /**
+     * Result of partitioning an RDG.
+     */
+    public static class Partition {
+        private final RdgDag dag;
+        private final int[] owners;
+        private final Map<Integer, List<Integer>> regions;
+
+        Partition(RdgDag dag, int[] owners, Map<Integer, List<Integer>> regions) {
+            this.dag = dag;
+            this.owners = owners;
+            this.regions = regions;
+        }
+
+        /**
+         * @return the root of the region node {@code id} is collapsed into,
+         *      or {@code id} itself if it is analyzed on its own (or is a
+         *      region's root).
+         */
+        public int getOwner(int id) {
+            return owners[id];
+        }
+
+        public boolean isRegionRoot(int id) {
+            return regions.containsKey(id);
+        }
+
+        /**
+         * @return the members of the region rooted at {@code root}, in
+         *      topological order (thus ending with the root), or just
+         *      the root if it is not collapsed with any other node.
+         */
+        public List<Integer> getMembers(int root) {
+            List<Integer> members = regions.get(root);
+            return (members != null) ? members : Collections.singletonList(root);
+        }
+
+        /**
+         * @return the ids of the nodes outside the region of {@code root}
+         *      on which its members depend.
+         */
+        public List<Integer> getBoundary(int root) {
+            Set<Integer> boundary = new HashSet<Integer>();
+            for (int member: getMembers(root)) {
+                for (int i = 0; i < dag.getDependenciesNumber(member); i++) {
+                    int dependency = dag.getDependency(member, i);
+                    if (owners[dependency] != root) {
+                        boundary.add(dependency);
+                    }
+                }
+            }
+            List<Integer> sorted = new ArrayList<Integer>(boundary);
+            Collections.sort(sorted);
+            return sorted;
+        }
+
+        public int getRegionsNumber() {
+            return regions.size();
+        }
+
+        /**
+         * @return the number of nodes which are not model checked on their own.
+         */
+        public int getCollapsedNodesNumber() {
+            int collapsed = 0;
+            for (List<Integer> members: regions.values()) {
+                collapsed += members.size() - 1;
+            }
+            return collapsed;
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import tool.RDGNode;
+import tool.RdgDag;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaSerializer;
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+import fdtmc.StructuralHash;
+
+/**
+ * Results of a previous analysis (per-node reliability expressions and
+ * reliability functions), kept so that a re-analysis after an edit of the
+ * behavioral models only recomputes what the edit affected.
+ *
+ * Entries are keyed by node id and validated by fingerprints:
+ * <ul>
+ * <li>an expression is reused if the node's model is the same, since it
+ *     only depends on the model;</li>
+ * <li>a reliability function is reused if the node's model, presence
+ *     condition and dependencies (recursively) are the same.</li>
+ * </ul>
+ * Thus, editing a model leads to checking it again and to solving it
+ * and its ancestors again, but nothing else.
+ *
+ * Expressions can be saved to and loaded from a file. Reliability functions
+ * (ADDs) cannot, so they are only reused by the analyzer which computed them,
+ * under the same feature model and pruning strategy.
+ */
+public class IncrementalCache {
+    private static final Logger LOGGER = Logger.getLogger(IncrementalCache.class.getName());
+
+    private static final String HEADER = "# ReAna incremental cache v1";
+
+    private Map<String, Entry> entries = new HashMap<String, Entry>();
+    private Report lastReport;
+
+    /**
+     * Loads the expressions saved by {@link #save(Path)}.
+     *
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static IncrementalCache load(Path file) throws IOException {
+        IncrementalCache cache = new IncrementalCache();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Not an incremental cache file: " + file);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length != 3) {
+                    throw new IOException("Malformed incremental cache entry: " + line);
+                }
+                Entry entry = new Entry();
+                entry.modelFingerprint = Long.parseUnsignedLong(fields[1], 16);
+                entry.expression = FormulaSerializer.deserialize(fields[2]);
+                cache.entries.put(fields[0], entry);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed incremental cache file: " + file, e);
+        }
+        return cache;
+    }
+
+    /**
+     * Saves the expressions of the last analysis.
+     */
+    public synchronized void save(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry: entries.entrySet()) {
+                if (entry.getValue().expression == null) {
+                    continue;
+                }
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(Long.toHexString(entry.getValue().modelFingerprint));
+                writer.write('\t');
+                writer.write(FormulaSerializer.serialize(entry.getValue().expression));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Forgets all reliability functions (e.g., because they were computed
+     * under a different pruning strategy), but keeps the expressions.
+     */
+    public synchronized void clearReliabilities() {
+        for (Entry entry: entries.values()) {
+            entry.reliability = null;
+        }
+    }
+
+    /**
+     * Starts the (re-)analysis of the given RDG. Entries for nodes which
+     * are not part of it are discarded once the analysis is finished.
+     */
+    public synchronized Analysis startAnalysis(RdgDag dag) {
+        return new Analysis(dag);
+    }
+
+    /**
+     * @return what was reused and recomputed by the last analysis,
+     *      or null if there was none.
+     */
+    public synchronized Report getLastReport() {
+        return lastReport;
+    }
+
+    private synchronized void finish(Analysis analysis) {
+        Map<String, Entry> updated = new HashMap<String, Entry>();
+        for (int id = 0; id < analysis.dag.size(); id++) {
+            Entry entry = new Entry();
+            entry.modelFingerprint = analysis.modelFingerprints[id];
+            entry.expression = analysis.expressions[id];
+            entry.reliabilityFingerprint = analysis.reliabilityFingerprints[id];
+            entry.reliability = analysis.reliabilities[id];
+            updated.put(analysis.dag.getNode(id).getId(), entry);
+        }
+        entries = updated;
+        lastReport = analysis.report;
+    }
+
+    /**
+     * Fingerprint of everything the reliability function of the RDG's root
+     * depends on, under a given feature model and pruning strategy: the
+     * presence conditions, models and ids of all of its nodes.
+     */
+    public static long fingerprint(RdgDag dag) {
+        long[] modelFingerprints = new long[dag.size()];
+        long[] reliabilityFingerprints = new long[dag.size()];
+        fingerprint(dag, modelFingerprints, reliabilityFingerprints);
+        return reliabilityFingerprints[dag.size() - 1];
+    }
+
+    static void fingerprint(RdgDag dag, long[] modelFingerprints, long[] reliabilityFingerprints) {
+        // Dependencies come first in topological order.
+        for (int id = 0; id < dag.size(); id++) {
+            RDGNode node = dag.getNode(id);
+            modelFingerprints[id] = fingerprint(node.getFDTMC());
+            long[] dependencyFingerprints = new long[dag.getDependenciesNumber(id)];
+            for (int i = 0; i < dependencyFingerprints.length; i++) {
+                dependencyFingerprints[i] = reliabilityFingerprints[dag.getDependency(id, i)];
+            }
+            Arrays.sort(dependencyFingerprints);
+            // Ids matter, since expressions refer to dependencies by id.
+            long h = StructuralHash.mix(StructuralHash.of(node.getId()), modelFingerprints[id]);
+            h = StructuralHash.mix(h, StructuralHash.of(node.getPresenceCondition()));
+            for (long dependencyFingerprint: dependencyFingerprints) {
+                h = StructuralHash.mix(h, dependencyFingerprint);
+            }
+            reliabilityFingerprints[id] = h;
+        }
+    }
+
+    /**
+     * Fingerprint of everything in a model which the expression obtained
+     * from it depends on. The structural hash does not distinguish symbolic
+     * probabilities and interface ids, which appear in the expression.
+     */
+    private static long fingerprint(FDTMC fdtmc) {
+        if (fdtmc == null) {
+            return 0;
+        }
+        CompactFDTMC model = fdtmc.compact();
+        long h = StructuralHash.mix(model.getStructuralHash(), StructuralHash.of(model.getVariableName()));
+        for (int probability = 0; probability < model.getProbabilitiesNumber(); probability++) {
+            h = StructuralHash.mix(h, StructuralHash.of(model.getProbabilityExpression(probability)));
+        }
+        for (int transition = 0; transition < model.getTransitionsNumber(); transition++) {
+            h = StructuralHash.mix(h, model.getProbabilityId(transition));
+        }
+        for (int occurrence = 0; occurrence < model.getInterfacesNumber(); occurrence++) {
+            h = StructuralHash.mix(h, StructuralHash.of(model.getInterfaceId(occurrence)));
+        }
+        return h;
+    }
+
+    /**
+     * A single analysis of an RDG, during which the results computed from
+     * scratch are recorded. It must be used by a single thread.
+     */
+    public class Analysis {
+        private final RdgDag dag;
+        private final long[] modelFingerprints;
+        private final long[] reliabilityFingerprints;
+        private final Formula[] expressions;
+        private final ADD[] reliabilities;
+        private final Report report = new Report();
+
+        private Analysis(RdgDag dag) {
+            this.dag = dag;
+            this.modelFingerprints = new long[dag.size()];
+            this.reliabilityFingerprints = new long[dag.size()];
+            this.expressions = new Formula[dag.size()];
+            this.reliabilities = new ADD[dag.size()];
+            fingerprint(dag, modelFingerprints, reliabilityFingerprints);
+            for (int id = 0; id < dag.size(); id++) {
+                RDGNode node = dag.getNode(id);
+                Entry entry = entries.get(node.getId());
+                if (entry != null && entry.reliability != null && entry.reliabilityFingerprint == reliabilityFingerprints[id]) {
+                    reliabilities[id] = entry.reliability;
+                }
+                if (entry != null && entry.expression != null && entry.modelFingerprint == modelFingerprints[id]) {
+                    expressions[id] = entry.expression;
+                }
+            }
+        }
+
+        /**
+         * @return the previous reliability function of node {@code id},
+         *      or null if it must be solved again.
+         */
+        public ADD getReliability(int id) {
+            if (reliabilities[id] != null) {
+                report.reusedReliabilities++;
+            }
+            return reliabilities[id];
+        }
+
+        /**
+         * @return the previous expression of node {@code id},
+         *      or null if its model must be checked again.
+         */
+        public Formula getExpression(int id) {
+            if (expressions[id] != null) {
+                report.reusedExpressions++;
+            }
+            return expressions[id];
+        }
+
+        public void putExpression(int id, Formula expression) {
+            expressions[id] = expression;
+            report.checkedNodes.add(dag.getNode(id).getId());
+        }
+
+        public void putReliability(int id, ADD reliability) {
+            reliabilities[id] = reliability;
+            report.solvedNodes.add(dag.getNode(id).getId());
+        }
+
+        /**
+         * Replaces the cache contents with the results of this analysis.
+         */
+        public void finish() {
+            IncrementalCache.this.finish(this);
+            LOGGER.info(report.toString());
+        }
+    }
+
+    /**
+     * What an analysis reused and recomputed.
+     */
+    public static class Report {
+        private final List<String> checkedNodes = new ArrayList<String>();
+        private final List<String> solvedNodes = new ArrayList<String>();
+        private int reusedExpressions;
+        private int reusedReliabilities;
+
+        /**
+         * @return ids of the nodes whose models were checked.
+         */
+        public List<String> getCheckedNodes() {
+            return Collections.unmodifiableList(checkedNodes);
+        }
+
+        /**
+         * @return ids of the nodes whose reliability functions were solved.
+         */
+        public List<String> getSolvedNodes() {
+            return Collections.unmodifiableList(solvedNodes);
+        }
+
+        public int getReusedExpressionsNumber() {
+            return reusedExpressions;
+        }
+
+        public int getReusedReliabilitiesNumber() {
+            return reusedReliabilities;
+        }
+
+        public void print(PrintStream out) {
+            out.println("Incremental analysis:");
+            out.println("    Model checked (" + checkedNodes.size() + "): " + checkedNodes);
+            out.println("    Solved (" + solvedNodes.size() + "): " + solvedNodes);
+            out.println("    Reused expressions: " + reusedExpressions);
+            out.println("    Reused reliability functions: " + reusedReliabilities);
+        }
+
+        @Override
+        public String toString() {
+            return "Incremental analysis: " + checkedNodes.size() + " nodes model checked, "
+                    + solvedNodes.size() + " solved, "
+                    + reusedExpressions + " expressions and "
+                    + reusedReliabilities + " reliability functions reused";
+        }
+    }
+
+    private static class Entry {
+        long modelFingerprint;
+        Formula expression;
+        long reliabilityFingerprint;
+        ADD reliability;
+    }
+
+}
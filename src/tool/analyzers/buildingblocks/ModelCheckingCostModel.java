@@ -0,0 +1,93 @@
+package tool.analyzers.buildingblocks;
+
+import paramwrapper.ModelMetrics;
+
+/**
+ * Estimates the cost of model checking an FDTMC from the size of the
+ * corresponding parametric model.
+ *
+ * The model is linear on two terms: the model size (states plus transitions),
+ * which dominates numeric computations, and the model size weighted by the
+ * number of parameters, which accounts for the growth of rational functions
+ * in parametric ones. Coefficients start with a prior that only ranks jobs
+ * and are refitted by least squares whenever an actual running time is
+ * observed, after which estimates are in nanoseconds.
+ *
+ * This class is thread-safe.
+ */
+public class ModelCheckingCostModel {
+    private double sizeWeight = 1;
+    private double parametricWeight = 1;
+
+    // Sums for the normal equations of the least-squares fit.
+    private double sumSizeSquared = 0;
+    private double sumSizeTimesParametric = 0;
+    private double sumParametricSquared = 0;
+    private double sumSizeTimesElapsed = 0;
+    private double sumParametricTimesElapsed = 0;
+    private int observations = 0;
+
+    public synchronized double estimate(ModelMetrics metrics) {
+        return sizeWeight * size(metrics) + parametricWeight * parametricSize(metrics);
+    }
+
+    /**
+     * Refines the estimates with the time actually taken to model check
+     * a model with the given metrics.
+     */
+    public synchronized void observe(ModelMetrics metrics, long elapsedTimeNanos) {
+        double size = size(metrics);
+        double parametric = parametricSize(metrics);
+        sumSizeSquared += size * size;
+        sumSizeTimesParametric += size * parametric;
+        sumParametricSquared += parametric * parametric;
+        sumSizeTimesElapsed += size * elapsedTimeNanos;
+        sumParametricTimesElapsed += parametric * elapsedTimeNanos;
+        observations++;
+        fit();
+    }
+
+    public synchronized int getObservations() {
+        return observations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "cost = " + sizeWeight + " * (states + transitions) + "
+                + parametricWeight + " * (states + transitions) * vars ("
+                + observations + " observations)";
+    }
+
+    private void fit() {
+        double determinant = sumSizeSquared * sumParametricSquared
+                - sumSizeTimesParametric * sumSizeTimesParametric;
+        if (Math.abs(determinant) > 1e-9 * sumSizeSquared * sumParametricSquared) {
+            double a = (sumSizeTimesElapsed * sumParametricSquared
+                    - sumParametricTimesElapsed * sumSizeTimesParametric) / determinant;
+            double b = (sumParametricTimesElapsed * sumSizeSquared
+                    - sumSizeTimesElapsed * sumSizeTimesParametric) / determinant;
+            if (a >= 0 && b >= 0) {
+                sizeWeight = a;
+                parametricWeight = b;
+                return;
+            }
+        }
+        // Degenerate or non-physical fit (e.g., too few or too similar
+        // observations): keep the prior's proportions and only rescale.
+        double sumPriorSquared = sumSizeSquared + 2 * sumSizeTimesParametric + sumParametricSquared;
+        if (sumPriorSquared > 0) {
+            double scale = (sumSizeTimesElapsed + sumParametricTimesElapsed) / sumPriorSquared;
+            sizeWeight = scale;
+            parametricWeight = scale;
+        }
+    }
+
+    private static double size(ModelMetrics metrics) {
+        return metrics.getStates() + metrics.getTransitions();
+    }
+
+    private static double parametricSize(ModelMetrics metrics) {
+        return size(metrics) * metrics.getParameters();
+    }
+
+}
@@ -0,0 +1,269 @@
+package tool.analyzers.buildingblocks;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import paramwrapper.ModelMetrics;
+import tool.RDGNode;
+import fdtmc.FDTMC;
+
+/**
+ * Longest-processing-time-first scheduler of model-checking jobs.
+ *
+ * Whenever a worker becomes idle, it takes the pending job with the highest
+ * estimated cost, so that a single expensive model does not start last and
+ * dominate the makespan. Estimates come from a {@link ModelCheckingCostModel}
+ * which learns from the running time of every job, both within a run
+ * and across runs sharing this scheduler.
+ *
+ * Per-job timings are kept so that they can be exported for tuning.
+ */
+public class ModelCheckingScheduler {
+    private static final Logger LOGGER = Logger.getLogger(ModelCheckingScheduler.class.getName());
+
+    private ModelCheckingCostModel costModel;
+    private int workers;
+    private List<JobTiming> timings = Collections.synchronizedList(new LinkedList<JobTiming>());
+
+    public ModelCheckingScheduler() {
+        this(new ModelCheckingCostModel(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ModelCheckingScheduler(ModelCheckingCostModel costModel, int workers) {
+        this.costModel = costModel;
+        setWorkers(workers);
+    }
+
+    /**
+     * Sets the number of concurrent model-checking jobs for parallel runs.
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed, got " + workers);
+        }
+        this.workers = workers;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public ModelCheckingCostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Runs {@code job} for each node's FDTMC, most expensive first.
+     *
+     * @param nodes RDG nodes to be model checked.
+     * @param job Model-checking job.
+     * @param concurrencyStrategy If sequential, a single worker is used.
+     * @return a map from node ids to the respective job results.
+     */
+    public <T> Map<String, T> schedule(List<RDGNode> nodes,
+                                       Function<RDGNode, T> job,
+                                       ConcurrencyStrategy concurrencyStrategy) {
+        return schedule(nodes, job, concurrencyStrategy, (node, result) -> {});
+    }
+
+    /**
+     * Runs {@code job} for each node's FDTMC, most expensive first, handing
+     * every result to {@code onResult} as soon as it is available.
+     *
+     * {@code onResult} is called on the calling thread, one result at a time
+     * and in order of completion, while the remaining jobs keep running on
+     * the workers. This way, work which must not leave the calling thread
+     * (e.g., ADD operations) can overlap with model checking.
+     *
+     * @param nodes RDG nodes to be model checked.
+     * @param job Model-checking job.
+     * @param concurrencyStrategy If sequential, a single worker is used.
+     * @param onResult Consumer of each node's result.
+     * @return a map from node ids to the respective job results.
+     */
+    public <T> Map<String, T> schedule(List<RDGNode> nodes,
+                                       Function<RDGNode, T> job,
+                                       ConcurrencyStrategy concurrencyStrategy,
+                                       BiConsumer<RDGNode, T> onResult) {
+        return schedule(nodes, RDGNode::getFDTMC, job, concurrencyStrategy, onResult);
+    }
+
+    /**
+     * Same as {@link #schedule(List, Function, ConcurrencyStrategy, BiConsumer)},
+     * but for jobs which model check some other FDTMC than the node's own
+     * (e.g., a 150% model of the node and some of its dependencies).
+     *
+     * @param models FDTMC to be model checked by the job of each node.
+     */
+    public <T> Map<String, T> schedule(List<RDGNode> nodes,
+                                       Function<RDGNode, FDTMC> models,
+                                       Function<RDGNode, T> job,
+                                       ConcurrencyStrategy concurrencyStrategy,
+                                       BiConsumer<RDGNode, T> onResult) {
+        int poolSize = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) ? Math.min(workers, Math.max(nodes.size(), 1))
+                                                                              : 1;
+        List<PendingJob> pending = new LinkedList<PendingJob>();
+        for (RDGNode node : nodes) {
+            pending.add(new PendingJob(node, ModelMetrics.of(models.apply(node))));
+        }
+        BlockingQueue<Completion<T>> completions = new LinkedBlockingQueue<Completion<T>>();
+        Map<String, T> results = new HashMap<String, T>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                pool.execute(() -> {
+                    PendingJob next;
+                    while ((next = takeMostExpensive(pending)) != null) {
+                        try {
+                            completions.add(new Completion<T>(next.node, run(next, job), null));
+                        } catch (RuntimeException | Error e) {
+                            completions.add(new Completion<T>(next.node, null, e));
+                            return;
+                        }
+                    }
+                });
+            }
+            for (int received = 0; received < nodes.size(); received++) {
+                Completion<T> completion = completions.take();
+                if (completion.failure instanceof RuntimeException) {
+                    throw (RuntimeException) completion.failure;
+                } else if (completion.failure instanceof Error) {
+                    throw (Error) completion.failure;
+                }
+                results.put(completion.node.getId(), completion.result);
+                onResult.accept(completion.node, completion.result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model checking", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Exports the timing of every job run so far as CSV.
+     */
+    public void exportTimings(PrintStream out) {
+        out.println("node,states,transitions,vars,estimated_cost,elapsed_ms");
+        synchronized (timings) {
+            for (JobTiming timing : timings) {
+                out.println(timing.nodeId + ","
+                        + timing.metrics.getStates() + ","
+                        + timing.metrics.getTransitions() + ","
+                        + timing.metrics.getParameters() + ","
+                        + timing.estimatedCost + ","
+                        + timing.elapsedTimeNanos / 1E+6);
+            }
+        }
+    }
+
+    public List<JobTiming> getTimings() {
+        synchronized (timings) {
+            return new ArrayList<JobTiming>(timings);
+        }
+    }
+
+    private <T> T run(PendingJob pendingJob, Function<RDGNode, T> job) {
+        double estimatedCost = costModel.estimate(pendingJob.metrics);
+        long startTime = System.nanoTime();
+        T result = job.apply(pendingJob.node);
+        long elapsedTime = System.nanoTime() - startTime;
+
+        costModel.observe(pendingJob.metrics, elapsedTime);
+        timings.add(new JobTiming(pendingJob.node.getId(), pendingJob.metrics, estimatedCost, elapsedTime));
+        LOGGER.fine("Model checking of " + pendingJob.node.getId() + " (" + pendingJob.metrics + ") took "
+                + elapsedTime / 1E+6 + " ms; estimated cost was " + estimatedCost);
+        return result;
+    }
+
+    private PendingJob takeMostExpensive(List<PendingJob> pending) {
+        synchronized (pending) {
+            PendingJob mostExpensive = null;
+            double highestCost = Double.NEGATIVE_INFINITY;
+            // Estimates are recomputed on every pick, since the cost
+            // model may have learned from jobs finished in the meantime.
+            for (PendingJob candidate : pending) {
+                double cost = costModel.estimate(candidate.metrics);
+                if (cost > highestCost) {
+                    highestCost = cost;
+                    mostExpensive = candidate;
+                }
+            }
+            if (mostExpensive != null) {
+                pending.remove(mostExpensive);
+            }
+            return mostExpensive;
+        }
+    }
+
+    private static class Completion<T> {
+        final RDGNode node;
+        final T result;
+        final Throwable failure;
+
+        Completion(RDGNode node, T result, Throwable failure) {
+            this.node = node;
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    private static class PendingJob {
+        final RDGNode node;
+        final ModelMetrics metrics;
+
+        PendingJob(RDGNode node, ModelMetrics metrics) {
+            this.node = node;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Observed timing of a single model-checking job.
+     */
+    public static class JobTiming {
+        private final String nodeId;
+        private final ModelMetrics metrics;
+        private final double estimatedCost;
+        private final long elapsedTimeNanos;
+
+        JobTiming(String nodeId, ModelMetrics metrics, double estimatedCost, long elapsedTimeNanos) {
+            this.nodeId = nodeId;
+            this.metrics = metrics;
+            this.estimatedCost = estimatedCost;
+            this.elapsedTimeNanos = elapsedTimeNanos;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public ModelMetrics getMetrics() {
+            return metrics;
+        }
+
+        public double getEstimatedCost() {
+            return estimatedCost;
+        }
+
+        public long getElapsedTimeNanos() {
+            return elapsedTimeNanos;
+        }
+    }
+
+}
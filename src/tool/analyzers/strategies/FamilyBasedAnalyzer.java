@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.UnknownFeatureException;
 import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IReliabilityAnalysisResults;
@@ -22,6 +23,7 @@ import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.Expression;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
 
 /**
  * Orchestrator of family-based analyses.
@@ -65,11 +67,11 @@ public class FamilyBasedAnalyzer {
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
         LOGGER.warning("Family-based analysis does not support parallel execution.");
-        List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        RdgDag dag = RdgDag.of(node);
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Lambda_v + alpha_v
-        String expression = firstPhase.getReliabilityExpression(dependencies);
+        Formula expression = firstPhase.getReliabilityExpression(dag);
         formulaCollector.collectFormula(node, expression);
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
@@ -77,7 +79,7 @@ public class FamilyBasedAnalyzer {
         // Lift
         Expression<ADD> liftedExpression = helper.lift(expression);
 
-        List<String> presenceConditions = dependencies.stream()
+        List<String> presenceConditions = dag.getTopologicalOrder().stream()
                 .map(RDGNode::getPresenceCondition)
                 .collect(Collectors.toList());
         Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
@@ -8,9 +8,12 @@ import java.util.stream.Collectors;
 import paramwrapper.ParametricModelChecker;
 import tool.Analyzer;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.DerivationFunction;
+import tool.analyzers.buildingblocks.HybridPartitioner;
 import tool.analyzers.buildingblocks.PresenceConditions;
+import expressionsolver.formula.Formula;
 import fdtmc.FDTMC;
 
 public class FamilyBasedFirstPhase {
@@ -33,8 +36,8 @@ public class FamilyBasedFirstPhase {
     }
 
     /**
-     * Computes the reliability expression for the 150% model of the given RDG node,
-     * using the given order of nodes for sequential composition.
+     * Computes the reliability expression for the 150% model of the root of
+     * the given RDG, using its topological order for sequential composition.
      *
      * The returned expression has variables encoding the presence/absence of
      * RDG nodes (components).
@@ -42,11 +45,11 @@ public class FamilyBasedFirstPhase {
      * This function implements the family-based first phase of analyses.
      *
      * @see {@link Analyzer.getReliabilityExpression}
-     * @param node
+     * @param dag
      * @return
      */
-    public String getReliabilityExpression(List<RDGNode> dependencies) {
-        List<Component<FDTMC>> components = RDGNode.toComponentList(dependencies);
+    public Formula getReliabilityExpression(RdgDag dag) {
+        List<Component<FDTMC>> components = dag.toComponentList();
         List<String> presenceConditions = components.stream()
                 .map(Component::getPresenceCondition)
                 .collect(Collectors.toList());
@@ -55,9 +58,36 @@ public class FamilyBasedFirstPhase {
         FDTMC derived150Model = Component.deriveFromMany(components,
                                                          derive150Model,
                                                          c -> pcEquivalence.get(c.getPresenceCondition()));
-        String expression = modelChecker.getReliability(derived150Model);
+        Formula expression = modelChecker.getReliability(derived150Model);
         LOGGER.info("Parametric model-checking ok...");
         return expression;
     }
 
+    /**
+     * Derives the 150% model of a region of an RDG (see {@link HybridPartitioner}):
+     * the model of the region's root with the ones of the other members inlined
+     * and guarded by the variables encoding their presence conditions.
+     *
+     * The root is not guarded, since the caller accounts for its presence,
+     * and dependencies outside the region are left as interfaces, so that
+     * their reliabilities remain variables of the resulting model.
+     *
+     * @param members the region's nodes, in topological order (root last).
+     * @param presenceVariables mapping from presence conditions to the
+     *          variables encoding them.
+     */
+    public static FDTMC deriveRegionModel(List<RDGNode> members, Map<String, String> presenceVariables) {
+        List<Component<FDTMC>> components = members.stream()
+                .map(node -> new Component<FDTMC>(node.getId(), node.getPresenceCondition(), node.getFDTMC()))
+                .collect(Collectors.toList());
+        Component<FDTMC> root = components.get(components.size() - 1);
+        DerivationFunction<String, FDTMC, FDTMC> deriveRegion = (presence, model, derivedModels) -> {
+            FDTMC inlined = model.inline(derivedModels);
+            return (presence != null) ? FDTMC.ifThenElse(presence, inlined, null) : inlined;
+        };
+        return Component.deriveFromMany(components,
+                                        deriveRegion,
+                                        c -> (c == root) ? null : presenceVariables.get(c.getPresenceCondition()));
+    }
+
 }
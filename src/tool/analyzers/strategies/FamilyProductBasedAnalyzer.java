@@ -2,7 +2,9 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -13,9 +15,12 @@ import java.util.stream.Stream;
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.MapBasedReliabilityResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.FeatureSupports;
+import tool.analyzers.buildingblocks.GrayCodeOrder;
 import tool.analyzers.buildingblocks.PresenceConditions;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
@@ -23,6 +28,8 @@ import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.Expression;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.IncrementalFormula;
 
 /**
  * Orchestrator of family-product-based analyses.
@@ -37,6 +44,8 @@ public class FamilyProductBasedAnalyzer {
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
+    private boolean grayCodeEvaluation = false;
+
     public FamilyProductBasedAnalyzer(JADD jadd,
                                ParametricModelChecker modelChecker,
                                ITimeCollector timeCollector,
@@ -49,6 +58,17 @@ public class FamilyProductBasedAnalyzer {
         this.formulaCollector = formulaCollector;
     }
 
+    /**
+     * Enables or disables (the default) the evaluation of products in Gray
+     * code order (see {@link GrayCodeOrder}), so that each one only
+     * recomputes the subexpressions affected by the presence variables
+     * which differ from the previous one. Products are then evaluated
+     * sequentially.
+     */
+    public void setGrayCodeEvaluation(boolean enabled) {
+        this.grayCodeEvaluation = enabled;
+    }
+
     /**
      * Evaluates the family-product-based reliability function of an RDG node.
      *
@@ -57,20 +77,28 @@ public class FamilyProductBasedAnalyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
-        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
-            LOGGER.info("Solving the family-wide expression for each product in parallel.");
-        }
-        List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        return prepareEvaluation(node, concurrencyStrategy).apply(configurations);
+    }
+
+    /**
+     * Derives and model checks the 150% model of an RDG once and returns a
+     * function which evaluates batches of configurations against the
+     * resulting family-wide expression.
+     *
+     * @param node RDG node whose reliability is to be evaluated.
+     * @throws CyclicRdgException
+     */
+    public Function<Stream<Collection<String>>, IReliabilityAnalysisResults> prepareEvaluation(RDGNode node, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(node);
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Lambda_v + alpha_v
-        String expression = firstPhase.getReliabilityExpression(dependencies);
+        Formula expression = firstPhase.getReliabilityExpression(dag);
         formulaCollector.collectFormula(node, expression);
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-
-        List<String> presenceConditions = dependencies.stream()
+        List<String> presenceConditions = dag.getTopologicalOrder().stream()
                 .map(RDGNode::getPresenceCondition)
                 .collect(Collectors.toList());
         Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
@@ -78,26 +106,61 @@ public class FamilyProductBasedAnalyzer {
                 .collect(Collectors.toMap(e -> e.getValue(),
                                           e -> e.getKey(),
                                           (a, b) -> a));
+        // Formula-backed expressions are safe to share among threads.
+        Expression<Double> compiledExpression = expressionSolver.compileExpression(expression);
+        timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
-        Map<Collection<String>, Double> results;
-        if (concurrencyStrategy == ConcurrencyStrategy.SEQUENTIAL) {
-            Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(parsedExpression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
-        } else {
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(expression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
-        }
+        return configurations -> {
+            if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL && !grayCodeEvaluation) {
+                LOGGER.info("Solving the family-wide expression for each product in parallel.");
+            }
+            timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
+
+            Map<Collection<String>, Double> results;
+            if (grayCodeEvaluation) {
+                results = evaluateInGrayCodeOrder(dag, expression, pcEquivalence, configurations);
+            } else {
+                results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(compiledExpression,
+                                                                                          configuration,
+                                                                                          eqClassToPC),
+                                                                          configurations,
+                                                                          concurrencyStrategy);
+            }
+
+            timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
+            LOGGER.info("Formulae evaluation ok...");
+            return new MapBasedReliabilityResults(results);
+        };
+    }
 
-        timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-        LOGGER.info("Formulae evaluation ok...");
-        return new MapBasedReliabilityResults(results);
+    private Map<Collection<String>, Double> evaluateInGrayCodeOrder(RdgDag dag,
+                                                                    Formula expression,
+                                                                    Map<String, String> pcEquivalence,
+                                                                    Stream<Collection<String>> configurations) {
+        FeatureSupports supports = new FeatureSupports(dag, expressionSolver);
+        // Slot and representative node of each class of presence conditions.
+        Map<String, Integer> slots = new HashMap<String, Integer>();
+        List<Integer> representatives = new ArrayList<Integer>();
+        for (int id = 0; id < dag.size(); id++) {
+            String eqClass = pcEquivalence.get(dag.getNode(id).getPresenceCondition());
+            if (!slots.containsKey(eqClass)) {
+                slots.put(eqClass, slots.size());
+                representatives.add(id);
+            }
+        }
+        IncrementalFormula evaluator = new IncrementalFormula(expression.compile(slots), slots.size());
+
+        Map<Collection<String>, Double> results = new HashMap<Collection<String>, Double>();
+        for (Collection<String> configuration: GrayCodeOrder.sort(configurations, supports)) {
+            String[] features = configuration.toArray(new String[configuration.size()]);
+            for (int slot = 0; slot < representatives.size(); slot++) {
+                evaluator.set(slot, supports.isPresent(representatives.get(slot), features) ? 1.0 : 0.0);
+            }
+            results.put(configuration, evaluator.evaluate());
+        }
+        LOGGER.info("Evaluated " + results.size() + " products in Gray code order, computing "
+                + evaluator.getRecomputedNodesNumber() + " formula nodes (" + expression.size() + " per product).");
+        return results;
     }
 
     private Double evaluateSingle(Expression<Double> expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
@@ -112,9 +175,4 @@ public class FamilyProductBasedAnalyzer {
 
     }
 
-    private Double evaluateSingle(String expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
-        Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-        return evaluateSingle(parsedExpression, configuration, eqClassToPC);
-    }
-
 }
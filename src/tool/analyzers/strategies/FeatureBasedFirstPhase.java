@@ -2,16 +2,21 @@ package tool.analyzers.strategies;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
 import tool.Analyzer;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.ModelCheckingScheduler;
 import tool.stats.IFormulaCollector;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaSerializer;
 import fdtmc.FDTMC;
 
 /**
@@ -22,56 +27,88 @@ public class FeatureBasedFirstPhase {
 
     ParametricModelChecker modelChecker;
     private IFormulaCollector formulaCollector;
+    private ModelCheckingScheduler scheduler;
 
     public FeatureBasedFirstPhase(ParametricModelChecker modelChecker,
-                                  IFormulaCollector formulaCollector) {
+                                  IFormulaCollector formulaCollector,
+                                  ModelCheckingScheduler scheduler) {
         this.modelChecker = modelChecker;
         this.formulaCollector = formulaCollector;
+        this.scheduler = scheduler;
     }
 
     /**
-     * Computes the reliability expression for the model of the given RDG nodes,
-     * returning them in a map which is conveniently sorted in the same order as
-     * the input list.
+     * Computes the reliability expression for the model of every node in the
+     * given RDG, returning them as components in the topological order of the RDG.
      *
      * This function implements the feature-based part of the analysis.
      * @param concurrencyStrategy
      *
      * @see {@link Analyzer.getReliabilityExpression}
-     * @param node
+     * @param dag
      * @return
      */
-    public List<Component<String>> getReliabilityExpressions(List<RDGNode> nodes, ConcurrencyStrategy concurrencyStrategy) {
-        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
-            LOGGER.info("Performing model checking in parallel for each FDTMC.");
-        }
-        // Expressions can be calculated concurrently...
-        Stream<RDGNode> expressionStream = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) ? nodes.parallelStream()
-                                                                                                 : nodes.stream();
-        Map<String, String> expressionsByNode = expressionStream
-            .collect(Collectors.toMap(RDGNode::getId,
-                                      this::getReliabilityExpression));
+    public List<Component<Formula>> getReliabilityExpressions(RdgDag dag, ConcurrencyStrategy concurrencyStrategy) {
+        // Expressions can be calculated concurrently (most expensive first)...
+        Map<String, Formula> expressionsByNode = getReliabilityExpressions(dag.getTopologicalOrder(),
+                                                                           concurrencyStrategy,
+                                                                           (node, expression) -> {});
 
         // ... but then we need to recover ordering information
         // so that we can format the response accordingly.
-        return nodes.stream()
-                .map(RDGNode::toComponent)
-                .map(c -> c.fmap((FDTMC f) -> expressionsByNode.get(c.getId())))
-                .collect(Collectors.toList());
+        return dag.toComponentList(n -> expressionsByNode.get(n.getId()));
+    }
+
+    /**
+     * Computes the reliability expression for the model of each of the given
+     * nodes, handing each one to {@code onExpression} (on the calling thread)
+     * as soon as it is computed, so that further processing can be pipelined
+     * with the model checking of the remaining nodes.
+     *
+     * @return a map from node ids to the respective expressions.
+     */
+    public Map<String, Formula> getReliabilityExpressions(List<RDGNode> nodes,
+                                                          ConcurrencyStrategy concurrencyStrategy,
+                                                          BiConsumer<RDGNode, Formula> onExpression) {
+        return getReliabilityExpressions(nodes, RDGNode::getFDTMC, concurrencyStrategy, onExpression);
+    }
+
+    /**
+     * Same as {@link #getReliabilityExpressions(List, ConcurrencyStrategy, BiConsumer)},
+     * but model checking the given FDTMC for each node instead of its own.
+     *
+     * @param models model to be checked for each node.
+     */
+    public Map<String, Formula> getReliabilityExpressions(List<RDGNode> nodes,
+                                                          Function<RDGNode, FDTMC> models,
+                                                          ConcurrencyStrategy concurrencyStrategy,
+                                                          BiConsumer<RDGNode, Formula> onExpression) {
+        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
+            LOGGER.info("Performing model checking in parallel for each FDTMC, using "
+                    + scheduler.getWorkers() + " workers.");
+        }
+        return scheduler.schedule(nodes,
+                                  models,
+                                  node -> getReliabilityExpression(node, models.apply(node)),
+                                  concurrencyStrategy,
+                                  onExpression);
     }
 
     /**
      * Computes the reliability expression for the model of a given RDG node.
      *
      * @param node
+     * @param model the node's model.
      * @return an algebraic expression on the variables present in the node's model.
      */
-    private String getReliabilityExpression(RDGNode node) {
-        FDTMC model = node.getFDTMC();
-        String reliabilityExpression = modelChecker.getReliability(model);
+    private Formula getReliabilityExpression(RDGNode node, FDTMC model) {
+        Formula reliabilityExpression = modelChecker.getReliability(model);
 
         formulaCollector.collectFormula(node, reliabilityExpression);
-        LOGGER.fine("Reliability expression for "+ node.getId() + " -> " + reliabilityExpression);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            // The infix form expands shared subterms, so it may be exponentially larger.
+            LOGGER.fine("Reliability expression for "+ node.getId() + " -> " + FormulaSerializer.serialize(reliabilityExpression));
+        }
         return reliabilityExpression;
     }
 
@@ -1,47 +1,67 @@
 package tool.analyzers.strategies;
 
 import jadd.ADD;
+import jadd.ADDSerializer;
 import jadd.JADD;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.logging.Logger;
 
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
+import tool.PartialConfiguration;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.NoPruningStrategy;
+import tool.analyzers.buildingblocks.AnalysisCheckpoint;
 import tool.analyzers.buildingblocks.AssetProcessor;
-import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
+import tool.analyzers.buildingblocks.FamilyReliabilitySnapshot;
+import tool.analyzers.buildingblocks.ModelCheckingScheduler;
 import tool.analyzers.buildingblocks.FamilyBasedHelper;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.analyzers.buildingblocks.PresenceConditions;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.Expression;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
+import fdtmc.FDTMC;
+import fdtmc.StructuralHash;
 
 /**
  * Orchestrator of feature-family-based analyses.
  */
 public class FeatureFamilyBasedAnalyzer {
+    private static final Logger LOGGER = Logger.getLogger(FeatureFamilyBasedAnalyzer.class.getName());
 
     private ADD featureModel;
+    private PartialConfiguration partialConfiguration = PartialConfiguration.EMPTY;
+    // Feature model cofactored by the partial configuration, for pruning.
+    private ADD restrictedFeatureModel;
     private JADD jadd;
     private ExpressionSolver expressionSolver;
     private IPruningStrategy pruningStrategy;
+    private IncrementalCache incrementalCache;
+    private AnalysisCheckpoint checkpoint;
+    private FamilyReliabilitySnapshot evolutionSnapshot;
+    private HybridPartitioner hybridPartitioner;
 
     private FeatureBasedFirstPhase firstPhase;
     private FamilyBasedHelper helper;
 
-    /**
-     * Sigma_v
-     */
-    private DerivationFunction<ADD, Expression<ADD>, ADD> solve;
-
 
     private ITimeCollector timeCollector;
 
@@ -49,26 +69,34 @@ public class FeatureFamilyBasedAnalyzer {
                                       ADD featureModel,
                                       ParametricModelChecker modelChecker,
                                       ITimeCollector timeCollector,
-                                      IFormulaCollector formulaCollector) {
+                                      IFormulaCollector formulaCollector,
+                                      ModelCheckingScheduler scheduler) {
         this.expressionSolver = new ExpressionSolver(jadd);
         this.jadd = jadd;
         this.featureModel = featureModel;
+        this.restrictedFeatureModel = featureModel;
 
         this.timeCollector = timeCollector;
         this.pruningStrategy = new NoPruningStrategy();
 
         this.firstPhase = new FeatureBasedFirstPhase(modelChecker,
-                                                     formulaCollector);
+                                                     formulaCollector,
+                                                     scheduler);
         this.helper = new FamilyBasedHelper(expressionSolver);
+    }
 
+    /**
+     * Sigma_v, pruning the reliability function of {@code node}.
+     */
+    private DerivationFunction<ADD, Expression<ADD>, ADD> solve(RDGNode node) {
         AssetProcessor<Expression<ADD>, ADD> evalAndPrune = (expr, values) -> {
-            return this.pruningStrategy.pruneInvalidConfigurations(null,
+            return this.pruningStrategy.pruneInvalidConfigurations(node,
                                                                    expr.solve(values),
-                                                                   featureModel);
+                                                                   this.restrictedFeatureModel);
         };
-        solve = DerivationFunction.abstractDerivation(ADD::ite,
-                                                      evalAndPrune,
-                                                      jadd.makeConstant(1.0));
+        return DerivationFunction.abstractDerivation(ADD::ite,
+                                                     evalAndPrune,
+                                                     jadd.makeConstant(1.0));
     }
 
     /**
@@ -78,6 +106,34 @@ public class FeatureFamilyBasedAnalyzer {
      * A reliability function is a boolean function from the set of features
      * to Real values, where the reliability of any invalid configuration is 0.
      *
+     * The phases are pipelined over the RDG: the expression of a node is lifted
+     * as soon as its model checking is done, and its reliability function is
+     * solved as soon as the ones of its dependencies are available. Thus, the
+     * (single-threaded) ADD operations overlap with the model checking of the
+     * remaining nodes, and the two timers may add up to more than the elapsed
+     * wall-clock time.
+     *
+     * If an {@link IncrementalCache} is set, only the nodes whose results
+     * could not be reused are model checked and solved. If an
+     * {@link AnalysisCheckpoint} is set, the results of each node are
+     * checkpointed as soon as they are computed and, when resuming, the
+     * checkpointed ones are reused likewise.
+     *
+     * If a {@link PartialConfiguration} is set, the feature model and the
+     * presence conditions are cofactored by it, and the nodes whose presence
+     * conditions become false are not model checked. The resulting function
+     * is 0 outside of the sub-family.
+     *
+     * If a {@link HybridPartitioner} is set, the regions it chooses are
+     * model checked as a whole, by means of their 150% models (as in the
+     * family-based strategy), and solved as if they were single nodes whose
+     * expressions also depend on the members' presence conditions.
+     *
+     * If a {@link FamilyReliabilitySnapshot} is set and neither a pruning
+     * strategy nor a partial configuration is used, an RDG which is the
+     * same as in the snapshot is not analyzed again: only the (possibly
+     * new) feature model is applied to the previous reliability function.
+     *
      * @param node RDG node whose reliability is to be evaluated.
      * @param concurrencyStrategy
      * @param dotOutput path at where to dump the resulting ADD as a dot file.
@@ -85,28 +141,96 @@ public class FeatureFamilyBasedAnalyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, ConcurrencyStrategy concurrencyStrategy, String dotOutput) throws CyclicRdgException {
-        List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        ADD result = evaluateReliabilityFunction(node, concurrencyStrategy);
+        if (dotOutput != null) {
+            generateDotFile(result, dotOutput);
+        }
+        return new ADDReliabilityResults(result);
+    }
 
-        timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
-        // Alpha_v
-        List<Component<String>> expressions = firstPhase.getReliabilityExpressions(dependencies, concurrencyStrategy);
-        timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+    /**
+     * Same as {@link #evaluateReliability(RDGNode, ConcurrencyStrategy, String)},
+     * but returns the reliability function itself.
+     */
+    public ADD evaluateReliabilityFunction(RDGNode node, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(node);
+        ADD fixedFeatures = partialConfiguration.toCube(jadd, featureModel.getVariables());
+        restrictedFeatureModel = featureModel.cofactor(fixedFeatures);
+        // Without pruning, the root's reliability function does not depend on the feature model.
+        boolean evolving = evolutionSnapshot != null
+                && pruningStrategy instanceof NoPruningStrategy
+                && partialConfiguration.isEmpty();
+        long rdgFingerprint = evolving ? IncrementalCache.fingerprint(dag) : 0;
 
+        timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-        // Lift
-        List<Component<Expression<ADD>>> liftedExpressions = expressions.stream()
-                .map(helper::lift)
-                .collect(Collectors.toList());
-        // Sigma_v
-        ADD reliability = solveFromMany(liftedExpressions);
-        ADD result = featureModel.times(reliability);
+        ADD reliability = evolving ? evolutionSnapshot.getReliability(jadd, rdgFingerprint) : null;
+        boolean reused = reliability != null;
+        if (reused) {
+            timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+        } else {
+            reliability = analyzeRdg(dag, fixedFeatures, concurrencyStrategy);
+        }
+        ADD result = fixedFeatures.times(restrictedFeatureModel).times(reliability);
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
-        if (dotOutput != null) {
-            generateDotFile(result, dotOutput);
+        if (evolving) {
+            evolutionSnapshot.record(jadd, rdgFingerprint, featureModel, reliability, reused);
         }
+        return result;
+    }
 
-        return new ADDReliabilityResults(result);
+    /**
+     * Runs the pipeline over the RDG (while both timers are running),
+     * stopping the model checking timer once it is done.
+     *
+     * @return the root's reliability function, before the feature model is applied.
+     */
+    private ADD analyzeRdg(RdgDag dag, ADD fixedFeatures, ConcurrencyStrategy concurrencyStrategy) {
+        HybridPartitioner.Partition partition = null;
+        if (hybridPartitioner != null) {
+            partition = hybridPartitioner.partition(dag);
+            LOGGER.info("Collapsing " + partition.getCollapsedNodesNumber() + " nodes into "
+                    + partition.getRegionsNumber() + " family-based regions.");
+        }
+        // Expressions of collapsed regions are not the ones of their roots' models.
+        IncrementalCache.Analysis incremental = null;
+        if (incrementalCache != null && partition == null) {
+            incremental = incrementalCache.startAnalysis(dag);
+        } else if (incrementalCache != null) {
+            LOGGER.warning("Incremental analysis is not supported by hybrid analyses. Analyzing from scratch.");
+        }
+        AnalysisCheckpoint.Analysis checkpointed = null;
+        if (checkpoint != null && partition == null) {
+            checkpointed = checkpoint.startAnalysis(dag, getCheckpointContext(), jadd);
+        } else if (checkpoint != null) {
+            LOGGER.warning("Checkpoints are not supported by hybrid analyses. Analyzing without them.");
+        }
+        Pipeline pipeline = new Pipeline(dag, fixedFeatures, incremental, checkpointed, partition);
+
+        List<RDGNode> pendingNodes = pipeline.reuse();
+        // Alpha_v, followed by Lift and Sigma_v as soon as possible
+        firstPhase.getReliabilityExpressions(pendingNodes, pipeline::getModel, concurrencyStrategy, pipeline::onExpression);
+        timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+
+        ADD reliability = pipeline.getReliability(dag.size() - 1);
+        if (incremental != null) {
+            incremental.finish();
+        }
+        if (checkpointed != null) {
+            checkpointed.finish();
+        }
+        return reliability;
+    }
+
+    /**
+     * Fingerprint of the settings which the per-node reliability functions
+     * depend on, besides the RDG itself.
+     */
+    private long getCheckpointContext() {
+        long h = StructuralHash.of(ADDSerializer.serialize(restrictedFeatureModel));
+        h = StructuralHash.mix(h, StructuralHash.of(pruningStrategy.getClass().getName()));
+        return StructuralHash.mix(h, StructuralHash.of(partialConfiguration.toString()));
     }
 
     /**
@@ -121,6 +245,65 @@ public class FeatureFamilyBasedAnalyzer {
      */
     public void setPruningStrategy(IPruningStrategy pruningStrategy) {
         this.pruningStrategy = pruningStrategy;
+        if (incrementalCache != null) {
+            incrementalCache.clearReliabilities();
+        }
+    }
+
+    /**
+     * Replaces the feature model to be applied by subsequent analyses
+     * (e.g., with a projection of the original one).
+     */
+    public void setFeatureModel(ADD featureModel) {
+        this.featureModel = featureModel;
+        this.restrictedFeatureModel = featureModel;
+        if (incrementalCache != null) {
+            incrementalCache.clearReliabilities();
+        }
+    }
+
+    /**
+     * Restricts subsequent analyses to the sub-family defined by a partial
+     * configuration, or lifts the restriction if it is empty.
+     */
+    public void setPartialConfiguration(PartialConfiguration partialConfiguration) {
+        this.partialConfiguration = partialConfiguration;
+        if (incrementalCache != null) {
+            incrementalCache.clearReliabilities();
+        }
+    }
+
+    /**
+     * Sets the cache of previous results to be reused (and updated) by
+     * subsequent analyses, or null for analyzing everything from scratch.
+     */
+    public void setIncrementalCache(IncrementalCache incrementalCache) {
+        this.incrementalCache = incrementalCache;
+    }
+
+    /**
+     * Sets the checkpoint to which subsequent analyses write their per-node
+     * results (and from which they resume), or null for no checkpoints.
+     */
+    public void setCheckpoint(AnalysisCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets the partitioner of RDGs into regions to be analyzed family-based
+     * (hybrid analysis), or null for analyzing every node on its own.
+     */
+    public void setHybridPartitioner(HybridPartitioner hybridPartitioner) {
+        this.hybridPartitioner = hybridPartitioner;
+    }
+
+    /**
+     * Sets the snapshot of the family reliability function to be reused
+     * (and updated) by subsequent analyses without pruning, or null for
+     * always analyzing the RDG.
+     */
+    public void setEvolutionSnapshot(FamilyReliabilitySnapshot evolutionSnapshot) {
+        this.evolutionSnapshot = evolutionSnapshot;
     }
 
     /**
@@ -135,10 +318,238 @@ public class FeatureFamilyBasedAnalyzer {
         jadd.dumpDot("Family Reliability", familyReliability, outputFile);
     }
 
-    private ADD solveFromMany(List<Component<Expression<ADD>>> dependencies) {
-        return Component.deriveFromMany(dependencies,
-                                        solve,
-                                        c -> expressionSolver.encodeFormula(c.getPresenceCondition()));
+    /**
+     * Dataflow state of the lifting and solving of an RDG's expressions.
+     *
+     * A node is solved once its expression is lifted and all of its
+     * dependencies are solved. It is only used from the thread which
+     * runs the analysis, since ADD operations are not thread-safe.
+     */
+    private class Pipeline {
+        private final RdgDag dag;
+        private final ADD fixedFeatures;
+        private final IncrementalCache.Analysis incremental;
+        private final AnalysisCheckpoint.Analysis checkpointed;
+        private final HybridPartitioner.Partition partition;
+        private final ADD[] presences;
+        // 150% models of the collapsed regions to be model checked and the
+        // values of their presence variables, indexed by the roots' ids.
+        private final Map<Integer, FDTMC> regionModels = new HashMap<Integer, FDTMC>();
+        private final Map<Integer, Map<String, ADD>> regionPresences = new HashMap<Integer, Map<String, ADD>>();
+        private final List<Expression<ADD>> liftedExpressions;
+        // Number of unsolved dependencies of each node, or SOLVED.
+        private final int[] pendingDependencies;
+        private final Map<String, ADD> reliabilities = new HashMap<String, ADD>();
+
+        private static final int SOLVED = -1;
+
+        Pipeline(RdgDag dag,
+                 ADD fixedFeatures,
+                 IncrementalCache.Analysis incremental,
+                 AnalysisCheckpoint.Analysis checkpointed,
+                 HybridPartitioner.Partition partition) {
+            this.dag = dag;
+            this.fixedFeatures = fixedFeatures;
+            this.incremental = incremental;
+            this.checkpointed = checkpointed;
+            this.partition = partition;
+            this.presences = new ADD[dag.size()];
+            this.liftedExpressions = new ArrayList<Expression<ADD>>(Collections.nCopies(dag.size(), (Expression<ADD>) null));
+            this.pendingDependencies = new int[dag.size()];
+            for (int id = 0; id < dag.size(); id++) {
+                // Collapsed nodes are never solved, so their dependencies
+                // are accounted for by the roots of their regions.
+                pendingDependencies[getOwner(id)] += dag.getDependenciesNumber(id);
+                for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                    if (getOwner(dag.getDependency(id, i)) == getOwner(id)) {
+                        pendingDependencies[getOwner(id)]--;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Takes in whatever results can be reused from previous analyses,
+         * and the ones of nodes which are absent from the sub-family.
+         *
+         * @return the nodes whose models still have to be checked.
+         */
+        List<RDGNode> reuse() {
+            List<RDGNode> pendingNodes = new ArrayList<RDGNode>();
+            ADD one = jadd.makeConstant(1.0);
+            int absentNodes = 0;
+            // A node is needed if it is the root or if a needed node which
+            // cannot be reused depends on it. Dependents come last.
+            boolean[] needed = new boolean[dag.size()];
+            needed[dag.size() - 1] = true;
+            // Nothing is lifted yet, so nothing becomes ready.
+            Deque<Integer> ready = new ArrayDeque<Integer>();
+            for (int id = dag.size() - 1; id >= 0; id--) {
+                if (!needed[id]) {
+                    continue;
+                }
+                ADD reliability = (incremental != null) ? incremental.getReliability(id) : null;
+                if (reliability == null && checkpointed != null) {
+                    reliability = checkpointed.getReliability(id);
+                }
+                if (reliability == null && getPresence(id).isZero()) {
+                    // Sigma_v yields 1 for absent nodes, whatever their models.
+                    reliability = one;
+                    absentNodes++;
+                }
+                if (reliability != null) {
+                    solved(id, reliability, ready);
+                } else if (partition != null) {
+                    for (int dependency: partition.getBoundary(id)) {
+                        needed[dependency] = true;
+                    }
+                } else {
+                    for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                        needed[dag.getDependency(id, i)] = true;
+                    }
+                }
+            }
+            for (int id = 0; id < dag.size(); id++) {
+                if (!needed[id] || pendingDependencies[id] == SOLVED) {
+                    continue;
+                }
+                Formula expression = (incremental != null) ? incremental.getExpression(id) : null;
+                if (expression == null && checkpointed != null) {
+                    expression = checkpointed.getExpression(id);
+                }
+                if (expression != null) {
+                    lift(id, expression);
+                } else {
+                    if (partition != null && partition.isRegionRoot(id)) {
+                        collapse(id);
+                    }
+                    pendingNodes.add(dag.getNode(id));
+                }
+            }
+            if (absentNodes > 0) {
+                LOGGER.info("Skipping " + absentNodes + " nodes which are absent from the sub-family "
+                        + partialConfiguration + ".");
+            }
+            return pendingNodes;
+        }
+
+        /**
+         * @return the model to be checked for {@code node}: its own or,
+         *      for the root of a collapsed region, the region's 150% model.
+         */
+        FDTMC getModel(RDGNode node) {
+            FDTMC regionModel = regionModels.get(dag.getId(node));
+            return (regionModel != null) ? regionModel : node.getFDTMC();
+        }
+
+        void onExpression(RDGNode node, Formula expression) {
+            int id = dag.getId(node);
+            if (incremental != null) {
+                incremental.putExpression(id, expression);
+            }
+            if (checkpointed != null) {
+                checkpointed.putExpression(id, expression);
+            }
+            lift(id, expression);
+        }
+
+        ADD getReliability(int id) {
+            return reliabilities.get(dag.getNode(id).getId());
+        }
+
+        private void lift(int id, Formula expression) {
+            // Lift
+            liftedExpressions.set(id, helper.lift(expression));
+
+            Deque<Integer> ready = new ArrayDeque<Integer>();
+            if (pendingDependencies[id] == 0) {
+                ready.push(id);
+            }
+            while (!ready.isEmpty()) {
+                int solvable = ready.pop();
+                ADD reliability = solve(solvable);
+                if (incremental != null) {
+                    incremental.putReliability(solvable, reliability);
+                }
+                if (checkpointed != null) {
+                    checkpointed.putReliability(solvable, reliability);
+                }
+                solved(solvable, reliability, ready);
+            }
+        }
+
+        private ADD solve(int id) {
+            Map<String, ADD> values = reliabilities;
+            if (regionPresences.containsKey(id)) {
+                values = new HashMap<String, ADD>(reliabilities);
+                values.putAll(regionPresences.get(id));
+            }
+            // Sigma_v
+            return FeatureFamilyBasedAnalyzer.this.solve(dag.getNode(id))
+                    .apply(getPresence(id), liftedExpressions.get(id), values);
+        }
+
+        /**
+         * Derives the 150% model of the region rooted at {@code root} and
+         * encodes the presence conditions of its members.
+         */
+        private void collapse(int root) {
+            List<RDGNode> members = new ArrayList<RDGNode>();
+            List<String> presenceConditions = new ArrayList<String>();
+            for (int member: partition.getMembers(root)) {
+                members.add(dag.getNode(member));
+                if (member != root) {
+                    presenceConditions.add(dag.getNode(member).getPresenceCondition());
+                }
+            }
+            Map<String, String> presenceVariables = new HashMap<String, String>();
+            Map<String, ADD> presenceValues = new HashMap<String, ADD>();
+            PresenceConditions.toEquivalenceClasses(presenceConditions).forEach((presenceCondition, eqClass) -> {
+                String variable = "pc_" + eqClass;
+                presenceVariables.put(presenceCondition, variable);
+                presenceValues.put(variable, expressionSolver.encodeFormula(presenceCondition).cofactor(fixedFeatures));
+            });
+            regionModels.put(root, FamilyBasedFirstPhase.deriveRegionModel(members, presenceVariables));
+            regionPresences.put(root, presenceValues);
+        }
+
+        private int getOwner(int id) {
+            return (partition != null) ? partition.getOwner(id) : id;
+        }
+
+        /**
+         * @return the presence condition of node {@code id}, cofactored
+         *      by the partial configuration.
+         */
+        private ADD getPresence(int id) {
+            if (presences[id] == null) {
+                RDGNode node = dag.getNode(id);
+                presences[id] = expressionSolver.encodeFormula(node.getPresenceCondition()).cofactor(fixedFeatures);
+            }
+            return presences[id];
+        }
+
+        /**
+         * Records the reliability function of a node, adding the dependents
+         * which become solvable to {@code ready}.
+         */
+        private void solved(int id, ADD reliability, Deque<Integer> ready) {
+            reliabilities.put(dag.getNode(id).getId(), reliability);
+            // The lifted expression is no longer needed.
+            liftedExpressions.set(id, null);
+            pendingDependencies[id] = SOLVED;
+            for (int i = 0; i < dag.getDependentsNumber(id); i++) {
+                int dependent = getOwner(dag.getDependent(id, i));
+                if (pendingDependencies[dependent] == SOLVED) {
+                    // Reused from a previous analysis.
+                    continue;
+                }
+                pendingDependencies[dependent]--;
+                if (pendingDependencies[dependent] == 0 && liftedExpressions.get(dependent) != null) {
+                    ready.push(dependent);
+                }
+            }
+        }
     }
 
 }
@@ -2,31 +2,49 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.UnknownFeatureException;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.MapBasedReliabilityResults;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
-import tool.analyzers.buildingblocks.DerivationFunction;
-import tool.analyzers.buildingblocks.IfOperator;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.FeatureSupports;
+import tool.analyzers.buildingblocks.GrayCodeOrder;
+import tool.analyzers.buildingblocks.ModelCheckingScheduler;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.CompiledFormula;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.IncrementalFormula;
 
 /**
  * Orchestrator of feature-product-based analyses.
+ *
+ * The reliability of a node only depends on the features of its own presence
+ * condition and of the ones of the nodes it (transitively) depends on, i.e.,
+ * on its feature support. So, values are memoized per node, keyed by the
+ * configuration projected onto the node's support, and the work of the
+ * analysis grows with the number of distinct projections instead of with
+ * the number of products times the number of nodes.
  */
 public class FeatureProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FeatureProductBasedAnalyzer.class.getName());
@@ -34,28 +52,33 @@ public class FeatureProductBasedAnalyzer {
     private ExpressionSolver expressionSolver;
     private FeatureBasedFirstPhase firstPhase;
 
-    /**
-     * Sigma
-     */
-    private DerivationFunction<Boolean, String, Double> solve;
-
     private ITimeCollector timeCollector;
 
+    private boolean grayCodeEvaluation = false;
+
     public FeatureProductBasedAnalyzer(JADD jadd,
                                        ParametricModelChecker modelChecker,
                                        ITimeCollector timeCollector,
-                                       IFormulaCollector formulaCollector) {
+                                       IFormulaCollector formulaCollector,
+                                       ModelCheckingScheduler scheduler) {
         this.expressionSolver = new ExpressionSolver(jadd);
 
         this.timeCollector = timeCollector;
 
         this.firstPhase = new FeatureBasedFirstPhase(modelChecker,
-                                                     formulaCollector);
-
+                                                     formulaCollector,
+                                                     scheduler);
+    }
 
-        solve = DerivationFunction.abstractDerivation(new IfOperator<Double>(),
-                                                      expressionSolver::solveExpression,
-                                                      1.0);
+    /**
+     * Enables or disables (the default) the evaluation of products in Gray
+     * code order (see {@link GrayCodeOrder}) instead of memoization, so that
+     * each one only recomputes the nodes whose projections differ from the
+     * previous product and, within their expressions, the subexpressions
+     * affected by the changed values. Products are then evaluated sequentially.
+     */
+    public void setGrayCodeEvaluation(boolean enabled) {
+        this.grayCodeEvaluation = enabled;
     }
 
     /**
@@ -68,34 +91,201 @@ public class FeatureProductBasedAnalyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
-        List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        return prepareEvaluation(node, concurrencyStrategy).apply(configurations);
+    }
+
+    /**
+     * Model checks the nodes of an RDG once and returns a function which
+     * evaluates batches of configurations, so that batches share the
+     * expressions as well as the memoized values of the nodes.
+     *
+     * @param node RDG node whose reliability is to be evaluated.
+     * @throws CyclicRdgException
+     */
+    public Function<Stream<Collection<String>>, IReliabilityAnalysisResults> prepareEvaluation(RDGNode node, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(node);
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Alpha_v
-        List<Component<String>> expressions = firstPhase.getReliabilityExpressions(dependencies, concurrencyStrategy);
+        List<Component<Formula>> expressions = firstPhase.getReliabilityExpressions(dag, concurrencyStrategy);
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
+        timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
+        ProductEvaluator evaluator = new ProductEvaluator(dag, expressions);
+        timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
+
+        return configurations -> evaluateReliability(evaluator, configurations, concurrencyStrategy);
+    }
+
+    private IReliabilityAnalysisResults evaluateReliability(ProductEvaluator evaluator, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws UnknownFeatureException {
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
-        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
-            LOGGER.info("Evaluating all expressions for each product in parallel.");
+        Map<Collection<String>, Double> results;
+        if (grayCodeEvaluation) {
+            results = evaluator.evaluateInGrayCodeOrder(configurations);
+        } else {
+            if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
+                LOGGER.info("Evaluating all expressions for each product in parallel.");
+            }
+            results = ProductIterationHelper.evaluate(evaluator::evaluate,
+                                                      configurations,
+                                                      concurrencyStrategy);
+            LOGGER.info("Solved " + evaluator.getSolvedNumber() + " node projections for "
+                    + results.size() + " products and " + evaluator.dag.size() + " nodes.");
         }
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  expressions),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
 
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
         return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<Component<String>> expressions) {
-        return Component.deriveFromMany(expressions,
-                                        solve,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+    /**
+     * Sigma, either memoized by the projections of configurations onto the
+     * feature supports of the nodes (see {@link FeatureSupports}) or
+     * incremental along a Gray code order of the configurations.
+     *
+     * Formulas are compiled once, with the reliabilities of the nodes they
+     * refer to as environment slots. Memo tables are concurrent, so
+     * products can be evaluated in parallel.
+     */
+    private class ProductEvaluator {
+        private final RdgDag dag;
+        private final FeatureSupports supports;
+        private final CompiledFormula[] formulas;
+        /**
+         * Nodes bound to the slots of each node's formula.
+         */
+        private final int[][] slotNodes;
+        private final List<Map<BitSet, Double>> memos;
+
+        public ProductEvaluator(RdgDag dag, List<Component<Formula>> expressions) {
+            this.dag = dag;
+            this.supports = new FeatureSupports(dag, expressionSolver);
+            int size = dag.size();
+            formulas = new CompiledFormula[size];
+            slotNodes = new int[size][];
+            memos = new ArrayList<Map<BitSet, Double>>(size);
+
+            Map<String, Integer> nodeIds = new HashMap<String, Integer>();
+            for (int id = 0; id < size; id++) {
+                RDGNode node = dag.getNode(id);
+                nodeIds.put(node.getId(), id);
+                Formula formula = expressions.get(id).getAsset();
+                Map<String, Integer> slots = new HashMap<String, Integer>();
+                slotNodes[id] = new int[formula.getVariables().size()];
+                for (String variable: formula.getVariables()) {
+                    Integer dependency = nodeIds.get(variable);
+                    if (dependency == null) {
+                        throw new IllegalArgumentException("Reliability expression of " + node.getId()
+                                + " refers to unknown node <" + variable + ">");
+                    }
+                    slotNodes[id][slots.size()] = dependency;
+                    slots.put(variable, slots.size());
+                }
+                formulas[id] = formula.compile(slots);
+                memos.add(new ConcurrentHashMap<BitSet, Double>());
+            }
+        }
+
+        public Double evaluate(Collection<String> configuration) {
+            BitSet enabled = supports.getEnabledFeatures(configuration);
+            String[] features = configuration.toArray(new String[configuration.size()]);
+
+            int root = dag.size() - 1;
+            BitSet[] keys = new BitSet[dag.size()];
+            double[] values = new double[dag.size()];
+            boolean[] solved = new boolean[dag.size()];
+            // Iterative, so that deep RDGs do not overflow the stack. A node
+            // is pushed again below the nodes bound to its slots, if any of
+            // them still have to be solved.
+            Deque<Integer> pending = new ArrayDeque<Integer>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                int id = pending.pop();
+                if (solved[id]) {
+                    continue;
+                }
+                if (keys[id] == null) {
+                    keys[id] = supports.project(id, enabled);
+                    Double memoized = memos.get(id).get(keys[id]);
+                    if (memoized != null) {
+                        values[id] = memoized;
+                        solved[id] = true;
+                        continue;
+                    }
+                    if (!supports.isPresent(id, features)) {
+                        values[id] = 1.0;
+                        solved[id] = true;
+                        memos.get(id).put(keys[id], 1.0);
+                        continue;
+                    }
+                }
+                double[] environment = new double[slotNodes[id].length];
+                boolean ready = true;
+                for (int slot = 0; slot < environment.length; slot++) {
+                    int dependency = slotNodes[id][slot];
+                    if (solved[dependency]) {
+                        environment[slot] = values[dependency];
+                    } else {
+                        if (ready) {
+                            pending.push(id);
+                            ready = false;
+                        }
+                        pending.push(dependency);
+                    }
+                }
+                if (ready) {
+                    values[id] = formulas[id].evaluate(environment);
+                    solved[id] = true;
+                    memos.get(id).put(keys[id], values[id]);
+                }
+            }
+            return values[root];
+        }
+
+        public Map<Collection<String>, Double> evaluateInGrayCodeOrder(Stream<Collection<String>> configurations) {
+            IncrementalFormula[] evaluators = new IncrementalFormula[dag.size()];
+            for (int id = 0; id < dag.size(); id++) {
+                evaluators[id] = new IncrementalFormula(formulas[id], slotNodes[id].length);
+            }
+            BitSet[] keys = new BitSet[dag.size()];
+            double[] values = new double[dag.size()];
+            long solvedNodes = 0;
+
+            Map<Collection<String>, Double> results = new HashMap<Collection<String>, Double>();
+            for (Collection<String> configuration: GrayCodeOrder.sort(configurations, supports)) {
+                BitSet enabled = supports.getEnabledFeatures(configuration);
+                String[] features = configuration.toArray(new String[configuration.size()]);
+                // Dependencies come first, so their values are up to date.
+                for (int id = 0; id < dag.size(); id++) {
+                    BitSet key = supports.project(id, enabled);
+                    if (key.equals(keys[id])) {
+                        continue;
+                    }
+                    keys[id] = key;
+                    solvedNodes++;
+                    if (supports.isPresent(id, features)) {
+                        for (int slot = 0; slot < slotNodes[id].length; slot++) {
+                            evaluators[id].set(slot, values[slotNodes[id][slot]]);
+                        }
+                        values[id] = evaluators[id].evaluate();
+                    } else {
+                        values[id] = 1.0;
+                    }
+                }
+                results.put(configuration, values[dag.size() - 1]);
+            }
+            long recomputedNodes = 0;
+            for (IncrementalFormula evaluator: evaluators) {
+                recomputedNodes += evaluator.getRecomputedNodesNumber();
+            }
+            LOGGER.info("Evaluated " + results.size() + " products in Gray code order, solving "
+                    + solvedNodes + " RDG nodes and computing " + recomputedNodes + " formula nodes.");
+            return results;
+        }
+
+        public int getSolvedNumber() {
+            return memos.stream().mapToInt(Map::size).sum();
+        }
     }
 
 }
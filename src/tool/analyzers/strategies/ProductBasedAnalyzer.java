@@ -2,33 +2,46 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
 import tool.RDGNode;
+import tool.RdgDag;
 import tool.UnknownFeatureException;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.MapBasedReliabilityResults;
-import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
-import tool.analyzers.buildingblocks.DerivationFunction;
-import tool.analyzers.buildingblocks.IfOperator;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.FeatureSupports;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.Formula;
 import fdtmc.FDTMC;
 import fdtmc.State;
 
 /**
  * Orchestrator of product-based analyses.
+ *
+ * Configurations which agree on the features of an RDG node's subtree
+ * (see {@link FeatureSupports}) derive the same model for it, just like
+ * siblings in a trie of configurations share the prefix of the features
+ * they agree on. So, the models derived for each node are shared by all
+ * configurations with the same projection onto the node's support, and
+ * so are the reliabilities of whole products.
  */
 public class ProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(ProductBasedAnalyzer.class.getName());
@@ -36,10 +49,9 @@ public class ProductBasedAnalyzer {
     private ExpressionSolver expressionSolver;
     ParametricModelChecker modelChecker;
     /**
-     * LAMBDA
+     * Model of absent nodes.
      */
-    private DerivationFunction<Boolean, FDTMC, FDTMC> derive;
-
+    private FDTMC trivialFdtmc;
 
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
@@ -54,9 +66,7 @@ public class ProductBasedAnalyzer {
         this.timeCollector = timeCollector;
         this.formulaCollector = formulaCollector;
 
-        derive = DerivationFunction.abstractDerivation(new IfOperator<FDTMC>(),
-                                                       FDTMC::inline,
-                                                       trivialFdtmc());
+        this.trivialFdtmc = trivialFdtmc();
     }
 
     /**
@@ -68,40 +78,137 @@ public class ProductBasedAnalyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
-        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
-            LOGGER.info("Running the whole analysis of each product in parallel.");
-        }
-        List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        return prepareEvaluation(node, concurrencyStrategy).apply(configurations);
+    }
+
+    /**
+     * Returns a function which evaluates batches of configurations, so that
+     * batches share the models derived (and the products model checked)
+     * for previous ones.
+     *
+     * @param node RDG node whose reliability is to be evaluated.
+     * @throws CyclicRdgException
+     */
+    public Function<Stream<Collection<String>>, IReliabilityAnalysisResults> prepareEvaluation(RDGNode node, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+        ProductDerivation derivation = new ProductDerivation(RdgDag.of(node));
+        return configurations -> {
+            if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
+                LOGGER.info("Running the whole analysis of each product in parallel.");
+            }
+            timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+
+            Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(derivation::evaluate,
+                                                                                      configurations,
+                                                                                      concurrencyStrategy);
+            LOGGER.info("Derived " + derivation.getDerivedNumber() + " node models and model checked "
+                    + derivation.getCheckedNumber() + " distinct products for " + results.size() + " configurations.");
+
+            timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+            return new MapBasedReliabilityResults(results);
+        };
+    }
 
-        timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
+    /**
+     * Lambda folding, Alpha and Sigma, memoized by the projections of
+     * configurations onto the feature supports of the nodes.
+     *
+     * Models are read-only once derived, so they are shared by all
+     * products, and memo tables are concurrent, so products can be
+     * evaluated in parallel.
+     */
+    private class ProductDerivation {
+        private final RdgDag dag;
+        private final FeatureSupports supports;
+        private final List<Map<BitSet, FDTMC>> models;
+        private final Map<BitSet, Double> reliabilities = new ConcurrentHashMap<BitSet, Double>();
+
+        public ProductDerivation(RdgDag dag) {
+            this.dag = dag;
+            this.supports = new FeatureSupports(dag, expressionSolver);
+            this.models = new ArrayList<Map<BitSet, FDTMC>>(dag.size());
+            for (int id = 0; id < dag.size(); id++) {
+                models.add(new ConcurrentHashMap<BitSet, FDTMC>());
+            }
+        }
 
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  dependencies),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
+        public Double evaluate(Collection<String> configuration) throws UnknownFeatureException {
+            BitSet enabled = supports.getEnabledFeatures(configuration);
+            int root = dag.size() - 1;
+            BitSet product = supports.project(root, enabled);
+            Double reliability = reliabilities.get(product);
+            if (reliability != null) {
+                return reliability;
+            }
+            // Lambda folding
+            FDTMC rootModel = derive(enabled, configuration.toArray(new String[configuration.size()]));
+            // Alpha
+            Formula reliabilityExpression = modelChecker.getReliability(rootModel);
+            formulaCollector.collectFormula(dag.getRoot(), reliabilityExpression);
+            // Sigma
+            reliability = expressionSolver.solveExpression(reliabilityExpression);
+            reliabilities.put(product, reliability);
+            return reliability;
+        }
 
-        timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
-        return new MapBasedReliabilityResults(results);
-    }
+        public int getDerivedNumber() {
+            return models.stream().mapToInt(Map::size).sum();
+        }
 
-    private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<RDGNode> dependencies) throws UnknownFeatureException {
-        List<Component<FDTMC>> models = RDGNode.toComponentList(dependencies);
-        // Lambda folding
-        FDTMC rootModel = deriveFromMany(models, configuration);
-        // Alpha
-        String reliabilityExpression = modelChecker.getReliability(rootModel);
-        formulaCollector.collectFormula(node, reliabilityExpression);
-        // Sigma
-        return expressionSolver.solveExpression(reliabilityExpression);
-    }
+        public int getCheckedNumber() {
+            return reliabilities.size();
+        }
 
-    private FDTMC deriveFromMany(List<Component<FDTMC>> dependencies, Collection<String> configuration) {
-        return Component.deriveFromMany(dependencies,
-                                        derive,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+        /**
+         * Derives the model of the root, reusing the ones derived for
+         * other configurations whenever the projections match.
+         */
+        private FDTMC derive(BitSet enabled, String[] configuration) {
+            int root = dag.size() - 1;
+            BitSet[] keys = new BitSet[dag.size()];
+            FDTMC[] derived = new FDTMC[dag.size()];
+            // Iterative, so that deep RDGs do not overflow the stack. A node
+            // is pushed again below its dependencies, if any of them still
+            // have to be derived.
+            Deque<Integer> pending = new ArrayDeque<Integer>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                int id = pending.pop();
+                if (derived[id] != null) {
+                    continue;
+                }
+                if (keys[id] == null) {
+                    keys[id] = supports.project(id, enabled);
+                    derived[id] = models.get(id).get(keys[id]);
+                    if (derived[id] != null) {
+                        continue;
+                    }
+                    if (!supports.isPresent(id, configuration)) {
+                        derived[id] = trivialFdtmc;
+                        models.get(id).put(keys[id], derived[id]);
+                        continue;
+                    }
+                }
+                Map<String, FDTMC> dependencies = new HashMap<String, FDTMC>();
+                boolean ready = true;
+                for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                    int dependency = dag.getDependency(id, i);
+                    if (derived[dependency] != null) {
+                        dependencies.put(dag.getNode(dependency).getId(), derived[dependency]);
+                    } else {
+                        if (ready) {
+                            pending.push(id);
+                            ready = false;
+                        }
+                        pending.push(dependency);
+                    }
+                }
+                if (ready) {
+                    derived[id] = dag.getNode(id).getFDTMC().inline(dependencies);
+                    models.get(id).put(keys[id], derived[id]);
+                }
+            }
+            return derived[root];
+        }
     }
 
     private FDTMC trivialFdtmc() {
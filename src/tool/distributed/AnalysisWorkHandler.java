@@ -0,0 +1,111 @@
+package tool.distributed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import tool.Analyzer;
+import tool.CyclicRdgException;
+import tool.PartialConfiguration;
+import tool.RDGNode;
+import tool.UnknownFeatureException;
+import tool.analyzers.AnalysisStrategy;
+import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+
+/**
+ * Handles the work units of distributed analyses with a worker's own
+ * {@link Analyzer}, which must analyze the same RDG (i.e., be built from
+ * the same models) as the coordinator's.
+ *
+ * The kind of a unit is the name of the {@link AnalysisStrategy} to apply:
+ * <ul>
+ * <li>feature-family-based (and hybrid) units analyze a sub-family, given by
+ * its fixed features (see {@link PartialConfiguration#parse(String)}), and
+ * yield its serialized reliability function;</li>
+ * <li>product-based (feature-product, product and family-product) units
+ * analyze a batch of configurations, one per line, and yield their
+ * reliabilities, also one per line.</li>
+ * </ul>
+ */
+public class AnalysisWorkHandler implements WorkUnitHandler {
+
+    private final Analyzer analyzer;
+    private final RDGNode rdgRoot;
+
+    public AnalysisWorkHandler(Analyzer analyzer, RDGNode rdgRoot) {
+        this.analyzer = analyzer;
+        this.rdgRoot = rdgRoot;
+    }
+
+    @Override
+    public String handle(WorkUnit unit) throws CyclicRdgException, UnknownFeatureException {
+        AnalysisStrategy strategy = AnalysisStrategy.valueOf(unit.getKind());
+        switch (strategy) {
+        case FEATURE_FAMILY:
+        case HYBRID:
+            analyzer.setHybridPartitioner((strategy == AnalysisStrategy.HYBRID) ? new HybridPartitioner() : null);
+            return analyzer.evaluateSerializedFeatureFamilyBasedReliability(rdgRoot,
+                                                                            PartialConfiguration.parse(unit.getPayload()));
+        case FEATURE_PRODUCT:
+        case PRODUCT:
+        case FAMILY_PRODUCT:
+            List<Collection<String>> configurations = decodeConfigurations(unit.getPayload());
+            IReliabilityAnalysisResults results = evaluateReliability(strategy, configurations.stream());
+            List<String> reliabilities = new ArrayList<String>(configurations.size());
+            for (Collection<String> configuration: configurations) {
+                String[] features = configuration.toArray(new String[configuration.size()]);
+                reliabilities.add(Double.toString(results.getResult(features)));
+            }
+            return String.join("\n", reliabilities);
+        default:
+            throw new IllegalArgumentException("The " + strategy + " strategy cannot be distributed");
+        }
+    }
+
+    private IReliabilityAnalysisResults evaluateReliability(AnalysisStrategy strategy, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
+        switch (strategy) {
+        case FEATURE_PRODUCT:
+            return analyzer.evaluateFeatureProductBasedReliability(rdgRoot, configurations);
+        case PRODUCT:
+            return analyzer.evaluateProductBasedReliability(rdgRoot, configurations);
+        default:
+            return analyzer.evaluateFamilyProductBasedReliability(rdgRoot, configurations);
+        }
+    }
+
+    /**
+     * Encodes a (non-empty) batch of configurations, i.e., sets of enabled
+     * features, one per line, with comma-separated features, as in
+     * configuration files.
+     */
+    public static String encodeConfigurations(List<Collection<String>> configurations) {
+        return configurations.stream()
+                .map(configuration -> String.join(",", configuration))
+                .collect(Collectors.joining("\n"));
+    }
+
+    public static List<Collection<String>> decodeConfigurations(String encodedConfigurations) {
+        List<Collection<String>> configurations = new ArrayList<Collection<String>>();
+        for (String configuration: encodedConfigurations.split("\n", -1)) {
+            configurations.add(configuration.isEmpty() ? new ArrayList<String>()
+                                                       : Arrays.asList(configuration.split(",")));
+        }
+        return configurations;
+    }
+
+    /**
+     * Decodes the result of a product-based unit.
+     */
+    public static List<Double> decodeReliabilities(String encodedReliabilities) {
+        List<Double> reliabilities = new ArrayList<Double>();
+        for (String reliability: encodedReliabilities.split("\n", -1)) {
+            reliabilities.add(Double.parseDouble(reliability));
+        }
+        return reliabilities;
+    }
+
+}
@@ -0,0 +1,234 @@
+package tool.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Distributes work units to the {@link Worker}s which connect to a TCP port
+ * (see {@link Frames} for the protocol) and collects their results.
+ *
+ * Workers pull one unit at a time, so that fast workers get more units and
+ * no worker is handed more work than it can take. The unit held by a worker
+ * whose connection is lost (e.g., because its process was killed) or which
+ * reports a failure is reassigned to another worker, up to
+ * {@link #MAX_ATTEMPTS} times. Workers may connect at any time, even before
+ * the units are distributed.
+ */
+public class Coordinator implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(Coordinator.class.getName());
+
+    /**
+     * Number of times a unit may fail (or be lost with its worker) before
+     * the whole distribution fails.
+     */
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    // Distribution state, guarded by this.
+    private final Deque<WorkUnit> pendingUnits = new ArrayDeque<WorkUnit>();
+    private final Map<String, String> results = new HashMap<String, String>();
+    private final Map<String, Integer> attempts = new HashMap<String, Integer>();
+    private int unitsNumber = -1;
+    private IllegalStateException failure;
+    private boolean closed;
+
+    /**
+     * Starts listening for workers on the loopback interface only.
+     *
+     * @param port TCP port to listen on, or 0 for any free one.
+     * @throws IOException if the port cannot be bound.
+     */
+    public Coordinator(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Starts listening for workers.
+     *
+     * @param bindAddress local address to listen on (e.g., the wildcard
+     *          address for accepting workers from other hosts).
+     * @param port TCP port to listen on, or 0 for any free one.
+     * @throws IOException if the port cannot be bound.
+     */
+    public Coordinator(InetAddress bindAddress, int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, bindAddress);
+        Thread acceptor = new Thread(this::acceptWorkers, "coordinator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Hands the units to the workers and waits until all of them are done.
+     * Workers asking for more work afterwards are dismissed, so a
+     * coordinator distributes a single batch of units.
+     *
+     * @param units units with distinct ids.
+     * @return the result of each unit, by id.
+     * @throws IllegalStateException if a unit fails {@link #MAX_ATTEMPTS}
+     *      times or the coordinator is closed in the meantime.
+     */
+    public synchronized Map<String, String> distribute(List<WorkUnit> units) throws InterruptedException {
+        if (unitsNumber >= 0) {
+            throw new IllegalStateException("Work units were already distributed");
+        }
+        Set<String> ids = new HashSet<String>();
+        for (WorkUnit unit: units) {
+            if (!ids.add(unit.getId())) {
+                throw new IllegalArgumentException("Duplicate work unit id " + unit.getId());
+            }
+        }
+        unitsNumber = units.size();
+        pendingUnits.addAll(units);
+        notifyAll();
+        LOGGER.info("Distributing " + unitsNumber + " work units.");
+        while (!isFinished()) {
+            wait();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (results.size() < unitsNumber) {
+            throw new IllegalStateException("Coordinator closed before all work units were done");
+        }
+        return new HashMap<String, String>(results);
+    }
+
+    /**
+     * Stops listening and drops the connected workers.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        serverSocket.close();
+        for (Socket connection: connections) {
+            connection.close();
+        }
+    }
+
+    private void acceptWorkers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connection.setKeepAlive(true);
+                connections.add(connection);
+                Thread server = new Thread(() -> serve(connection),
+                                           "coordinator-" + connection.getRemoteSocketAddress());
+                server.setDaemon(true);
+                server.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.warning("Error accepting a worker: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Talks to a single worker until it is dismissed or lost.
+     */
+    private void serve(Socket connection) {
+        WorkUnit assignedUnit = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                Frames.Frame frame = Frames.read(in);
+                if (frame.getType() == Frames.READY) {
+                    assignedUnit = takeUnit();
+                    if (assignedUnit == null) {
+                        Frames.write(out, Frames.DONE);
+                        return;
+                    }
+                    Frames.write(out, Frames.UNIT, assignedUnit.getId(), assignedUnit.getKind(), assignedUnit.getPayload());
+                } else if (assignedUnit != null && frame.getType() == Frames.RESULT
+                        && assignedUnit.getId().equals(frame.getField(0))) {
+                    complete(assignedUnit, frame.getField(1));
+                    assignedUnit = null;
+                } else if (assignedUnit != null && frame.getType() == Frames.FAILURE
+                        && assignedUnit.getId().equals(frame.getField(0))) {
+                    reassign(assignedUnit, frame.getField(1));
+                    assignedUnit = null;
+                } else {
+                    throw new IOException("Unexpected frame of type " + frame.getType());
+                }
+            }
+        } catch (IOException e) {
+            if (!isClosed()) {
+                LOGGER.warning("Lost worker " + connection.getRemoteSocketAddress() + ": " + e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (assignedUnit != null) {
+                reassign(assignedUnit, "lost its worker");
+            }
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Waits for a unit to be pending.
+     *
+     * @return the unit, or null if there will be no more units.
+     */
+    private synchronized WorkUnit takeUnit() throws InterruptedException {
+        while (pendingUnits.isEmpty() && !isFinished()) {
+            wait();
+        }
+        return isFinished() ? null : pendingUnits.poll();
+    }
+
+    private synchronized void complete(WorkUnit unit, String result) {
+        results.put(unit.getId(), result);
+        notifyAll();
+    }
+
+    private synchronized void reassign(WorkUnit unit, String reason) {
+        if (isFinished()) {
+            return;
+        }
+        int failures = attempts.merge(unit.getId(), 1, Integer::sum);
+        LOGGER.warning(unit + " failed (" + reason + "), attempt " + failures + " of " + MAX_ATTEMPTS + ".");
+        if (failures >= MAX_ATTEMPTS) {
+            failure = new IllegalStateException(unit + " failed " + failures + " times: " + reason);
+        } else {
+            // Retried first, so that a lost unit does not delay the whole distribution.
+            pendingUnits.addFirst(unit);
+        }
+        notifyAll();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private synchronized boolean isFinished() {
+        return closed || failure != null || (unitsNumber >= 0 && results.size() == unitsNumber);
+    }
+
+}
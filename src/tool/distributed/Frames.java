@@ -0,0 +1,112 @@
+package tool.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format of the coordinator-worker protocol.
+ *
+ * Every message is a frame made of its length (a 4-byte big-endian int)
+ * followed by a type byte and any number of text fields, each one also
+ * prefixed by its length in UTF-8 bytes. The conversation is driven by the
+ * workers, which only ask for a unit when they are idle:
+ *
+ * <pre>
+ * worker: READY                      coordinator: UNIT(id, kind, payload) | DONE
+ * worker: RESULT(id, result) | FAILURE(id, message)
+ * </pre>
+ */
+final class Frames {
+
+    static final byte READY = 1;
+    static final byte UNIT = 2;
+    static final byte RESULT = 3;
+    static final byte FAILURE = 4;
+    static final byte DONE = 5;
+
+    /**
+     * Largest frame accepted, so that a misbehaving peer cannot make us
+     * allocate arbitrary amounts of memory.
+     */
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private Frames() {
+        // NO-OP
+    }
+
+    static class Frame {
+        private final byte type;
+        private final List<String> fields;
+
+        private Frame(byte type, List<String> fields) {
+            this.type = type;
+            this.fields = fields;
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        /**
+         * @throws IOException if the frame has no such field.
+         */
+        String getField(int index) throws IOException {
+            if (index >= fields.size()) {
+                throw new IOException("Frame of type " + type + " has no field " + index);
+            }
+            return fields.get(index);
+        }
+    }
+
+    static void write(DataOutputStream out, byte type, String... fields) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeByte(type);
+        for (String field: fields) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            bodyOut.writeInt(bytes.length);
+            bodyOut.write(bytes);
+        }
+        bodyOut.flush();
+        if (body.size() > MAX_FRAME_LENGTH) {
+            throw new IOException("Frame of length " + body.size() + " exceeds the maximum of " + MAX_FRAME_LENGTH);
+        }
+        out.writeInt(body.size());
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * @throws java.io.EOFException if the peer closed the connection.
+     * @throws IOException if the frame is malformed or longer than
+     *          {@link #MAX_FRAME_LENGTH}.
+     */
+    static Frame read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Malformed frame of length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = bodyIn.readByte();
+        List<String> fields = new ArrayList<String>();
+        while (bodyIn.available() > 0) {
+            int fieldLength = bodyIn.readInt();
+            if (fieldLength < 0 || fieldLength > bodyIn.available()) {
+                throw new IOException("Malformed field of length " + fieldLength);
+            }
+            byte[] field = new byte[fieldLength];
+            bodyIn.readFully(field);
+            fields.add(new String(field, StandardCharsets.UTF_8));
+        }
+        return new Frame(type, fields);
+    }
+
+}
@@ -0,0 +1,42 @@
+package tool.distributed;
+
+/**
+ * Self-contained piece of work handed by a {@link Coordinator} to a
+ * {@link Worker}: both ends must agree on what a unit of a given kind
+ * means (see {@link AnalysisWorkHandler}), so units only carry text.
+ */
+public class WorkUnit {
+
+    private final String id;
+    private final String kind;
+    private final String payload;
+
+    /**
+     * @param id identifier of the unit, unique within a distribution.
+     * @param kind what to do with the payload.
+     * @param payload input of the unit.
+     */
+    public WorkUnit(String id, String kind, String payload) {
+        this.id = id;
+        this.kind = kind;
+        this.payload = payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " unit " + id;
+    }
+
+}
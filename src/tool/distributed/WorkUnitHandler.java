@@ -0,0 +1,16 @@
+package tool.distributed;
+
+/**
+ * Computes the (serialized) result of a work unit on a {@link Worker}.
+ */
+@FunctionalInterface
+public interface WorkUnitHandler {
+
+    /**
+     * @return the result of {@code unit}.
+     * @throws Exception if the unit cannot be processed, in which case the
+     *      coordinator is notified and may reassign it.
+     */
+    public String handle(WorkUnit unit) throws Exception;
+
+}
@@ -0,0 +1,92 @@
+package tool.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pulls work units from a {@link Coordinator}, one at a time, and sends
+ * back their results until the coordinator runs out of work.
+ */
+public class Worker {
+    private static final Logger LOGGER = Logger.getLogger(Worker.class.getName());
+
+    private static final int CONNECTION_ATTEMPTS = 30;
+    private static final long CONNECTION_RETRY_DELAY_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private final WorkUnitHandler handler;
+
+    public Worker(String host, int port, WorkUnitHandler handler) {
+        this.host = host;
+        this.port = port;
+        this.handler = handler;
+    }
+
+    /**
+     * Processes units until the coordinator dismisses this worker. Units
+     * whose handling fails are reported back, so that the coordinator can
+     * reassign them, and do not stop the worker.
+     *
+     * @return the number of units successfully processed.
+     * @throws IOException if the coordinator cannot be reached (it is given
+     *      some time to start) or the connection is lost.
+     */
+    public int run() throws IOException {
+        int processedUnits = 0;
+        try (Socket connection = connect();
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                Frames.write(out, Frames.READY);
+                Frames.Frame frame = Frames.read(in);
+                if (frame.getType() == Frames.DONE) {
+                    return processedUnits;
+                } else if (frame.getType() != Frames.UNIT) {
+                    throw new IOException("Unexpected frame of type " + frame.getType());
+                }
+                WorkUnit unit = new WorkUnit(frame.getField(0), frame.getField(1), frame.getField(2));
+                String result;
+                try {
+                    result = handler.handle(unit);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error processing " + unit, e);
+                    Frames.write(out, Frames.FAILURE, unit.getId(), String.valueOf(e));
+                    continue;
+                }
+                Frames.write(out, Frames.RESULT, unit.getId(), result);
+                processedUnits++;
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Socket connection = new Socket(host, port);
+                connection.setTcpNoDelay(true);
+                connection.setKeepAlive(true);
+                return connection;
+            } catch (IOException e) {
+                if (attempt == CONNECTION_ATTEMPTS) {
+                    throw e;
+                }
+                LOGGER.info("Coordinator at " + host + ":" + port + " unavailable. Retrying...");
+            }
+            try {
+                Thread.sleep(CONNECTION_RETRY_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while connecting to the coordinator");
+            }
+        }
+    }
+
+}
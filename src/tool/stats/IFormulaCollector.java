@@ -3,6 +3,7 @@ package tool.stats;
 import java.io.PrintStream;
 
 import tool.RDGNode;
+import expressionsolver.formula.Formula;
 
 /**
  * Collects formulas in order to generate stats.
@@ -11,7 +12,7 @@ import tool.RDGNode;
  */
 public interface IFormulaCollector {
 
-    public void collectFormula(RDGNode node, String formula);
+    public void collectFormula(RDGNode node, Formula formula);
 
     public void printStats(PrintStream out);
 
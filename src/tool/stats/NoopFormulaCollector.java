@@ -3,11 +3,12 @@ package tool.stats;
 import java.io.PrintStream;
 
 import tool.RDGNode;
+import expressionsolver.formula.Formula;
 
 public class NoopFormulaCollector implements IFormulaCollector {
 
     @Override
-    public void collectFormula(RDGNode node, String formula) {
+    public void collectFormula(RDGNode node, Formula formula) {
         // No-op
     }
 
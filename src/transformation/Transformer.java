@@ -21,6 +21,7 @@ import parsing.sequencediagrams.Message;
 import parsing.sequencediagrams.MessageType;
 import parsing.sequencediagrams.Operand;
 import tool.RDGNode;
+import tool.RdgContext;
 import fdtmc.FDTMC;
 import fdtmc.State;
 
@@ -28,6 +29,7 @@ public class Transformer {
     private static final Logger LOGGER = Logger.getLogger(Transformer.class.getName());
 	// Attributes
 
+	private RdgContext rdgContext;
 	private Map<String, FDTMC> fdtmcByName;
 	private Map<String, Integer> nCallsByName;
 	private Map<String, State> stateByActID;
@@ -37,6 +39,14 @@ public class Transformer {
 	// Constructors
 
 	public Transformer () {
+		this(new RdgContext());
+	}
+
+	/**
+	 * @param rdgContext Context in which the RDG nodes are to be created.
+	 */
+	public Transformer (RdgContext rdgContext) {
+		this.rdgContext = rdgContext;
 		fdtmcByName = new HashMap<String, FDTMC>();
 		nCallsByName = new HashMap<String, Integer>();
 	}
@@ -62,7 +72,8 @@ public class Transformer {
 		LOGGER.finer(fdtmc.toString());
 
 		// The method currently does not support variability in ADs.
-		return new RDGNode(adParser.getName(),
+		return new RDGNode(rdgContext,
+		                   adParser.getName(),
 		                   "true",
 		                   fdtmc);
 	}
@@ -79,7 +90,7 @@ public class Transformer {
 		countCallsModel (fragment.getName());
 
 		if (!isNew) { /* Fragmento ja foi modelado */
-			return RDGNode.getById(fragment.getName());
+			return rdgContext.getById(fragment.getName());
 		}
 
 		FDTMC fdtmc = new FDTMC();
@@ -98,7 +109,7 @@ public class Transformer {
 		error = fdtmc.createErrorState();
 		source = init;
 
-		RDGNode rdgNode = new RDGNode(fragment.getName(), "true", fdtmc);
+		RDGNode rdgNode = new RDGNode(rdgContext, fragment.getName(), "true", fdtmc);
 		transformFDTMCNodes(fdtmc, fragment.getNodes(), source, error, rdgNode);
 
 		LOGGER.finer(fdtmc.toString());
@@ -294,7 +305,7 @@ public class Transformer {
 		}
 
 		Operand operand = (Operand)fragment.getNodes().get(0);
-		String name = RDGNode.getNextId();
+		String name = rdgContext.getNextId();
 		String guard = operand.getGuard();
 
 //		creates FDTMC for opt content
@@ -366,7 +377,7 @@ public class Transformer {
 		countCallsModel (name);
 
 		if (!isNew) { /* Fragmento ja foi modelado */
-			return RDGNode.getById(name);
+			return rdgContext.getById(name);
 		}
 
 		FDTMC fdtmc = new FDTMC();
@@ -378,11 +389,11 @@ public class Transformer {
 		State error = fdtmc.createErrorState();
 		State source = init;
 
-		RDGNode rdgNode = new RDGNode(name, presenceCondition, fdtmc);
+		RDGNode rdgNode = new RDGNode(rdgContext, name, presenceCondition, fdtmc);
 		transformFDTMCNodes(fdtmc, operand.getNodes(), source, error, rdgNode);
 		LOGGER.finer(fdtmc.toString());
 
-		RDGNode similarNode = RDGNode.getSimilarNode(rdgNode);
+		RDGNode similarNode = rdgContext.getSimilarNode(rdgNode);
 		if (similarNode != null) {
 		    return similarNode;
 		} else {
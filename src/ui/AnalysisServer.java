@@ -0,0 +1,243 @@
+package ui;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import tool.PartialConfiguration;
+import tool.UnknownFeatureException;
+import tool.analyzers.ReliabilitySnapshot;
+
+/**
+ * Long-running analysis server, which keeps registered product lines (see
+ * {@link SplSession}) in memory, so that re-analyses only recompute what
+ * changed and queries are answered from the last results right away.
+ *
+ * Clients connect to a loopback TCP port and send newline-delimited JSON
+ * objects, each one answered by a single-line JSON object with an "ok"
+ * member (and an "error" one if it is false). A request's "id", if any, is
+ * echoed back. Requests name their "command" and product line ("spl"):
+ * <ul>
+ * <li>register: reads the "featureModel" and "umlModels" files;</li>
+ * <li>unregister;</li>
+ * <li>list: the registered product lines (no "spl" needed);</li>
+ * <li>analyze: feature-family-based analysis;</li>
+ * <li>reanalyze: reads the models again and analyzes them, reusing the
+ *     results for whatever did not change;</li>
+ * <li>query: "reliability" of a "configuration" (array of enabled features);</li>
+ * <li>aggregate: number of valid configurations and their minimum, maximum
+ *     and mean reliabilities, optionally within the sub-family given by
+ *     "fixedFeatures" (as in --fixed-features);</li>
+ * <li>top: the "k" (default 10) most reliable valid configurations, or the
+ *     least reliable ones if "lowest" is true.</li>
+ * </ul>
+ * Queries are answered from immutable snapshots of the last analysis of
+ * each product line, so they neither lock nor wait for running analyses.
+ */
+class AnalysisServer {
+    private static final Logger LOGGER = Logger.getLogger(AnalysisServer.class.getName());
+
+    private static final int DEFAULT_RANKING_SIZE = 10;
+
+    private final Options options;
+    private final Map<String, SplSession> sessions = new ConcurrentHashMap<String, SplSession>();
+
+    /**
+     * @param options settings of the analyses of every product line.
+     */
+    AnalysisServer(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Serves clients until the process is terminated.
+     */
+    void serve(int port, PrintStream output) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            output.println("Analysis server listening on port " + serverSocket.getLocalPort());
+            while (true) {
+                Socket connection = serverSocket.accept();
+                Thread client = new Thread(() -> serve(connection), "server-" + connection.getRemoteSocketAddress());
+                client.setDaemon(true);
+                client.start();
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (Socket client = connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            String request;
+            while ((request = in.readLine()) != null) {
+                if (request.trim().isEmpty()) {
+                    continue;
+                }
+                out.write(handle(request));
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Lost client " + connection.getRemoteSocketAddress() + ": " + e);
+        }
+    }
+
+    /**
+     * @param request a JSON request.
+     * @return the JSON response.
+     */
+    String handle(String request) {
+        Map<String, Object> response = new LinkedHashMap<String, Object>();
+        Object id = null;
+        try {
+            Object parsedRequest = Json.parse(request);
+            if (!(parsedRequest instanceof Map)) {
+                throw new IllegalArgumentException("Requests must be JSON objects");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> arguments = (Map<String, Object>) parsedRequest;
+            id = arguments.get("id");
+            if (id != null) {
+                response.put("id", id);
+            }
+            response.put("ok", true);
+            handle(getString(arguments, "command"), arguments, response);
+        } catch (RuntimeException | IOException | SplSession.ModelsException e) {
+            response.clear();
+            if (id != null) {
+                response.put("id", id);
+            }
+            response.put("ok", false);
+            response.put("error", describe(e));
+            LOGGER.log(Level.FINE, "Request failed: " + request, e);
+        }
+        return Json.write(response);
+    }
+
+    private void handle(String command, Map<String, Object> arguments, Map<String, Object> response) throws IOException, SplSession.ModelsException {
+        switch (command) {
+        case "register":
+            String name = getString(arguments, "spl");
+            SplSession session = new SplSession(name,
+                                                getString(arguments, "featureModel"),
+                                                getString(arguments, "umlModels"),
+                                                options);
+            if (sessions.putIfAbsent(name, session) != null) {
+                throw new IllegalArgumentException("SPL " + name + " is already registered");
+            }
+            break;
+        case "unregister":
+            if (sessions.remove(getString(arguments, "spl")) == null) {
+                throw new IllegalArgumentException("Unknown SPL " + arguments.get("spl"));
+            }
+            break;
+        case "list":
+            List<String> names = new ArrayList<String>(sessions.keySet());
+            names.sort(null);
+            response.put("spls", names);
+            break;
+        case "analyze":
+            response.putAll(getSession(arguments).analyze(false));
+            break;
+        case "reanalyze":
+            response.putAll(getSession(arguments).analyze(true));
+            break;
+        case "query":
+            List<String> configuration = getStrings(arguments, "configuration");
+            response.put("reliability", getSnapshot(arguments).getReliability(configuration));
+            break;
+        case "aggregate":
+            Object fixedFeatures = arguments.get("fixedFeatures");
+            PartialConfiguration subFamily = (fixedFeatures != null) ? PartialConfiguration.parse(fixedFeatures.toString())
+                                                                     : PartialConfiguration.EMPTY;
+            ReliabilitySnapshot.Aggregate aggregate = getSnapshot(arguments).aggregate(subFamily);
+            response.put("configurations", aggregate.getConfigurationsNumber());
+            response.put("minimum", aggregate.getMinimum());
+            response.put("maximum", aggregate.getMaximum());
+            response.put("mean", aggregate.getMean());
+            break;
+        case "top":
+            int k = arguments.containsKey("k") ? (int) getNumber(arguments, "k") : DEFAULT_RANKING_SIZE;
+            boolean lowest = Boolean.TRUE.equals(arguments.get("lowest"));
+            List<Map<String, Object>> ranking = new ArrayList<Map<String, Object>>();
+            for (ReliabilitySnapshot.RankedConfiguration ranked: getSnapshot(arguments).rank(k, !lowest)) {
+                Map<String, Object> entry = new LinkedHashMap<String, Object>();
+                entry.put("configuration", ranked.getConfiguration());
+                entry.put("reliability", ranked.getReliability());
+                ranking.add(entry);
+            }
+            response.put("configurations", ranking);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    private SplSession getSession(Map<String, Object> arguments) {
+        String name = getString(arguments, "spl");
+        SplSession session = sessions.get(name);
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown SPL " + name);
+        }
+        return session;
+    }
+
+    private ReliabilitySnapshot getSnapshot(Map<String, Object> arguments) {
+        SplSession session = getSession(arguments);
+        ReliabilitySnapshot snapshot = session.getSnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("SPL " + session.getName() + " was not analyzed yet");
+        }
+        return snapshot;
+    }
+
+    private static String getString(Map<String, Object> arguments, String member) {
+        Object value = arguments.get(member);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Missing string member \"" + member + "\"");
+        }
+        return (String) value;
+    }
+
+    private static double getNumber(Map<String, Object> arguments, String member) {
+        Object value = arguments.get(member);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Missing number member \"" + member + "\"");
+        }
+        return (Double) value;
+    }
+
+    private static List<String> getStrings(Map<String, Object> arguments, String member) {
+        Object value = arguments.get(member);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Missing array member \"" + member + "\"");
+        }
+        List<String> strings = new ArrayList<String>();
+        for (Object element: (List<?>) value) {
+            strings.add(String.valueOf(element));
+        }
+        return strings;
+    }
+
+    private static String describe(Exception e) {
+        if (e instanceof UnknownFeatureException) {
+            return "Unknown feature " + ((UnknownFeatureException) e).getFeatureName();
+        }
+        return (e.getMessage() != null) ? e.getMessage() : e.toString();
+    }
+
+}
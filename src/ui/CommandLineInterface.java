@@ -8,6 +8,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -19,6 +20,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -48,10 +51,23 @@ import parsing.exceptions.InvalidTagException;
 import parsing.exceptions.UnsupportedFragmentTypeException;
 import tool.Analyzer;
 import tool.CyclicRdgException;
+import tool.FeatureModelProjection;
+import tool.PartialConfiguration;
+import tool.PruningStrategy;
 import tool.PruningStrategyFactory;
 import tool.RDGNode;
+import tool.RdgContext;
+import tool.RdgDag;
 import tool.UnknownFeatureException;
+import tool.analyzers.AnalysisStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.buildingblocks.FamilyReliabilitySnapshot;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+import tool.analyzers.buildingblocks.AnalysisCheckpoint;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.distributed.AnalysisWorkHandler;
+import tool.distributed.Coordinator;
+import tool.distributed.Worker;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.IMemoryCollector;
@@ -68,6 +84,13 @@ public class CommandLineInterface {
     private static final Logger LOGGER = Logger.getLogger(CommandLineInterface.class.getName());
     private static final PrintStream OUTPUT = System.out;
 
+    /**
+     * Split features for distributed feature-family-based analyses, if
+     * none are given, and configurations per distributed work unit.
+     */
+    private static final int DISTRIBUTED_SPLIT_FEATURES = 4;
+    private static final int CONFIGURATIONS_PER_WORK_UNIT = 64;
+
     private static IMemoryCollector memoryCollector;
     private static ITimeCollector timeCollector;
     private static IFormulaCollector formulaCollector;
@@ -88,23 +111,57 @@ public class CommandLineInterface {
             e.printStackTrace();
         }
         initializeStatsCollectors(options);
+        if (options.getServerPort() != null) {
+            new AnalysisServer(options).serve(options.getServerPort(), OUTPUT);
+            return;
+        }
+
+        Analyzer analyzer = makeAnalyzer(options);
 
         memoryCollector.takeSnapshot("before model parsing");
-        RDGNode rdgRoot = buildRDG(options);
+        RDGNode rdgRoot = buildRDG(options, analyzer.getRdgContext());
         memoryCollector.takeSnapshot("after model parsing");
+        FeatureModelProjection projection = null;
+        if (options.isIrrelevantFeatureEliminationEnabled()) {
+            projection = eliminateIrrelevantFeatures(analyzer, rdgRoot);
+        }
+        if (options.getWorkerAddress() != null) {
+            runWorker(analyzer, rdgRoot, options);
+            return;
+        }
 
-        Analyzer analyzer = makeAnalyzer(options);
-        Stream<Collection<String>> targetConfigurations = getTargetConfigurations(options, analyzer);
+        Stream<Collection<String>> validConfigs;
+        LongAdder representatives = new LongAdder();
+        DoubleAdder representedConfigurations = new DoubleAdder();
+        if (projection != null && options.hasPrintAllConfigurations()) {
+            // Representatives stand for all valid configurations, so these
+            // need not be enumerated.
+            FeatureModelProjection featureModelProjection = projection;
+            validConfigs = analyzer.getValidRepresentatives().peek(representative -> {
+                representatives.increment();
+                representedConfigurations.add(featureModelProjection.getMultiplicity(representative));
+            });
+        } else {
+            validConfigs = getTargetConfigurations(options, analyzer).filter(analyzer::isValidConfiguration);
+        }
+        AnalysisCheckpoint checkpoint = openCheckpoint(options);
+        analyzer.setCheckpoint(checkpoint);
 
         memoryCollector.takeSnapshot("before evaluation");
         long analysisStartTime = System.currentTimeMillis();
-        Stream<Collection<String>> validConfigs = targetConfigurations.filter(analyzer::isValidConfiguration);
         IReliabilityAnalysisResults familyReliability = evaluateReliability(analyzer,
                                                                             rdgRoot,
                                                                             validConfigs,
                                                                             options);
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
         long totalAnalysisTime = System.currentTimeMillis() - analysisStartTime;
         memoryCollector.takeSnapshot("after evaluation");
+        if (representatives.sum() > 0) {
+            OUTPUT.println("Evaluated " + representatives.sum() + " representatives of "
+                    + String.format("%.0f", representedConfigurations.sum()) + " valid configurations");
+        }
 
         if (!options.hasSuppressReport()) {
             Map<Boolean, List<Collection<String>>> splitConfigs = getTargetConfigurations(options, analyzer)
@@ -115,11 +172,35 @@ public class CommandLineInterface {
         if (options.hasStatsEnabled()) {
             printStats(OUTPUT, familyReliability, rdgRoot);
         }
+        if (options.getModelCheckingTimesFilePath() != null) {
+            exportModelCheckingTimes(analyzer, options.getModelCheckingTimesFilePath());
+        }
         long totalRunningTime = System.currentTimeMillis() - startTime;
         OUTPUT.println("Total analysis time: " +  totalAnalysisTime + " ms");
         OUTPUT.println("Total running time: " +  totalRunningTime + " ms");
     }
 
+    /**
+     * @return the checkpoint in the given directory, or null if none is given.
+     */
+    private static AnalysisCheckpoint openCheckpoint(Options options) {
+        if (options.getCheckpointDirectory() == null) {
+            if (options.isResumeEnabled()) {
+                LOGGER.warning("Nothing to resume from without a checkpoint directory (--checkpoint-dir).");
+            }
+            return null;
+        }
+        AnalysisCheckpoint checkpoint = null;
+        try {
+            checkpoint = new AnalysisCheckpoint(Paths.get(options.getCheckpointDirectory()), options.isResumeEnabled());
+        } catch (IOException e) {
+            LOGGER.severe("Error creating the checkpoint directory.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(1);
+        }
+        return checkpoint;
+    }
+
     /**
      * @param analyzer
      * @param rdgRoot
@@ -128,7 +209,14 @@ public class CommandLineInterface {
      */
     private static IReliabilityAnalysisResults evaluateReliability(Analyzer analyzer, RDGNode rdgRoot, Stream<Collection<String>> validConfigs, Options options) {
         IReliabilityAnalysisResults results = null;
-        switch (options.getAnalysisStrategy()) {
+        AnalysisStrategy strategy = options.getAnalysisStrategy();
+        if (strategy == AnalysisStrategy.AUTO) {
+            strategy = chooseAnalysisStrategy(analyzer, rdgRoot);
+        }
+        if (options.getCoordinatorPort() != null) {
+            return evaluateDistributedReliability(analyzer, rdgRoot, strategy, validConfigs, options);
+        }
+        switch (strategy) {
         case FEATURE_PRODUCT:
             results = evaluateReliability(analyzer::evaluateFeatureProductBasedReliability,
                                           rdgRoot,
@@ -149,6 +237,12 @@ public class CommandLineInterface {
                                           rdgRoot,
                                           validConfigs);
             break;
+        case HYBRID:
+            analyzer.setHybridPartitioner(new HybridPartitioner());
+            results = evaluateFeatureFamilyBasedReliability(analyzer,
+                                                            rdgRoot,
+                                                            options);
+            break;
         case FEATURE_FAMILY:
         default:
             results = evaluateFeatureFamilyBasedReliability(analyzer,
@@ -158,21 +252,186 @@ public class CommandLineInterface {
         return results;
     }
 
+    private static IReliabilityAnalysisResults evaluateDistributedReliability(Analyzer analyzer,
+                                                                              RDGNode rdgRoot,
+                                                                              AnalysisStrategy strategy,
+                                                                              Stream<Collection<String>> validConfigs,
+                                                                              Options options) {
+        IReliabilityAnalysisResults results = null;
+        try (Coordinator coordinator = new Coordinator(InetAddress.getByName(options.getCoordinatorBindAddress()),
+                                                       options.getCoordinatorPort())) {
+            OUTPUT.println("Waiting for workers on port " + coordinator.getPort());
+            switch (strategy) {
+            case FEATURE_FAMILY:
+            case HYBRID:
+                int splitFeaturesNumber = (options.getSplitFeaturesNumber() > 0) ? options.getSplitFeaturesNumber()
+                                                                                 : DISTRIBUTED_SPLIT_FEATURES;
+                results = analyzer.evaluateDistributedFeatureFamilyBasedReliability(rdgRoot,
+                                                                                    strategy,
+                                                                                    splitFeaturesNumber,
+                                                                                    coordinator);
+                break;
+            case FAMILY:
+                LOGGER.severe("The family-based strategy cannot be distributed.");
+                System.exit(1);
+                break;
+            default:
+                results = analyzer.evaluateDistributedProductBasedReliability(strategy,
+                                                                              validConfigs,
+                                                                              CONFIGURATIONS_PER_WORK_UNIT,
+                                                                              coordinator);
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Error listening for workers.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(1);
+        } catch (CyclicRdgException e) {
+            LOGGER.severe("Cyclic dependency detected in RDG.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(2);
+        }
+        return results;
+    }
+
+    /**
+     * Processes work units from a coordinator until it runs out of work.
+     */
+    private static void runWorker(Analyzer analyzer, RDGNode rdgRoot, Options options) {
+        String address = options.getWorkerAddress();
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            LOGGER.severe("Invalid coordinator address: " + address);
+            System.exit(1);
+        }
+        analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
+        Worker worker = new Worker(address.substring(0, separator),
+                                   Integer.parseInt(address.substring(separator + 1)),
+                                   new AnalysisWorkHandler(analyzer, rdgRoot));
+        try {
+            int processedUnits = worker.run();
+            OUTPUT.println("Work units processed: " + processedUnits);
+        } catch (IOException e) {
+            LOGGER.severe("Error communicating with the coordinator.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(1);
+        }
+    }
+
+    private static AnalysisStrategy chooseAnalysisStrategy(Analyzer analyzer, RDGNode rdgRoot) {
+        AnalysisStrategy strategy = null;
+        try {
+            strategy = analyzer.chooseAnalysisStrategy(rdgRoot);
+        } catch (CyclicRdgException e) {
+            LOGGER.severe("Cyclic dependency detected in RDG.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(2);
+        }
+        OUTPUT.println("Automatically chosen analysis strategy: " + strategy);
+        return strategy;
+    }
+
     private static IReliabilityAnalysisResults evaluateFeatureFamilyBasedReliability(Analyzer analyzer, RDGNode rdgRoot, Options options) {
         IReliabilityAnalysisResults results = null;
         String dotOutput = "family-reliability.dot";
+        IncrementalCache incrementalCache = null;
+        FamilyReliabilitySnapshot evolutionSnapshot = null;
         try {
-            analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
-            results = analyzer.evaluateFeatureFamilyBasedReliability(rdgRoot, null);
+            if (options.getSplitFeaturesNumber() > 0) {
+                if (options.getIncrementalCacheFilePath() != null || options.getEvolutionSnapshotFilePath() != null) {
+                    LOGGER.warning("Neither the incremental cache nor the evolution snapshot is used with --split-features. Ignoring them.");
+                }
+                results = analyzer.evaluatePartitionedFeatureFamilyBasedReliability(rdgRoot,
+                                                                                    options.getSplitFeaturesNumber(),
+                                                                                    () -> PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
+            } else {
+                analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
+                incrementalCache = loadIncrementalCache(options.getIncrementalCacheFilePath());
+                evolutionSnapshot = loadEvolutionSnapshot(options);
+                analyzer.setIncrementalCache(incrementalCache);
+                analyzer.setEvolutionSnapshot(evolutionSnapshot);
+                results = analyzer.evaluateFeatureFamilyBasedReliability(rdgRoot, null);
+            }
         } catch (CyclicRdgException e) {
             LOGGER.severe("Cyclic dependency detected in RDG.");
             LOGGER.log(Level.SEVERE, e.toString(), e);
             System.exit(2);
         }
+        if (evolutionSnapshot != null && evolutionSnapshot.getLastEvolution() != null) {
+            evolutionSnapshot.getLastEvolution().print(OUTPUT);
+            saveEvolutionSnapshot(evolutionSnapshot, options.getEvolutionSnapshotFilePath());
+        }
+        if (incrementalCache != null && incrementalCache.getLastReport() != null) {
+            incrementalCache.getLastReport().print(OUTPUT);
+            saveIncrementalCache(incrementalCache, options.getIncrementalCacheFilePath());
+        }
         OUTPUT.println("Family-wide reliability decision diagram dumped at " + dotOutput);
         return results;
     }
 
+    /**
+     * @return the cache in the given file, an empty one if there is no such
+     *      file (or it cannot be read), or null if no file is given.
+     */
+    private static IncrementalCache loadIncrementalCache(String cacheFile) {
+        if (cacheFile == null) {
+            return null;
+        }
+        Path path = Paths.get(cacheFile);
+        if (Files.exists(path)) {
+            try {
+                return IncrementalCache.load(path);
+            } catch (IOException e) {
+                LOGGER.warning("Error reading the incremental cache. Analyzing from scratch.");
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+        return new IncrementalCache();
+    }
+
+    private static void saveIncrementalCache(IncrementalCache incrementalCache, String cacheFile) {
+        try {
+            incrementalCache.save(Paths.get(cacheFile));
+        } catch (IOException e) {
+            LOGGER.severe("Error writing the incremental cache.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
+    /**
+     * @return the snapshot in the given file, an empty one if there is no
+     *      such file (or it cannot be read), or null if no file is given or
+     *      pruning is enabled (the snapshot is only used without pruning).
+     */
+    private static FamilyReliabilitySnapshot loadEvolutionSnapshot(Options options) {
+        String snapshotFile = options.getEvolutionSnapshotFilePath();
+        if (snapshotFile == null) {
+            return null;
+        }
+        if (options.getPruningStrategy() != PruningStrategy.NONE) {
+            LOGGER.warning("The evolution snapshot is only used without pruning (--pruning-strategy NONE). Ignoring it.");
+            return null;
+        }
+        Path path = Paths.get(snapshotFile);
+        if (Files.exists(path)) {
+            try {
+                return FamilyReliabilitySnapshot.load(path);
+            } catch (IOException e) {
+                LOGGER.warning("Error reading the evolution snapshot. Analyzing from scratch.");
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+        return new FamilyReliabilitySnapshot();
+    }
+
+    private static void saveEvolutionSnapshot(FamilyReliabilitySnapshot evolutionSnapshot, String snapshotFile) {
+        try {
+            evolutionSnapshot.save(Paths.get(snapshotFile));
+        } catch (IOException e) {
+            LOGGER.severe("Error writing the evolution snapshot.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
     private static IReliabilityAnalysisResults evaluateReliability(BiFunction<RDGNode, Stream<Collection<String>>, IReliabilityAnalysisResults> analyzer,
                                                                    RDGNode rdgRoot,
                                                                    Stream<Collection<String>> validConfigs) {
@@ -198,16 +457,45 @@ public class CommandLineInterface {
         File featureModelFile = new File(options.getFeatureModelFilePath());
         String featureModel = readFeatureModel(featureModelFile);
 
-        String paramPath = options.getParamPath();
+        List<String> paramPaths = options.getParamPaths();
         Analyzer analyzer = new Analyzer(featureModel,
-                                         paramPath,
+                                         paramPaths,
                                          timeCollector,
                                          formulaCollector,
                                          modelCollector);
         analyzer.setConcurrencyStrategy(options.getConcurrencyStrategy());
+        analyzer.setModelCheckingWorkers(options.getModelCheckingWorkers());
+        analyzer.setModelReduction(options.isModelReductionEnabled());
+        analyzer.setGrayCodeEvaluation(options.isGrayCodeEvaluationEnabled());
+        if (options.getFixedFeatures() != null) {
+            analyzer.setPartialConfiguration(PartialConfiguration.parse(options.getFixedFeatures()));
+        }
         return analyzer;
     }
 
+    private static FeatureModelProjection eliminateIrrelevantFeatures(Analyzer analyzer, RDGNode rdgRoot) {
+        FeatureModelProjection projection = null;
+        try {
+            projection = analyzer.projectFeatureModel(rdgRoot);
+            analyzer.setFeatureModelProjection(projection);
+            OUTPUT.println(projection);
+        } catch (CyclicRdgException e) {
+            LOGGER.severe("Cyclic dependency detected in RDG.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(2);
+        }
+        return projection;
+    }
+
+    private static void exportModelCheckingTimes(Analyzer analyzer, String outputFile) {
+        try (PrintStream out = new PrintStream(outputFile, "UTF-8")) {
+            analyzer.exportModelCheckingTimes(out);
+        } catch (IOException e) {
+            LOGGER.severe("Error writing the model-checking times.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
     /**
      * @param options
      */
@@ -296,15 +584,14 @@ public class CommandLineInterface {
 
     private static void printEvaluationReuse(RDGNode rdgRoot) {
         try {
-            Map<RDGNode, Integer> numberOfPaths = rdgRoot.getNumberOfPaths();
-            int nodes = 0;
-            int totalPaths = 0;
-            for (Map.Entry<RDGNode, Integer> entry: numberOfPaths.entrySet()) {
-                nodes++;
-                totalPaths += entry.getValue();
-                OUTPUT.println(entry.getKey() + ": " + entry.getValue() + " paths");
+            RdgDag dag = RdgDag.of(rdgRoot);
+            long[] numberOfPaths = dag.getNumberOfPaths();
+            long totalPaths = 0;
+            for (int id = 0; id < dag.size(); id++) {
+                totalPaths += numberOfPaths[id];
+                OUTPUT.println(dag.getNode(id) + ": " + numberOfPaths[id] + " paths");
             }
-            OUTPUT.println("Evaluation economy because of cache: " + 100*(totalPaths-nodes)/(float)totalPaths + "%");
+            OUTPUT.println("Evaluation economy because of cache: " + 100*(totalPaths-dag.size())/(float)totalPaths + "%");
         } catch (CyclicRdgException e) {
             LOGGER.severe("Cyclic dependency detected in RDG.");
             LOGGER.log(Level.SEVERE, e.toString(), e);
@@ -316,7 +603,7 @@ public class CommandLineInterface {
      * @param featureModelFile
      * @return
      */
-    private static String readFeatureModel(File featureModelFile) {
+    static String readFeatureModel(File featureModelFile) {
         String featureModel = null;
         Path path = featureModelFile.toPath();
         try {
@@ -333,11 +620,11 @@ public class CommandLineInterface {
      * @param options
      * @return
      */
-    private static RDGNode buildRDG(Options options) {
+    private static RDGNode buildRDG(Options options, RdgContext rdgContext) {
         File umlModels = new File(options.getUmlModelsFilePath());
         RDGNode rdgRoot = null;
         try {
-            rdgRoot = model(umlModels, timeCollector);
+            rdgRoot = model(umlModels, timeCollector, rdgContext);
         } catch (DOMException | UnsupportedFragmentTypeException
                 | InvalidTagException | InvalidNumberOfOperandsException
                 | InvalidNodeClassException | InvalidNodeType e) {
@@ -352,6 +639,7 @@ public class CommandLineInterface {
      * Abstracts UML to RDG transformation.
      *
      * @param umlModels
+     * @param rdgContext Context in which to create the RDG nodes.
      * @return
      * @throws InvalidTagException
      * @throws UnsupportedFragmentTypeException
@@ -360,7 +648,7 @@ public class CommandLineInterface {
      * @throws InvalidNodeClassException
      * @throws InvalidNumberOfOperandsException
      */
-    private static RDGNode model(File umlModels, ITimeCollector timeCollector) throws UnsupportedFragmentTypeException, InvalidTagException, InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+    static RDGNode model(File umlModels, ITimeCollector timeCollector, RdgContext rdgContext) throws UnsupportedFragmentTypeException, InvalidTagException, InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
     	String exporter = identifyExporter(umlModels);
     	IModelerAPI modeler = null;
     	
@@ -368,12 +656,12 @@ public class CommandLineInterface {
     	
     	switch (exporter) {
 		case "MagicDraw":
-			modeler = new DiagramAPI(umlModels);
+			modeler = new DiagramAPI(umlModels, rdgContext);
 			
 			break;
 
 		case "SplGenerator": 
-			modeler = new SplGeneratorModelingAPI(umlModels);
+			modeler = new SplGeneratorModelingAPI(umlModels, rdgContext);
 			break;
 			
 		default:
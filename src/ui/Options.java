@@ -1,6 +1,7 @@
 package ui;
 
 import java.io.IOException;
+import java.util.List;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -18,15 +19,30 @@ import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 class Options {
     private String featureModelFilePath;
     private String umlModelsFilePath;
-    private String paramPath;
+    private List<String> paramPaths;
     private String configuration;
     private String configurationsFilePath;
     private boolean printAllConfigurations;
     private boolean suppressReport;
+    private boolean modelReductionEnabled;
     private boolean statsEnabled;
     private ConcurrencyStrategy concurrencyStrategy;
     private PruningStrategy pruningStrategy;
     private AnalysisStrategy analysisStrategy;
+    private int modelCheckingWorkers;
+    private String modelCheckingTimesFilePath;
+    private String incrementalCacheFilePath;
+    private String evolutionSnapshotFilePath;
+    private String fixedFeatures;
+    private boolean irrelevantFeatureEliminationEnabled;
+    private boolean grayCodeEvaluationEnabled;
+    private int splitFeaturesNumber;
+    private Integer coordinatorPort;
+    private String coordinatorBindAddress;
+    private String workerAddress;
+    private Integer serverPort;
+    private String checkpointDirectory;
+    private boolean resumeEnabled;
 
     static Options parseOptions(String[] args) throws IOException {
         OptionParser optionParser = new OptionParser();
@@ -42,7 +58,8 @@ class Options {
                 .describedAs("File");
         OptionSpec<String> paramPathOption = optionParser
                 .accepts("param-path",
-                         "Path to the parametric model checker (either PARAM or Prism)")
+                         "Path to the parametric model checker (either PARAM or Prism). "
+                         + "If given more than once, all model checkers are raced against each other")
                 .withRequiredArg()
                 .defaultsTo("/opt/param-2-3-64")
                 .describedAs("Directory");
@@ -64,6 +81,9 @@ class Options {
         OptionSpec<Void> statsEnabledOption = optionParser
                 .accepts("stats",
                          "Print profiling stats");
+        OptionSpec<Void> noModelReductionOption = optionParser
+                .accepts("no-model-reduction",
+                         "Hand FDTMCs to the model checker as they are, without reducing them first");
 
         OptionSpec<ConcurrencyStrategy> concurrencyStrategyOption = optionParser
                 .accepts("concurrency-strategy",
@@ -74,11 +94,11 @@ class Options {
                         .describedAs("PARALLEL | SEQUENTIAL");
         OptionSpec<PruningStrategy> pruningStrategyOption = optionParser
                 .accepts("pruning-strategy",
-                         "The strategy that should be used for pruning invalid configurations. Can be one of: FM (whole feature model); NONE (no pruning)")
+                         "The strategy that should be used for pruning invalid configurations. Can be one of: FM (whole feature model); PROJECTED_FM (feature model projected onto each node's features); CARE_SET (invalid configurations as don't cares); NONE (no pruning)")
                 .withRequiredArg()
                 .ofType(PruningStrategy.class)
                 .defaultsTo(PruningStrategy.FM)
-                .describedAs("FM | NONE");
+                .describedAs("FM | PROJECTED_FM | CARE_SET | NONE");
 
         OptionSpec<AnalysisStrategy> analysisStrategyOption = optionParser
                 .accepts("analysis-strategy",
@@ -87,11 +107,97 @@ class Options {
                                  + "FEATURE_PRODUCT (feature-product-based); "
                                  + "FAMILY (family-based); "
                                  + "FAMILY_PRODUCT (family-product-based); "
-                                 + "PRODUCT (product-based).")
+                                 + "PRODUCT (product-based); "
+                                 + "HYBRID (feature-family-based, with small subtrees analyzed family-based); "
+                                 + "AUTO (the one estimated to be the cheapest).")
                 .withRequiredArg()
                 .ofType(AnalysisStrategy.class)
                 .defaultsTo(AnalysisStrategy.FEATURE_FAMILY)
-                .describedAs("FEATURE_FAMILY | FEATURE_PRODUCT | FAMILY | FAMILY_PRODUCT | PRODUCT");
+                .describedAs("FEATURE_FAMILY | FEATURE_PRODUCT | FAMILY | FAMILY_PRODUCT | PRODUCT | HYBRID | AUTO");
+
+        OptionSpec<Integer> modelCheckingWorkersOption = optionParser
+                .accepts("model-checking-workers",
+                         "Maximum number of models checked concurrently by feature-based strategies")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(Runtime.getRuntime().availableProcessors())
+                .describedAs("Number");
+        OptionSpec<String> modelCheckingTimesOption = optionParser
+                .accepts("model-checking-times",
+                         "Export estimated cost and actual time of each model-checking job (CSV)")
+                .withRequiredArg()
+                .describedAs("File");
+
+        OptionSpec<String> incrementalCacheOption = optionParser
+                .accepts("incremental-cache",
+                         "Reuse (and update) the results of previous feature-family-based analyses kept in this file")
+                .withRequiredArg()
+                .describedAs("File");
+
+        OptionSpec<String> evolutionSnapshotOption = optionParser
+                .accepts("evolution-snapshot",
+                         "Reuse (and update) the family reliability function kept in this file if only the feature model changed. Requires --pruning-strategy NONE (ignored otherwise)")
+                .withRequiredArg()
+                .describedAs("File");
+
+        OptionSpec<String> fixedFeaturesOption = optionParser
+                .accepts("fixed-features",
+                         "Only analyze the sub-family with these features enabled (or disabled, if preceded by '!')")
+                .withRequiredArg()
+                .describedAs("Feature,!Feature,...");
+
+        OptionSpec<Void> eliminateIrrelevantFeaturesOption = optionParser
+                .accepts("eliminate-irrelevant-features",
+                         "Sum out of the feature model the features which no presence condition references");
+
+        OptionSpec<Void> grayCodeEvaluationOption = optionParser
+                .accepts("gray-code-evaluation",
+                         "Evaluate products sequentially in Gray code order, recomputing only what differs from the previous product (feature-product and family-product strategies)");
+
+        OptionSpec<Integer> splitFeaturesOption = optionParser
+                .accepts("split-features",
+                         "Analyze the 2^k sub-families defined by k split features concurrently, each with its own ADD manager, and reassemble the results (feature-family strategy)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(0)
+                .describedAs("k");
+
+        OptionSpec<Integer> coordinatorOption = optionParser
+                .accepts("coordinator",
+                         "Distribute the analysis to the workers which connect to this TCP port: sub-families for feature-family-based strategies, batches of configurations for product-based ones")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("port");
+
+        OptionSpec<String> coordinatorBindOption = optionParser
+                .accepts("coordinator-bind",
+                         "Local address on which the coordinator listens for workers (e.g., 0.0.0.0 for workers on other hosts)")
+                .withRequiredArg()
+                .defaultsTo("127.0.0.1")
+                .describedAs("address");
+
+        OptionSpec<String> workerOption = optionParser
+                .accepts("worker",
+                         "Process work units from the coordinator at this address instead of running an analysis. Models and analysis settings must be the same as the coordinator's")
+                .withRequiredArg()
+                .describedAs("host:port");
+
+        OptionSpec<Integer> serverOption = optionParser
+                .accepts("server",
+                         "Run an analysis server on this (loopback) TCP port, which keeps product lines in memory and answers newline-delimited JSON requests. Models are given per request")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("port");
+
+        OptionSpec<String> checkpointDirectoryOption = optionParser
+                .accepts("checkpoint-dir",
+                         "Checkpoint the per-node results of feature-family-based analyses and the batches of configurations of product-based ones in this directory, as soon as they are computed")
+                .withRequiredArg()
+                .describedAs("Directory");
+
+        OptionSpec<Void> resumeOption = optionParser
+                .accepts("resume",
+                         "Resume an interrupted analysis from the checkpoint directory, skipping whatever it already holds");
 
         OptionSpec<Void> helpOption = optionParser
                 .accepts("help")
@@ -106,15 +212,30 @@ class Options {
         Options result = new Options();
         result.featureModelFilePath = options.valueOf(featureModelOption);
         result.umlModelsFilePath = options.valueOf(umlModelsOption);
-        result.paramPath = options.valueOf(paramPathOption);
+        result.paramPaths = options.valuesOf(paramPathOption);
         result.configuration = options.valueOf(configurationOption);
         result.configurationsFilePath = options.valueOf(configurationsFileOption);
         result.printAllConfigurations = options.has(allConfigurationsOption);
         result.suppressReport = options.has(suppressReportOption);
+        result.modelReductionEnabled = !options.has(noModelReductionOption);
         result.statsEnabled = options.has(statsEnabledOption);
         result.concurrencyStrategy = options.valueOf(concurrencyStrategyOption);
         result.pruningStrategy = options.valueOf(pruningStrategyOption);
         result.analysisStrategy = options.valueOf(analysisStrategyOption);
+        result.modelCheckingWorkers = options.valueOf(modelCheckingWorkersOption);
+        result.modelCheckingTimesFilePath = options.valueOf(modelCheckingTimesOption);
+        result.incrementalCacheFilePath = options.valueOf(incrementalCacheOption);
+        result.evolutionSnapshotFilePath = options.valueOf(evolutionSnapshotOption);
+        result.fixedFeatures = options.valueOf(fixedFeaturesOption);
+        result.irrelevantFeatureEliminationEnabled = options.has(eliminateIrrelevantFeaturesOption);
+        result.grayCodeEvaluationEnabled = options.has(grayCodeEvaluationOption);
+        result.splitFeaturesNumber = options.valueOf(splitFeaturesOption);
+        result.coordinatorPort = options.valueOf(coordinatorOption);
+        result.coordinatorBindAddress = options.valueOf(coordinatorBindOption);
+        result.workerAddress = options.valueOf(workerOption);
+        result.serverPort = options.valueOf(serverOption);
+        result.checkpointDirectory = options.valueOf(checkpointDirectoryOption);
+        result.resumeEnabled = options.has(resumeOption);
 
         return result;
     }
@@ -127,8 +248,8 @@ class Options {
         return umlModelsFilePath;
     }
 
-    public String getParamPath() {
-        return paramPath;
+    public List<String> getParamPaths() {
+        return paramPaths;
     }
 
     public boolean hasStatsEnabled() {
@@ -143,6 +264,10 @@ class Options {
         return suppressReport;
     }
 
+    public boolean isModelReductionEnabled() {
+        return modelReductionEnabled;
+    }
+
     public String getConfiguration() {
         return configuration;
     }
@@ -163,4 +288,60 @@ class Options {
         return analysisStrategy;
     }
 
+    public int getModelCheckingWorkers() {
+        return modelCheckingWorkers;
+    }
+
+    public String getModelCheckingTimesFilePath() {
+        return modelCheckingTimesFilePath;
+    }
+
+    public String getIncrementalCacheFilePath() {
+        return incrementalCacheFilePath;
+    }
+
+    public String getEvolutionSnapshotFilePath() {
+        return evolutionSnapshotFilePath;
+    }
+
+    public String getFixedFeatures() {
+        return fixedFeatures;
+    }
+
+    public boolean isIrrelevantFeatureEliminationEnabled() {
+        return irrelevantFeatureEliminationEnabled;
+    }
+
+    public boolean isGrayCodeEvaluationEnabled() {
+        return grayCodeEvaluationEnabled;
+    }
+
+    public int getSplitFeaturesNumber() {
+        return splitFeaturesNumber;
+    }
+
+    public Integer getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    public String getCoordinatorBindAddress() {
+        return coordinatorBindAddress;
+    }
+
+    public String getWorkerAddress() {
+        return workerAddress;
+    }
+
+    public Integer getServerPort() {
+        return serverPort;
+    }
+
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public boolean isResumeEnabled() {
+        return resumeEnabled;
+    }
+
 }
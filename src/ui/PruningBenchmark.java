@@ -0,0 +1,115 @@
+package ui;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jadd.ADD;
+import tool.Analyzer;
+import tool.PruningStrategy;
+import tool.PruningStrategyFactory;
+import tool.RDGNode;
+import tool.analyzers.IPruningStrategy;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.stats.ITimeCollector;
+import ui.stats.StatsCollectorFactory;
+
+/**
+ * Compares the pruning strategies by the sizes (numbers of ADD nodes) of the
+ * pruned reliability mappings in feature-family-based analyses.
+ *
+ * Arguments are pairs of feature model and UML models files (defaulting to
+ * the models shipped with the tool). The parametric model checker is taken
+ * from the {@code param.path} system property (defaulting to the same path
+ * as {@code --param-path}). Each model is model-checked once, and the
+ * resulting expressions are reused for every strategy.
+ */
+public class PruningBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(PruningBenchmark.class.getName());
+    private static final PrintStream OUTPUT = System.out;
+
+    private static final String[] DEFAULT_MODELS = {
+        "fm.txt", "modeling.xml",
+        "BSN-FM_without_file.txt", "BSN_models_without_File.xml",
+        "CNF_MinePump.txt", "MinePump.xml",
+        "CNF_LiftSystem.txt", "LiftSystem.xml",
+        "CNF_CloudComputing.txt", "CloudComputing.xml",
+        "CNF_Tankwar.txt", "TankWar.xml",
+        "email-FM.txt", "Email.xml",
+    };
+
+    public static void main(String[] args) {
+        String[] models = (args.length > 0) ? args : DEFAULT_MODELS;
+        if (models.length % 2 != 0) {
+            OUTPUT.println("Usage: PruningBenchmark [<feature model> <UML models>]...");
+            System.exit(1);
+        }
+        String paramPath = System.getProperty("param.path", "/opt/param-2-3-64");
+        OUTPUT.println(String.format("%-28s %-14s %12s %10s %10s %10s",
+                                     "Model", "Strategy", "Total nodes", "Max nodes", "Root nodes", "Time (ms)"));
+        for (int i = 0; i < models.length; i += 2) {
+            try {
+                benchmark(new File(models[i]), new File(models[i+1]), paramPath);
+            } catch (Exception e) {
+                LOGGER.severe("Error benchmarking " + models[i+1] + ".");
+                LOGGER.log(Level.SEVERE, e.toString(), e);
+            }
+        }
+    }
+
+    private static void benchmark(File featureModelFile, File umlModels, String paramPath) throws Exception {
+        StatsCollectorFactory statsCollectorFactory = new StatsCollectorFactory(false);
+        ITimeCollector timeCollector = statsCollectorFactory.createTimeCollector();
+        Analyzer analyzer = new Analyzer(CommandLineInterface.readFeatureModel(featureModelFile),
+                                         Collections.singletonList(paramPath),
+                                         timeCollector,
+                                         statsCollectorFactory.createFormulaCollector(),
+                                         statsCollectorFactory.createModelCollector());
+        // Expressions are cached, so that only the first strategy model-checks.
+        analyzer.setIncrementalCache(new IncrementalCache());
+        RDGNode rdgRoot = CommandLineInterface.model(umlModels, timeCollector, analyzer.getRdgContext());
+
+        for (PruningStrategy strategy: PruningStrategy.values()) {
+            NodeCountingPruningStrategy counter = new NodeCountingPruningStrategy(PruningStrategyFactory.createPruningStrategy(strategy));
+            // Setting the strategy discards the cached (pruned) reliabilities.
+            analyzer.setPruningStrategy(counter);
+            long startTime = System.currentTimeMillis();
+            analyzer.evaluateFeatureFamilyBasedReliability(rdgRoot);
+            long time = System.currentTimeMillis() - startTime;
+            OUTPUT.println(String.format("%-28s %-14s %12d %10d %10d %10d",
+                                         umlModels.getName(),
+                                         strategy,
+                                         counter.totalNodes,
+                                         counter.maxNodes,
+                                         counter.lastNodes,
+                                         time));
+        }
+    }
+
+    /**
+     * Decorator which records the sizes of the pruned reliability mappings.
+     */
+    private static class NodeCountingPruningStrategy implements IPruningStrategy {
+        private final IPruningStrategy strategy;
+        private long totalNodes = 0;
+        private int maxNodes = 0;
+        // The root is the last node to be solved.
+        private int lastNodes = 0;
+
+        public NodeCountingPruningStrategy(IPruningStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public ADD pruneInvalidConfigurations(RDGNode node, ADD reliability, ADD featureModel) {
+            ADD pruned = strategy.pruneInvalidConfigurations(node, reliability, featureModel);
+            lastNodes = pruned.getNodeCount();
+            totalNodes += lastNodes;
+            maxNodes = Math.max(maxNodes, lastNodes);
+            return pruned;
+        }
+    }
+
+}
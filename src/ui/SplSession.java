@@ -0,0 +1,143 @@
+package ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import parsing.exceptions.InvalidNodeClassException;
+import parsing.exceptions.InvalidNodeType;
+import parsing.exceptions.InvalidNumberOfOperandsException;
+import parsing.exceptions.InvalidTagException;
+import parsing.exceptions.UnsupportedFragmentTypeException;
+import tool.Analyzer;
+import tool.PruningStrategyFactory;
+import tool.RDGNode;
+import tool.RdgContext;
+import tool.analyzers.ReliabilitySnapshot;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.stats.NoopTimeCollector;
+
+/**
+ * A product line registered in the analysis server, along with everything
+ * which is worth keeping between its analyses: the encoded feature model
+ * (in the Analyzer's ADD manager), the parsed RDG, the per-node expressions
+ * and reliability functions of the last analysis (see {@link IncrementalCache})
+ * and a snapshot of its results.
+ *
+ * Analyses of a session are serialized, but its snapshot is published
+ * atomically, so queries never wait for them.
+ */
+class SplSession {
+    private static final Logger LOGGER = Logger.getLogger(SplSession.class.getName());
+
+    private final String name;
+    private final String featureModelFilePath;
+    private final String umlModelsFilePath;
+    private final Options options;
+    private final IncrementalCache incrementalCache = new IncrementalCache();
+
+    // Guarded by this.
+    private String featureModel;
+    private Analyzer analyzer;
+    private RDGNode rdgRoot;
+
+    private volatile ReliabilitySnapshot snapshot;
+
+    /**
+     * Reads the feature model and the behavioral models.
+     *
+     * @param options settings of the analyses (model checker, pruning strategy, etc.).
+     */
+    SplSession(String name, String featureModelFilePath, String umlModelsFilePath, Options options) throws IOException, ModelsException {
+        this.name = name;
+        this.featureModelFilePath = featureModelFilePath;
+        this.umlModelsFilePath = umlModelsFilePath;
+        this.options = options;
+        load();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the results of the last analysis, or null if there was none.
+     */
+    ReliabilitySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Analyzes the product line with the feature-family-based strategy,
+     * reusing the results of the previous analysis for the nodes which
+     * did not change, and publishes a new snapshot.
+     *
+     * @param reload whether to read the models again first (e.g., after an edit).
+     * @return a summary of the analysis.
+     */
+    synchronized Map<String, Object> analyze(boolean reload) throws IOException, ModelsException {
+        if (reload) {
+            load();
+        }
+        long startTime = System.currentTimeMillis();
+        ReliabilitySnapshot newSnapshot = analyzer.snapshotFeatureFamilyBasedReliability(rdgRoot);
+        long analysisTime = System.currentTimeMillis() - startTime;
+        snapshot = newSnapshot;
+        LOGGER.info("Analyzed " + name + " in " + analysisTime + " ms.");
+
+        Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("analysisTime", analysisTime);
+        IncrementalCache.Report report = incrementalCache.getLastReport();
+        if (report != null) {
+            summary.put("checkedNodes", report.getCheckedNodes().size());
+            summary.put("solvedNodes", report.getSolvedNodes().size());
+        }
+        summary.put("configurations", newSnapshot.aggregate().getConfigurationsNumber());
+        return summary;
+    }
+
+    /**
+     * (Re-)reads the models. The Analyzer, and thus the encoded feature
+     * model, is only replaced if the feature model changed, in which case
+     * the cached reliability functions (which belong to the previous ADD
+     * manager) are discarded, but the cached expressions are kept.
+     */
+    private synchronized void load() throws IOException, ModelsException {
+        String newFeatureModel = new String(Files.readAllBytes(Paths.get(featureModelFilePath)), StandardCharsets.UTF_8);
+        if (!newFeatureModel.equals(featureModel)) {
+            Analyzer newAnalyzer = new Analyzer(newFeatureModel, options.getParamPaths(), null, null, null);
+            newAnalyzer.setConcurrencyStrategy(options.getConcurrencyStrategy());
+            newAnalyzer.setModelCheckingWorkers(options.getModelCheckingWorkers());
+            newAnalyzer.setModelReduction(options.isModelReductionEnabled());
+            newAnalyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
+            newAnalyzer.setIncrementalCache(incrementalCache);
+            incrementalCache.clearReliabilities();
+            featureModel = newFeatureModel;
+            analyzer = newAnalyzer;
+        }
+        // A fresh context, so that no node of the previous models is reused.
+        try {
+            rdgRoot = CommandLineInterface.model(new File(umlModelsFilePath), new NoopTimeCollector(), new RdgContext());
+        } catch (UnsupportedFragmentTypeException | InvalidTagException | InvalidNumberOfOperandsException
+                | InvalidNodeClassException | InvalidNodeType e) {
+            throw new ModelsException(e);
+        }
+    }
+
+    /**
+     * The behavioral models could not be read.
+     */
+    static class ModelsException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ModelsException(Exception cause) {
+            super("Error reading the UML models: " + cause, cause);
+        }
+    }
+
+}
@@ -8,13 +8,15 @@ import java.util.Map;
 
 import tool.RDGNode;
 import tool.stats.IFormulaCollector;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaSerializer;
 
 public class FormulaCollector implements IFormulaCollector {
 
-    private Map<RDGNode, String> formulae = new HashMap<RDGNode, String>();
+    private Map<RDGNode, Formula> formulae = new HashMap<RDGNode, Formula>();
 
     @Override
-    public synchronized void collectFormula(RDGNode node, String formula) {
+    public synchronized void collectFormula(RDGNode node, Formula formula) {
         formulae.put(node, formula);
     }
 
@@ -27,18 +29,19 @@ public class FormulaCollector implements IFormulaCollector {
         List<Integer> allFormulaeSizes = new LinkedList<Integer>();
 
         out.println("Formulae stats:");
-        for (Map.Entry<RDGNode, String> entry: formulae.entrySet()) {
+        for (Map.Entry<RDGNode, Formula> entry: formulae.entrySet()) {
             RDGNode node = entry.getKey();
             int numChildren = node.getDependencies().size();
             int height = node.getHeight();
-            String formula = entry.getValue();
-            int formulaSize = formula.length();
-            String formattedFormula = formulaSize < 1000 ?
-                    "| " + formula
+            Formula formula = entry.getValue();
+            int formulaSize = formula.size();
+            // Shared subterms are kept, unlike in the infix form.
+            String formattedFormula = formulaSize < 200 ?
+                    "| " + FormulaSerializer.serialize(formula)
                     : "";
             out.println("    " + node + ": "
                         + numChildren + " children | height " + height + " | "
-                        + formulaSize + " bytes " + formattedFormula);
+                        + formulaSize + " nodes " + formattedFormula);
 
             count++;
             minSize = Math.min(minSize, formulaSize);
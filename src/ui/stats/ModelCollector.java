@@ -15,6 +15,9 @@ public class ModelCollector implements IModelCollector {
 
     private List<Model> models = Collections.synchronizedList(new LinkedList<Model>());
     private List<Double> times = Collections.synchronizedList(new LinkedList<Double>());
+    private long statesBeforeReduction = 0;
+    private long statesAfterReduction = 0;
+    private int reducedModels = 0;
 
     @Override
     public void collectModel(int variables, int states) {
@@ -29,6 +32,13 @@ public class ModelCollector implements IModelCollector {
         times.add(elapsedTimeNanos/1E+6);
     }
 
+    @Override
+    public synchronized void collectModelReduction(int statesBefore, int statesAfter) {
+        statesBeforeReduction += statesBefore;
+        statesAfterReduction += statesAfter;
+        reducedModels++;
+    }
+
     @Override
     public void printStats(PrintStream out) {
         int maxVars = 0;
@@ -61,6 +71,12 @@ public class ModelCollector implements IModelCollector {
         out.println("Minimum states in a model: " + minStates);
         out.println("Sum of models' states: " + statesSum);
         out.println("Number of models: " + count);
+        synchronized (this) {
+            if (reducedModels > 0) {
+                out.println("Sum of models' states before reduction: " + statesBeforeReduction);
+                out.println("Sum of models' states after reduction: " + statesAfterReduction);
+            }
+        }
 
         synchronized (times) {
             out.println("All model checking times (ms): " + times);
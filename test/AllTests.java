@@ -1,26 +1,52 @@
 
 import jadd.ADDConfigurationsTest;
+import jadd.ADDSerializerTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import paramwrapper.FDTMCToParamTest;
+import paramwrapper.PortfolioModelCheckerTest;
 import paramwrapper.ReliabilityFormulaTest;
 import tool.AnalyzerTest;
+import tool.PartialConfigurationTest;
 import tool.RDGNodeTest;
+import tool.RdgContextTest;
+import tool.RdgDagTest;
+import tool.analyzers.ReliabilitySnapshotTest;
+import tool.analyzers.buildingblocks.GrayCodeOrderTest;
+import tool.analyzers.buildingblocks.HybridPartitionerTest;
+import tool.analyzers.buildingblocks.ModelCheckingSchedulerTest;
+import tool.distributed.CoordinatorTest;
 import expressionsolver.ExpressionSolverTest;
+import fdtmc.CompactFDTMCTest;
+import fdtmc.CompositeFDTMCTest;
+import fdtmc.FDTMCReducerTest;
 import fdtmc.FDTMCTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
     FDTMCTest.class,
+    CompactFDTMCTest.class,
+    CompositeFDTMCTest.class,
+    FDTMCReducerTest.class,
     FDTMCToParamTest.class,
     ReliabilityFormulaTest.class,
+    PortfolioModelCheckerTest.class,
     ExpressionSolverTest.class,
     AnalyzerTest.class,
     RDGNodeTest.class,
-    ADDConfigurationsTest.class
+    RdgContextTest.class,
+    RdgDagTest.class,
+    PartialConfigurationTest.class,
+    ADDConfigurationsTest.class,
+    ADDSerializerTest.class,
+    ModelCheckingSchedulerTest.class,
+    GrayCodeOrderTest.class,
+    HybridPartitionerTest.class,
+    CoordinatorTest.class,
+    ReliabilitySnapshotTest.class
 })
 public class AllTests {
 
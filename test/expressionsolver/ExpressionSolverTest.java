@@ -5,7 +5,9 @@ import static org.junit.Assert.assertNull;
 import jadd.ADD;
 import jadd.JADD;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -13,6 +15,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import expressionsolver.ExpressionSolver;
+import expressionsolver.formula.CompiledFormula;
+import expressionsolver.formula.Formula;
+import expressionsolver.formula.FormulaParser;
+import expressionsolver.formula.FormulaSerializer;
+import expressionsolver.formula.IncrementalFormula;
 
 public class ExpressionSolverTest {
     private JADD jadd;
@@ -227,4 +234,99 @@ public class ExpressionSolverTest {
         assertEquals(24.0, result, 1E+10);
     }
 
+    @Test
+    public void testFormulaSharesSubterms() throws IOException {
+        Formula formula = FormulaParser.parse("(1 - r0) * r1 + (1-r0)*r1 / 2");
+        // 1, r0, 1-r0, r1, (1-r0)*r1, 2, division, sum
+        assertEquals(8, formula.size());
+        assertEquals(new HashSet<String>(Arrays.asList("r0", "r1")),
+                     formula.getVariables());
+
+        HashMap<String, Double> interpretation = new HashMap<String, Double>();
+        interpretation.put("r0", 0.5);
+        interpretation.put("r1", 0.8);
+        assertEquals(0.6, solver.solveExpression(formula, interpretation), 1E-10);
+    }
+
+    @Test
+    public void testFormulaSerializationPreservesSharingAndConstants() throws IOException {
+        Formula formula = FormulaParser.parse("(1 - r0) * r1 + (1-r0)*r1 / 2 - 0.1*-r0^3");
+        Formula deserialized = FormulaSerializer.deserialize(FormulaSerializer.serialize(formula));
+
+        assertEquals(formula.size(), deserialized.size());
+        assertEquals(formula.toString(), deserialized.toString());
+        HashMap<String, Double> interpretation = new HashMap<String, Double>();
+        interpretation.put("r0", 0.3);
+        interpretation.put("r1", 0.7);
+        assertEquals(solver.solveExpression(formula, interpretation),
+                     solver.solveExpression(deserialized, interpretation));
+    }
+
+    @Test
+    public void testCompiledFormulaUsesSlots() throws IOException {
+        Formula formula = FormulaParser.parse("(1 - r0) * r1 + (1-r0)*r1 / 2 - 0.1*-r0^3");
+        HashMap<String, Integer> slots = new HashMap<String, Integer>();
+        slots.put("r1", 0);
+        slots.put("r0", 1);
+        CompiledFormula compiled = formula.compile(slots);
+
+        HashMap<String, Double> interpretation = new HashMap<String, Double>();
+        interpretation.put("r0", 0.3);
+        interpretation.put("r1", 0.7);
+        assertEquals(solver.solveExpression(formula, interpretation),
+                     compiled.evaluate(new double[]{0.7, 0.3}), 1E-15);
+    }
+
+    @Test
+    public void testIncrementalFormulaTracksSlotChanges() throws IOException {
+        Formula formula = FormulaParser.parse("(1 - r0) * r1 + (1-r0)*r1 / 2 - 0.1*-r0^3 + r2");
+        HashMap<String, Integer> slots = new HashMap<String, Integer>();
+        slots.put("r0", 0);
+        slots.put("r1", 1);
+        slots.put("r2", 2);
+        CompiledFormula compiled = formula.compile(slots);
+        IncrementalFormula incremental = new IncrementalFormula(compiled, 3);
+
+        double[][] environments = {{0.3, 0.7, 0.1}, {0.3, 0.7, 0.2}, {0.5, 0.7, 0.2}, {0.5, 0.7, 0.2}, {0.1, 0.9, 0.0}};
+        for (double[] environment: environments) {
+            for (int slot = 0; slot < environment.length; slot++) {
+                incremental.set(slot, environment[slot]);
+            }
+            assertEquals(compiled.evaluate(environment), incremental.evaluate(), 1E-15);
+        }
+        // Only the sum with r2 is affected by changing it alone.
+        long computed = incremental.getRecomputedNodesNumber();
+        incremental.set(2, 0.5);
+        incremental.evaluate();
+        assertEquals(2, incremental.getRecomputedNodesNumber() - computed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompiledFormulaRequiresSlotsForAllVariables() throws IOException {
+        FormulaParser.parse("r0 * r1").compile(Collections.singletonMap("r0", 0));
+    }
+
+    @Test
+    public void testFormulaParsingPrecedence() throws IOException {
+        assertEquals(-4.0, solver.solveExpression(FormulaParser.parse("-2^2")), 1E-10);
+        assertEquals(1.0, solver.solveExpression(FormulaParser.parse("8 - 4 - 3")), 1E-10);
+        assertEquals(2.5e-3, solver.solveExpression(FormulaParser.parse("(25)|(10000)")), 1E-10);
+        assertEquals(6.0, solver.solveExpression(FormulaParser.parse("2 (1 + 2)")), 1E-10);
+        assertEquals("8-(4-3)", FormulaParser.parse("8 - (4 - 3)").toString());
+        assertEquals("-1*r0*rFail+1*r0", FormulaParser.parse("-1*r0*rFail+1*r0").toString());
+    }
+
+    @Test
+    public void testFormulaAsFunction() throws IOException {
+        ADD presenceCondition = solver.encodeFormula("sqlite");
+        HashMap<String, ADD> interpretation = new HashMap<String, ADD>();
+        interpretation.put("rSqlite", presenceCondition.ifThenElse(jadd.makeConstant(0.5),
+                                                                   jadd.makeConstant(1)));
+
+        Formula formula = FormulaParser.parse("rSqlite * 0.9");
+        ADD result = solver.compileExpressionForFunctions(formula).solve(interpretation);
+        ADD expected = solver.solveExpressionAsFunction("rSqlite * 0.9", interpretation);
+        assertEquals(expected, result);
+    }
+
 }
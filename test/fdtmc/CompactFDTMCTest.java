@@ -0,0 +1,120 @@
+package fdtmc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tool.FDTMCStub;
+
+public class CompactFDTMCTest {
+
+	@Test
+	public void testBuilderGroupsTransitionsBySource() {
+		CompactFDTMC.Builder builder = new CompactFDTMC.Builder("s");
+		int s0 = builder.createState();
+		int s1 = builder.createState();
+		int s2 = builder.createState();
+		builder.addTransition(s1, s2, "b", "1");
+		builder.addTransition(s0, s1, "a", "rA");
+		builder.addTransition(s0, s2, "!a", "1-rA");
+		builder.addTransition(s2, s2, "", "1");
+		CompactFDTMC compact = builder.build();
+
+		Assert.assertEquals(3, compact.getStatesNumber());
+		Assert.assertEquals(4, compact.getTransitionsNumber());
+		Assert.assertEquals(s0, compact.getInitialState());
+		Assert.assertEquals(2, compact.getOutDegree(s0));
+		int first = compact.getFirstTransition(s0);
+		Assert.assertEquals(s1, compact.getTarget(first));
+		Assert.assertEquals("rA", compact.getProbability(first));
+		Assert.assertEquals(s2, compact.getTarget(first + 1));
+		Assert.assertEquals(s1, compact.getSource(compact.getFirstTransition(s1)));
+		Assert.assertEquals(s2, compact.getSource(compact.getTransitionByActionName("")));
+		Assert.assertEquals("Equal expressions should be interned",
+				compact.getProbabilityId(compact.getFirstTransition(s1)),
+				compact.getProbabilityId(compact.getFirstTransition(s2)));
+	}
+
+	@Test
+	public void testRoundTripThroughObjectAPI() {
+		FDTMC fdtmc = FDTMCStub.createFDTMCWithInterface();
+		CompactFDTMC compact = fdtmc.compact();
+
+		Assert.assertEquals(compact.getStateByLabel(FDTMC.SUCCESS_LABEL), fdtmc.getSuccessState().getIndex());
+		Assert.assertEquals(1, compact.getInterfacesNumber());
+		Assert.assertTrue(compact.isInterfaceTransition(compact.getInterfaceSuccessTransition(0)));
+
+		FDTMC wrapped = new FDTMC(compact);
+		Assert.assertEquals(fdtmc.toString(), wrapped.toString());
+		Assert.assertEquals(fdtmc, wrapped);
+		Assert.assertEquals(fdtmc.getStates(), wrapped.getStates());
+		Assert.assertEquals(fdtmc.getTransitions(), wrapped.getTransitions());
+		Assert.assertSame(wrapped.getStateByLabel(FDTMC.ERROR_LABEL), wrapped.getErrorState());
+	}
+
+	@Test
+	public void testModificationInvalidatesCompactForm() {
+		FDTMC fdtmc = FDTMCStub.createFDTMCWithInterface();
+		CompactFDTMC before = fdtmc.compact();
+		Assert.assertSame(before, fdtmc.compact());
+
+		FDTMC copy = fdtmc.copy();
+		State extra = copy.createState("extra");
+		Assert.assertNotEquals(fdtmc, copy);
+		Assert.assertEquals(before.getStatesNumber() + 1, copy.compact().getStatesNumber());
+		Assert.assertSame("The original should not be affected by changes to its copy",
+				before, fdtmc.compact());
+
+		extra.setLabel("relabeled");
+		Assert.assertEquals(extra.getIndex(), copy.compact().getStateByLabel("relabeled"));
+	}
+
+	@Test
+	public void testStructuralHashIsConsistentWithEquals() {
+		FDTMC fdtmc = FDTMCStub.createFDTMCWithInterface();
+		FDTMC relabeled = FDTMCStub.createFDTMCWithInterface();
+		relabeled.setVariableName("other");
+		relabeled.getStates().iterator().next().setLabel("renamed");
+
+		Assert.assertEquals(fdtmc, relabeled);
+		Assert.assertEquals(fdtmc.getStructuralHash(), relabeled.getStructuralHash());
+
+		long before = relabeled.getStructuralHash();
+		relabeled.createTransition(relabeled.getSuccessState(), relabeled.getSuccessState(), "loop", "1");
+		Assert.assertNotEquals(before, relabeled.getStructuralHash());
+	}
+
+	@Test
+	public void testInlineReplacesInterfaceByFragment() {
+		FDTMC fdtmc = FDTMCStub.createFDTMCWithInterface();
+
+		FDTMC fragment = new FDTMC();
+		fragment.setVariableName("f");
+		State init = fragment.createInitialState();
+		State success = fragment.createSuccessState();
+		State error = fragment.createErrorState();
+		fragment.createTransition(init, success, "g", "rG");
+		fragment.createTransition(init, error, "!g", "1-rG");
+
+		Map<String, FDTMC> models = new HashMap<String, FDTMC>();
+		models.put("F", fragment);
+		CompactFDTMC inlined = fdtmc.inline(models).compact();
+
+		int base = fdtmc.compact().getStatesNumber();
+		Assert.assertEquals(base + 3, inlined.getStatesNumber());
+		Assert.assertEquals(0, inlined.getInterfacesNumber());
+		// 4 non-interface transitions, 2 from the fragment and 3 links
+		Assert.assertEquals(9, inlined.getTransitionsNumber());
+		Assert.assertEquals(FDTMC.SUCCESS_LABEL, inlined.getLabel(inlined.getSuccessState()));
+		Assert.assertNull("Inlined fragment states should be unlabeled", inlined.getLabel(base + 1));
+
+		int interfaceInitial = fdtmc.compact().getInterfaceInitial(0);
+		Assert.assertEquals(1, inlined.getOutDegree(interfaceInitial));
+		Assert.assertEquals(base, inlined.getTarget(inlined.getFirstTransition(interfaceInitial)));
+		Assert.assertEquals(fdtmc.compact().getInterfaceSuccess(0),
+				inlined.getTarget(inlined.getFirstTransition(base + 1)));
+	}
+
+}
@@ -0,0 +1,93 @@
+package fdtmc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tool.FDTMCStub;
+
+public class CompositeFDTMCTest {
+
+	@Test
+	public void testInlinedViewMatchesFlattenedForm() {
+		FDTMCView parent = FDTMCStub.createFDTMCWithInterface().compact();
+		Map<String, FDTMCView> fragments = new HashMap<String, FDTMCView>();
+		fragments.put("F", createFragment().compact());
+
+		FDTMCView inlined = CompositeFDTMC.inline(parent, fragments);
+		CompactFDTMC flattened = inlined.toCompact();
+
+		assertSameView(flattened, inlined);
+		Assert.assertSame("The flat form should be cached", flattened, inlined.toCompact());
+	}
+
+	@Test
+	public void testDecoratedViewMatchesFlattenedForm() {
+		FDTMCView base = FDTMCStub.createFDTMCWithInterface().compact();
+
+		FDTMCView decorated = CompositeFDTMC.decoratedWithPresence(base, "fF");
+
+		Assert.assertEquals(base.getStatesNumber(), decorated.getInitialState());
+		Assert.assertEquals(base.getInterfacesNumber(), decorated.getInterfacesNumber());
+		assertSameView(decorated.toCompact(), decorated);
+	}
+
+	@Test
+	public void testCompositionIsNotFlattened() {
+		FDTMC fdtmc = FDTMCStub.createFDTMCWithInterface();
+		Map<String, FDTMC> models = new HashMap<String, FDTMC>();
+		models.put("F", createFragment().decoratedWithPresence("fF"));
+
+		FDTMC inlined = fdtmc.inline(models);
+
+		Assert.assertTrue(inlined.view() instanceof CompositeFDTMC);
+		Assert.assertTrue(inlined.copy().view() instanceof CompositeFDTMC);
+		// Object views are still available on demand.
+		Assert.assertEquals(fdtmc.getStates().size() + 4, inlined.getStates().size());
+		Assert.assertEquals(inlined.compact(), inlined.copy().compact());
+	}
+
+	private static void assertSameView(CompactFDTMC expected, FDTMCView actual) {
+		Assert.assertEquals(expected.getStatesNumber(), actual.getStatesNumber());
+		Assert.assertEquals(expected.getTransitionsNumber(true), actual.getTransitionsNumber(true));
+		Assert.assertEquals(expected.getTransitionsNumber(false), actual.getTransitionsNumber(false));
+		Assert.assertEquals(expected.getInitialState(), actual.getInitialState());
+		Assert.assertEquals(expected.getSuccessState(), actual.getSuccessState());
+		Assert.assertEquals(expected.getErrorState(), actual.getErrorState());
+		Assert.assertArrayEquals(expected.getLabeledStates(), actual.getLabeledStates());
+		for (int state = 0; state < expected.getStatesNumber(); state++) {
+			Assert.assertEquals(expected.getLabel(state), actual.getLabel(state));
+			Assert.assertEquals(expected.getOutDegree(state, true), actual.getOutDegree(state, true));
+			Assert.assertEquals(expected.getOutDegree(state, false), actual.getOutDegree(state, false));
+			Assert.assertEquals(rowOf(expected, state), rowOf(actual, state));
+		}
+		Set<String> expectedProbabilities = new HashSet<String>();
+		expected.collectProbabilities(true, expectedProbabilities);
+		Set<String> actualProbabilities = new HashSet<String>();
+		actual.collectProbabilities(true, actualProbabilities);
+		Assert.assertEquals(expectedProbabilities, actualProbabilities);
+	}
+
+	private static String rowOf(FDTMCView fdtmc, int state) {
+		StringBuilder row = new StringBuilder();
+		fdtmc.visitTransitions(state, true, 0, (target, action, probability, interfaceTransition) ->
+			row.append(target).append('/').append(probability).append('/').append(interfaceTransition).append(' '));
+		return row.toString();
+	}
+
+	private FDTMC createFragment() {
+		FDTMC fragment = new FDTMC();
+		fragment.setVariableName("f");
+		State init = fragment.createInitialState();
+		State success = fragment.createSuccessState();
+		State error = fragment.createErrorState();
+		fragment.createTransition(init, success, "g", "rG");
+		fragment.createTransition(init, error, "!g", "1-rG");
+		return fragment;
+	}
+
+}
@@ -0,0 +1,101 @@
+package fdtmc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FDTMCReducerTest {
+
+	@Test
+	public void testChainIsCollapsedWithProductOfProbabilities() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State init = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		State first = fdtmc.createState();
+		State second = fdtmc.createState();
+		fdtmc.createTransition(init, first, "a", "0.9");
+		fdtmc.createTransition(init, error, "!a", "0.1");
+		fdtmc.createTransition(first, second, "b", "0.5");
+		fdtmc.createTransition(second, success, "c", "rC");
+		fdtmc.createTransition(success, success, "", "1");
+		fdtmc.createTransition(error, error, "", "1");
+
+		CompactFDTMC reduced = FDTMCReducer.reduce(fdtmc.compact());
+
+		Assert.assertEquals(3, reduced.getStatesNumber());
+		Assert.assertEquals(FDTMC.SUCCESS_LABEL, reduced.getLabel(reduced.getSuccessState()));
+		Assert.assertEquals(FDTMC.ERROR_LABEL, reduced.getLabel(reduced.getErrorState()));
+		int initial = reduced.getInitialState();
+		int toSuccess = reduced.getFirstTransition(initial);
+		Assert.assertEquals(reduced.getSuccessState(), reduced.getTarget(toSuccess));
+		Assert.assertEquals("0.45*rC", reduced.getProbability(toSuccess));
+	}
+
+	@Test
+	public void testUnreachableStatesAreRemoved() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State init = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State orphan = fdtmc.createState();
+		fdtmc.createTransition(init, success, "a", "rA");
+		fdtmc.createTransition(init, init, "!a", "1-rA");
+		fdtmc.createTransition(orphan, success, "b", "1");
+
+		CompactFDTMC reduced = FDTMCReducer.removeUnreachableStates(fdtmc.compact());
+
+		Assert.assertEquals(2, reduced.getStatesNumber());
+		Assert.assertEquals(2, reduced.getTransitionsNumber());
+	}
+
+	@Test
+	public void testBisimilarStatesAreLumped() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State init = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		State left = fdtmc.createState();
+		State right = fdtmc.createState();
+		fdtmc.createTransition(init, left, "", "rP");
+		fdtmc.createTransition(init, right, "", "1-rP");
+		fdtmc.createTransition(left, success, "", "rF");
+		fdtmc.createTransition(left, error, "", "1-rF");
+		fdtmc.createTransition(right, success, "", "rF");
+		fdtmc.createTransition(right, error, "", "1-rF");
+
+		CompactFDTMC reduced = FDTMCReducer.lump(fdtmc.compact());
+
+		Assert.assertEquals(4, reduced.getStatesNumber());
+		int initial = reduced.getInitialState();
+		Assert.assertEquals(1, reduced.getOutDegree(initial));
+		Assert.assertEquals("rP+(1-rP)", reduced.getProbability(reduced.getFirstTransition(initial)));
+	}
+
+	@Test
+	public void testLabeledAndInterfaceStatesArePreserved() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State init = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		State source = fdtmc.createState();
+		State target = fdtmc.createState();
+		State interfaceError = fdtmc.createState();
+		fdtmc.createTransition(init, source, "", "1");
+		fdtmc.createInterface("F", source, target, interfaceError);
+		fdtmc.createTransition(target, success, "", "1");
+		fdtmc.createTransition(interfaceError, error, "", "1");
+
+		CompactFDTMC reduced = FDTMCReducer.reduce(fdtmc.compact());
+
+		Assert.assertEquals(1, reduced.getInterfacesNumber());
+		int successTransition = reduced.getInterfaceSuccessTransition(0);
+		Assert.assertEquals("F", reduced.getProbability(successTransition));
+		Assert.assertEquals(reduced.getInterfaceSuccess(0), reduced.getTarget(successTransition));
+		Assert.assertNotEquals(reduced.getInterfaceSuccess(0), reduced.getInterfaceError(0));
+		Assert.assertEquals(reduced.getSuccessState(), reduced.getStateByLabel(FDTMC.SUCCESS_LABEL));
+	}
+
+}
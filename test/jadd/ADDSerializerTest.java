@@ -0,0 +1,88 @@
+package jadd;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ADDSerializerTest {
+
+    @Test
+    public void testRoundTripToAnotherManager() throws IOException, UnrecognizedVariableException {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        ADD function = a.ifThenElse(b.ifThenElse(jadd.makeConstant(0.5), jadd.makeConstant(0.1)),
+                                    c.times(jadd.makeConstant(1.0/3)));
+
+        // Variables are created in another order, so indices differ.
+        JADD other = new JADD();
+        other.getVariable("C");
+        other.getVariable("D");
+        ADD rebuilt = ADDSerializer.deserialize(other, ADDSerializer.serialize(function));
+
+        String[][] configurations = {{}, {"A"}, {"B"}, {"C"}, {"A", "B"}, {"A", "C"}, {"B", "C"}, {"A", "B", "C"}};
+        for (String[] configuration: configurations) {
+            Assert.assertEquals(Double.doubleToRawLongBits(function.eval(configuration)),
+                                Double.doubleToRawLongBits(rebuilt.eval(configuration)));
+        }
+    }
+
+    @Test
+    public void testConstantRoundTrip() throws IOException {
+        JADD jadd = new JADD();
+        ADD rebuilt = ADDSerializer.deserialize(jadd, ADDSerializer.serialize(jadd.makeConstant(0.75)));
+        Assert.assertTrue(rebuilt.isConstant());
+        Assert.assertEquals(jadd.makeConstant(0.75), rebuilt);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedInputIsRejected() throws IOException {
+        ADDSerializer.deserialize(new JADD(), "c0x1.0p0 i0,7,A");
+    }
+
+    @Test
+    public void testBinaryRoundTripToAnotherManager() throws IOException, UnrecognizedVariableException {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("feature B");
+        ADD function = a.ifThenElse(b.times(jadd.makeConstant(0.9)), jadd.makeConstant(1.0/3));
+
+        JADD other = new JADD();
+        other.getVariable("feature B");
+        ADD rebuilt = ADDSerializer.fromBytes(other, ADDSerializer.toBytes(function));
+
+        String[][] configurations = {{}, {"A"}, {"feature B"}, {"A", "feature B"}};
+        for (String[] configuration: configurations) {
+            Assert.assertEquals(Double.doubleToRawLongBits(function.eval(configuration)),
+                                Double.doubleToRawLongBits(rebuilt.eval(configuration)));
+        }
+        Assert.assertEquals(jadd.makeConstant(0.75),
+                            ADDSerializer.fromBytes(jadd, ADDSerializer.toBytes(jadd.makeConstant(0.75))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedBinaryInputIsRejected() throws IOException {
+        JADD jadd = new JADD();
+        byte[] bytes = ADDSerializer.toBytes(jadd.getVariable("A").times(jadd.makeConstant(0.5)));
+        ADDSerializer.fromBytes(jadd, Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test
+    public void testNonZeroAssignmentsCount() {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        jadd.getVariable("C");
+        ADD aOrB = a.or(b);
+
+        Assert.assertEquals(3, aOrB.getNonZeroAssignmentsCount(2), 0);
+        Assert.assertEquals(6, aOrB.getNonZeroAssignmentsCount(3), 0);
+        Assert.assertEquals(1, a.and(b).getNonZeroAssignmentsCount(2), 0);
+        Assert.assertEquals(0, jadd.makeConstant(0).getNonZeroAssignmentsCount(2), 0);
+        Assert.assertEquals(4, jadd.makeConstant(0.9).getNonZeroAssignmentsCount(2), 0);
+    }
+
+}
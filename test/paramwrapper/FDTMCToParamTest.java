@@ -2,6 +2,11 @@ package paramwrapper;
 
 import static org.junit.Assert.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -117,5 +122,43 @@ public class FDTMCToParamTest {
 		assertEquals(expectedModule, paramWrapper.fdtmcToParam(fdtmc));
 	}
 
+	@Test
+	public void testPrismDialectDeclaresConstants() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState("success");
+		fdtmc.createTransition(s0, s1, null, "rParam");
+		fdtmc.createTransition(s0, s0, null, "1 - rParam");
+		fdtmc.createTransition(s1, s1, null, "1");
+
+		String expectedModule =
+				"dtmc\n"
+				+ "\n"
+				+ "const double rParam;\n"
+				+ "\n"
+				+ "module dummyModule\n"
+				+ "	s : [0..1] init 0;\n"
+				+ "	[] s=0 -> (rParam) : (s'=1) + (1 - rParam) : (s'=0);\n"
+				+ "	[] s=1 -> (1) : (s'=1);\n"
+				+ "endmodule\n"
+				+ "\n"
+				+ "label \"success\" = s=1;\n";
+
+		ParamModelSerializer serializer = new ParamModelSerializer(ModelDialect.PRISM);
+		ParamModel model = new ParamModel(fdtmc);
+		assertEquals(expectedModule, serializer.toString(model));
+		assertEquals(expectedModule,
+				StandardCharsets.UTF_8.decode(serializer.toByteBuffer(model)).toString());
+	}
+
+	@Test
+	public void testParametersTokenizer() {
+		Set<String> identifiers = new HashSet<String>();
+		ParamModel.collectIdentifiers("1 - r_1*(rFail+2.5e-3) - 1E+2*x/y", identifiers);
+
+		assertEquals(new HashSet<String>(Arrays.asList("r_1", "rFail", "x", "y")), identifiers);
+	}
+
 	// Many states with one label
 }
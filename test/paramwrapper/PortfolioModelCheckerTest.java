@@ -0,0 +1,118 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+/**
+ * Races stub model checkers (shell scripts mimicking PARAM's command line)
+ * against each other.
+ */
+public class PortfolioModelCheckerTest {
+
+	Path workDir;
+	FDTMC fdtmc;
+
+	@Before
+	public void setUp() throws Exception {
+		workDir = Files.createTempDirectory("portfolio");
+		fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState("success");
+		State s2 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s1, null, "rA");
+		fdtmc.createTransition(s0, s2, null, "1-rA");
+		fdtmc.createTransition(s1, s1, null, "1");
+		fdtmc.createTransition(s2, s2, null, "1");
+	}
+
+	@Test
+	public void testFastestModelCheckerWinsAndLosersAreKilled() throws Exception {
+		Path marker = workDir.resolve("slow-finished");
+		Map<String, ParametricModelChecker> backends = new LinkedHashMap<String, ParametricModelChecker>();
+		backends.put("slow", stub("slow", "sleep 1\necho 1 > \"" + marker + "\"\necho 0.25 > \"$4.out\""));
+		backends.put("fast", stub("fast", "echo 0.5 > \"$4.out\""));
+		PortfolioModelChecker portfolio = new PortfolioModelChecker(backends, new NoopModelCollector(), 3);
+
+		assertEquals("0.5", portfolio.getReliability(fdtmc).toString());
+
+		Thread.sleep(1500);
+		assertFalse("The losing model checker should have been killed", Files.exists(marker));
+		Map<String, Integer> wins = portfolio.getWins().values().iterator().next();
+		assertEquals(Integer.valueOf(1), wins.get("fast"));
+		assertNull(wins.get("slow"));
+	}
+
+	@Test
+	public void testRacingStopsAfterDecisiveWins() throws Exception {
+		Path starts = workDir.resolve("slow-starts");
+		Map<String, ParametricModelChecker> backends = new LinkedHashMap<String, ParametricModelChecker>();
+		backends.put("slow", stub("slow", "echo started >> \"" + starts + "\"\nsleep 5\necho 0.25 > \"$4.out\""));
+		backends.put("fast", stub("fast", "echo 0.5 > \"$4.out\""));
+		PortfolioModelChecker portfolio = new PortfolioModelChecker(backends, new NoopModelCollector(), 2);
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("0.5", portfolio.getReliability(fdtmc).toString());
+		}
+
+		Map<String, Integer> wins = portfolio.getWins().values().iterator().next();
+		assertEquals("Only the races before the decision should be counted",
+				Integer.valueOf(2), wins.get("fast"));
+		int slowStarts = Files.exists(starts) ? Files.readAllLines(starts).size() : 0;
+		assertTrue("The slow model checker should not be started once racing stops",
+				slowStarts <= 2);
+	}
+
+	@Test
+	public void testFailingModelCheckerDoesNotWin() throws Exception {
+		Map<String, ParametricModelChecker> backends = new LinkedHashMap<String, ParametricModelChecker>();
+		backends.put("broken", stub("broken", "exit 1"));
+		backends.put("working", stub("working", "sleep 0.2\necho 0.75 > \"$4.out\""));
+		PortfolioModelChecker portfolio = new PortfolioModelChecker(backends, new NoopModelCollector(), 3);
+
+		assertEquals("0.75", portfolio.getReliability(fdtmc).toString());
+		Map<String, Integer> wins = portfolio.getWins().values().iterator().next();
+		assertEquals(Integer.valueOf(1), wins.get("working"));
+		assertNull(wins.get("broken"));
+	}
+
+	@Test(expected = ModelCheckingException.class)
+	public void testMissingResultsAreReportedAsFailures() throws Exception {
+		stub("broken", "exit 1").getReliability(fdtmc);
+	}
+
+	@Test(expected = ModelCheckingException.class)
+	public void testPortfolioFailsIfAllModelCheckersFail() throws Exception {
+		Map<String, ParametricModelChecker> backends = new LinkedHashMap<String, ParametricModelChecker>();
+		backends.put("broken", stub("broken", "exit 1"));
+		backends.put("silent", stub("silent", "true"));
+		new PortfolioModelChecker(backends, new NoopModelCollector(), 3).getReliability(fdtmc);
+	}
+
+	/**
+	 * Writes an executable stub which is invoked as PARAM would be:
+	 * {@code <model> <property> --result-file <path>}, with the result
+	 * expected at {@code <path>.out}.
+	 */
+	private ParamWrapper stub(String name, String body) throws IOException {
+		Path script = workDir.resolve(name);
+		Files.write(script, ("#!/bin/sh\n" + body + "\n").getBytes(StandardCharsets.UTF_8));
+		File scriptFile = script.toFile();
+		assertTrue(scriptFile.setExecutable(true));
+		return new ParamWrapper(scriptFile.getAbsolutePath());
+	}
+
+}
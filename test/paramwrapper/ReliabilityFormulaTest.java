@@ -35,7 +35,7 @@ public class ReliabilityFormulaTest {
 		fdtmc.createTransition(s2, s2, null, "1");
 		fdtmc.createTransition(s3, s3, null, "1");
 
-		String formula = paramWrapper.getReliability(fdtmc);
+		String formula = paramWrapper.getReliability(fdtmc).toString();
 		assertEquals("-1*r0*rFail+1*r0", formula);
 	}
 
@@ -52,7 +52,7 @@ public class ReliabilityFormulaTest {
 		fdtmc.createTransition(s2, s2, null, "1");
 		fdtmc.createTransition(s3, s3, null, "1");
 
-		String formula = paramWrapper.getReliability(fdtmc);
+		String formula = paramWrapper.getReliability(fdtmc).toString();
 		assertEquals("1*r0", formula);
 	}
 
@@ -69,7 +69,7 @@ public class ReliabilityFormulaTest {
 		fdtmc.createTransition(s2, s2, null, "1");
 		fdtmc.createTransition(s3, s3, null, "1");
 
-		String formula = paramWrapper.getReliability(fdtmc);
+		String formula = paramWrapper.getReliability(fdtmc).toString();
 		assertEquals("0", formula);
 	}
 
@@ -86,7 +86,7 @@ public class ReliabilityFormulaTest {
 		fdtmc.createTransition(s2, s2, null, "1");
 		fdtmc.createTransition(s3, s3, null, "1");
 
-		String formula = paramWrapper.getReliability(fdtmc);
-		assertEquals("(9801)/(10000)", formula);
+		String formula = paramWrapper.getReliability(fdtmc).toString();
+		assertEquals("9801/10000", formula);
 	}
 }
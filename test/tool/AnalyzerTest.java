@@ -1,22 +1,70 @@
 package tool;
 
+import jadd.ADD;
 import jadd.JADD;
 import jadd.UnrecognizedVariableException;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import paramwrapper.NoopModelCollector;
+import tool.analyzers.AnalysisCostEstimator;
+import tool.analyzers.AnalysisStrategy;
+import tool.analyzers.FeatureModelPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.buildingblocks.AnalysisCheckpoint;
+import tool.analyzers.buildingblocks.FamilyReliabilitySnapshot;
+import tool.analyzers.buildingblocks.HybridPartitioner;
+import tool.analyzers.buildingblocks.IncrementalCache;
+import tool.distributed.AnalysisWorkHandler;
+import tool.distributed.Coordinator;
+import tool.distributed.Worker;
 import expressionsolver.ExpressionSolver;
+import fdtmc.FDTMC;
+import fdtmc.State;
 
 public class AnalyzerTest {
     private static final String PARAM_PATH = "/opt/param-2-3-64";
+    private static final String[] SQLITE_CONFIG = new String[]{
+            "Root",
+            "Monitoring",
+            "Storage",
+            "SensorInformation",
+            "Sensor",
+            "Oxygenation",
+            "SPO2",
+            "SQLite"};
+    private static final String[] MEMORY_CONFIG = new String[]{
+            "Root",
+            "Monitoring",
+            "Storage",
+            "SensorInformation",
+            "Sensor",
+            "Oxygenation",
+            "SPO2",
+            "Memory"};
+    private static final String[] INVALID_CONFIG = new String[]{
+            "Root",
+            "Monitoring",
+            "Storage",
+            "Oxygenation",
+            "SQLite"};
 
     String fmBSN = "Root  &&  (!Root  ||  Monitoring)  &&  (!Root  ||  Storage)  &&  (!Monitoring  ||  Root)  &&  (!Storage  ||  Root)  &&  (!Monitoring  ||  SensorInformation)  &&  (!Monitoring  ||  Sensor)  &&  (!SensorInformation  ||  Monitoring)  &&  (!Sensor  ||  Monitoring)  &&  (!SensorInformation  ||  Oxygenation  ||  PulseRate  ||  Temperature  ||  Position  ||  Fall)  &&  (!Oxygenation  ||  SensorInformation)  &&  (!PulseRate  ||  SensorInformation)  &&  (!Temperature  ||  SensorInformation)  &&  (!Position  ||  SensorInformation)  &&  (!Fall  ||  SensorInformation)  &&  (!Sensor  ||  SPO2  ||  ECG  ||  TEMP  ||  ACC)  &&  (!SPO2  ||  Sensor)  &&  (!ECG  ||  Sensor)  &&  (!TEMP  ||  Sensor)  &&  (!ACC  ||  Sensor)  &&  (!Storage  ||  SQLite  ||  Memory  ||  File)  &&  (!SQLite  ||  Storage)  &&  (!Memory  ||  Storage)  &&  (!File  ||  Storage)  &&  (!SQLite  ||  !Memory)  &&  (!SQLite  ||  !File)  &&  (!Memory  ||  !File)  &&  (!Oxygenation  ||  SPO2)  &&  (!PulseRate  ||  SPO2  ||  ECG)  &&  (!Fall  ||  ACC)  &&  (!Position  ||  ACC)  &&  (!Temperature  ||  TEMP)  &&  True  &&  !False  &&  (PulseRate  ||  ACC  ||  Memory  ||  Temperature  ||  Position  ||  Storage  ||  SensorInformation  ||  Sensor  ||  TEMP  ||  Monitoring  ||  Oxygenation  ||  File  ||  SQLite  ||  ECG  ||  Fall  ||  SPO2  ||  True)";
     JADD jadd;
@@ -160,4 +208,471 @@ public class AnalyzerTest {
                 0.994014980014994001, reliability.getResult(fileConfig), 1E-14);
     }
 
+    @Test
+    public void testIncrementalReanalysisOnlyRecomputesChangedNodes() throws CyclicRdgException, UnknownFeatureException, IOException {
+        IncrementalCache cache = new IncrementalCache();
+        analyzer.setIncrementalCache(cache);
+        double fromScratch = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()))
+                .getResult(SQLITE_CONFIG);
+        Assert.assertEquals(3, cache.getLastReport().getCheckedNodes().size());
+
+        // Same models, parsed again.
+        double unchanged = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()))
+                .getResult(SQLITE_CONFIG);
+        Assert.assertEquals(fromScratch, unchanged, 1E-14);
+        Assert.assertTrue(cache.getLastReport().getCheckedNodes().isEmpty());
+        Assert.assertTrue(cache.getLastReport().getSolvedNodes().isEmpty());
+        Assert.assertEquals(1, cache.getLastReport().getReusedReliabilitiesNumber());
+
+        // Edited memory model: only it is checked again, and only it and
+        // its dependent are solved again.
+        analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createFileFDTMC()));
+        Assert.assertEquals(Arrays.asList("memory"), cache.getLastReport().getCheckedNodes());
+        Assert.assertEquals(Arrays.asList("memory", "oxygenation"), cache.getLastReport().getSolvedNodes());
+
+        // Saved expressions spare model checking, but functions must be solved again.
+        Path cacheFile = Files.createTempFile("incremental", ".cache");
+        try {
+            cache.save(cacheFile);
+            IncrementalCache loaded = IncrementalCache.load(cacheFile);
+            analyzer.setIncrementalCache(loaded);
+            double fromFile = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()))
+                    .getResult(SQLITE_CONFIG);
+            Assert.assertEquals(fromScratch, fromFile, 1E-14);
+            Assert.assertEquals(Arrays.asList("memory"), loaded.getLastReport().getCheckedNodes());
+            Assert.assertEquals(3, loaded.getLastReport().getSolvedNodes().size());
+        } finally {
+            Files.delete(cacheFile);
+        }
+    }
+
+    @Test
+    public void testFeatureModelEvolutionReusesFamilyReliability() throws CyclicRdgException, UnknownFeatureException, IOException {
+        FamilyReliabilitySnapshot snapshot = new FamilyReliabilitySnapshot();
+        analyzer.setEvolutionSnapshot(snapshot);
+        IReliabilityAnalysisResults original = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()));
+        Assert.assertFalse(snapshot.getLastEvolution().isReliabilityReused());
+        Assert.assertFalse(snapshot.getLastEvolution().hasPrevious());
+        Assert.assertTrue(original.getResult(MEMORY_CONFIG) > 0);
+
+        // The evolved feature model forbids Memory; the RDG is parsed again.
+        Path snapshotFile = Files.createTempFile("family", ".snapshot");
+        try {
+            snapshot.save(snapshotFile);
+            FamilyReliabilitySnapshot loaded = FamilyReliabilitySnapshot.load(snapshotFile);
+            Analyzer evolved = new Analyzer(jadd, fmBSN + "  &&  !Memory", PARAM_PATH);
+            evolved.setEvolutionSnapshot(loaded);
+            IReliabilityAnalysisResults reliability = evolved.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()));
+
+            FamilyReliabilitySnapshot.Evolution evolution = loaded.getLastEvolution();
+            Assert.assertTrue(evolution.isReliabilityReused());
+            Assert.assertEquals(original.getResult(SQLITE_CONFIG), reliability.getResult(SQLITE_CONFIG), 1E-14);
+            Assert.assertEquals(0, reliability.getResult(MEMORY_CONFIG), 0);
+            Assert.assertTrue(evolution.getCurrentConfigurationsNumber() < evolution.getPreviousConfigurationsNumber());
+            Assert.assertEquals(0, evolution.getChangedFeatures().get("Memory")[1], 0);
+            Assert.assertTrue(evolution.getChangedFeatures().get("Memory")[0] > 0);
+
+            // An edited model cannot reuse it.
+            evolved.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createFileFDTMC()));
+            Assert.assertFalse(loaded.getLastEvolution().isReliabilityReused());
+            Assert.assertTrue(loaded.getLastEvolution().getChangedFeatures().isEmpty());
+        } finally {
+            Files.delete(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testPartialConfigurationSkipsAbsentNodes() throws CyclicRdgException, UnknownFeatureException {
+        double wholeFamily = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()))
+                .getResult(SQLITE_CONFIG);
+
+        IncrementalCache cache = new IncrementalCache();
+        analyzer.setIncrementalCache(cache);
+        analyzer.setPartialConfiguration(PartialConfiguration.parse("SQLite, !Memory"));
+        IReliabilityAnalysisResults subFamily = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()));
+
+        Assert.assertEquals(wholeFamily, subFamily.getResult(SQLITE_CONFIG), 1E-14);
+        Assert.assertEquals(0, subFamily.getResult(MEMORY_CONFIG), 0);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("sqlite", "oxygenation")),
+                            new HashSet<String>(cache.getLastReport().getCheckedNodes()));
+        Assert.assertFalse(analyzer.isValidConfiguration(Arrays.asList(MEMORY_CONFIG)));
+        Assert.assertTrue(analyzer.getValidConfigurations().allMatch(c -> c.contains("SQLite") && !c.contains("Memory")));
+    }
+
+    @Test(expected = UnknownFeatureException.class)
+    public void testPartialConfigurationWithUnknownFeature() {
+        analyzer.setPartialConfiguration(PartialConfiguration.parse("SQLite, Gi_1"));
+    }
+
+    @Test
+    public void testIrrelevantFeaturesAreSummedOut() throws CyclicRdgException, UnknownFeatureException {
+        double expected = analyzer.evaluateFeatureFamilyBasedReliability(buildOxygenationRDG(FDTMCStub.createMemoryFDTMC()))
+                .getResult(SQLITE_CONFIG);
+
+        RDGNode root = buildOxygenationRDG(FDTMCStub.createMemoryFDTMC());
+        FeatureModelProjection projection = analyzer.projectFeatureModel(root);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("SQLite", "Memory", "Oxygenation")),
+                            projection.getRelevantFeatures());
+        Assert.assertTrue(projection.getIrrelevantFeatures().contains("Fall"));
+        Assert.assertTrue(projection.getRelevantFeatures().containsAll(projection.getReducedFeatureModel().getVariables()));
+        // Multiplicities add up to the number of valid configurations.
+        double represented = projection.getRepresentativeConfigurations()
+                .mapToDouble(projection::getMultiplicity)
+                .sum();
+        Assert.assertEquals(projection.getConfigurationsNumber(), represented, 0);
+        Assert.assertEquals(projection.getRepresentativesNumber(),
+                            projection.getRepresentativeConfigurations().count(), 0);
+        Assert.assertTrue(projection.getRepresentativesNumber() < projection.getConfigurationsNumber());
+
+        analyzer.setFeatureModelProjection(projection);
+        IReliabilityAnalysisResults family = analyzer.evaluateFeatureFamilyBasedReliability(root);
+        Assert.assertEquals(expected, family.getResult(SQLITE_CONFIG), 1E-14);
+        Assert.assertEquals(0, family.getResult(INVALID_CONFIG), 0);
+
+        IReliabilityAnalysisResults products = analyzer.evaluateFeatureProductBasedReliability(root, analyzer.getValidConfigurations());
+        Assert.assertEquals(expected, products.getResult(SQLITE_CONFIG), 1E-14);
+        Assert.assertEquals(0, products.getResult(INVALID_CONFIG), 0);
+
+        Assert.assertEquals(projection.getRepresentativesNumber(), analyzer.getValidConfigurationsNumber(), 0);
+        IReliabilityAnalysisResults representatives = analyzer.evaluateFeatureProductBasedReliability(root, analyzer.getValidRepresentatives());
+        Assert.assertEquals(expected, representatives.getResult(SQLITE_CONFIG), 1E-14);
+        Assert.assertEquals(0, representatives.getResult(INVALID_CONFIG), 0);
+    }
+
+    @Test
+    public void testValidRepresentativesAreRestrictedToSubFamily() throws CyclicRdgException {
+        RDGNode root = buildOxygenationRDG(FDTMCStub.createMemoryFDTMC());
+        analyzer.setPartialConfiguration(PartialConfiguration.parse("SQLite"));
+        analyzer.setFeatureModelProjection(analyzer.projectFeatureModel(root));
+        List<Collection<String>> representatives = analyzer.getValidRepresentatives().collect(Collectors.toList());
+        Assert.assertFalse(representatives.isEmpty());
+        for (Collection<String> representative: representatives) {
+            Assert.assertTrue(representative.toString(), representative.contains("SQLite"));
+        }
+        Assert.assertEquals(representatives.size(), analyzer.getValidConfigurationsNumber(), 0);
+    }
+
+    @Test
+    public void testPruningStrategiesAgreeOnValidConfigurations() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildOxygenationRDG(FDTMCStub.createMemoryFDTMC());
+        analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(PruningStrategy.FM));
+        IReliabilityAnalysisResults expected = analyzer.evaluateFeatureFamilyBasedReliability(root);
+
+        for (PruningStrategy strategy: PruningStrategy.values()) {
+            analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(strategy));
+            IReliabilityAnalysisResults pruned = analyzer.evaluateFeatureFamilyBasedReliability(root);
+            assertSameReliabilities(expected, pruned, analyzer.getValidConfigurations());
+            Assert.assertEquals(strategy.toString(), 0, pruned.getResult(INVALID_CONFIG), 0);
+        }
+    }
+
+    @Test
+    public void testProductBasedAnalysisSharesDerivedProducts() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults expected = analyzer.evaluateFeatureProductBasedReliability(root, analyzer.getValidConfigurations());
+        IReliabilityAnalysisResults products = analyzer.evaluateProductBasedReliability(root, analyzer.getValidConfigurations());
+
+        assertSameReliabilities(expected, products, analyzer.getValidConfigurations(), 1E-10);
+    }
+
+    @Test
+    public void testGrayCodeEvaluationMatchesIndependentEvaluation() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults featureProduct = analyzer.evaluateFeatureProductBasedReliability(root, analyzer.getValidConfigurations());
+
+        analyzer.setGrayCodeEvaluation(true);
+        IReliabilityAnalysisResults grayFeatureProduct = analyzer.evaluateFeatureProductBasedReliability(root, analyzer.getValidConfigurations());
+
+        assertSameReliabilities(featureProduct, grayFeatureProduct, analyzer.getValidConfigurations());
+    }
+
+    @Test
+    public void testGrayCodeFamilyProductEvaluationMatchesIndependentEvaluation() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults familyProduct = analyzer.evaluateFamilyProductBasedReliability(root, analyzer.getValidConfigurations());
+
+        analyzer.setGrayCodeEvaluation(true);
+        IReliabilityAnalysisResults grayFamilyProduct = analyzer.evaluateFamilyProductBasedReliability(root, analyzer.getValidConfigurations());
+
+        assertSameReliabilities(familyProduct, grayFamilyProduct, analyzer.getValidConfigurations());
+        Assert.assertTrue(grayFamilyProduct.getResult(SQLITE_CONFIG) > 0);
+    }
+
+    @Test
+    public void testHybridAnalysisMatchesFeatureFamilyAnalysis() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults featureFamily = analyzer.evaluateFeatureFamilyBasedReliability(root);
+
+        analyzer.setHybridPartitioner(new HybridPartitioner());
+        IReliabilityAnalysisResults hybrid = analyzer.evaluateFeatureFamilyBasedReliability(root);
+
+        assertSameReliabilities(featureFamily, hybrid, analyzer.getValidConfigurations());
+    }
+
+    @Test
+    public void testPartitionedAnalysisMatchesFeatureFamilyAnalysis() throws CyclicRdgException, UnknownFeatureException {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults featureFamily = analyzer.evaluateFeatureFamilyBasedReliability(root);
+        IReliabilityAnalysisResults partitioned = analyzer.evaluatePartitionedFeatureFamilyBasedReliability(root,
+                                                                                                           2,
+                                                                                                           FeatureModelPruningStrategy::new);
+
+        assertSameReliabilities(featureFamily, partitioned, analyzer.getValidConfigurations());
+    }
+
+    @Test
+    public void testDistributedAnalysesMatchLocalAnalyses() throws Exception {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults featureFamily = analyzer.evaluateFeatureFamilyBasedReliability(root);
+        IReliabilityAnalysisResults distributedFeatureFamily;
+        IReliabilityAnalysisResults distributedProduct;
+        // Workers have their own managers and RDGs, as if in other processes.
+        try (Coordinator coordinator = new Coordinator(0)) {
+            startWorkers(coordinator, 2);
+            distributedFeatureFamily = analyzer.evaluateDistributedFeatureFamilyBasedReliability(root,
+                                                                                                AnalysisStrategy.FEATURE_FAMILY,
+                                                                                                2,
+                                                                                                coordinator);
+        }
+        try (Coordinator coordinator = new Coordinator(0)) {
+            startWorkers(coordinator, 2);
+            distributedProduct = analyzer.evaluateDistributedProductBasedReliability(AnalysisStrategy.PRODUCT,
+                                                                                     analyzer.getValidConfigurations(),
+                                                                                     5,
+                                                                                     coordinator);
+        }
+
+        assertSameReliabilities(featureFamily, distributedFeatureFamily, analyzer.getValidConfigurations());
+        assertSameReliabilities(featureFamily, distributedProduct, analyzer.getValidConfigurations());
+    }
+
+    @Test
+    public void testResumedAnalysesReuseCheckpointedResults() throws Exception {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        Path directory = Files.createTempDirectory("checkpoint");
+        try {
+            IReliabilityAnalysisResults featureFamily;
+            IReliabilityAnalysisResults product;
+            try (AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(directory, false)) {
+                analyzer.setCheckpoint(checkpoint);
+                featureFamily = analyzer.evaluateFeatureFamilyBasedReliability(root);
+                product = analyzer.evaluateProductBasedReliability(root, analyzer.getValidConfigurations());
+            }
+
+            // Another manager, as if in another process.
+            Analyzer resumed = new Analyzer(new JADD(), fmBSN, PARAM_PATH);
+            IncrementalCache cache = new IncrementalCache();
+            resumed.setIncrementalCache(cache);
+            IReliabilityAnalysisResults resumedFeatureFamily;
+            IReliabilityAnalysisResults resumedProduct;
+            try (AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(directory, true)) {
+                resumed.setCheckpoint(checkpoint);
+                resumedFeatureFamily = resumed.evaluateFeatureFamilyBasedReliability(root);
+                resumedProduct = resumed.evaluateProductBasedReliability(root, resumed.getValidConfigurations());
+            }
+            Assert.assertTrue(cache.getLastReport().getCheckedNodes().isEmpty());
+            Assert.assertTrue(cache.getLastReport().getSolvedNodes().isEmpty());
+
+            assertSameReliabilities(featureFamily, resumedFeatureFamily, analyzer.getValidConfigurations(), 0);
+            assertSameReliabilities(product, resumedProduct, analyzer.getValidConfigurations(), 0);
+            assertSameReliabilities(featureFamily, product, analyzer.getValidConfigurations());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testPartitionedAnalysesAreCheckpointedPerSubFamily() throws Exception {
+        RDGNode root = buildInterfacedOxygenationRDG();
+        IReliabilityAnalysisResults featureFamily = analyzer.evaluateFeatureFamilyBasedReliability(root);
+        Path directory = Files.createTempDirectory("checkpoint");
+        try {
+            try (AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(directory, false)) {
+                analyzer.setCheckpoint(checkpoint);
+                analyzer.evaluatePartitionedFeatureFamilyBasedReliability(root, 2, FeatureModelPruningStrategy::new);
+            }
+            long entries;
+            try (Stream<Path> files = Files.walk(directory)) {
+                entries = files.filter(Files::isRegularFile).count();
+            }
+            Assert.assertTrue(entries > 0);
+
+            try (AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(directory, true)) {
+                analyzer.setCheckpoint(checkpoint);
+                IReliabilityAnalysisResults resumed = analyzer.evaluatePartitionedFeatureFamilyBasedReliability(root,
+                                                                                                                2,
+                                                                                                                FeatureModelPruningStrategy::new);
+                assertSameReliabilities(featureFamily, resumed, analyzer.getValidConfigurations());
+            }
+            // Nothing was left to be computed, so nothing new was written.
+            try (Stream<Path> files = Files.walk(directory)) {
+                Assert.assertEquals(entries, files.filter(Files::isRegularFile).count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointedAnalysesModelCheckOnce() throws Exception {
+        Assert.assertTrue(analyzer.getValidConfigurations().count() > Analyzer.CHECKPOINT_BATCH_SIZE);
+        RDGNode root = buildInterfacedOxygenationRDG();
+        Path directory = Files.createTempDirectory("checkpoint");
+        try {
+            for (boolean grayCodeEvaluation: new boolean[] {false, true}) {
+                CountingModelCollector unbatched = new CountingModelCollector();
+                Analyzer uncheckpointed = new Analyzer(fmBSN, PARAM_PATH, null, null, unbatched);
+                uncheckpointed.setGrayCodeEvaluation(grayCodeEvaluation);
+                uncheckpointed.evaluateFeatureProductBasedReliability(root, uncheckpointed.getValidConfigurations());
+                uncheckpointed.evaluateFamilyProductBasedReliability(root, uncheckpointed.getValidConfigurations());
+
+                CountingModelCollector batched = new CountingModelCollector();
+                Analyzer checkpointed = new Analyzer(fmBSN, PARAM_PATH, null, null, batched);
+                checkpointed.setGrayCodeEvaluation(grayCodeEvaluation);
+                try (AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(directory, false)) {
+                    checkpointed.setCheckpoint(checkpoint);
+                    IReliabilityAnalysisResults featureProduct = checkpointed.evaluateFeatureProductBasedReliability(root, checkpointed.getValidConfigurations());
+                    IReliabilityAnalysisResults familyProduct = checkpointed.evaluateFamilyProductBasedReliability(root, checkpointed.getValidConfigurations());
+                    assertSameReliabilities(featureProduct, familyProduct, checkpointed.getValidConfigurations());
+                }
+                Assert.assertTrue(unbatched.models.get() > 0);
+                Assert.assertEquals(unbatched.models.get(), batched.models.get());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testSplitFeaturesGuardModelsAndAreNotFixed() throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(buildInterfacedOxygenationRDG());
+        ADD featureModel = solver.encodeFormula(fmBSN);
+        FamilyPartitioning partitioning = FamilyPartitioning.choose(featureModel, jadd, solver, dag, 3, Arrays.asList("SQLite"));
+
+        // Oxygenation, SQLite and Memory guard models, but SQLite is excluded.
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("Oxygenation", "Memory")),
+                            new HashSet<String>(partitioning.getSplitFeatures()));
+        Assert.assertEquals(4, partitioning.getSubFamiliesNumber());
+    }
+
+    @Test
+    public void testAutomaticStrategyChoiceIsBasedOnEstimates() throws CyclicRdgException {
+        Assert.assertEquals(analyzer.getValidConfigurations().count(), analyzer.getValidConfigurationsNumber(), 0);
+
+        RDGNode root = buildInterfacedOxygenationRDG();
+        Map<AnalysisStrategy, Double> estimates = analyzer.estimateAnalysisCosts(root);
+        for (AnalysisStrategy strategy: AnalysisStrategy.values()) {
+            if (strategy != AnalysisStrategy.AUTO) {
+                Assert.assertTrue("No estimate for " + strategy, estimates.get(strategy) > 0);
+            }
+        }
+        Assert.assertFalse(estimates.containsKey(AnalysisStrategy.AUTO));
+
+        AnalysisStrategy chosen = analyzer.chooseAnalysisStrategy(root);
+        Assert.assertEquals(AnalysisCostEstimator.cheapest(analyzer.estimateAnalysisCosts(root)), chosen);
+    }
+
+    /**
+     * Asserts that both analyses yield the same reliability (up to
+     * {@code delta}) for each of the given configurations.
+     */
+    private static void assertSameReliabilities(IReliabilityAnalysisResults expected,
+                                                IReliabilityAnalysisResults actual,
+                                                Stream<Collection<String>> configurations,
+                                                double delta) throws UnknownFeatureException {
+        Iterator<Collection<String>> iterator = configurations.iterator();
+        while (iterator.hasNext()) {
+            Collection<String> configuration = iterator.next();
+            String[] features = configuration.toArray(new String[configuration.size()]);
+            Assert.assertEquals(configuration.toString(),
+                                expected.getResult(features),
+                                actual.getResult(features),
+                                delta);
+        }
+    }
+
+    private static void assertSameReliabilities(IReliabilityAnalysisResults expected,
+                                                IReliabilityAnalysisResults actual,
+                                                Stream<Collection<String>> configurations) throws UnknownFeatureException {
+        assertSameReliabilities(expected, actual, configurations, 1E-14);
+    }
+
+    private static class CountingModelCollector extends NoopModelCollector {
+        final AtomicInteger models = new AtomicInteger();
+
+        @Override
+        public void collectModel(int variables, int states) {
+            models.incrementAndGet();
+        }
+    }
+
+    private void startWorkers(Coordinator coordinator, int workersNumber) {
+        for (int i = 0; i < workersNumber; i++) {
+            Analyzer workerAnalyzer = new Analyzer(new JADD(), fmBSN, PARAM_PATH);
+            Worker worker = new Worker("localhost",
+                                       coordinator.getPort(),
+                                       new AnalysisWorkHandler(workerAnalyzer, buildInterfacedOxygenationRDG()));
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } catch (IOException e) {
+                    // Dismissed when the coordinator is closed.
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Same structure as {@link #buildOxygenationRDG(FDTMC)}, but with
+     * dependencies referred to by interfaces, so that products can be derived.
+     */
+    private static RDGNode buildInterfacedOxygenationRDG() {
+        RdgContext context = new RdgContext();
+        RDGNode sqlite = new RDGNode(context, "sqlite", "SQLite", createLeafFDTMC("rSqlite", "0.999"));
+        RDGNode memory = new RDGNode(context, "memory", "Memory", createLeafFDTMC("rMemory", "0.998"));
+
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName("sOxygenation");
+        State init = fdtmc.createInitialState();
+        State success = fdtmc.createSuccessState();
+        State error = fdtmc.createErrorState();
+        State persist = fdtmc.createState();
+        State persisted = fdtmc.createState();
+        fdtmc.createTransition(init, persist, "capture", "0.99");
+        fdtmc.createTransition(init, error, "!capture", "0.01");
+        fdtmc.createInterface("sqlite", persist, persisted, error);
+        fdtmc.createInterface("memory", persisted, success, error);
+        RDGNode oxygenation = new RDGNode(context, "oxygenation", "Oxygenation", fdtmc);
+        oxygenation.addDependency(sqlite);
+        oxygenation.addDependency(memory);
+        return oxygenation;
+    }
+
+    private static FDTMC createLeafFDTMC(String variableName, String reliability) {
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName(variableName);
+        State init = fdtmc.createInitialState();
+        fdtmc.createTransition(init, fdtmc.createSuccessState(), "persist", reliability);
+        fdtmc.createTransition(init, fdtmc.createErrorState(), "!persist", "1 - " + reliability);
+        return fdtmc;
+    }
+
+    private static RDGNode buildOxygenationRDG(FDTMC memoryModel) {
+        RdgContext context = new RdgContext();
+        RDGNode sqlite = new RDGNode(context, "sqlite", "SQLite", FDTMCStub.createSqliteFDTMC());
+        RDGNode memory = new RDGNode(context, "memory", "Memory", memoryModel);
+        RDGNode oxygenation = new RDGNode(context, "oxygenation", "Oxygenation", FDTMCStub.createOxygenationFDTMC());
+        oxygenation.addDependency(sqlite);
+        oxygenation.addDependency(memory);
+        return oxygenation;
+    }
+
 }
@@ -9,6 +9,9 @@ import fdtmc.FDTMC;
  *
  */
 public class BSNNodes {
+
+    // All BSN nodes share a context, so that they are created only once.
+    private static final RdgContext CONTEXT = new RdgContext();
 	
 	public static boolean isNodeInvalid(RDGNode node){
         return node == null;
@@ -16,40 +19,40 @@ public class BSNNodes {
 	
     public static RDGNode getSQLiteRDGNode() {
         String id = "sqlite";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createSqliteFDTMC();
-            node = new RDGNode(id, "SQLite", fdtmc);
+            node = new RDGNode(CONTEXT, id, "SQLite", fdtmc);
         }
         return node;
     }
 
     public static RDGNode getFileRDGNode() {
         String id = "file";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createFileFDTMC();
-            node = new RDGNode(id, "File", fdtmc);
+            node = new RDGNode(CONTEXT, id, "File", fdtmc);
         }
         return node;
     }
 
     public static RDGNode getMemoryRDGNode() {
         String id = "memory";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createMemoryFDTMC();
-            node = new RDGNode(id, "Memory", fdtmc);
+            node = new RDGNode(CONTEXT, id, "Memory", fdtmc);
         }
         return node;
     }
 
     public static RDGNode getOxygenationRDGNode() {
         String id = "oxygenation";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createOxygenationFDTMC();
-            node = new RDGNode(id, "Oxygenation", fdtmc);
+            node = new RDGNode(CONTEXT, id, "Oxygenation", fdtmc);
             node.addDependency(getSQLiteRDGNode());
             node.addDependency(getFileRDGNode());
             node.addDependency(getMemoryRDGNode());
@@ -59,10 +62,10 @@ public class BSNNodes {
 
     public static RDGNode getPulseRateRDGNode() {
         String id = "pulseRate";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createPulseRateFDTMC();
-            node = new RDGNode(id, "PulseRate", fdtmc);
+            node = new RDGNode(CONTEXT, id, "PulseRate", fdtmc);
             node.addDependency(getSQLiteRDGNode());
             node.addDependency(getFileRDGNode());
             node.addDependency(getMemoryRDGNode());
@@ -72,10 +75,10 @@ public class BSNNodes {
 
     public static RDGNode getSituationRDGNode() {
         String id = "situation";
-        RDGNode node = RDGNode.getById(id);
+        RDGNode node = CONTEXT.getById(id);
         if (isNodeInvalid(node)) {
             FDTMC fdtmc = FDTMCStub.createSituationFDTMC();
-            node = new RDGNode(id, "true", fdtmc);
+            node = new RDGNode(CONTEXT, id, "true", fdtmc);
             node.addDependency(getOxygenationRDGNode());
             node.addDependency(getPulseRateRDGNode());
         }
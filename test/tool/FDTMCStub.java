@@ -355,4 +355,21 @@ public class FDTMCStub {
 		return fdtmcPulseRate;
 	}
 
+	public static FDTMC createFDTMCWithInterface() {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+		State init = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		State source = fdtmc.createState();
+		State target = fdtmc.createState();
+		State interfaceError = fdtmc.createState();
+		fdtmc.createTransition(init, source, "persist", "0.999");
+		fdtmc.createTransition(init, error, "!persist", "0.001");
+		fdtmc.createInterface("F", source, target, interfaceError);
+		fdtmc.createTransition(interfaceError, error, "error_ground", "1");
+		fdtmc.createTransition(target, success, "persist_return", "1");
+		return fdtmc;
+	}
+
 }
@@ -0,0 +1,37 @@
+package tool;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PartialConfigurationTest {
+
+    @Test
+    public void testParse() {
+        PartialConfiguration partial = PartialConfiguration.parse(" R, Gi_1 !Gi_2 ");
+
+        Assert.assertEquals(3, partial.getFixedFeatures().size());
+        Assert.assertTrue(partial.getFixedFeatures().get("R"));
+        Assert.assertTrue(partial.getFixedFeatures().get("Gi_1"));
+        Assert.assertFalse(partial.getFixedFeatures().get("Gi_2"));
+        Assert.assertEquals("R, Gi_1, !Gi_2", partial.toString());
+        Assert.assertTrue(PartialConfiguration.parse("").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContradictoryLiteralsAreRejected() {
+        PartialConfiguration.parse("R, !R");
+    }
+
+    @Test
+    public void testCompatibility() {
+        PartialConfiguration partial = PartialConfiguration.parse("R, !Gi_2");
+
+        Assert.assertTrue(partial.isCompatible(Arrays.asList("R", "Gi_1")));
+        Assert.assertFalse(partial.isCompatible(Arrays.asList("R", "Gi_2")));
+        Assert.assertFalse(partial.isCompatible(Arrays.asList("Gi_1")));
+        Assert.assertTrue(PartialConfiguration.EMPTY.isCompatible(Arrays.asList("Gi_2")));
+    }
+
+}
@@ -11,8 +11,11 @@ import fdtmc.FDTMC;
 
 public class RDGNodeTest {
 
+    private RdgContext context;
+
     @Before
     public void setUp() throws Exception {
+        context = new RdgContext();
     }
 
     @Test
@@ -70,8 +73,8 @@ public class RDGNodeTest {
     public void testNodesWithSameFDTMC() {
         FDTMC sqliteFDTMC = FDTMCStub.createSqliteFDTMC();
         String presenceCondition = "SQLite";
-        RDGNode firstSqlite = new RDGNode(RDGNode.getNextId(), presenceCondition, sqliteFDTMC);
-        RDGNode secondSqlite = new RDGNode(RDGNode.getNextId(), presenceCondition, sqliteFDTMC);
+        RDGNode firstSqlite = new RDGNode(context, context.getNextId(), presenceCondition, sqliteFDTMC);
+        RDGNode secondSqlite = new RDGNode(context, context.getNextId(), presenceCondition, sqliteFDTMC);
 
         Assert.assertEquals("Nodes with same FDTMC and presence condition and no dependencies should be equal",
                 firstSqlite, secondSqlite);
@@ -81,9 +84,9 @@ public class RDGNodeTest {
     public void testNodesWithSameFDTMCAndDifferentDependencies() {
         FDTMC pulseRateFDTMC = FDTMCStub.createPulseRateFDTMC();
         String presenceCondition = "SQLite";
-        RDGNode first = new RDGNode(RDGNode.getNextId(), presenceCondition, pulseRateFDTMC);
+        RDGNode first = new RDGNode(context, context.getNextId(), presenceCondition, pulseRateFDTMC);
         first.addDependency(BSNNodes.getMemoryRDGNode());
-        RDGNode second = new RDGNode(RDGNode.getNextId(), presenceCondition, pulseRateFDTMC);
+        RDGNode second = new RDGNode(context, context.getNextId(), presenceCondition, pulseRateFDTMC);
         second.addDependency(BSNNodes.getSQLiteRDGNode());
 
         Assert.assertNotEquals("Nodes with same FDTMC and presence condition and different dependencies should NOT be equal",
@@ -99,21 +102,42 @@ public class RDGNodeTest {
     public void testSimilarNodes() {
         FDTMC pulseRateFDTMC = FDTMCStub.createPulseRateFDTMC();
         String presenceCondition = "SQLite";
-        RDGNode first = new RDGNode(RDGNode.getNextId(), presenceCondition, pulseRateFDTMC);
+        RDGNode first = new RDGNode(context, context.getNextId(), presenceCondition, pulseRateFDTMC);
         first.addDependency(BSNNodes.getMemoryRDGNode());
-        RDGNode second = new RDGNode(RDGNode.getNextId(), presenceCondition, pulseRateFDTMC);
+        RDGNode second = new RDGNode(context, context.getNextId(), presenceCondition, pulseRateFDTMC);
         second.addDependency(BSNNodes.getSQLiteRDGNode());
 
-        RDGNode similarCandidate = RDGNode.getSimilarNode(second);
+        RDGNode similarCandidate = context.getSimilarNode(second);
         Assert.assertNull("Nodes with same FDTMC and presence condition and different dependencies should NOT be equal",
                 similarCandidate);
 
         second.addDependency(BSNNodes.getMemoryRDGNode());
         first.addDependency(BSNNodes.getSQLiteRDGNode());
 
-        similarCandidate = RDGNode.getSimilarNode(second);
+        similarCandidate = context.getSimilarNode(second);
         Assert.assertEquals("Nodes with same FDTMC, presence condition and dependencies should be equal",
                 first, similarCandidate);
     }
 
+    @Test
+    public void testStructuralHashTracksModifications() {
+        FDTMC firstFDTMC = FDTMCStub.createPulseRateFDTMC();
+        FDTMC secondFDTMC = FDTMCStub.createPulseRateFDTMC();
+        RDGNode first = new RDGNode(context, context.getNextId(), "PulseRate", firstFDTMC);
+        RDGNode second = new RDGNode(context, context.getNextId(), "PulseRate", secondFDTMC);
+        RDGNode parent = new RDGNode(context, context.getNextId(), "true", FDTMCStub.createSqliteFDTMC());
+        parent.addDependency(second);
+
+        Assert.assertEquals("Hash should not depend on the node's id",
+                first.getStructuralHash(), second.getStructuralHash());
+        Assert.assertSame(first, context.getSimilarNode(second));
+
+        long parentHash = parent.getStructuralHash();
+        secondFDTMC.createState();
+        Assert.assertNotEquals(first.getStructuralHash(), second.getStructuralHash());
+        Assert.assertNotEquals("Changes should propagate to dependents",
+                parentHash, parent.getStructuralHash());
+        Assert.assertNotSame(first, context.getSimilarNode(second));
+    }
+
 }
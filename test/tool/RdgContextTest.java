@@ -0,0 +1,54 @@
+package tool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+
+public class RdgContextTest {
+
+    @Test
+    public void testContextsAreIsolated() {
+        RdgContext first = new RdgContext();
+        RdgContext second = new RdgContext();
+        FDTMC sqliteFDTMC = FDTMCStub.createSqliteFDTMC();
+        RDGNode node = new RDGNode(first, "sqlite", "SQLite", sqliteFDTMC);
+        RDGNode similar = new RDGNode(second, "other", "SQLite", sqliteFDTMC);
+
+        Assert.assertSame(node, first.getById("sqlite"));
+        Assert.assertNull(second.getById("sqlite"));
+        Assert.assertNull("Nodes from other contexts should not be reused",
+                second.getSimilarNode(similar));
+        Assert.assertEquals(first.getNextId(), second.getNextId());
+    }
+
+    @Test
+    public void testConcurrentNodeCreation() {
+        RdgContext context = new RdgContext();
+        Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        List<RDGNode> nodes = IntStream.range(0, 200).parallel()
+                .mapToObj(i -> {
+                    String id = context.getNextId();
+                    ids.add(id);
+                    return new RDGNode(context, id, "SQLite", FDTMCStub.createSqliteFDTMC());
+                })
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(200, ids.size());
+        Assert.assertEquals(200, context.getNodesNumber());
+        for (RDGNode node: nodes) {
+            Assert.assertSame(node, context.getById(node.getId()));
+            // The similar node is the first one created (other than the target).
+            int expected = (node.getCreationIndex() == 0) ? 1 : 0;
+            Assert.assertEquals(expected, context.getSimilarNode(node).getCreationIndex());
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package tool;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tool.analyzers.buildingblocks.Component;
+import fdtmc.FDTMC;
+
+public class RdgDagTest {
+
+    @Test
+    public void testTopologicalOrderEndsWithRoot() throws CyclicRdgException {
+        RDGNode situation = BSNNodes.getSituationRDGNode();
+        RdgDag dag = RdgDag.of(situation);
+
+        Assert.assertSame(situation, dag.getRoot());
+        Assert.assertEquals(dag.size() - 1, dag.getId(situation));
+        for (int id = 0; id < dag.size(); id++) {
+            Assert.assertEquals(id, dag.getId(dag.getNode(id)));
+            for (int i = 0; i < dag.getDependenciesNumber(id); i++) {
+                Assert.assertTrue("Dependencies must come before their dependents",
+                                  dag.getDependency(id, i) < id);
+            }
+        }
+        RdgContext context = new RdgContext();
+        RDGNode outsider = new RDGNode(context, context.getNextId(), "true", new FDTMC());
+        Assert.assertEquals(-1, dag.getId(outsider));
+    }
+
+    @Test
+    public void testHeightsAndLevels() throws CyclicRdgException {
+        RDGNode situation = BSNNodes.getSituationRDGNode();
+        RDGNode pulseRate = BSNNodes.getPulseRateRDGNode();
+        RDGNode sqlite = BSNNodes.getSQLiteRDGNode();
+        RdgDag dag = RdgDag.of(situation);
+
+        Assert.assertEquals(0, dag.getHeight(dag.getId(sqlite)));
+        Assert.assertEquals(1, dag.getHeight(dag.getId(pulseRate)));
+        Assert.assertEquals(2, dag.getHeight(dag.getId(situation)));
+
+        Assert.assertEquals(3, dag.getLevelsNumber());
+        int levelled = 0;
+        for (int height = 0; height < dag.getLevelsNumber(); height++) {
+            for (RDGNode node: dag.getLevel(height)) {
+                Assert.assertEquals(height, dag.getHeight(dag.getId(node)));
+                levelled++;
+            }
+        }
+        Assert.assertEquals(dag.size(), levelled);
+    }
+
+    @Test
+    public void testNumberOfPaths() throws CyclicRdgException {
+        RDGNode situation = BSNNodes.getSituationRDGNode();
+        RdgDag dag = RdgDag.of(situation);
+        long[] numberOfPaths = dag.getNumberOfPaths();
+
+        Assert.assertEquals(2, numberOfPaths[dag.getId(BSNNodes.getSQLiteRDGNode())]);
+        Assert.assertEquals(2, numberOfPaths[dag.getId(BSNNodes.getMemoryRDGNode())]);
+        Assert.assertEquals(2, numberOfPaths[dag.getId(BSNNodes.getFileRDGNode())]);
+        Assert.assertEquals(1, numberOfPaths[dag.getId(BSNNodes.getOxygenationRDGNode())]);
+        Assert.assertEquals(1, numberOfPaths[dag.getId(BSNNodes.getPulseRateRDGNode())]);
+        Assert.assertEquals(1, numberOfPaths[dag.getId(situation)]);
+        Assert.assertEquals(9, dag.getTotalNumberOfPaths());
+    }
+
+    @Test
+    public void testLongChain() throws CyclicRdgException {
+        RdgContext context = new RdgContext();
+        RDGNode node = new RDGNode(context, context.getNextId(), "true", FDTMCStub.createSqliteFDTMC());
+        for (int i = 0; i < 2000; i++) {
+            RDGNode dependent = new RDGNode(context, context.getNextId(), "true", new FDTMC());
+            dependent.addDependency(node);
+            node = dependent;
+        }
+        RdgDag dag = RdgDag.of(node);
+
+        Assert.assertEquals(2001, dag.size());
+        Assert.assertEquals(2000, dag.getHeight(dag.getId(node)));
+        Assert.assertEquals(2001, dag.getTotalNumberOfPaths());
+    }
+
+    @Test
+    public void testComponentsOfSharedDependenciesAreShared() throws CyclicRdgException {
+        RdgDag dag = RdgDag.of(BSNNodes.getSituationRDGNode());
+        List<Component<FDTMC>> components = dag.toComponentList();
+
+        Assert.assertEquals(dag.size(), components.size());
+        Component<FDTMC> sqlite = components.get(dag.getId(BSNNodes.getSQLiteRDGNode()));
+        Component<FDTMC> pulseRate = components.get(dag.getId(BSNNodes.getPulseRateRDGNode()));
+        Component<FDTMC> oxygenation = components.get(dag.getId(BSNNodes.getOxygenationRDGNode()));
+        Assert.assertTrue(pulseRate.getDependencies().contains(sqlite));
+        Assert.assertTrue(oxygenation.getDependencies().contains(sqlite));
+    }
+
+    @Test(expected = CyclicRdgException.class)
+    public void testCycleIsDetected() throws CyclicRdgException {
+        RdgContext context = new RdgContext();
+        RDGNode first = new RDGNode(context, context.getNextId(), "A", new FDTMC());
+        RDGNode second = new RDGNode(context, context.getNextId(), "B", new FDTMC());
+        first.addDependency(second);
+        second.addDependency(first);
+
+        RdgDag.of(first);
+    }
+
+}
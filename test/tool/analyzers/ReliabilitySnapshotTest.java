@@ -0,0 +1,94 @@
+package tool.analyzers;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.PartialConfiguration;
+import tool.UnknownFeatureException;
+
+public class ReliabilitySnapshotTest {
+
+    JADD jadd;
+    ReliabilitySnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        jadd = new JADD();
+        // A ? (B ? 0.9 : 0.8) : (C ? 0.7 : invalid), and D is a free feature.
+        ADD reliability = ADD.ite(jadd.getVariable("A"),
+                                  ADD.ite(jadd.getVariable("B"), jadd.makeConstant(0.9), jadd.makeConstant(0.8)),
+                                  ADD.ite(jadd.getVariable("C"), jadd.makeConstant(0.7), jadd.makeConstant(0)));
+        snapshot = ReliabilitySnapshot.of(reliability, Arrays.asList("A", "B", "C", "D"));
+    }
+
+    @Test
+    public void testReliabilitiesMatchTheFunction() {
+        Assert.assertEquals(0.9, snapshot.getReliability(Arrays.asList("A", "B", "D")), 0);
+        Assert.assertEquals(0.8, snapshot.getReliability(Arrays.asList("A", "C")), 0);
+        Assert.assertEquals(0.7, snapshot.getReliability(Arrays.asList("B", "C")), 0);
+        Assert.assertEquals(0, snapshot.getReliability(Arrays.asList("B", "D")), 0);
+        Assert.assertEquals(0.9, snapshot.getResult(new String[] {"A", "B"}), 0);
+        try {
+            snapshot.getReliability(Collections.singletonList("E"));
+            Assert.fail("E is not a feature");
+        } catch (UnknownFeatureException e) {
+            Assert.assertEquals("E", e.getFeatureName());
+        }
+    }
+
+    @Test
+    public void testAggregatesCountFreeFeatures() {
+        ReliabilitySnapshot.Aggregate all = snapshot.aggregate();
+        // 4 configurations for each of 0.9 and 0.8 (C and D are free), 4 for 0.7 (B and D are free).
+        Assert.assertEquals(12, all.getConfigurationsNumber(), 0);
+        Assert.assertEquals(0.7, all.getMinimum(), 0);
+        Assert.assertEquals(0.9, all.getMaximum(), 0);
+        Assert.assertEquals(0.8, all.getMean(), 1E-14);
+
+        ReliabilitySnapshot.Aggregate withoutA = snapshot.aggregate(PartialConfiguration.parse("!A"));
+        Assert.assertEquals(4, withoutA.getConfigurationsNumber(), 0);
+        Assert.assertEquals(0.7, withoutA.getMean(), 1E-14);
+
+        ReliabilitySnapshot.Aggregate withDWithoutB = snapshot.aggregate(PartialConfiguration.parse("D, !B"));
+        // {A, D}, {A, C, D} and {C, D}.
+        Assert.assertEquals(3, withDWithoutB.getConfigurationsNumber(), 0);
+        Assert.assertEquals((0.8 + 0.8 + 0.7) / 3, withDWithoutB.getMean(), 1E-14);
+
+        ReliabilitySnapshot.Aggregate empty = snapshot.aggregate(PartialConfiguration.parse("!A, !C"));
+        Assert.assertEquals(0, empty.getConfigurationsNumber(), 0);
+        Assert.assertTrue(Double.isNaN(empty.getMean()));
+    }
+
+    @Test
+    public void testRankingsFollowReliabilities() {
+        List<ReliabilitySnapshot.RankedConfiguration> highest = snapshot.rank(3, true);
+        Assert.assertEquals(3, highest.size());
+        Set<Set<String>> distinct = new HashSet<Set<String>>();
+        for (ReliabilitySnapshot.RankedConfiguration ranked: highest) {
+            Assert.assertEquals(0.9, ranked.getReliability(), 0);
+            Assert.assertEquals(0.9, snapshot.getReliability(ranked.getConfiguration()), 0);
+            distinct.add(new HashSet<String>(ranked.getConfiguration()));
+        }
+        Assert.assertEquals(3, distinct.size());
+
+        List<ReliabilitySnapshot.RankedConfiguration> lowest = snapshot.rank(5, false);
+        Assert.assertEquals(5, lowest.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0.7, lowest.get(i).getReliability(), 0);
+        }
+        Assert.assertEquals(0.8, lowest.get(4).getReliability(), 0);
+
+        Assert.assertEquals(12, snapshot.rank(100, true).size());
+    }
+
+}
@@ -0,0 +1,72 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tool.CyclicRdgException;
+import tool.RDGNode;
+import tool.RdgContext;
+import tool.RdgDag;
+import expressionsolver.ExpressionSolver;
+import fdtmc.FDTMC;
+
+public class GrayCodeOrderTest {
+
+    @Test
+    public void testSuccessiveConfigurationsDifferInOneFeature() throws CyclicRdgException {
+        RdgContext context = new RdgContext();
+        RDGNode a = new RDGNode(context, "a", "A", new FDTMC());
+        RDGNode b = new RDGNode(context, "b", "B && !C", new FDTMC());
+        RDGNode root = new RDGNode(context, "root", "true", new FDTMC());
+        root.addDependency(a);
+        root.addDependency(b);
+        FeatureSupports supports = new FeatureSupports(RdgDag.of(root), new ExpressionSolver(new JADD()));
+
+        List<Collection<String>> configurations = new ArrayList<Collection<String>>();
+        for (int i = 0; i < 8; i++) {
+            List<String> configuration = new ArrayList<String>();
+            configuration.add("Root");
+            if ((i & 1) != 0) {
+                configuration.add("A");
+            }
+            if ((i & 2) != 0) {
+                configuration.add("B");
+            }
+            if ((i & 4) != 0) {
+                configuration.add("C");
+            }
+            configurations.add(configuration);
+        }
+        List<Collection<String>> sorted = GrayCodeOrder.sort(configurations.stream(), supports);
+
+        Assert.assertEquals(new HashSet<Collection<String>>(configurations),
+                            new HashSet<Collection<String>>(sorted));
+        for (int i = 1; i < sorted.size(); i++) {
+            Set<String> difference = new HashSet<String>(sorted.get(i));
+            difference.addAll(sorted.get(i - 1));
+            Set<String> common = new HashSet<String>(sorted.get(i));
+            common.retainAll(sorted.get(i - 1));
+            difference.removeAll(common);
+            Assert.assertEquals(sorted.get(i - 1) + " -> " + sorted.get(i), 1, difference.size());
+        }
+    }
+
+    @Test
+    public void testRankInvertsGrayCode() {
+        for (int position = 0; position < 64; position++) {
+            long word = position ^ (position >> 1);
+            Assert.assertEquals(BitSet.valueOf(new long[]{position}),
+                                GrayCodeOrder.rank(BitSet.valueOf(new long[]{word})));
+        }
+    }
+
+}
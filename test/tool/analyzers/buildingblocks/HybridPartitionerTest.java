@@ -0,0 +1,93 @@
+package tool.analyzers.buildingblocks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tool.CyclicRdgException;
+import tool.RDGNode;
+import tool.RdgContext;
+import tool.RdgDag;
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class HybridPartitionerTest {
+
+    @Test
+    public void testRegionsOnlyTakeNodesUsedWithinThem() throws CyclicRdgException {
+        RdgContext context = new RdgContext();
+        RDGNode shared = new RDGNode(context, "shared", "S", createFDTMC("shared"));
+        RDGNode a = new RDGNode(context, "a", "A", createFDTMC("a"));
+        RDGNode b = new RDGNode(context, "b", "B", createFDTMC("b"));
+        RDGNode c = new RDGNode(context, "c", "true", createFDTMC("c"));
+        a.addDependency(shared);
+        b.addDependency(shared);
+        RDGNode root = new RDGNode(context, "root", "true", createFDTMC("root"));
+        root.addDependency(a);
+        root.addDependency(b);
+        c.addDependency(a);
+        RDGNode top = new RDGNode(context, "top", "true", createFDTMC("top"));
+        top.addDependency(root);
+        top.addDependency(c);
+        RdgDag dag = RdgDag.of(top);
+
+        HybridPartitioner.Partition partition = new HybridPartitioner().partition(dag);
+
+        // Every node is only reachable through the top one, so the whole
+        // RDG collapses into its region (even "a", used by "root" and "c").
+        Assert.assertEquals(1, partition.getRegionsNumber());
+        Assert.assertEquals(dag.size() - 1, partition.getCollapsedNodesNumber());
+        int topId = dag.getId(top);
+        Assert.assertEquals(topId, (int) partition.getMembers(topId).get(dag.size() - 1));
+        Assert.assertEquals(Collections.emptyList(), partition.getBoundary(topId));
+
+        // A single presence condition (true) allowed: "top" only takes
+        // "root" and "c", so "a", "b" and "shared" are analyzed on their own.
+        partition = new HybridPartitioner(HybridPartitioner.DEFAULT_MAX_MODEL_SIZE, 1).partition(dag);
+        int rootId = dag.getId(root);
+        int aId = dag.getId(a);
+        for (int id = 0; id < dag.size(); id++) {
+            int owner = partition.getOwner(id);
+            Assert.assertTrue(owner == id || owner == partition.getOwner(owner));
+            for (int i = 0; i < dag.getDependentsNumber(id); i++) {
+                // Collapsed nodes are only used within their regions.
+                if (owner != id) {
+                    Assert.assertEquals(owner, partition.getOwner(dag.getDependent(id, i)));
+                }
+            }
+        }
+        Assert.assertEquals(topId, partition.getOwner(rootId));
+        Assert.assertEquals(topId, partition.getOwner(dag.getId(c)));
+        Assert.assertEquals(aId, partition.getOwner(aId));
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(aId, dag.getId(b))),
+                            new HashSet<Integer>(partition.getBoundary(topId)));
+    }
+
+    @Test
+    public void testLargeModelsAreNotCollapsed() throws CyclicRdgException {
+        RdgContext context = new RdgContext();
+        RDGNode leaf = new RDGNode(context, "leaf", "A", createFDTMC("leaf"));
+        RDGNode root = new RDGNode(context, "root", "true", createFDTMC("root"));
+        root.addDependency(leaf);
+        RdgDag dag = RdgDag.of(root);
+
+        HybridPartitioner.Partition partition = new HybridPartitioner(5, 4).partition(dag);
+
+        Assert.assertEquals(0, partition.getRegionsNumber());
+        Assert.assertEquals(Collections.singletonList(1), partition.getMembers(1));
+        Assert.assertEquals(Collections.singletonList(0), partition.getBoundary(1));
+    }
+
+    private static FDTMC createFDTMC(String variableName) {
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName(variableName);
+        State init = fdtmc.createInitialState();
+        fdtmc.createTransition(init, fdtmc.createSuccessState(), "ok", "0.9");
+        fdtmc.createTransition(init, fdtmc.createErrorState(), "fail", "0.1");
+        return fdtmc;
+    }
+
+}
@@ -0,0 +1,111 @@
+package tool.analyzers.buildingblocks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import paramwrapper.ModelMetrics;
+import tool.BSNNodes;
+import tool.RDGNode;
+
+public class ModelCheckingSchedulerTest {
+    private ModelCheckingScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ModelCheckingScheduler(new ModelCheckingCostModel(), 1);
+    }
+
+    @Test
+    public void testMostExpensiveJobsRunFirst() {
+        RDGNode sqlite = BSNNodes.getSQLiteRDGNode();
+        RDGNode pulseRate = BSNNodes.getPulseRateRDGNode();
+        RDGNode situation = BSNNodes.getSituationRDGNode();
+        List<RDGNode> nodes = Arrays.asList(sqlite, pulseRate, situation);
+
+        List<String> executionOrder = Collections.synchronizedList(new LinkedList<String>());
+        Map<String, String> results = scheduler.schedule(nodes,
+                                                         node -> {
+                                                             executionOrder.add(node.getId());
+                                                             return node.getId();
+                                                         },
+                                                         ConcurrencyStrategy.PARALLEL);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(situation.getId(), results.get(situation.getId()));
+
+        ModelCheckingCostModel prior = new ModelCheckingCostModel();
+        for (int i = 1; i < executionOrder.size(); i++) {
+            Assert.assertTrue("Jobs should be dispatched in decreasing order of estimated cost",
+                    prior.estimate(metricsOf(executionOrder.get(i - 1), nodes))
+                        >= prior.estimate(metricsOf(executionOrder.get(i), nodes)));
+        }
+        Assert.assertEquals(3, scheduler.getTimings().size());
+    }
+
+    @Test
+    public void testResultsAreHandedToTheCallingThreadAsTheyComplete() {
+        scheduler.setWorkers(2);
+        List<RDGNode> nodes = Arrays.asList(BSNNodes.getSQLiteRDGNode(),
+                                            BSNNodes.getPulseRateRDGNode(),
+                                            BSNNodes.getSituationRDGNode());
+        Thread caller = Thread.currentThread();
+
+        List<String> received = new LinkedList<String>();
+        Map<String, String> results = scheduler.schedule(nodes,
+                                                         RDGNode::getId,
+                                                         ConcurrencyStrategy.PARALLEL,
+                                                         (node, result) -> {
+                                                             Assert.assertSame(caller, Thread.currentThread());
+                                                             Assert.assertEquals(node.getId(), result);
+                                                             received.add(result);
+                                                         });
+
+        Assert.assertEquals(3, received.size());
+        Assert.assertEquals(results.keySet(), new HashSet<String>(received));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJobFailureIsPropagated() {
+        List<RDGNode> nodes = Arrays.asList(BSNNodes.getSQLiteRDGNode(),
+                                            BSNNodes.getPulseRateRDGNode());
+        scheduler.schedule(nodes,
+                           node -> {
+                               throw new IllegalArgumentException(node.getId());
+                           },
+                           ConcurrencyStrategy.SEQUENTIAL);
+    }
+
+    @Test
+    public void testCostModelLearnsFromObservedTimes() {
+        ModelCheckingCostModel costModel = new ModelCheckingCostModel();
+        ModelMetrics numeric = new ModelMetrics(100, 200, 0);
+        ModelMetrics parametric = new ModelMetrics(10, 20, 5);
+        // Prior: parametric blow-up is not enough to outweigh size.
+        Assert.assertTrue(costModel.estimate(numeric) > costModel.estimate(parametric));
+
+        costModel.observe(numeric, 1000);
+        costModel.observe(parametric, 1000000);
+        costModel.observe(new ModelMetrics(50, 100, 0), 500);
+
+        Assert.assertTrue(costModel.estimate(parametric) > costModel.estimate(numeric));
+        Assert.assertEquals(1000000, costModel.estimate(parametric), 1);
+    }
+
+    private static ModelMetrics metricsOf(String id, List<RDGNode> nodes) {
+        for (RDGNode node : nodes) {
+            if (node.getId().equals(id)) {
+                return ModelMetrics.of(node.getFDTMC());
+            }
+        }
+        return null;
+    }
+
+}
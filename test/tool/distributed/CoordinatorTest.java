@@ -0,0 +1,124 @@
+package tool.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoordinatorTest {
+
+    Coordinator coordinator;
+    ExecutorService pool;
+
+    @Before
+    public void setUp() throws IOException {
+        coordinator = new Coordinator(0);
+        pool = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        coordinator.close();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testUnitsAreSpreadAmongWorkers() throws Exception {
+        List<Future<Integer>> workers = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 3; i++) {
+            workers.add(startWorker(unit -> unit.getPayload().toUpperCase()));
+        }
+
+        Map<String, String> results = coordinator.distribute(createUnits(20));
+
+        Assert.assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("PAYLOAD " + i, results.get(Integer.toString(i)));
+        }
+        int processedUnits = 0;
+        for (Future<Integer> worker: workers) {
+            processedUnits += worker.get();
+        }
+        Assert.assertEquals(20, processedUnits);
+    }
+
+    @Test
+    public void testUnitsOfLostWorkersAreReassigned() throws Exception {
+        Future<Map<String, String>> results = pool.submit(() -> coordinator.distribute(createUnits(5)));
+
+        // A worker which dies right after taking a unit.
+        String lostUnitId;
+        try (Socket connection = new Socket("localhost", coordinator.getPort())) {
+            DataOutputStream out = new DataOutputStream(connection.getOutputStream());
+            DataInputStream in = new DataInputStream(connection.getInputStream());
+            Frames.write(out, Frames.READY);
+            Frames.Frame frame = Frames.read(in);
+            Assert.assertEquals(Frames.UNIT, frame.getType());
+            lostUnitId = frame.getField(0);
+        }
+        Future<Integer> worker = startWorker(unit -> unit.getPayload().toUpperCase());
+
+        Assert.assertEquals(5, results.get().size());
+        Assert.assertEquals("PAYLOAD " + lostUnitId, results.get().get(lostUnitId));
+        Assert.assertEquals(5, (int) worker.get());
+    }
+
+    @Test
+    public void testRepeatedlyFailingUnitsFailTheDistribution() throws Exception {
+        Future<Integer> worker = startWorker(unit -> {
+            if (unit.getId().equals("3")) {
+                throw new IllegalArgumentException("Bad unit");
+            }
+            return unit.getPayload();
+        });
+
+        try {
+            coordinator.distribute(createUnits(5));
+            Assert.fail("A unit failing " + Coordinator.MAX_ATTEMPTS + " times should fail the distribution");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Bad unit"));
+        }
+        // The worker survives failures and is dismissed afterwards.
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            Assert.fail("Worker should be dismissed, not lost: " + e.getCause());
+        }
+    }
+
+    @Test
+    public void testOversizedFramesDropTheConnection() throws Exception {
+        try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(Frames.MAX_FRAME_LENGTH + 1);
+            out.flush();
+            Assert.assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private Future<Integer> startWorker(WorkUnitHandler handler) {
+        Worker worker = new Worker("localhost", coordinator.getPort(), handler);
+        return pool.submit(worker::run);
+    }
+
+    private static List<WorkUnit> createUnits(int unitsNumber) {
+        List<WorkUnit> units = new ArrayList<WorkUnit>();
+        for (int i = 0; i < unitsNumber; i++) {
+            units.add(new WorkUnit(Integer.toString(i), "test", "payload " + i));
+        }
+        return units;
+    }
+
+}